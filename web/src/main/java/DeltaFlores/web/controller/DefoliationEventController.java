@@ -1,10 +1,14 @@
 package DeltaFlores.web.controller;
 
 import DeltaFlores.web.dto.DefoliationEventDto;
+import DeltaFlores.web.dto.SliceDto;
 import DeltaFlores.web.exception.ResourceNotFoundException;
 import DeltaFlores.web.service.events.DefoliationEventService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.log4j.Log4j2;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.mapping.PropertyReferenceException;
+import org.springframework.data.web.PageableDefault;
 import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
@@ -67,6 +71,23 @@ public class DefoliationEventController {
         }
     }
 
+    @GetMapping("/page")
+    @PreAuthorize("hasRole('GROWER') or hasRole('ADMIN')")
+    public ResponseEntity<SliceDto<DefoliationEventDto>> getDefoliationEventsPage(@PageableDefault(size = 50, sort = "id") Pageable pageable) {
+        log.info("\n\n[Capa Controller] \uD83D\uDD0E Solicitud para obtener la página {} de eventos de defoliación.", pageable.getPageNumber());
+        try {
+            SliceDto<DefoliationEventDto> page = defoliationEventService.getDefoliationEventsPage(pageable);
+            log.info("\n\n[Capa Controller] \u2705 {} eventos de defoliación obtenidos en la página {}.", page.getContent().size(), page.getPage());
+            return ResponseEntity.ok(page);
+        } catch (PropertyReferenceException e) {
+            log.warn("\n\n[Capa Controller] \u26A0\uFE0F Orden inválido al obtener la página de eventos de defoliación: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).build();
+        } catch (Exception e) {
+            log.error("\n\n[Capa Controller] \u274C Error al obtener la página de eventos de defoliación: {}", e.getMessage(), e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+        }
+    }
+
     @GetMapping("/planta/{plantaId}")
     @PreAuthorize("hasRole('GROWER') or hasRole('ADMIN')")
     public ResponseEntity<List<DefoliationEventDto>> getDefoliationEventsByPlantaId(@PathVariable Long plantaId) {
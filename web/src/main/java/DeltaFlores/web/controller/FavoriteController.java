@@ -1,5 +1,7 @@
 package DeltaFlores.web.controller;
 
+import DeltaFlores.web.dto.FavoriteMembershipDto;
+import DeltaFlores.web.dto.FavoritesDto;
 import DeltaFlores.web.dto.PlantaDto;
 import DeltaFlores.web.dto.SalaDto;
 import DeltaFlores.web.dto.UserDto;
@@ -68,6 +70,20 @@ public class FavoriteController {
         return ResponseEntity.noContent().build();
     }
 
+    // --- Get All Favorites ---
+
+    @GetMapping
+    public ResponseEntity<FavoritesDto> getAllFavorites(@RequestParam(defaultValue = "0") int page,
+                                                        @RequestParam(defaultValue = "20") int size) {
+        log.info("⭐ Solicitud para obtener la página {} de todos los favoritos del usuario actual.", page);
+        try {
+            return ResponseEntity.ok(favoriteService.getAllFavorites(page, size));
+        } catch (IllegalArgumentException e) {
+            log.warn("\n\n⚠️ [Capa Controller] Consulta de favoritos inválida: {}", e.getMessage());
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
     // --- Get Favorites by Type ---
 
     @GetMapping("/plantas")
@@ -90,4 +106,17 @@ public class FavoriteController {
         List<UserDto> favoritos = favoriteService.getFavoriteUsers();
         return ResponseEntity.ok(favoritos);
     }
+
+    // --- Membership Check ---
+
+    @GetMapping("/contains")
+    public ResponseEntity<FavoriteMembershipDto> checkFavorites(@RequestParam String type, @RequestParam List<Long> ids) {
+        log.info("⭐ Solicitud para verificar {} IDs de tipo {} en favoritos.", ids.size(), type);
+        try {
+            return ResponseEntity.ok(favoriteService.checkFavorites(type, ids));
+        } catch (IllegalArgumentException e) {
+            log.warn("\n\n⚠️ [Capa Controller] Consulta de favoritos inválida: {}", e.getMessage());
+            return ResponseEntity.badRequest().build();
+        }
+    }
 }
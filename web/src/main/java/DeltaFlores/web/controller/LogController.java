@@ -1,15 +1,21 @@
 package DeltaFlores.web.controller;
 
+import DeltaFlores.web.dto.LogQueryResultDto;
+import DeltaFlores.web.service.LogQueryService;
 import DeltaFlores.web.service.LogService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.log4j.Log4j2;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
 @RestController
@@ -19,6 +25,7 @@ import java.util.List;
 public class LogController {
 
     private final LogService logService;
+    private final LogQueryService logQueryService;
 
     /**
      * Endpoint para obtener las últimas líneas del archivo de log de la aplicación.
@@ -34,4 +41,49 @@ public class LogController {
         List<String> logs = logService.getLatestLogs(lines);
         return ResponseEntity.ok(logs);
     }
+
+    /**
+     * Endpoint de Server-Sent Events que envía las líneas nuevas del log a medida que se escriben.
+     * Cada evento "log" trae un arreglo JSON con las líneas agregadas desde el anterior.
+     * El acceso está restringido a usuarios con roles ADMIN o SUPER_ADMIN.
+     * @return El emisor SSE de la suscripción.
+     */
+    @GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @PreAuthorize("hasAnyRole('ADMIN', 'SUPER_ADMIN')")
+    public SseEmitter streamLogs() {
+        log.info("\n\n[Capa Controller] 📡 Solicitud para seguir los LOGS en vivo.");
+        return logService.subscribe();
+    }
+
+    /**
+     * Endpoint para buscar en el log actual y en los archivos rotados (.gz) de los últimos días.
+     * El acceso está restringido a usuarios con roles ADMIN o SUPER_ADMIN.
+     * @param from Inicio del rango (ISO, p. ej. 2025-01-31T08:00:00). Opcional.
+     * @param to Fin del rango. Opcional.
+     * @param level Nivel mínimo (TRACE, DEBUG, INFO, WARN, ERROR, FATAL). Opcional.
+     * @param logger Parte del nombre del logger (p. ej. PlantaService). Opcional.
+     * @param text Texto a buscar en el mensaje, sin distinguir mayúsculas. Opcional.
+     * @param limit Cantidad máxima de entradas (máximo 2000). Por defecto, 200.
+     * @return Las entradas encontradas, en orden cronológico.
+     */
+    @GetMapping("/search")
+    @PreAuthorize("hasAnyRole('ADMIN', 'SUPER_ADMIN')")
+    public ResponseEntity<LogQueryResultDto> searchLogs(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(required = false) String level,
+            @RequestParam(required = false) String logger,
+            @RequestParam(required = false) String text,
+            @RequestParam(defaultValue = "200") int limit) {
+        log.info("\n\n[Capa Controller] 🔎 Solicitud para buscar en los LOGS.");
+        try {
+            return ResponseEntity.ok(logQueryService.search(new LogQueryService.LogQuery(from, to, level, logger, text, limit)));
+        } catch (IllegalArgumentException e) {
+            log.warn("\n\n[Capa Controller] ⚠️ Búsqueda de logs inválida: {}", e.getMessage());
+            return ResponseEntity.badRequest().build();
+        } catch (IllegalStateException e) {
+            log.error("\n\n[Capa Controller] ❌ {}", e.getMessage());
+            return ResponseEntity.internalServerError().build();
+        }
+    }
 }
@@ -0,0 +1,106 @@
+package DeltaFlores.web.controller;
+
+import DeltaFlores.web.security.MediaUrlSignature;
+import DeltaFlores.web.service.LocalFileStorageService;
+import DeltaFlores.web.utils.MediaResponses;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.context.annotation.Profile;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Sirve los archivos del almacenamiento local (perfil 'local') sin cargarlos en memoria:
+ * usa sendfile de Tomcat cuando el conector lo soporta y, si no, FileChannel.transferTo hacia la respuesta.
+ * Soporta ETag / Last-Modified (304) y un rango de bytes por petición (206), que es lo que usan los reproductores de video.
+ */
+@RestController
+@RequestMapping("/api/media")
+@Profile("local")
+@RequiredArgsConstructor
+@Log4j2
+public class MediaController {
+
+    private static final String SENDFILE_SUPPORT_ATTR = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME_ATTR = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START_ATTR = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END_ATTR = "org.apache.tomcat.sendfile.end";
+
+    private final LocalFileStorageService localFileStorageService;
+    private final MediaUrlSignature mediaUrlSignature;
+
+    @RequestMapping(value = "/{objectName:.+}", method = {RequestMethod.GET, RequestMethod.HEAD})
+    public void getMedia(@PathVariable String objectName,
+                         @RequestParam(required = false) Long expires,
+                         @RequestParam(required = false) String signature,
+                         HttpServletRequest request,
+                         HttpServletResponse response) throws IOException {
+        if (!mediaUrlSignature.isAuthorized(objectName, expires, signature)) {
+            log.warn("\n\n[Capa Controller] ⚠️ Acceso denegado al archivo {}: sin sesión ni firma válida.", objectName);
+            response.sendError(HttpServletResponse.SC_FORBIDDEN);
+            return;
+        }
+
+        Path file;
+        long length;
+        long lastModified;
+        try {
+            file = localFileStorageService.resolveFile(objectName);
+            if (objectName.endsWith(".uploading")) {
+                throw new NoSuchFileException(objectName);
+            }
+            length = Files.size(file);
+            lastModified = Files.getLastModifiedTime(file).toMillis();
+        } catch (IllegalArgumentException | NoSuchFileException e) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+
+        // Los nombres de objeto son únicos (UUID o hash), así que tamaño + fecha identifican el contenido
+        String etag = "\"" + Long.toHexString(length) + "-" + Long.toHexString(lastModified) + "\"";
+        MediaResponses.ByteSpan span = MediaResponses.prepare(request, response, objectName, length, etag, lastModified);
+        if (span == null) {
+            return;
+        }
+        long start = span.start();
+        long count = span.count();
+
+        if (Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT_ATTR))) {
+            // Tomcat envía el archivo con sendfile al terminar la petición, sin pasar por la JVM
+            request.setAttribute(SENDFILE_FILENAME_ATTR, file.toAbsolutePath().toString());
+            request.setAttribute(SENDFILE_START_ATTR, start);
+            request.setAttribute(SENDFILE_END_ATTR, start + count);
+            return;
+        }
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            OutputStream out = response.getOutputStream();
+            WritableByteChannel target = Channels.newChannel(out);
+            long position = start;
+            long remaining = count;
+            while (remaining > 0) {
+                long transferred = channel.transferTo(position, remaining, target);
+                if (transferred <= 0) {
+                    break;
+                }
+                position += transferred;
+                remaining -= transferred;
+            }
+            out.flush();
+        } catch (IOException e) {
+            // Lo habitual es que el cliente haya cortado la descarga (p. ej. al adelantar un video)
+            log.debug("\n\n[Capa Controller] Descarga de {} interrumpida: {}", objectName, e.getMessage());
+        }
+    }
+}
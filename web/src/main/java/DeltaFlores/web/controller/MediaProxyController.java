@@ -0,0 +1,99 @@
+package DeltaFlores.web.controller;
+
+import DeltaFlores.web.security.MediaUrlSignature;
+import DeltaFlores.web.service.MediaCacheService;
+import DeltaFlores.web.utils.MediaResponses;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.context.annotation.Profile;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Proxy de los archivos del bucket (MinIO o GCS) servido desde la caché en disco de MediaCacheService.
+ * El cuerpo se lee con memoria mapeada por ventanas, sin copiar el archivo al heap.
+ */
+@RestController
+@RequestMapping("/api/media")
+@Profile("!local")
+@RequiredArgsConstructor
+@Log4j2
+public class MediaProxyController {
+
+    // Ventana de mapeo: acota el espacio de direcciones usado por petición en videos grandes
+    private static final long MAP_WINDOW_BYTES = 16L * 1024 * 1024;
+
+    private final MediaCacheService mediaCacheService;
+    private final MediaUrlSignature mediaUrlSignature;
+
+    @RequestMapping(value = "/{objectName:.+}", method = {RequestMethod.GET, RequestMethod.HEAD})
+    public void getMedia(@PathVariable String objectName,
+                         @RequestParam(required = false) Long expires,
+                         @RequestParam(required = false) String signature,
+                         HttpServletRequest request,
+                         HttpServletResponse response) throws IOException {
+        if (!mediaUrlSignature.isAuthorized(objectName, expires, signature)) {
+            log.warn("\n\n[Capa Controller] ⚠️ Acceso denegado al archivo {}: sin sesión ni firma válida.", objectName);
+            response.sendError(HttpServletResponse.SC_FORBIDDEN);
+            return;
+        }
+
+        // El archivo se abre antes de escribir cabeceras: si evictOverflow lo borra en el medio se vuelve a descargar,
+        // y una vez abierto el borrado ya no corta la lectura
+        MediaCacheService.CachedMedia cached = null;
+        FileChannel channel = null;
+        for (int attempt = 0; attempt < 2 && channel == null; attempt++) {
+            try {
+                cached = mediaCacheService.get(objectName);
+                channel = FileChannel.open(cached.path(), StandardOpenOption.READ);
+            } catch (NoSuchFileException e) {
+                mediaCacheService.evict(objectName);
+            } catch (RuntimeException e) {
+                log.warn("\n\n[Capa Controller] ⚠️ No se pudo obtener el archivo {} del almacenamiento: {}", objectName, e.getMessage());
+                response.sendError(HttpServletResponse.SC_NOT_FOUND);
+                return;
+            }
+        }
+        if (channel == null) {
+            log.warn("\n\n[Capa Controller] ⚠️ El archivo {} se quitó de la caché mientras se servía.", objectName);
+            response.sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+            return;
+        }
+
+        try (FileChannel source = channel) {
+            // Los objetos del bucket no cambian (nombres únicos), así que el ETag depende solo del nombre y el tamaño
+            String etag = "\"" + Long.toHexString(cached.size()) + "-" + cached.path().getFileName().toString().substring(0, 16) + "\"";
+            MediaResponses.ByteSpan span = MediaResponses.prepare(request, response, objectName, cached.size(), etag, cached.cachedAtMillis());
+            if (span == null) {
+                return;
+            }
+            OutputStream out = response.getOutputStream();
+            WritableByteChannel target = Channels.newChannel(out);
+            long position = span.start();
+            long remaining = span.count();
+            while (remaining > 0) {
+                long window = Math.min(remaining, MAP_WINDOW_BYTES);
+                MappedByteBuffer buffer = source.map(FileChannel.MapMode.READ_ONLY, position, window);
+                while (buffer.hasRemaining()) {
+                    target.write(buffer);
+                }
+                position += window;
+                remaining -= window;
+            }
+            out.flush();
+        } catch (IOException e) {
+            // Lo habitual es que el cliente haya cortado la descarga (p. ej. al adelantar un video)
+            log.debug("\n\n[Capa Controller] Descarga de {} interrumpida: {}", objectName, e.getMessage());
+        }
+    }
+}
@@ -1,13 +1,20 @@
 package DeltaFlores.web.controller;
 
+import DeltaFlores.web.dto.MediaUploadRequestDto;
 import DeltaFlores.web.dto.NoteEventDto;
+import DeltaFlores.web.dto.PresignedUploadDto;
+import DeltaFlores.web.dto.SliceDto;
 import DeltaFlores.web.exception.ResourceNotFoundException;
 import DeltaFlores.web.service.events.NoteEventService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.log4j.Log4j2;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.mapping.PropertyReferenceException;
+import org.springframework.data.web.PageableDefault;
 import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.AccessDeniedException;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
@@ -33,12 +40,39 @@ public class NoteEventController {
             NoteEventDto createdEvent = noteEventService.createNoteEvent(noteEventDto, files);
             log.info("\n\n[Capa Controller] ✅ Evento de nota creado con éxito con ID: {}", createdEvent.getId());
             return new ResponseEntity<>(createdEvent, HttpStatus.CREATED);
+        } catch (AccessDeniedException e) {
+            log.warn("\n\n[Capa Controller] ⚠️ Archivos no permitidos al crear evento de nota: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        } catch (IllegalArgumentException e) {
+            log.warn("\n\n[Capa Controller] ⚠️ Archivos inválidos al crear evento de nota: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).build();
         } catch (Exception e) {
             log.error("\n\n[Capa Controller] ❌ Error inesperado al crear evento de nota: {}", e.getMessage(), e);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
         }
     }
 
+    @PostMapping("/media/presign")
+    @PreAuthorize("hasRole('GROWER') or hasRole('ADMIN')")
+    public ResponseEntity<List<PresignedUploadDto>> presignMediaUploads(@RequestBody List<MediaUploadRequestDto> requests) {
+        log.info("\n\n[Capa Controller] 🔏 Solicitud de URLs de subida prefirmadas para eventos de nota.");
+        if (!noteEventService.supportsPresignedUploads()) {
+            log.warn("\n\n[Capa Controller] ⚠️ El almacenamiento configurado no admite subidas prefirmadas.");
+            return ResponseEntity.status(HttpStatus.NOT_IMPLEMENTED).build();
+        }
+        try {
+            List<PresignedUploadDto> uploads = noteEventService.presignMediaUploads(requests);
+            log.info("\n\n[Capa Controller] ✅ {} URLs de subida generadas.", uploads.size());
+            return ResponseEntity.ok(uploads);
+        } catch (IllegalArgumentException e) {
+            log.warn("\n\n[Capa Controller] ⚠️ Solicitud de URLs de subida inválida: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).build();
+        } catch (Exception e) {
+            log.error("\n\n[Capa Controller] ❌ Error al generar URLs de subida: {}", e.getMessage(), e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+        }
+    }
+
     @GetMapping("/{id}")
     @PreAuthorize("hasRole('GROWER') or hasRole('ADMIN')")
     public ResponseEntity<NoteEventDto> getNoteEventById(@PathVariable Long id) {
@@ -70,6 +104,23 @@ public class NoteEventController {
         }
     }
 
+    @GetMapping("/page")
+    @PreAuthorize("hasRole('GROWER') or hasRole('ADMIN')")
+    public ResponseEntity<SliceDto<NoteEventDto>> getNoteEventsPage(@PageableDefault(size = 50, sort = "id") Pageable pageable) {
+        log.info("\n\n[Capa Controller] 🔎 Solicitud para obtener la página {} de eventos de nota.", pageable.getPageNumber());
+        try {
+            SliceDto<NoteEventDto> page = noteEventService.getNoteEventsPage(pageable);
+            log.info("\n\n[Capa Controller] ✅ {} eventos de nota obtenidos en la página {}.", page.getContent().size(), page.getPage());
+            return ResponseEntity.ok(page);
+        } catch (PropertyReferenceException e) {
+            log.warn("\n\n[Capa Controller] ⚠️ Orden inválido al obtener la página de eventos de nota: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).build();
+        } catch (Exception e) {
+            log.error("\n\n[Capa Controller] ❌ Error al obtener la página de eventos de nota: {}", e.getMessage(), e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+        }
+    }
+
     @GetMapping("/planta/{plantaId}")
     @PreAuthorize("hasRole('GROWER') or hasRole('ADMIN')")
     public ResponseEntity<List<NoteEventDto>> getNoteEventsByPlantaId(@PathVariable Long plantaId) {
@@ -128,6 +179,12 @@ public class NoteEventController {
         } catch (ResourceNotFoundException e) {
             log.warn("\n\n[Capa Controller] ⚠️ Evento de nota con ID: {} no encontrado para actualizar.", id);
             return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
+        } catch (AccessDeniedException e) {
+            log.warn("\n\n[Capa Controller] ⚠️ Acceso denegado al actualizar evento de nota con ID {}: {}", id, e.getMessage());
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        } catch (IllegalArgumentException e) {
+            log.warn("\n\n[Capa Controller] ⚠️ Archivos inválidos al actualizar evento de nota con ID {}: {}", id, e.getMessage());
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).build();
         } catch (Exception e) {
             log.error("\n\n[Capa Controller] ❌ Error al actualizar evento de nota con ID {}: {}", id, e.getMessage(), e);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
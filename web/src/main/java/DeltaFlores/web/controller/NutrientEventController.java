@@ -1,10 +1,14 @@
 package DeltaFlores.web.controller;
 
 import DeltaFlores.web.dto.NutrientEventDto;
+import DeltaFlores.web.dto.SliceDto;
 import DeltaFlores.web.exception.ResourceNotFoundException;
 import DeltaFlores.web.service.events.NutrientEventService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.log4j.Log4j2;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.mapping.PropertyReferenceException;
+import org.springframework.data.web.PageableDefault;
 import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
@@ -67,6 +71,23 @@ public class NutrientEventController {
         }
     }
 
+    @GetMapping("/page")
+    @PreAuthorize("hasAnyRole('GROWER', 'ADMIN', 'SUPER_ADMIN')")
+    public ResponseEntity<SliceDto<NutrientEventDto>> getNutrientEventsPage(@PageableDefault(size = 50, sort = "id") Pageable pageable) {
+        log.info("\n\n[Capa Controller] 🔎 Solicitud para obtener la página {} de eventos de nutriente.", pageable.getPageNumber());
+        try {
+            SliceDto<NutrientEventDto> page = nutrientEventService.getNutrientEventsPage(pageable);
+            log.info("\n\n[Capa Controller] ✅ {} eventos de nutriente obtenidos en la página {}.", page.getContent().size(), page.getPage());
+            return ResponseEntity.ok(page);
+        } catch (PropertyReferenceException e) {
+            log.warn("\n\n[Capa Controller] ⚠️ Orden inválido al obtener la página de eventos de nutriente: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).build();
+        } catch (Exception e) {
+            log.error("\n\n[Capa Controller] ❌ Error al obtener la página de eventos de nutriente: {}", e.getMessage(), e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+        }
+    }
+
     @GetMapping("/planta/{plantaId}")
     @PreAuthorize("hasAnyRole('GROWER', 'ADMIN', 'SUPER_ADMIN')")
     public ResponseEntity<List<NutrientEventDto>> getNutrientEventsByPlantaId(@PathVariable Long plantaId) {
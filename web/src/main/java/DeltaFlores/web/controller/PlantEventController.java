@@ -1,6 +1,7 @@
 package DeltaFlores.web.controller;
 
 import DeltaFlores.web.dto.PlantEventDto;
+import DeltaFlores.web.dto.PlantEventPageDto;
 import DeltaFlores.web.exception.ResourceNotFoundException;
 import DeltaFlores.web.service.PlantEventService;
 import lombok.RequiredArgsConstructor;
@@ -36,4 +37,27 @@ public class PlantEventController {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
         }
     }
+
+    @GetMapping("/{plantaId}/events/timeline")
+    @PreAuthorize("hasRole('GROWER') or hasRole('ADMIN')")
+    public ResponseEntity<PlantEventPageDto> getEventTimelineForPlanta(@PathVariable Long plantaId,
+                                                                       @RequestParam(required = false) String cursor,
+                                                                       @RequestParam(required = false) Integer size,
+                                                                       @RequestParam(name = "type", required = false) String eventType) {
+        log.info("\n\n[Capa Controller] \uD83D\uDD0E Solicitud para obtener la línea de tiempo de la planta ID: {}", plantaId);
+        try {
+            PlantEventPageDto page = plantEventService.getEventTimelineForPlanta(plantaId, cursor, size, eventType);
+            log.info("\n\n[Capa Controller] \u2705 {} eventos obtenidos para la planta ID: {}", page.getEvents().size(), plantaId);
+            return ResponseEntity.ok(page);
+        } catch (ResourceNotFoundException e) {
+            log.warn("\n\n[Capa Controller] \u26A0\uFE0F Planta con ID: {} no encontrada.", plantaId);
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
+        } catch (IllegalArgumentException e) {
+            log.warn("\n\n[Capa Controller] \u26A0\uFE0F Parámetros de paginación inválidos para la planta ID {}: {}", plantaId, e.getMessage());
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).build();
+        } catch (Exception e) {
+            log.error("\n\n[Capa Controller] \u274C Error al obtener la línea de tiempo para la planta ID {}: {}", plantaId, e.getMessage(), e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+        }
+    }
 }
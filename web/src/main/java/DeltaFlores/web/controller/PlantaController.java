@@ -1,10 +1,14 @@
 package DeltaFlores.web.controller;
 
 import DeltaFlores.web.dto.PlantaDto;
+import DeltaFlores.web.dto.SliceDto;
 import DeltaFlores.web.exception.ResourceNotFoundException;
 import DeltaFlores.web.service.PlantaService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.log4j.Log4j2;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.mapping.PropertyReferenceException;
+import org.springframework.data.web.PageableDefault;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
@@ -23,7 +27,7 @@ public class PlantaController {
     @PostMapping
     @PreAuthorize("hasAnyRole('GROWER', 'ADMIN', 'SUPER_ADMIN')")
     public ResponseEntity<PlantaDto> createPlanta(@RequestBody PlantaDto plantaDto) {
-        log.info("DEBUG: Payload de PlantaDto recibido: " + plantaDto.toString());
+        log.debug("Payload de PlantaDto recibido: {}", plantaDto);
         log.info("\n\n[Capa Controller] 📥 Solicitud para crear planta: {}", plantaDto.getNombre());
         try {
             PlantaDto createdPlanta = plantaService.createPlanta(plantaDto);
@@ -49,6 +53,23 @@ public class PlantaController {
         }
     }
 
+    @GetMapping("/page")
+    @PreAuthorize("hasAnyRole('GROWER', 'ADMIN', 'SUPER_ADMIN')")
+    public ResponseEntity<SliceDto<PlantaDto>> getPlantasPage(@PageableDefault(size = 50, sort = "id") Pageable pageable) {
+        log.info("\n\n[Capa Controller] 📖 Solicitud para listar la página {} de plantas accesibles.", pageable.getPageNumber());
+        try {
+            SliceDto<PlantaDto> page = plantaService.getPlantasPage(pageable);
+            log.info("\n\n[Capa Controller] ✅ {} plantas obtenidas en la página {}.", page.getContent().size(), page.getPage());
+            return ResponseEntity.ok(page);
+        } catch (PropertyReferenceException e) {
+            log.warn("\n\n[Capa Controller] ⚠️ Orden inválido al obtener la página de plantas: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).build();
+        } catch (Exception e) {
+            log.error("\n\n[Capa Controller] ❌ Error inesperado al listar la página de plantas: {}", e.getMessage(), e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+        }
+    }
+
     @GetMapping("/{id}")
     @PreAuthorize("hasAnyRole('GROWER', 'ADMIN', 'SUPER_ADMIN')")
     public ResponseEntity<PlantaDto> getPlantaById(@PathVariable Long id) {
@@ -1,10 +1,14 @@
 package DeltaFlores.web.controller;
 
 import DeltaFlores.web.dto.PruningEventDto;
+import DeltaFlores.web.dto.SliceDto;
 import DeltaFlores.web.exception.ResourceNotFoundException;
 import DeltaFlores.web.service.events.PruningEventService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.log4j.Log4j2;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.mapping.PropertyReferenceException;
+import org.springframework.data.web.PageableDefault;
 import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
@@ -67,6 +71,23 @@ public class PruningEventController {
         }
     }
 
+    @GetMapping("/page")
+    @PreAuthorize("hasRole('GROWER') or hasRole('ADMIN')")
+    public ResponseEntity<SliceDto<PruningEventDto>> getPruningEventsPage(@PageableDefault(size = 50, sort = "id") Pageable pageable) {
+        log.info("\n\n[Capa Controller] 🔎 Solicitud para obtener la página {} de eventos de poda.", pageable.getPageNumber());
+        try {
+            SliceDto<PruningEventDto> page = pruningEventService.getPruningEventsPage(pageable);
+            log.info("\n\n[Capa Controller] ✅ {} eventos de poda obtenidos en la página {}.", page.getContent().size(), page.getPage());
+            return ResponseEntity.ok(page);
+        } catch (PropertyReferenceException e) {
+            log.warn("\n\n[Capa Controller] ⚠️ Orden inválido al obtener la página de eventos de poda: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).build();
+        } catch (Exception e) {
+            log.error("\n\n[Capa Controller] ❌ Error al obtener la página de eventos de poda: {}", e.getMessage(), e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+        }
+    }
+
     @GetMapping("/planta/{plantaId}")
     @PreAuthorize("hasRole('GROWER') or hasRole('ADMIN')")
     public ResponseEntity<List<PruningEventDto>> getPruningEventsByPlantaId(@PathVariable Long plantaId) {
@@ -0,0 +1,85 @@
+package DeltaFlores.web.controller;
+
+import DeltaFlores.web.dto.NoteSearchPageDto;
+import DeltaFlores.web.dto.SearchHitDto;
+import DeltaFlores.web.dto.SliceDto;
+import DeltaFlores.web.service.SearchService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.AccessDeniedException;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.Locale;
+
+@RestController
+@RequestMapping("/api/search")
+@RequiredArgsConstructor
+@Log4j2
+public class SearchController {
+
+    private final SearchService searchService;
+
+    /**
+     * Búsqueda por relevancia en plantas, cepas o usuarios.
+     * Los growers solo obtienen sus propias plantas y cepas; buscar usuarios requiere ADMIN o SUPER_ADMIN.
+     * @param q    Texto a buscar (admite palabras sueltas, frases entre comillas y errores de tipeo menores).
+     * @param type "plantas" (por defecto), "cepas" o "users".
+     * @return Una página de resultados ordenados por relevancia.
+     */
+    @GetMapping
+    @PreAuthorize("hasAnyRole('GROWER', 'ADMIN', 'SUPER_ADMIN')")
+    public ResponseEntity<SliceDto<SearchHitDto>> search(@RequestParam String q,
+                                                        @RequestParam(defaultValue = "plantas") String type,
+                                                        @RequestParam(defaultValue = "0") int page,
+                                                        @RequestParam(defaultValue = "20") int size) {
+        log.info("\n\n[Capa Controller] 🔎 Solicitud de búsqueda de {} por '{}' (página {}).", type, q, page);
+        try {
+            SearchService.SearchType searchType = SearchService.SearchType.valueOf(type.strip().toUpperCase(Locale.ROOT));
+            SliceDto<SearchHitDto> result = searchService.search(searchType, q, page, size);
+            log.info("\n\n[Capa Controller] ✅ {} resultados de búsqueda en la página {}.", result.getContent().size(), result.getPage());
+            return ResponseEntity.ok(result);
+        } catch (IllegalArgumentException e) {
+            log.warn("\n\n[Capa Controller] ⚠️ Búsqueda inválida: {}", e.getMessage());
+            return ResponseEntity.badRequest().build();
+        } catch (AccessDeniedException e) {
+            log.warn("\n\n[Capa Controller] 🚫 {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        } catch (Exception e) {
+            log.error("\n\n[Capa Controller] ❌ Error al buscar {} por '{}': {}", type, q, e.getMessage(), e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+        }
+    }
+
+    /**
+     * Búsqueda de texto completo en las notas (con stemming en español), ordenada por relevancia.
+     * Los growers solo obtienen notas de sus propias plantas.
+     * @param q      Texto a buscar (admite frases entre comillas, "or" y exclusiones con "-").
+     * @param cursor Cursor opaco devuelto por la página anterior; omitir para la primera página.
+     * @param size   Cantidad de resultados por página (por defecto 20, máximo 100).
+     * @return Una página de notas con fragmentos resaltados y el cursor de la siguiente.
+     */
+    @GetMapping("/notes")
+    @PreAuthorize("hasAnyRole('GROWER', 'ADMIN', 'SUPER_ADMIN')")
+    public ResponseEntity<NoteSearchPageDto> searchNotes(@RequestParam String q,
+                                                         @RequestParam(required = false) String cursor,
+                                                         @RequestParam(required = false) Integer size) {
+        log.info("\n\n[Capa Controller] 🔎 Solicitud de búsqueda en notas por '{}' (cursor: {}).", q, cursor);
+        try {
+            NoteSearchPageDto result = searchService.searchNotes(q, cursor, size);
+            log.info("\n\n[Capa Controller] ✅ {} notas encontradas (hay más: {}).", result.getHits().size(), result.isHasMore());
+            return ResponseEntity.ok(result);
+        } catch (IllegalArgumentException e) {
+            log.warn("\n\n[Capa Controller] ⚠️ Búsqueda en notas inválida: {}", e.getMessage());
+            return ResponseEntity.badRequest().build();
+        } catch (Exception e) {
+            log.error("\n\n[Capa Controller] ❌ Error al buscar en notas por '{}': {}", q, e.getMessage(), e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package DeltaFlores.web.controller;
+
+import DeltaFlores.web.dto.StorageReconciliationReportDto;
+import DeltaFlores.web.service.StorageReconciliationService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequestMapping("/api/admin/storage")
+@RequiredArgsConstructor
+@Log4j2
+public class StorageReconciliationController {
+
+    private final StorageReconciliationService storageReconciliationService;
+
+    /**
+     * Cruza el bucket con las URLs guardadas en base de datos e informa objetos huérfanos y referencias colgantes.
+     * El acceso está restringido a usuarios con roles ADMIN o SUPER_ADMIN.
+     * @param deleteOrphans Si es true, los huérfanos se encolan para borrar. Por defecto solo se informa.
+     * @return El informe de la reconciliación.
+     */
+    @PostMapping("/reconcile")
+    @PreAuthorize("hasAnyRole('ADMIN', 'SUPER_ADMIN')")
+    public ResponseEntity<StorageReconciliationReportDto> reconcile(
+            @RequestParam(defaultValue = "false") boolean deleteOrphans) {
+        log.info("\n\n[Capa Controller] 🔍 Solicitud de reconciliación del almacenamiento (borrar huérfanos: {}).", deleteOrphans);
+        if (!storageReconciliationService.supportsReconciliation()) {
+            log.warn("\n\n[Capa Controller] ⚠️ El almacenamiento configurado no permite listar objetos.");
+            return ResponseEntity.status(HttpStatus.NOT_IMPLEMENTED).build();
+        }
+        try {
+            return ResponseEntity.ok(storageReconciliationService.reconcile(deleteOrphans));
+        } catch (IllegalStateException e) {
+            log.warn("\n\n[Capa Controller] ⚠️ {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
+        }
+    }
+}
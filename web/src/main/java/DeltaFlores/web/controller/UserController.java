@@ -1,6 +1,7 @@
 package DeltaFlores.web.controller;
 
 
+import DeltaFlores.web.dto.SliceDto;
 import DeltaFlores.web.dto.UpdateUserRoleRequestDto;
 import DeltaFlores.web.dto.UserDto;
 import DeltaFlores.web.dto.UserToRegisterDto;
@@ -9,6 +10,9 @@ import DeltaFlores.web.service.UserService;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.log4j.Log4j2;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.mapping.PropertyReferenceException;
+import org.springframework.data.web.PageableDefault;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
@@ -54,6 +58,23 @@ public class UserController {
         }
     }
 
+    @GetMapping("/page")
+    @PreAuthorize("hasAnyRole('ADMIN', 'SUPER_ADMIN')")
+    public ResponseEntity<SliceDto<UserDto>> getUsersPage(@PageableDefault(size = 50, sort = "id") Pageable pageable) {
+        log.info("\n\n[Capa Controller] \uD83D\uDD0D Solicitud para obtener la página {} de usuarios.", pageable.getPageNumber());
+        try {
+            SliceDto<UserDto> page = userService.obtenerUsuariosPaginados(pageable);
+            log.info("\n\n[Capa Controller] \u2705 {} usuarios obtenidos en la página {}.", page.getContent().size(), page.getPage());
+            return ResponseEntity.ok(page);
+        } catch (PropertyReferenceException e) {
+            log.warn("\n\n[Capa Controller] \u26A0\uFE0F Orden inválido al obtener la página de usuarios: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).build();
+        } catch (Exception e) {
+            log.error("\n\n[Capa Controller] \u274C Error inesperado al obtener la página de usuarios: {}", e.getMessage(), e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+        }
+    }
+
     @GetMapping("/{id}")
     @PreAuthorize("hasAnyRole('ADMIN', 'SUPER_ADMIN')")
     public ResponseEntity<UserDto> getUserById(@PathVariable Long id) {
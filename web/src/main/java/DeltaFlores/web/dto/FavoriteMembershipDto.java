@@ -0,0 +1,21 @@
+package DeltaFlores.web.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.util.List;
+
+/**
+ * Respuesta de /api/favorites/contains: {@code bits} tiene un carácter por ID pedido, en el mismo orden,
+ * '1' si es favorito y '0' si no.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class FavoriteMembershipDto implements Serializable {
+    private String favorableType;
+    private List<Long> ids;
+    private String bits;
+}
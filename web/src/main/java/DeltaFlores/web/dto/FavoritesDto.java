@@ -0,0 +1,18 @@
+package DeltaFlores.web.dto;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+
+/**
+ * Favoritos del usuario agrupados por tipo, cada sección paginada por separado con el mismo page/size.
+ * En cada sección totalEstimate es la cantidad exacta de favoritos de ese tipo.
+ */
+@Data
+@NoArgsConstructor
+public class FavoritesDto implements Serializable {
+    private SliceDto<PlantaDto> plantas;
+    private SliceDto<SalaDto> salas;
+    private SliceDto<UserDto> users;
+}
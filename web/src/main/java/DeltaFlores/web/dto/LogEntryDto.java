@@ -0,0 +1,21 @@
+package DeltaFlores.web.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Una entrada del log: la línea con fecha y nivel más sus líneas de continuación (mensaje multilínea o stack trace).
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class LogEntryDto {
+    private LocalDateTime timestamp;
+    private String level;
+    private String thread;
+    private String logger;
+    private String message;
+}
@@ -0,0 +1,21 @@
+package DeltaFlores.web.dto;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Resultado de una búsqueda en los logs, en orden cronológico.
+ * {@code truncated} indica que se alcanzó el límite y puede haber más entradas después de la última.
+ */
+@Data
+@NoArgsConstructor
+public class LogQueryResultDto {
+    private List<LogEntryDto> entries = new ArrayList<>();
+    private boolean truncated;
+    private int filesScanned;
+    private int blocksScanned;
+    private int blocksSkipped;
+}
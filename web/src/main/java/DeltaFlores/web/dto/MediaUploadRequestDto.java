@@ -0,0 +1,13 @@
+package DeltaFlores.web.dto;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+public class MediaUploadRequestDto {
+    private String filename;
+    private String contentType;
+    // Tamaño en bytes; la subida firmada no acepta un archivo más grande
+    private Long size;
+}
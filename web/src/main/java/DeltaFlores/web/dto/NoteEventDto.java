@@ -13,4 +13,11 @@ public class NoteEventDto extends PlantEventDto  {
     private String text;
     private List<MultipartFile> files;
     private List<String> mediaUrls;
+    // Claves de objetos subidos directamente al bucket con URLs prefirmadas
+    private List<String> mediaKeys;
+    // URLs de descarga firmadas y de corta duración, en el mismo orden que mediaUrls
+    private List<String> signedMediaUrls;
+    // Variantes livianas para las vistas de listado, alineadas con mediaUrls (null mientras no se generaron)
+    private List<String> thumbnailUrls;
+    private List<String> webUrls;
 }
@@ -0,0 +1,22 @@
+package DeltaFlores.web.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+
+/**
+ * Una nota encontrada por /api/search/notes. {@code snippet} es HTML escapado con los términos
+ * encontrados entre etiquetas {@code <mark>}.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class NoteSearchHitDto implements Serializable {
+    private Long id;
+    private LocalDate fecha;
+    private String snippet;
+    private float score;
+}
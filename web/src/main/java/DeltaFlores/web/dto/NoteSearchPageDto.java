@@ -0,0 +1,21 @@
+package DeltaFlores.web.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.util.List;
+
+/**
+ * Página de resultados de búsqueda en notas, ordenada por relevancia.
+ * {@code nextCursor} es null cuando no hay más resultados.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class NoteSearchPageDto implements Serializable {
+    private List<NoteSearchHitDto> hits;
+    private String nextCursor;
+    private boolean hasMore;
+}
@@ -0,0 +1,21 @@
+package DeltaFlores.web.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.util.List;
+
+/**
+ * Página de la línea de tiempo de eventos de una planta.
+ * {@code nextCursor} es null cuando no hay más eventos.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PlantEventPageDto implements Serializable {
+    private List<PlantEventDto> events;
+    private String nextCursor;
+    private boolean hasMore;
+}
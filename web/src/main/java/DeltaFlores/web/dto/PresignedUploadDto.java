@@ -0,0 +1,22 @@
+package DeltaFlores.web.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+import java.util.Map;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PresignedUploadDto {
+    // Clave que el cliente debe enviar en mediaKeys al crear o actualizar el evento
+    private String objectKey;
+    private String uploadUrl;
+    // PUT: el archivo va como cuerpo, con headers. POST: multipart con formFields y el archivo en el campo "file"
+    private String method;
+    private Map<String, String> headers;
+    private Map<String, String> formFields;
+    private Instant expiresAt;
+}
@@ -0,0 +1,20 @@
+package DeltaFlores.web.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Un resultado de /api/search. {@code type} es "planta", "cepa" o "user"; {@code score} solo sirve para
+ * comparar resultados de una misma búsqueda.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SearchHitDto {
+    private String type;
+    private Long id;
+    private String title;
+    private String detail;
+    private double score;
+}
@@ -0,0 +1,21 @@
+package DeltaFlores.web.dto;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.util.List;
+
+/**
+ * Página de resultados sin COUNT exacto. {@code totalEstimate} es una estimación
+ * aproximada (reltuples de Postgres) o null cuando no se calcula.
+ */
+@Data
+@NoArgsConstructor
+public class SliceDto<T> implements Serializable {
+    private List<T> content;
+    private int page;
+    private int size;
+    private boolean hasNext;
+    private Long totalEstimate;
+}
@@ -0,0 +1,35 @@
+package DeltaFlores.web.dto;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Resultado de una pasada de reconciliación entre el bucket y las referencias en base de datos.
+ * Las listas son una muestra acotada (storage.reconciliation.max-reported); los contadores son exactos.
+ */
+@Data
+@NoArgsConstructor
+public class StorageReconciliationReportDto {
+    private Instant startedAt;
+    private Instant finishedAt;
+    private boolean deleteOrphans;
+    private long objectsListed;
+    private long bytesListed;
+    private long referencedObjects;
+    // Objetos sin referencia pero más nuevos que el período de gracia (subidas en curso o sin confirmar)
+    private long recentUnreferenced;
+    private long orphanObjects;
+    private long orphanBytes;
+    // Orphans encolados en media_deletion_queue o borrados (blobs content-addressed)
+    private long orphansDeleted;
+    // Partes temporales de subidas interrumpidas; se encolan para borrar aunque deleteOrphans sea false
+    private long staleUploadParts;
+    // URLs de notas o variantes cuyo objeto no está en el bucket
+    private long danglingReferences;
+    private List<String> orphanSample = new ArrayList<>();
+    private List<String> danglingSample = new ArrayList<>();
+}
@@ -0,0 +1,33 @@
+package DeltaFlores.web.entities;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+
+/**
+ * Objeto del bucket direccionado por contenido (clave cas-&lt;sha256&gt;) y cuántas referencias tiene.
+ * El objeto solo se borra del almacenamiento cuando refCount llega a 0.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@Entity
+@Table(name = "media_blobs")
+public class MediaBlob {
+
+    @Id
+    @Column(name = "object_key", length = 100)
+    private String objectKey;
+
+    @Column(name = "ref_count", nullable = false)
+    private long refCount;
+
+    @Column(name = "size_bytes")
+    private Long sizeBytes;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+}
@@ -0,0 +1,45 @@
+package DeltaFlores.web.entities;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+
+/**
+ * Archivo pendiente de borrar del almacenamiento. Se inserta en la misma transacción que quita la referencia
+ * y lo procesa MediaDeletionWorker en segundo plano, con reintentos.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@Entity
+@Table(name = "media_deletion_queue", indexes = @Index(name = "idx_media_deletion_next_attempt", columnList = "next_attempt_at"))
+public class MediaDeletion {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "file_url", nullable = false, length = 1024)
+    private String fileUrl;
+
+    @Column(nullable = false)
+    private int attempts;
+
+    @Column(name = "next_attempt_at", nullable = false)
+    private LocalDateTime nextAttemptAt;
+
+    @Column(name = "last_error", length = 1000)
+    private String lastError;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    public MediaDeletion(String fileUrl, LocalDateTime now) {
+        this.fileUrl = fileUrl;
+        this.nextAttemptAt = now;
+        this.createdAt = now;
+    }
+}
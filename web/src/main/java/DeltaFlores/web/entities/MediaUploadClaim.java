@@ -0,0 +1,30 @@
+package DeltaFlores.web.entities;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+
+/**
+ * Clave subida con una URL prefirmada que ya quedó adjunta a un evento. Se inserta en la misma transacción
+ * que guarda el evento; la clave primaria impide adjuntar el mismo objeto a dos eventos.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@Entity
+@Table(name = "media_upload_claims")
+public class MediaUploadClaim {
+
+    @Id
+    @Column(name = "object_key", length = 300)
+    private String objectKey;
+
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+
+    @Column(name = "claimed_at", nullable = false)
+    private LocalDateTime claimedAt;
+}
@@ -0,0 +1,35 @@
+package DeltaFlores.web.entities;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Embeddable;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * Versión derivada (miniatura o versión web) de un archivo original de un evento de nota.
+ */
+@Embeddable
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class MediaVariant {
+
+    @Column(name = "original_url", length = 1024)
+    private String originalUrl;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "variant_type")
+    private MediaVariantType type;
+
+    @Column(length = 1024)
+    private String url;
+
+    private Integer width;
+
+    private Integer height;
+}
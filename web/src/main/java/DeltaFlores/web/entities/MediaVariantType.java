@@ -0,0 +1,6 @@
+package DeltaFlores.web.entities;
+
+public enum MediaVariantType {
+    THUMBNAIL,
+    WEB
+}
@@ -1,11 +1,14 @@
 package DeltaFlores.web.entities;
 
+import jakarta.persistence.CollectionTable;
 import jakarta.persistence.DiscriminatorValue;
 import jakarta.persistence.ElementCollection;
 import jakarta.persistence.Entity;
+import jakarta.persistence.JoinColumn;
 import lombok.Getter;
 import lombok.Setter;
 
+import java.util.ArrayList;
 import java.util.List;
 
 @Entity
@@ -18,4 +21,9 @@ public class NoteEvent extends PlantEvent {
 
     @ElementCollection
     private List<String> mediaUrls;
+
+    // Miniaturas y versiones web generadas en segundo plano a partir de mediaUrls
+    @ElementCollection
+    @CollectionTable(name = "note_event_media_variants", joinColumns = @JoinColumn(name = "note_event_id"))
+    private List<MediaVariant> mediaVariants = new ArrayList<>();
 }
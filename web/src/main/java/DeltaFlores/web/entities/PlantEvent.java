@@ -9,13 +9,14 @@ import org.hibernate.annotations.CreationTimestamp;
 import org.springframework.format.annotation.DateTimeFormat;
 
 import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
 
 @Entity
 @Getter
 @Setter
-@Table(name = "plant_events")
+@Table(name = "plant_events", indexes = @Index(name = "idx_plant_events_fecha_id", columnList = "fecha, id"))
 @Inheritance(strategy = InheritanceType.SINGLE_TABLE)
 @DiscriminatorColumn(name = "event_type")
 public abstract class PlantEvent {
@@ -28,6 +29,7 @@ public abstract class PlantEvent {
     @JsonIgnore
     @JoinTable(
             name = "plants_has_events",
+            indexes = @Index(name = "idx_plants_has_events_events_id", columnList = "events_id"),
             joinColumns = @JoinColumn(name = "events_id"),
             inverseJoinColumns = @JoinColumn(name = "planta_id"))
     private List<Planta> plantas=new ArrayList<>();
@@ -37,6 +39,20 @@ public abstract class PlantEvent {
     @JsonFormat(shape = JsonFormat.Shape.STRING, pattern="yyyy-MM-dd")
     private LocalDate fecha;
 
+    // Set when the last planta linked to the event is deleted; only these events are garbage-collected.
+    // Events created without plantas on purpose keep it null.
+    @JsonIgnore
+    @Column(name = "orphaned_at")
+    private LocalDateTime orphanedAt;
+
+    /**
+     * Re-linking the event to plantas (even to none, as an explicit user choice) clears the orphan mark.
+     */
+    public void setPlantas(List<Planta> plantas) {
+        this.plantas = plantas;
+        this.orphanedAt = null;
+    }
+
 
 
 }
\ No newline at end of file
@@ -16,8 +16,16 @@ import java.util.List;
 @Getter
 @Setter
 @Table(name = "plantas")
+// Fetch plans per use case: all associations are LAZY and each query picks what its DTO reads.
+// summary: only the plantas row (cepa/sala/user IDs come from the FK proxies); detail: plus the events collection.
+// Authorization-only checks use projections instead (PlantaRepository.findOwnerIdsByIds).
+@NamedEntityGraph(name = Planta.SUMMARY_GRAPH)
+@NamedEntityGraph(name = Planta.DETAIL_GRAPH, attributeNodes = @NamedAttributeNode("events"))
 public class Planta {
 
+    public static final String SUMMARY_GRAPH = "Planta.summary";
+    public static final String DETAIL_GRAPH = "Planta.detail";
+
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
@@ -33,7 +41,7 @@ public class Planta {
     private boolean isPublic = false;
 
 
-    @ManyToOne(fetch = FetchType.EAGER)
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "cepa_id", nullable = false)
     private Cepa cepa;
 
@@ -42,7 +50,7 @@ public class Planta {
     @Enumerated(EnumType.STRING)
     private NuevaEtapa etapa;
 
-    @ManyToOne(fetch = FetchType.EAGER)
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "sala_id", nullable = false)
     private Sala sala;
 
@@ -62,8 +70,10 @@ public class Planta {
 
     private String ubicacion;
 
+    // (planta_id, events_id): los eventos de una planta (línea de tiempo incluida) salen de un index-only scan
     @ManyToMany (fetch = FetchType.LAZY, cascade = CascadeType.DETACH)
     @JoinTable(name = "plants_has_events",
+            indexes = @Index(name = "idx_plants_has_events_planta_event", columnList = "planta_id, events_id"),
             joinColumns = @JoinColumn(name = "planta_id"),
             inverseJoinColumns = @JoinColumn(name = "events_id"))
     private List<PlantEvent> events=new ArrayList<>();
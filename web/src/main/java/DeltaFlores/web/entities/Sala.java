@@ -12,7 +12,14 @@ import java.util.Set;
 @Getter
 @Setter
 @Table(name = "salas")
+// summary: only the salas row; detail: plus the plantas collection (for plantaIds). See Planta for the same plans.
+@NamedEntityGraph(name = Sala.SUMMARY_GRAPH)
+@NamedEntityGraph(name = Sala.DETAIL_GRAPH, attributeNodes = @NamedAttributeNode("plantas"))
 public class Sala {
+
+    public static final String SUMMARY_GRAPH = "Sala.summary";
+    public static final String DETAIL_GRAPH = "Sala.detail";
+
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
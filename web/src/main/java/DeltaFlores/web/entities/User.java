@@ -47,7 +47,8 @@ public class User implements UserDetails {
     private LocalDate fechaRegistro;
 
     @JsonIdentityInfo(generator = ObjectIdGenerators.PropertyGenerator.class, property = "id")
-    @OneToMany(fetch = FetchType.EAGER,cascade = CascadeType.DETACH, mappedBy = "user")
+    // LAZY: authentication and user DTOs never read favoritos (FavoriteService queries favorites directly)
+    @OneToMany(fetch = FetchType.LAZY, cascade = CascadeType.DETACH, mappedBy = "user")
     private Set<Favorite> favoritos=new HashSet<>();
 
     @JsonIdentityInfo(generator = ObjectIdGenerators.PropertyGenerator.class, property = "id")
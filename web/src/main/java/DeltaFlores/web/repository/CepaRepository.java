@@ -2,6 +2,8 @@ package DeltaFlores.web.repository;
 
 import DeltaFlores.web.entities.Cepa;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
@@ -16,4 +18,19 @@ public interface CepaRepository extends JpaRepository<Cepa,Long> {
     List<Cepa> findByGeneticaParentalContaining(String palabraClave);
     List<Cepa> findByDominanciaContaining(String palabraClave);
     List<Cepa> findByDetalleContaining(String palabraClave);
+
+    /**
+     * Búsqueda con ranking sobre genética, dominancia, aroma y detalle (search_vector, creada por SearchService)
+     * más similitud por trigramas sobre genetica_parental. Filas (id, genetica_parental, dominancia, score);
+     * ownerId null busca en todas las cepas.
+     */
+    @Query(value = "SELECT c.id, c.genetica_parental, c.dominancia, " +
+            "ts_rank(c.search_vector, q) + similarity(coalesce(c.genetica_parental, ''), :term) AS score " +
+            "FROM cepas c, websearch_to_tsquery('spanish', :term) q " +
+            "WHERE (CAST(:ownerId AS BIGINT) IS NULL OR c.user_id = :ownerId) " +
+            "AND (c.search_vector @@ q OR c.genetica_parental ILIKE :pattern ESCAPE '\\' " +
+            "OR c.genetica_parental % :term) " +
+            "ORDER BY score DESC, c.id LIMIT :limit OFFSET :offset", nativeQuery = true)
+    List<Object[]> search(@Param("term") String term, @Param("pattern") String pattern, @Param("ownerId") Long ownerId,
+                          @Param("limit") int limit, @Param("offset") long offset);
 }
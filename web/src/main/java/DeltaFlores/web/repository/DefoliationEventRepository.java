@@ -1,6 +1,8 @@
 package DeltaFlores.web.repository;
 
 import DeltaFlores.web.entities.DefoliationEvent;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
@@ -28,4 +30,6 @@ public interface DefoliationEventRepository extends JpaRepository<DefoliationEve
      * @return A list of defoliation events.
      */
     List<DefoliationEvent> findByFechaAfter(LocalDate fecha);
+
+    Slice<DefoliationEvent> findAllBy(Pageable pageable);
 }
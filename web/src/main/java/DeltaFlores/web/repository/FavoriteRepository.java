@@ -15,4 +15,8 @@ public interface FavoriteRepository extends JpaRepository<Favorite,Long> {
     @Query("SELECT f.favorableId FROM Favorite f WHERE f.user.id = :userId AND f.favorableType = :favorableType")
     List<Long> findFavorableIdsByUserIdAndFavorableType(@Param("userId") Long userId, @Param("favorableType") String favorableType);
 
+    // Filas (favorableType, favorableId) ordenadas, para armar la membresía en memoria sin reordenar
+    @Query("SELECT f.favorableType, f.favorableId FROM Favorite f WHERE f.user.id = :userId ORDER BY f.favorableType, f.favorableId")
+    List<Object[]> findTypesAndIdsByUserId(@Param("userId") Long userId);
+
 }
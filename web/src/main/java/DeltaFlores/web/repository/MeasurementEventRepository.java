@@ -1,6 +1,8 @@
 package DeltaFlores.web.repository;
 
 import DeltaFlores.web.entities.MeasurementEvent;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
@@ -33,4 +35,6 @@ public interface MeasurementEventRepository extends JpaRepository<MeasurementEve
      * @return A list of measurement events.
      */
     List<MeasurementEvent> findByFechaAfter(LocalDate fecha);
+
+    Slice<MeasurementEvent> findAllBy(Pageable pageable);
 }
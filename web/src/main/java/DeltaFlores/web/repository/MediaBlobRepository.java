@@ -0,0 +1,51 @@
+package DeltaFlores.web.repository;
+
+import DeltaFlores.web.entities.MediaBlob;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface MediaBlobRepository extends JpaRepository<MediaBlob, String> {
+
+    /**
+     * Suma una referencia al blob (creándolo si no existe) en una sola sentencia atómica.
+     * @return la cantidad de referencias después de sumar.
+     */
+    @Query(value = "INSERT INTO media_blobs (object_key, ref_count, size_bytes, created_at) " +
+            "VALUES (:objectKey, 1, :sizeBytes, now()) " +
+            "ON CONFLICT (object_key) DO UPDATE SET ref_count = media_blobs.ref_count + 1 " +
+            "RETURNING ref_count", nativeQuery = true)
+    long acquire(@Param("objectKey") String objectKey, @Param("sizeBytes") long sizeBytes);
+
+    /**
+     * Resta una referencia al blob.
+     * @return la cantidad de referencias restantes, o null si el blob no estaba registrado.
+     */
+    @Query(value = "UPDATE media_blobs SET ref_count = ref_count - 1 WHERE object_key = :objectKey " +
+            "RETURNING ref_count", nativeQuery = true)
+    Long release(@Param("objectKey") String objectKey);
+
+    /**
+     * Registra el blob con cero referencias si no estaba; no modifica una fila existente.
+     */
+    @Modifying
+    @Query(value = "INSERT INTO media_blobs (object_key, ref_count, size_bytes, created_at) " +
+            "VALUES (:objectKey, 0, :sizeBytes, now()) ON CONFLICT (object_key) DO NOTHING", nativeQuery = true)
+    int registerUnreferenced(@Param("objectKey") String objectKey, @Param("sizeBytes") long sizeBytes);
+
+    @Modifying
+    @Query(value = "DELETE FROM media_blobs WHERE object_key = :objectKey AND ref_count <= 0", nativeQuery = true)
+    int deleteIfUnreferenced(@Param("objectKey") String objectKey);
+
+    /**
+     * Página de claves en orden binario (COLLATE "C", el mismo del listado del bucket), para la reconciliación.
+     */
+    @Query(value = "SELECT object_key COLLATE \"C\" AS name FROM media_blobs " +
+            "WHERE object_key COLLATE \"C\" > :after ORDER BY 1 LIMIT :limit", nativeQuery = true)
+    List<String> findObjectNamesAfter(@Param("after") String after, @Param("limit") int limit);
+}
@@ -0,0 +1,27 @@
+package DeltaFlores.web.repository;
+
+import DeltaFlores.web.entities.MediaDeletion;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface MediaDeletionRepository extends JpaRepository<MediaDeletion, Long> {
+
+    /**
+     * Toma un lote de borrados vencidos. SKIP LOCKED permite que varias instancias procesen la cola sin pisarse.
+     */
+    @Query(value = "SELECT * FROM media_deletion_queue WHERE next_attempt_at <= now() " +
+            "ORDER BY id LIMIT :limit FOR UPDATE SKIP LOCKED", nativeQuery = true)
+    List<MediaDeletion> lockDueBatch(@Param("limit") int limit);
+
+    /**
+     * Nombres de objeto pendientes de borrar, en orden binario; la reconciliación no los vuelve a encolar.
+     */
+    @Query(value = "SELECT substring(file_url FROM '[^/]+$') COLLATE \"C\" AS name FROM media_deletion_queue " +
+            "WHERE substring(file_url FROM '[^/]+$') COLLATE \"C\" > :after ORDER BY 1 LIMIT :limit", nativeQuery = true)
+    List<String> findObjectNamesAfter(@Param("after") String after, @Param("limit") int limit);
+}
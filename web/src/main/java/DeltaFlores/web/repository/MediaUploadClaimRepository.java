@@ -0,0 +1,21 @@
+package DeltaFlores.web.repository;
+
+import DeltaFlores.web.entities.MediaUploadClaim;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface MediaUploadClaimRepository extends JpaRepository<MediaUploadClaim, String> {
+
+    /**
+     * Registra la clave como adjunta. Si otra transacción la está registrando, espera a que termine.
+     * @return 1 si se registró, 0 si ya estaba adjunta a otro evento.
+     */
+    @Modifying
+    @Query(value = "INSERT INTO media_upload_claims (object_key, user_id, claimed_at) VALUES (:objectKey, :userId, now()) " +
+            "ON CONFLICT (object_key) DO NOTHING", nativeQuery = true)
+    int claim(@Param("objectKey") String objectKey, @Param("userId") Long userId);
+}
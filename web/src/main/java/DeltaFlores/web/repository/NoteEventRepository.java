@@ -1,12 +1,15 @@
 package DeltaFlores.web.repository;
 
 import DeltaFlores.web.entities.NoteEvent;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
 
 @Repository
@@ -33,4 +36,61 @@ public interface NoteEventRepository extends JpaRepository<NoteEvent, Long> {
      * @return A list of note events.
      */
     List<NoteEvent> findByFechaAfter(LocalDate fecha);
+
+    Slice<NoteEvent> findAllBy(Pageable pageable);
+
+    /**
+     * Page of object names referenced by mediaUrls, in binary order (COLLATE "C", same as the bucket listing).
+     * @param after The last name of the previous page ("" for the first one).
+     * @param limit The page size.
+     * @return The object names (the last path segment of each URL).
+     */
+    @Query(value = "SELECT substring(media_urls FROM '[^/]+$') COLLATE \"C\" AS name FROM note_event_media_urls " +
+            "WHERE substring(media_urls FROM '[^/]+$') COLLATE \"C\" > :after ORDER BY 1 LIMIT :limit", nativeQuery = true)
+    List<String> findMediaObjectNamesAfter(@Param("after") String after, @Param("limit") int limit);
+
+    /**
+     * Page of object names referenced by generated media variants, in binary order.
+     * @param after The last name of the previous page ("" for the first one).
+     * @param limit The page size.
+     * @return The object names (the last path segment of each variant URL).
+     */
+    @Query(value = "SELECT substring(url FROM '[^/]+$') COLLATE \"C\" AS name FROM note_event_media_variants " +
+            "WHERE substring(url FROM '[^/]+$') COLLATE \"C\" > :after ORDER BY 1 LIMIT :limit", nativeQuery = true)
+    List<String> findVariantObjectNamesAfter(@Param("after") String after, @Param("limit") int limit);
+
+    /**
+     * Media variants of several note events in one query, so building their DTOs does not initialize
+     * the mediaVariants collection of each event.
+     * @param eventIds The IDs of the note events.
+     * @return Rows of (noteEventId, originalUrl, variantType, url, width, height).
+     */
+    @Query(value = "SELECT v.note_event_id, v.original_url, v.variant_type, v.url, v.width, v.height " +
+            "FROM note_event_media_variants v WHERE v.note_event_id IN (:eventIds)", nativeQuery = true)
+    List<Object[]> findMediaVariantsByEventIds(@Param("eventIds") Collection<Long> eventIds);
+
+    /**
+     * Ranked full-text search over note text (text_vector, created by SearchService), with keyset pagination
+     * on (rank DESC, id). ts_headline only runs on the rows of the page.
+     * @param term             The user's query, parsed with websearch_to_tsquery (Spanish stemming).
+     * @param ownerId          Only notes of this user's plants, or null for every note.
+     * @param afterRank        Rank of the last row of the previous page, or null for the first page.
+     * @param afterId          ID of the last row of the previous page, or null for the first page.
+     * @param headlineOptions  ts_headline options (selection markers and fragment sizes).
+     * @param limit            The page size.
+     * @return Rows of (id, fecha, rank, snippet).
+     */
+    @Query(value = "SELECT m.id, m.fecha, m.rank, " +
+            "ts_headline('spanish', m.text, websearch_to_tsquery('spanish', :term), :headlineOptions) AS snippet " +
+            "FROM (SELECT e.id, e.fecha, e.text, ts_rank_cd(e.text_vector, q) AS rank " +
+            "      FROM plant_events e, websearch_to_tsquery('spanish', :term) q " +
+            "      WHERE e.event_type = 'NOTE' AND e.text_vector @@ q " +
+            "      AND (CAST(:ownerId AS BIGINT) IS NULL OR EXISTS (SELECT 1 FROM plants_has_events phe " +
+            "           JOIN plantas p ON p.id = phe.planta_id WHERE phe.events_id = e.id AND p.user_id = :ownerId))) m " +
+            "WHERE CAST(:afterRank AS REAL) IS NULL OR m.rank < CAST(:afterRank AS REAL) " +
+            "OR (m.rank = CAST(:afterRank AS REAL) AND m.id > CAST(:afterId AS BIGINT)) " +
+            "ORDER BY m.rank DESC, m.id LIMIT :limit", nativeQuery = true)
+    List<Object[]> searchText(@Param("term") String term, @Param("ownerId") Long ownerId,
+                              @Param("afterRank") Float afterRank, @Param("afterId") Long afterId,
+                              @Param("headlineOptions") String headlineOptions, @Param("limit") int limit);
 }
@@ -1,6 +1,8 @@
 package DeltaFlores.web.repository;
 
 import DeltaFlores.web.entities.NutrientEvent;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
@@ -33,4 +35,6 @@ public interface NutrientEventRepository extends JpaRepository<NutrientEvent, Lo
      * @return A list of nutrient events.
      */
     List<NutrientEvent> findByFechaAfter(LocalDate fecha);
+
+    Slice<NutrientEvent> findAllBy(Pageable pageable);
 }
@@ -1,11 +1,15 @@
 package DeltaFlores.web.repository;
 
 import DeltaFlores.web.entities.PlantEvent;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
 
 @Repository
@@ -13,10 +17,100 @@ public interface PlantEventRepository extends JpaRepository<PlantEvent, Long> {
     // @Query("SELECT e FROM PlantEvent e WHERE e.plantas IS EMPTY")
     // List<PlantEvent> findEventosSinPlantas();
     List<PlantEvent> findByPlantasIsEmpty();
+
+    /**
+     * Marks the events whose only remaining planta is the one being deleted, so OrphanPlantEventCollector
+     * can remove them once the planta is gone. Must run before the planta is deleted.
+     * @param plantaId The ID of the planta about to be deleted.
+     * @return The number of events marked.
+     */
+    @Modifying
+    @Query(value = "UPDATE plant_events e SET orphaned_at = now() " +
+            "WHERE e.id IN (SELECT phe.events_id FROM plants_has_events phe WHERE phe.planta_id = :plantaId) " +
+            "AND NOT EXISTS (SELECT 1 FROM plants_has_events other WHERE other.events_id = e.id AND other.planta_id <> :plantaId)",
+            nativeQuery = true)
+    int markOrphanedByPlantaDeletion(@Param("plantaId") Long plantaId);
+
+    /**
+     * Locks a batch of events that lost their last planta (orphaned_at set) and still have none,
+     * skipping rows locked by other transactions. Events created without plantas are never selected.
+     * Keyset on id so a collector run walks the table once instead of rescanning it per batch.
+     * @param afterId The last ID processed in the current run (0 for the first batch).
+     * @param limit The maximum number of events to lock.
+     * @return The IDs of the locked events, in ascending order.
+     */
+    @Query(value = "SELECT e.id FROM plant_events e WHERE e.id > :afterId AND e.orphaned_at IS NOT NULL " +
+            "AND NOT EXISTS (SELECT 1 FROM plants_has_events phe WHERE phe.events_id = e.id) " +
+            "ORDER BY e.id LIMIT :limit FOR UPDATE OF e SKIP LOCKED", nativeQuery = true)
+    List<Long> lockOrphanEventIds(@Param("afterId") Long afterId, @Param("limit") int limit);
+
     /**
      * @Query("SELECT e FROM PlantEvent e JOIN e.plantas p WHERE p.id = :plantaId ORDER BY e.fecha ASC")
      */
     List<PlantEvent> findByPlantasIdOrderByFechaAsc(@Param("plantaId") Long plantaId);
 
+    /**
+     * Finds the IDs of the plants associated with an event, reading only the join table.
+     * @param eventId The ID of the event.
+     * @return A list of plant IDs.
+     */
+    @Query("SELECT p.id FROM PlantEvent e JOIN e.plantas p WHERE e.id = :eventId")
+    List<Long> findPlantaIdsByEventId(@Param("eventId") Long eventId);
+
+    /**
+     * Bulk version of findPlantaIdsByEventId for a page of events: one read of the join table.
+     * @param eventIds The IDs of the events.
+     * @return Rows of (eventId, plantaId), ordered by event and plant.
+     */
+    @Query(value = "SELECT phe.events_id, phe.planta_id FROM plants_has_events phe WHERE phe.events_id IN (:eventIds) " +
+            "ORDER BY phe.events_id, phe.planta_id", nativeQuery = true)
+    List<Object[]> findPlantaIdsByEventIds(@Param("eventIds") Collection<Long> eventIds);
+
+    /**
+     * Finds the first page of a plant's event timeline, ordered by date and id. Events without a date go last.
+     * @param plantaId The ID of the plant.
+     * @param types The event subclasses to include.
+     * @param pageable Only the page size is used; the offset must be 0.
+     * @return A list of events for the first page.
+     */
+    @Query("SELECT e FROM PlantEvent e JOIN e.plantas p WHERE p.id = :plantaId AND TYPE(e) IN :types " +
+            "ORDER BY e.fecha ASC NULLS LAST, e.id ASC")
+    List<PlantEvent> findTimelineFirstPage(@Param("plantaId") Long plantaId,
+                                           @Param("types") Collection<Class<? extends PlantEvent>> types,
+                                           Pageable pageable);
+
+    /**
+     * Finds the page of a plant's event timeline that follows the given (fecha, id) position.
+     * @param plantaId The ID of the plant.
+     * @param types The event subclasses to include.
+     * @param fecha The date of the last event of the previous page.
+     * @param id The ID of the last event of the previous page.
+     * @param pageable Only the page size is used; the offset must be 0.
+     * @return A list of events strictly after the given position, followed by the events without a date.
+     */
+    @Query("SELECT e FROM PlantEvent e JOIN e.plantas p WHERE p.id = :plantaId AND TYPE(e) IN :types " +
+            "AND (e.fecha > :fecha OR (e.fecha = :fecha AND e.id > :id) OR e.fecha IS NULL) " +
+            "ORDER BY e.fecha ASC NULLS LAST, e.id ASC")
+    List<PlantEvent> findTimelinePageAfter(@Param("plantaId") Long plantaId,
+                                           @Param("types") Collection<Class<? extends PlantEvent>> types,
+                                           @Param("fecha") LocalDate fecha,
+                                           @Param("id") Long id,
+                                           Pageable pageable);
+
+    /**
+     * Finds the page of a plant's event timeline that follows an event without a date; only undated events remain.
+     * @param plantaId The ID of the plant.
+     * @param types The event subclasses to include.
+     * @param id The ID of the last event of the previous page.
+     * @param pageable Only the page size is used; the offset must be 0.
+     * @return A list of undated events with an ID greater than the given one.
+     */
+    @Query("SELECT e FROM PlantEvent e JOIN e.plantas p WHERE p.id = :plantaId AND TYPE(e) IN :types " +
+            "AND e.fecha IS NULL AND e.id > :id ORDER BY e.id ASC")
+    List<PlantEvent> findUndatedTimelinePageAfter(@Param("plantaId") Long plantaId,
+                                                  @Param("types") Collection<Class<? extends PlantEvent>> types,
+                                                  @Param("id") Long id,
+                                                  Pageable pageable);
+
 }
 
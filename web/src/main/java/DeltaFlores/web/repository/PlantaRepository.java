@@ -1,18 +1,32 @@
 package DeltaFlores.web.repository;
 
 import DeltaFlores.web.entities.Planta;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface PlantaRepository extends JpaRepository<Planta, Long> {
 
-    @Query("SELECT p FROM Planta p LEFT JOIN FETCH p.events WHERE p.id = :id")
+    /**
+     * Flat PlantaDto row (see DtoMapper.plantaSummaryRowToPlantaDto): plant columns plus its event IDs
+     * aggregated as a comma separated string, so lists don't hydrate Planta, its cepa/sala or the events collection.
+     */
+    String SUMMARY_SELECT = "SELECT p.id, p.user_id, p.nombre, p.is_public, p.etapa, p.sala_id, p.cepa_id, " +
+            "p.produccion, p.fecha_creacion, p.ubicacion, " +
+            "string_agg(CAST(phe.events_id AS TEXT), ',' ORDER BY phe.events_id) AS event_ids " +
+            "FROM plantas p LEFT JOIN plants_has_events phe ON phe.planta_id = p.id ";
+
+    @EntityGraph(Planta.DETAIL_GRAPH)
+    @Query("SELECT p FROM Planta p WHERE p.id = :id")
     Optional<Planta> findByIdWithEvents(@Param("id") Long id);
 
     List<Planta> findByUserId(Long userId);
@@ -20,4 +34,76 @@ public interface PlantaRepository extends JpaRepository<Planta, Long> {
     List<Planta> findByNombre(String palabraClave);
 
     List<Planta> findBySalaId(Long salaId);
+
+    /**
+     * Returns (plantaId, ownerId) pairs for the given plants without loading the entities.
+     */
+    @Query("SELECT p.id, p.user.id FROM Planta p WHERE p.id IN :ids")
+    List<Object[]> findOwnerIdsByIds(@Param("ids") Collection<Long> ids);
+
+    @Query(value = SUMMARY_SELECT + "GROUP BY p.id ORDER BY p.id", nativeQuery = true)
+    List<Object[]> findAllSummaries();
+
+    @Query(value = SUMMARY_SELECT + "WHERE p.user_id = :userId GROUP BY p.id ORDER BY p.id", nativeQuery = true)
+    List<Object[]> findSummariesByUserId(@Param("userId") Long userId);
+
+    @Query(value = SUMMARY_SELECT + "WHERE p.sala_id = :salaId GROUP BY p.id ORDER BY p.id", nativeQuery = true)
+    List<Object[]> findSummariesBySalaId(@Param("salaId") Long salaId);
+
+    /**
+     * Summaries of the plants the user marked as favorite, joining favorites directly instead of fetching the IDs first.
+     */
+    @Query(value = SUMMARY_SELECT + "JOIN favorites f ON f.favorable_id = p.id AND f.favorable_type = 'PLANTA' " +
+            "WHERE f.user_id = :userId GROUP BY p.id ORDER BY p.id", nativeQuery = true)
+    List<Object[]> findFavoriteSummariesByUserId(@Param("userId") Long userId);
+
+    @Query(value = SUMMARY_SELECT + "WHERE p.id IN (:ids) GROUP BY p.id ORDER BY p.id", nativeQuery = true)
+    List<Object[]> findSummariesByIds(@Param("ids") Collection<Long> ids);
+
+    @EntityGraph(value = Planta.SUMMARY_GRAPH, type = EntityGraph.EntityGraphType.FETCH)
+    Slice<Planta> findAllBy(Pageable pageable);
+
+    @EntityGraph(value = Planta.SUMMARY_GRAPH, type = EntityGraph.EntityGraphType.FETCH)
+    Slice<Planta> findByUserId(Long userId, Pageable pageable);
+
+    /**
+     * Event IDs of a page of plants, read from the join table only (see DtoMapper.plantaToPlantaDto(planta, eventIds)).
+     * Rows are (plantaId, eventId).
+     */
+    @Query(value = "SELECT phe.planta_id, phe.events_id FROM plants_has_events phe WHERE phe.planta_id IN (:plantaIds) " +
+            "ORDER BY phe.planta_id, phe.events_id", nativeQuery = true)
+    List<Object[]> findEventIdsByPlantaIds(@Param("plantaIds") Collection<Long> plantaIds);
+
+    /**
+     * Plant IDs of a list of salas, without loading Sala.plantas. Rows are (salaId, plantaId).
+     */
+    @Query("SELECT p.sala.id, p.id FROM Planta p WHERE p.sala.id IN :salaIds ORDER BY p.id")
+    List<Object[]> findIdsBySalaIds(@Param("salaIds") Collection<Long> salaIds);
+
+    /**
+     * Estimated row count taken from the planner statistics, avoiding a full COUNT(*).
+     */
+    @Query(value = "SELECT CAST(GREATEST(reltuples, 0) AS BIGINT) FROM pg_class WHERE relname = 'plantas'", nativeQuery = true)
+    Long estimateCount();
+
+    /**
+     * Ranked search over nombre/ubicacion (search_vector, created by SearchService) plus trigram similarity on nombre.
+     * Rows are (id, nombre, ubicacion, score). ownerId null searches every plant.
+     */
+    @Query(value = "SELECT p.id, p.nombre, p.ubicacion, " +
+            "ts_rank(p.search_vector, q) + similarity(p.nombre, :term) AS score " +
+            "FROM plantas p, websearch_to_tsquery('spanish', :term) q " +
+            "WHERE (CAST(:ownerId AS BIGINT) IS NULL OR p.user_id = :ownerId) " +
+            "AND (p.search_vector @@ q OR p.nombre ILIKE :pattern ESCAPE '\\' OR p.nombre % :term) " +
+            "ORDER BY score DESC, p.id LIMIT :limit OFFSET :offset", nativeQuery = true)
+    List<Object[]> search(@Param("term") String term, @Param("pattern") String pattern, @Param("ownerId") Long ownerId,
+                          @Param("limit") int limit, @Param("offset") long offset);
+
+    /**
+     * Summaries of the plants whose nombre matches the ILIKE pattern, served by the trigram index
+     * (a derived Containing query is not indexable).
+     */
+    @Query(value = SUMMARY_SELECT + "WHERE p.nombre ILIKE :pattern ESCAPE '\\' " +
+            "AND (CAST(:ownerId AS BIGINT) IS NULL OR p.user_id = :ownerId) GROUP BY p.id ORDER BY p.id", nativeQuery = true)
+    List<Object[]> findSummariesByNombreLike(@Param("pattern") String pattern, @Param("ownerId") Long ownerId);
 }
@@ -1,6 +1,8 @@
 package DeltaFlores.web.repository;
 
 import DeltaFlores.web.entities.PruningEvent;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
@@ -33,4 +35,6 @@ public interface PruningEventRepository extends JpaRepository<PruningEvent, Long
      * @return A list of pruning events.
      */
     List<PruningEvent> findByFechaAfter(LocalDate fecha);
+
+    Slice<PruningEvent> findAllBy(Pageable pageable);
 }
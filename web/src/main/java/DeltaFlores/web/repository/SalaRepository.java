@@ -1,10 +1,16 @@
 package DeltaFlores.web.repository;
 
 import DeltaFlores.web.entities.Sala;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface SalaRepository extends JpaRepository<Sala, Long> {
@@ -14,5 +20,41 @@ public interface SalaRepository extends JpaRepository<Sala, Long> {
      * @param userId El ID del usuario.
      * @return Una lista de salas pertenecientes al usuario.
      */
+    @EntityGraph(value = Sala.SUMMARY_GRAPH, type = EntityGraph.EntityGraphType.FETCH)
     List<Sala> findByUserId(Long userId);
+
+    /**
+     * Busca una página de salas de un usuario sin ejecutar un COUNT.
+     * @param userId El ID del usuario.
+     * @param pageable La página a obtener.
+     * @return Un slice de salas pertenecientes al usuario.
+     */
+    @EntityGraph(value = Sala.SUMMARY_GRAPH, type = EntityGraph.EntityGraphType.FETCH)
+    Slice<Sala> findByUserId(Long userId, Pageable pageable);
+
+    @EntityGraph(value = Sala.SUMMARY_GRAPH, type = EntityGraph.EntityGraphType.FETCH)
+    Slice<Sala> findAllBy(Pageable pageable);
+
+    /**
+     * Busca una sala junto con sus plantas en una sola consulta (plan de carga Sala.detail).
+     * @param id El ID de la sala.
+     * @return La sala, si existe.
+     */
+    @EntityGraph(Sala.DETAIL_GRAPH)
+    @Query("SELECT s FROM Sala s WHERE s.id = :id")
+    Optional<Sala> findDetailById(@Param("id") Long id);
+
+    /**
+     * Solo el ID del dueño de la sala, para verificar permisos sin cargar la entidad.
+     * @param id El ID de la sala.
+     * @return El ID del usuario dueño, si la sala existe.
+     */
+    @Query("SELECT s.user.id FROM Sala s WHERE s.id = :id")
+    Optional<Long> findOwnerIdById(@Param("id") Long id);
+
+    /**
+     * Cantidad estimada de filas según las estadísticas del planificador, evitando un COUNT(*) completo.
+     */
+    @Query(value = "SELECT CAST(GREATEST(reltuples, 0) AS BIGINT) FROM pg_class WHERE relname = 'salas'", nativeQuery = true)
+    Long estimateCount();
 }
@@ -1,6 +1,8 @@
 package DeltaFlores.web.repository;
 
 import DeltaFlores.web.entities.StageChangeEvent;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
@@ -33,4 +35,6 @@ public interface StageChangeEventRepository extends JpaRepository<StageChangeEve
      * @return A list of stage change events.
      */
     List<StageChangeEvent> findByFechaAfter(LocalDate fecha);
+
+    Slice<StageChangeEvent> findAllBy(Pageable pageable);
 }
@@ -1,7 +1,11 @@
 package DeltaFlores.web.repository;
 
 import DeltaFlores.web.entities.User;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
@@ -16,4 +20,32 @@ public interface UserRepository extends JpaRepository<User, Long> {
 
     List<User> findByNombreContainingIgnoreCase(String nombre);
 
+    /**
+     * Same as findByNombreContainingIgnoreCase, but written as ILIKE so the trigram index on nombre can serve it.
+     */
+    @Query(value = "SELECT * FROM users u WHERE u.nombre ILIKE :pattern ESCAPE '\\' ORDER BY u.id", nativeQuery = true)
+    List<User> findByNombreLike(@Param("pattern") String pattern);
+
+    /**
+     * Trigram search over nombre, apellido and username (each one has its own GIN index, combined with a BitmapOr).
+     * Rows are (id, username, nombre, apellido, score).
+     */
+    @Query(value = "SELECT u.id, u.username, u.nombre, u.apellido, " +
+            "GREATEST(similarity(coalesce(u.nombre, ''), :term), similarity(coalesce(u.apellido, ''), :term), " +
+            "similarity(u.username, :term)) AS score " +
+            "FROM users u " +
+            "WHERE u.nombre ILIKE :pattern ESCAPE '\\' OR u.apellido ILIKE :pattern ESCAPE '\\' " +
+            "OR u.username ILIKE :pattern ESCAPE '\\' OR u.nombre % :term OR u.apellido % :term " +
+            "ORDER BY score DESC, u.id LIMIT :limit OFFSET :offset", nativeQuery = true)
+    List<Object[]> search(@Param("term") String term, @Param("pattern") String pattern,
+                          @Param("limit") int limit, @Param("offset") long offset);
+
+    Slice<User> findAllBy(Pageable pageable);
+
+    /**
+     * Estimated row count taken from the planner statistics, avoiding a full COUNT(*).
+     */
+    @Query(value = "SELECT CAST(GREATEST(reltuples, 0) AS BIGINT) FROM pg_class WHERE relname = 'users'", nativeQuery = true)
+    Long estimateCount();
+
 }
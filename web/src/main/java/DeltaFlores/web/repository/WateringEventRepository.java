@@ -1,6 +1,8 @@
 package DeltaFlores.web.repository;
 
 import DeltaFlores.web.entities.WateringEvent;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
@@ -33,4 +35,6 @@ public interface WateringEventRepository extends JpaRepository<WateringEvent, Lo
      * @return A list of watering events.
      */
     List<WateringEvent> findByFechaAfter(LocalDate fecha);
+
+    Slice<WateringEvent> findAllBy(Pageable pageable);
 }
@@ -0,0 +1,95 @@
+package DeltaFlores.web.security;
+
+import DeltaFlores.web.entities.AppRole;
+import DeltaFlores.web.entities.User;
+import DeltaFlores.web.exception.ResourceNotFoundException;
+import DeltaFlores.web.repository.UserRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.security.authentication.AuthenticationCredentialsNotFoundException;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.annotation.RequestScope;
+
+/**
+ * Usuario autenticado de la petición actual.
+ * El ID, el username y el rol salen de los claims que {@link JwtAuthorizationFilter} deja en
+ * {@link CustomUserDetails}, así que consultarlos no toca la base de datos. La entidad {@link User}
+ * se carga como mucho una vez por petición y solo si alguien la pide con {@link #getUser()}.
+ */
+@Component
+@RequestScope
+@RequiredArgsConstructor
+public class CurrentUserContext {
+
+    private final UserRepository userRepository;
+
+    private CustomUserDetails principal;
+    private AppRole role;
+    private User user;
+
+    public CustomUserDetails getPrincipal() {
+        if (principal == null) {
+            Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+            if (authentication == null || !(authentication.getPrincipal() instanceof CustomUserDetails userDetails)) {
+                throw new AuthenticationCredentialsNotFoundException("No hay un usuario autenticado en el contexto de seguridad");
+            }
+            principal = userDetails;
+        }
+        return principal;
+    }
+
+    public Long getId() {
+        return getPrincipal().getId();
+    }
+
+    public String getUsername() {
+        return getPrincipal().getUsername();
+    }
+
+    public AppRole getRole() {
+        if (role == null) {
+            role = getPrincipal().getAuthorities().stream()
+                    .map(GrantedAuthority::getAuthority)
+                    .map(AppRole::valueOf)
+                    .findFirst()
+                    .orElseThrow(() -> new AuthenticationCredentialsNotFoundException("El usuario autenticado no tiene rol"));
+        }
+        return role;
+    }
+
+    public boolean isGrower() {
+        return getRole() == AppRole.ROLE_GROWER;
+    }
+
+    public boolean isSuperAdmin() {
+        return getRole() == AppRole.ROLE_SUPER_ADMIN;
+    }
+
+    /**
+     * @return true para ROLE_ADMIN y ROLE_SUPER_ADMIN
+     */
+    public boolean isAdmin() {
+        return getRole() == AppRole.ROLE_ADMIN || getRole() == AppRole.ROLE_SUPER_ADMIN;
+    }
+
+    /**
+     * Entidad completa del usuario, cargada una sola vez por petición.
+     */
+    public User getUser() {
+        if (user == null) {
+            user = userRepository.findById(getId())
+                    .orElseThrow(() -> new ResourceNotFoundException("Usuario no encontrado en el contexto de seguridad"));
+        }
+        return user;
+    }
+
+    /**
+     * Referencia (proxy) al usuario para asignar relaciones sin consultar la base de datos.
+     * Debe usarse dentro de una transacción.
+     */
+    public User getUserReference() {
+        return userRepository.getReferenceById(getId());
+    }
+}
@@ -1,5 +1,7 @@
 package DeltaFlores.web.security;
 
+import DeltaFlores.web.utils.LogSampler;
+import io.jsonwebtoken.Claims;
 import io.jsonwebtoken.JwtException;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
@@ -14,12 +16,17 @@ import org.springframework.web.filter.OncePerRequestFilter;
 import org.springframework.web.util.WebUtils;
 
 import java.io.IOException;
+import java.time.Duration;
 
 @Log4j2
 public class JwtAuthorizationFilter extends OncePerRequestFilter {
 
     private final JwtUtils jwtUtils;
 
+    // Se loguea a nivel INFO un acceso por usuario (y un token inválido por IP) por minuto; el resto, solo en DEBUG
+    private final LogSampler accessLogSampler = new LogSampler(Duration.ofMinutes(1), 10_000);
+    private final LogSampler invalidTokenLogSampler = new LogSampler(Duration.ofMinutes(1), 10_000);
+
     public JwtAuthorizationFilter(JwtUtils jwtUtils) {
         this.jwtUtils = jwtUtils;
     }
@@ -34,20 +41,28 @@ public class JwtAuthorizationFilter extends OncePerRequestFilter {
         }
 
         String token = jwtCookie.getValue();
-        String username = null;
+        Claims claims;
 
         try {
-            username = jwtUtils.extractUsername(token);
-        } catch (JwtException e) {
-            log.warn("Invalid JWT token received: {}", e.getMessage());
+            // Signature and expiration are verified once here; repeated tokens are served from the cache
+            claims = jwtUtils.parseVerifiedClaims(token);
+        } catch (JwtException | IllegalArgumentException e) {
+            long suppressed = invalidTokenLogSampler.sample(request.getRemoteAddr());
+            if (suppressed >= 0) {
+                log.warn("Invalid JWT token received from {}: {} ({} more since last report)",
+                        request.getRemoteAddr(), e.getMessage(), suppressed);
+            } else {
+                log.debug("Invalid JWT token received from {}: {}", request.getRemoteAddr(), e.getMessage());
+            }
             filterChain.doFilter(request, response);
             return;
         }
 
+        String username = claims.getSubject();
         if (username != null && SecurityContextHolder.getContext().getAuthentication() == null) {
             // Extract claims
-            String role = jwtUtils.extractClaim(token, claims -> claims.get("user_role", String.class));
-            Number userIdNumber = jwtUtils.extractClaim(token, claims -> claims.get("user_id", Number.class));
+            String role = claims.get("user_role", String.class);
+            Number userIdNumber = claims.get("user_id", Number.class);
             Long userId = (userIdNumber != null) ? userIdNumber.longValue() : null;
 
             if (userId != null && role != null) {
@@ -59,17 +74,16 @@ public class JwtAuthorizationFilter extends OncePerRequestFilter {
                         AuthorityUtils.createAuthorityList(role)
                 );
 
-                if (jwtUtils.validateToken(token, principal)) {
-                    UsernamePasswordAuthenticationToken authentication = new UsernamePasswordAuthenticationToken(
-                            principal, null, principal.getAuthorities());
-                    SecurityContextHolder.getContext().setAuthentication(authentication);
+                UsernamePasswordAuthenticationToken authentication = new UsernamePasswordAuthenticationToken(
+                        principal, null, principal.getAuthorities());
+                SecurityContextHolder.getContext().setAuthentication(authentication);
 
-                    log.info("\n" +
-                            "---------------------------------------------------------------------------------------------------------" +
-                            "\n🔒 Acceso autorizado 🔒\n" +
-                             "Usuario: {}\n" +
-                             "ID: {}\n" +
-                             "Rol: {}", principal.getUsername(), principal.getId(), role);
+                long suppressed = accessLogSampler.sample(username);
+                if (suppressed >= 0) {
+                    log.info("🔒 Acceso autorizado - Usuario: {} | ID: {} | Rol: {} ({} requests más desde el último registro)",
+                            username, userId, role, suppressed);
+                } else {
+                    log.debug("🔒 Acceso autorizado - Usuario: {} | ID: {} | Rol: {}", username, userId, role);
                 }
             }
         }
@@ -1,21 +1,32 @@
 package DeltaFlores.web.security;
 
-import DeltaFlores.web.entities.User;
+import DeltaFlores.web.utils.LruCache;
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.ExpiredJwtException;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.MissingClaimException;
 import io.jsonwebtoken.SignatureAlgorithm;
 import io.jsonwebtoken.security.Keys;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.log4j.Log4j2;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Component;
 
+import java.nio.charset.StandardCharsets;
 import java.security.Key;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.function.Function;
 
 @Component
+@Log4j2
 public class JwtUtils {
 
     @Value("${jwt.secret}")
@@ -24,6 +35,50 @@ public class JwtUtils {
     @Value("${jwt.expiration.ms}")
     private long jwtExpirationMs;
 
+    @Value("${jwt.cache.max-entries:10000}")
+    private int verifiedTokenCacheSize;
+
+    private Key signingKey;
+    private JwtParser jwtParser;
+    // Claims ya verificados, indexados por el SHA-256 del token y válidos hasta su expiración.
+    private LruCache<String, VerifiedToken> verifiedTokens;
+
+    private record VerifiedToken(Claims claims, long expiresAtMillis) {
+    }
+
+    @PostConstruct
+    void init() {
+        signingKey = Keys.hmacShaKeyFor(secret.getBytes());
+        jwtParser = Jwts.parserBuilder().setSigningKey(signingKey).build();
+        verifiedTokens = new LruCache<>(verifiedTokenCacheSize);
+    }
+
+    /**
+     * Verifica la firma y la expiración del token una sola vez y devuelve sus claims.
+     * Las llamadas siguientes con el mismo token se resuelven desde la caché hasta que expire.
+     * Un token sin exp se rechaza: no tendría vencimiento.
+     *
+     * @throws io.jsonwebtoken.JwtException si el token es inválido, expiró o no tiene exp
+     */
+    public Claims parseVerifiedClaims(String token) {
+        String digest = digest(token);
+        VerifiedToken cached = verifiedTokens.get(digest);
+        if (cached != null) {
+            if (cached.expiresAtMillis() > System.currentTimeMillis()) {
+                return cached.claims();
+            }
+            verifiedTokens.remove(digest);
+            throw new ExpiredJwtException(null, cached.claims(), "JWT expired at " + new Date(cached.expiresAtMillis()));
+        }
+
+        Claims claims = jwtParser.parseClaimsJws(token).getBody();
+        if (claims.getExpiration() == null) {
+            throw new MissingClaimException(null, claims, "JWT sin claim exp");
+        }
+        verifiedTokens.put(digest, new VerifiedToken(claims, claims.getExpiration().getTime()));
+        return claims;
+    }
+
     public String extractUsername(String token) {
         return extractClaim(token, Claims::getSubject);
     }
@@ -38,11 +93,7 @@ public class JwtUtils {
     }
 
     private Claims extractAllClaims(String token) {
-        return Jwts.parserBuilder().setSigningKey(getSigningKey()).build().parseClaimsJws(token).getBody();
-    }
-
-    private Boolean isTokenExpired(String token) {
-        return extractExpiration(token).before(new Date());
+        return parseVerifiedClaims(token);
     }
 
     public String generateToken(UserDetails userDetails) {
@@ -64,16 +115,31 @@ public class JwtUtils {
     private String createToken(Map<String, Object> claims, String subject) {
         return Jwts.builder().setClaims(claims).setSubject(subject).setIssuedAt(new Date(System.currentTimeMillis()))
                 .setExpiration(new Date(System.currentTimeMillis() + jwtExpirationMs))
-                .signWith(getSigningKey(), SignatureAlgorithm.HS256).compact();
+                .signWith(signingKey, SignatureAlgorithm.HS256).compact();
     }
 
     public Boolean validateToken(String token, UserDetails userDetails) {
-        final String username = extractUsername(token);
-        return (username.equals(userDetails.getUsername()) && !isTokenExpired(token));
+        final Claims claims;
+        try {
+            claims = parseVerifiedClaims(token);
+        } catch (JwtException | IllegalArgumentException e) {
+            log.warn("Invalid JWT token for user {}: {}", userDetails.getUsername(), e.getMessage());
+            return false;
+        }
+        Date expiration = claims.getExpiration();
+        if (expiration == null) {
+            log.warn("Invalid JWT token for user {}: no exp claim", userDetails.getUsername());
+            return false;
+        }
+        return claims.getSubject().equals(userDetails.getUsername()) && !expiration.before(new Date());
     }
 
-    private Key getSigningKey() {
-        byte[] keyBytes = secret.getBytes();
-        return Keys.hmacShaKeyFor(keyBytes);
+    private static String digest(String token) {
+        try {
+            MessageDigest sha256 = MessageDigest.getInstance("SHA-256");
+            return Base64.getEncoder().encodeToString(sha256.digest(token.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 no disponible", e);
+        }
     }
 }
@@ -0,0 +1,66 @@
+package DeltaFlores.web.security;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+
+/**
+ * Firma HMAC con vencimiento para las URLs de /api/media, de modo que se puedan usar sin cabecera
+ * Authorization (p. ej. en un &lt;img&gt; o &lt;video&gt;).
+ */
+@Component
+public class MediaUrlSignature {
+
+    private final SecretKeySpec key;
+
+    public MediaUrlSignature(@Value("${media.url.signing-secret:${jwt.secret}}") String signingSecret) {
+        this.key = new SecretKeySpec(signingSecret.getBytes(StandardCharsets.UTF_8), "HmacSHA256");
+    }
+
+    public String signedUrl(String baseUrl, String objectName, Duration expiry) {
+        long expires = Instant.now().plus(expiry).getEpochSecond();
+        return baseUrl + "/" + objectName + "?expires=" + expires + "&signature=" + sign(objectName, expires);
+    }
+
+    public boolean isValid(String objectName, Long expires, String signature) {
+        if (expires == null || signature == null || expires < Instant.now().getEpochSecond()) {
+            return false;
+        }
+        return MessageDigest.isEqual(sign(objectName, expires).getBytes(StandardCharsets.US_ASCII),
+                signature.getBytes(StandardCharsets.US_ASCII));
+    }
+
+    /**
+     * Acceso permitido si la URL trae una firma válida o si la petición viene con una sesión autenticada.
+     */
+    public boolean isAuthorized(String objectName, Long expires, String signature) {
+        if (isValid(objectName, expires, signature)) {
+            return true;
+        }
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        return authentication != null && authentication.isAuthenticated()
+                && !(authentication instanceof AnonymousAuthenticationToken);
+    }
+
+    private String sign(String objectName, long expires) {
+        try {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(key);
+            byte[] digest = mac.doFinal((objectName + "|" + expires).getBytes(StandardCharsets.UTF_8));
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(digest);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("No se pudo firmar la URL", e);
+        }
+    }
+}
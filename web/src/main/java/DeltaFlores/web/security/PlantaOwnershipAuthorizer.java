@@ -0,0 +1,101 @@
+package DeltaFlores.web.security;
+
+import DeltaFlores.web.repository.PlantEventRepository;
+import DeltaFlores.web.repository.PlantaRepository;
+import DeltaFlores.web.utils.LruCache;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.access.AccessDeniedException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Verifica en bloque que un conjunto de plantas pertenezca a un usuario.
+ * Los dueños se resuelven con una única consulta por lote y se guardan en una caché LRU acotada
+ * (planta -> dueño), que se invalida cuando una planta cambia de dueño o se elimina.
+ */
+@Component
+@Log4j2
+public class PlantaOwnershipAuthorizer {
+
+    private final PlantaRepository plantaRepository;
+    private final PlantEventRepository plantEventRepository;
+    private final LruCache<Long, Long> ownerByPlanta;
+
+    public PlantaOwnershipAuthorizer(PlantaRepository plantaRepository,
+                                     PlantEventRepository plantEventRepository,
+                                     @Value("${app.cache.planta-owner.max-entries:10000}") int maxEntries) {
+        this.plantaRepository = plantaRepository;
+        this.plantEventRepository = plantEventRepository;
+        this.ownerByPlanta = new LruCache<>(maxEntries);
+    }
+
+    /**
+     * Lanza {@link AccessDeniedException} si alguna de las plantas no existe o no pertenece al usuario.
+     */
+    public void checkAllOwnedBy(Collection<Long> plantaIds, Long userId, String deniedMessage) {
+        if (plantaIds == null || plantaIds.isEmpty()) {
+            return;
+        }
+        Set<Long> ids = new HashSet<>(plantaIds);
+        Map<Long, Long> owners = findOwnerIds(ids);
+        for (Long plantaId : ids) {
+            Long ownerId = owners.get(plantaId);
+            if (ownerId == null || !ownerId.equals(userId)) {
+                log.warn("ACCESO DENEGADO: El usuario con ID: {} intentó operar sobre la planta ID: {}, que pertenece al usuario con ID: {}",
+                        userId, plantaId, ownerId);
+                throw new AccessDeniedException(deniedMessage);
+            }
+        }
+    }
+
+    /**
+     * Verifica que todas las plantas asociadas al evento pertenezcan al usuario.
+     */
+    public void checkEventOwnedBy(Long eventId, Long userId, String deniedMessage) {
+        checkAllOwnedBy(plantEventRepository.findPlantaIdsByEventId(eventId), userId, deniedMessage);
+    }
+
+    /**
+     * Devuelve el ID del dueño de cada planta. Las plantas inexistentes no aparecen en el mapa.
+     */
+    public Map<Long, Long> findOwnerIds(Collection<Long> plantaIds) {
+        Set<Long> ids = new HashSet<>(plantaIds);
+        Map<Long, Long> owners = new HashMap<>(ownerByPlanta.getAll(ids));
+        ids.removeAll(owners.keySet());
+        if (!ids.isEmpty()) {
+            Map<Long, Long> loaded = new HashMap<>();
+            List<Object[]> rows = plantaRepository.findOwnerIdsByIds(ids);
+            for (Object[] row : rows) {
+                loaded.put((Long) row[0], (Long) row[1]);
+            }
+            ownerByPlanta.putAll(loaded);
+            owners.putAll(loaded);
+        }
+        return owners;
+    }
+
+    /**
+     * Invalida la entrada de la planta. Si hay una transacción activa se invalida también al confirmarla,
+     * para que una lectura concurrente no vuelva a cachear el dueño anterior.
+     */
+    public void evict(Long plantaId) {
+        ownerByPlanta.remove(plantaId);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    ownerByPlanta.remove(plantaId);
+                }
+            });
+        }
+    }
+}
@@ -49,6 +49,9 @@ public class WebSecurityConfig {
                 .authorizeHttpRequests(auth -> auth
                         .requestMatchers(org.springframework.http.HttpMethod.OPTIONS, "/**").permitAll()
                         .requestMatchers("/login", "/swagger-ui/**", "/v3/api-docs/**", "/api/users/register").permitAll() // Allow registration
+                        // MediaController valida la sesión o la firma de la URL
+                        .requestMatchers(org.springframework.http.HttpMethod.GET, "/api/media/**").permitAll()
+                        .requestMatchers(org.springframework.http.HttpMethod.HEAD, "/api/media/**").permitAll()
                         .anyRequest().authenticated())
                         //.anyRequest().permitAll())
                 .logout(logout -> logout
@@ -2,16 +2,13 @@ package DeltaFlores.web.service;
 
 import DeltaFlores.web.dto.CepaDto;
 import DeltaFlores.web.entities.Cepa;
-import DeltaFlores.web.entities.User;
 import DeltaFlores.web.exception.ResourceNotFoundException;
 import DeltaFlores.web.repository.CepaRepository;
-import DeltaFlores.web.repository.UserRepository;
-import DeltaFlores.web.security.CustomUserDetails;
+import DeltaFlores.web.security.CurrentUserContext;
 import DeltaFlores.web.utils.DtoMapper;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.log4j.Log4j2;
 import org.springframework.security.access.AccessDeniedException;
-import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -24,41 +21,32 @@ import java.util.stream.Collectors;
 public class CepaService {
 
     private final CepaRepository cepaRepository;
-    private final UserRepository userRepository;
-
-    private User getCurrentUser() {
-        CustomUserDetails userDetails = (CustomUserDetails) SecurityContextHolder.getContext().getAuthentication().getPrincipal();
-        return userRepository.findById(userDetails.getId())
-                .orElseThrow(() -> new ResourceNotFoundException("Usuario no encontrado en el contexto de seguridad"));
-    }
+    private final CurrentUserContext currentUserContext;
 
     @Transactional(readOnly = true)
     public List<CepaDto> getCepasForCurrentUser() {
-        User currentUser = getCurrentUser();
-        log.info("\n\n\uD83D\uDD0E Buscando todas las cepas para el usuario: {}", currentUser.getUsername());
-        List<CepaDto> cepas = cepaRepository.findByUserId(currentUser.getId()).stream()
+        log.info("\n\n\uD83D\uDD0E Buscando todas las cepas para el usuario: {}", currentUserContext.getUsername());
+        List<CepaDto> cepas = cepaRepository.findByUserId(currentUserContext.getId()).stream()
                 .map(DtoMapper::cepaToCepaDto)
                 .collect(Collectors.toList());
-        log.info("\n\n\u2728 {} cepas encontradas para el usuario: {}", cepas.size(), currentUser.getUsername());
+        log.info("\n\n\u2728 {} cepas encontradas para el usuario: {}", cepas.size(), currentUserContext.getUsername());
         return cepas;
     }
 
     @Transactional(readOnly = true)
     public CepaDto getCepaById(Long id) {
-        User currentUser = getCurrentUser();
-        log.info("\n\n\uD83D\uDD0E Buscando cepa con ID: {} para el usuario: {}", id, currentUser.getUsername());
+        log.info("\n\n\uD83D\uDD0E Buscando cepa con ID: {} para el usuario: {}", id, currentUserContext.getUsername());
         Cepa cepa = cepaRepository.findById(id)
                 .orElseThrow(() -> {
                     log.warn("\n\n\u26A0\uFE0F No se encontró la cepa con ID: {}", id);
                     return new ResourceNotFoundException("Cepa no encontrada con id: " + id);
                 });
 
-        boolean isOwner = cepa.getUser().getId().equals(currentUser.getId());
-        boolean isAdmin = currentUser.getAuthorities().stream()
-                .anyMatch(role -> role.getAuthority().equals("ROLE_ADMIN") || role.getAuthority().equals("ROLE_SUPER_ADMIN"));
+        boolean isOwner = cepa.getUser().getId().equals(currentUserContext.getId());
+        boolean isAdmin = currentUserContext.isAdmin();
 
         if (!isOwner && !isAdmin) {
-            log.warn("\n\n\uD83D\uDEAB Acceso denegado. El usuario '{}' no es propietario ni admin de la cepa con ID: {}", currentUser.getUsername(), id);
+            log.warn("\n\n\uD83D\uDEAB Acceso denegado. El usuario '{}' no es propietario ni admin de la cepa con ID: {}", currentUserContext.getUsername(), id);
             throw new AccessDeniedException("No tienes permiso para ver esta cepa.");
         }
 
@@ -69,11 +57,10 @@ public class CepaService {
 
     @Transactional
     public CepaDto createCepa(CepaDto cepaDto) {
-        User currentUser = getCurrentUser();
-        log.info("\n\n\uD83D\uDCBE Creando nueva cepa: {} para el usuario: {}", cepaDto.getGeneticaParental(), currentUser.getUsername());
+        log.info("\n\n\uD83D\uDCBE Creando nueva cepa: {} para el usuario: {}", cepaDto.getGeneticaParental(), currentUserContext.getUsername());
         try {
             Cepa cepa = new Cepa();
-            cepa.setUser(currentUser); // Associate with current user first
+            cepa.setUser(currentUserContext.getUserReference()); // Associate with current user first
             DtoMapper.cepaDtoToCepa(cepaDto, cepa); // Then map the rest of the fields
             Cepa savedCepa = cepaRepository.save(cepa);
             log.info("\n\n\u2728 Cepa creada con éxito con ID: {}", savedCepa.getId());
@@ -86,20 +73,18 @@ public class CepaService {
 
     @Transactional
     public CepaDto updateCepa(Long id, CepaDto cepaDto) {
-        User currentUser = getCurrentUser();
-        log.info("\n\n\u2B06\uFE0F Actualizando cepa con ID: {} por el usuario: {}", id, currentUser.getUsername());
+        log.info("\n\n\u2B06\uFE0F Actualizando cepa con ID: {} por el usuario: {}", id, currentUserContext.getUsername());
         Cepa existingCepa = cepaRepository.findById(id)
                 .orElseThrow(() -> {
                     log.warn("\n\n\u26A0\uFE0F No se puede actualizar. No se encontró la cepa con ID: {}", id);
                     return new ResourceNotFoundException("Cepa no encontrada con id: " + id);
                 });
 
-        boolean isOwner = existingCepa.getUser().getId().equals(currentUser.getId());
-        boolean isSuperAdmin = currentUser.getAuthorities().stream()
-                .anyMatch(role -> role.getAuthority().equals("ROLE_SUPER_ADMIN"));
+        boolean isOwner = existingCepa.getUser().getId().equals(currentUserContext.getId());
+        boolean isSuperAdmin = currentUserContext.isSuperAdmin();
 
         if (!isOwner && !isSuperAdmin) {
-             log.warn("\n\n\uD83D\uDEAB Acceso denegado. El usuario '{}' no es propietario ni SUPER_ADMIN de la cepa con ID: {}", currentUser.getUsername(), id);
+             log.warn("\n\n\uD83D\uDEAB Acceso denegado. El usuario '{}' no es propietario ni SUPER_ADMIN de la cepa con ID: {}", currentUserContext.getUsername(), id);
             throw new AccessDeniedException("No tienes permiso para actualizar esta cepa.");
         }
 
@@ -117,20 +102,18 @@ public class CepaService {
 
     @Transactional
     public void deleteCepa(Long id) {
-        User currentUser = getCurrentUser();
-        log.info("\n\n\uD83D\uDDD1\uFE0F Intentando eliminar cepa con ID: {} por el usuario: {}", id, currentUser.getUsername());
+        log.info("\n\n\uD83D\uDDD1\uFE0F Intentando eliminar cepa con ID: {} por el usuario: {}", id, currentUserContext.getUsername());
         Cepa cepa = cepaRepository.findById(id)
                 .orElseThrow(() -> {
                     log.warn("\n\n\u26A0\uFE0F No se puede eliminar. No se encontró la cepa con ID: {}", id);
                     return new ResourceNotFoundException("Cepa no encontrada con id: " + id);
                 });
 
-        boolean isOwner = cepa.getUser().getId().equals(currentUser.getId());
-        boolean isSuperAdmin = currentUser.getAuthorities().stream()
-                .anyMatch(role -> role.getAuthority().equals("ROLE_SUPER_ADMIN"));
+        boolean isOwner = cepa.getUser().getId().equals(currentUserContext.getId());
+        boolean isSuperAdmin = currentUserContext.isSuperAdmin();
 
         if (!isOwner && !isSuperAdmin) {
-             log.warn("\n\n\uD83D\uDEAB Acceso denegado. El usuario '{}' no es propietario ni SUPER_ADMIN de la cepa con ID: {}", currentUser.getUsername(), id);
+             log.warn("\n\n\uD83D\uDEAB Acceso denegado. El usuario '{}' no es propietario ni SUPER_ADMIN de la cepa con ID: {}", currentUserContext.getUsername(), id);
             throw new AccessDeniedException("No tienes permiso para eliminar esta cepa.");
         }
 
@@ -0,0 +1,233 @@
+package DeltaFlores.web.service;
+
+import DeltaFlores.web.repository.MediaBlobRepository;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Modo de almacenamiento direccionado por contenido (storage.content-addressed.enabled=true).
+ * Envuelve al FileStorageService del perfil activo: calcula el SHA-256 mientras copia el stream a un
+ * archivo temporal, usa el digest como clave (cas-&lt;sha256&gt;), omite la subida si el objeto ya existe
+ * y lleva un contador de referencias en media_blobs para que deleteFile solo borre blobs sin referencias.
+ * Las URLs que no son CAS (subidas anteriores o prefirmadas) se delegan sin cambios.
+ */
+@Service
+@Primary
+@ConditionalOnProperty(name = "storage.content-addressed.enabled", havingValue = "true")
+@Log4j2
+public class ContentAddressedFileStorageService implements FileStorageService {
+
+    static final String KEY_PREFIX = "cas-";
+
+    private final FileStorageService delegate;
+    private final MediaBlobRepository mediaBlobRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final Path spoolDir;
+
+    public ContentAddressedFileStorageService(List<FileStorageService> storages,
+                                              MediaBlobRepository mediaBlobRepository,
+                                              TransactionTemplate transactionTemplate,
+                                              @Value("${storage.content-addressed.spool-dir:${java.io.tmpdir}}") String spoolDir) {
+        this.delegate = storages.stream()
+                .filter(storage -> !(storage instanceof ContentAddressedFileStorageService))
+                .findFirst()
+                .orElseThrow(() -> new IllegalStateException("No hay un FileStorageService activo para el modo direccionado por contenido"));
+        this.mediaBlobRepository = mediaBlobRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.spoolDir = Paths.get(spoolDir);
+        log.info("\n\n🧬 Almacenamiento direccionado por contenido activo sobre {}", delegate.getClass().getSimpleName());
+    }
+
+    @Override
+    public String uploadFile(MultipartFile file) {
+        try (InputStream inputStream = file.getInputStream()) {
+            return uploadStream(inputStream, file.getSize(), file.getContentType(), file.getOriginalFilename());
+        } catch (IOException e) {
+            throw new RuntimeException("Error uploading file: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public String uploadStream(InputStream inputStream, long size, String contentType, String originalFilename) {
+        Path spooled = null;
+        try {
+            // La clave depende del contenido completo, así que se hashea mientras se copia a disco
+            spooled = Files.createTempFile(spoolDir, "cas-", ".upload");
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            long spooledSize;
+            try (InputStream hashing = new DigestInputStream(inputStream, digest);
+                 OutputStream out = Files.newOutputStream(spooled)) {
+                spooledSize = hashing.transferTo(out);
+            }
+            String objectKey = KEY_PREFIX + HexFormat.of().formatHex(digest.digest());
+
+            long references = transactionTemplate.execute(status -> mediaBlobRepository.acquire(objectKey, spooledSize));
+            // Aunque haya otras referencias se verifica el objeto: la subida que lo creó pudo haber fallado
+            if (delegate.exists(objectKey)) {
+                log.info("\n\n♻️ Archivo duplicado ({} referencias), se omite la subida de {}", references, objectKey);
+                return delegate.urlForObject(objectKey);
+            }
+            try (InputStream content = Files.newInputStream(spooled)) {
+                return delegate.uploadStreamAs(objectKey, content, spooledSize, contentType);
+            } catch (RuntimeException e) {
+                releaseObject(objectKey);
+                throw e;
+            }
+        } catch (IOException | NoSuchAlgorithmException e) {
+            throw new RuntimeException("Error uploading file: " + e.getMessage(), e);
+        } finally {
+            if (spooled != null) {
+                try {
+                    Files.deleteIfExists(spooled);
+                } catch (IOException e) {
+                    log.warn("\n\n⚠️ No se pudo borrar el temporal {}: {}", spooled, e.getMessage());
+                }
+            }
+        }
+    }
+
+    @Override
+    public String uploadStreamAs(String objectName, InputStream inputStream, long size, String contentType) {
+        return delegate.uploadStreamAs(objectName, inputStream, size, contentType);
+    }
+
+    @Override
+    public void deleteFile(String fileUrl) {
+        String objectName = fileUrl.substring(fileUrl.lastIndexOf('/') + 1);
+        if (!objectName.startsWith(KEY_PREFIX)) {
+            delegate.deleteFile(fileUrl);
+            return;
+        }
+        try {
+            releaseObject(objectName);
+        } catch (RuntimeException e) {
+            log.error("\n\n❌ Error al liberar la referencia de {}: {}", objectName, e.getMessage());
+        }
+    }
+
+    @Override
+    public Set<String> deleteFiles(Collection<String> fileUrls) {
+        List<String> plainUrls = new ArrayList<>();
+        Set<String> failed = new HashSet<>();
+        for (String fileUrl : fileUrls) {
+            String objectName = fileUrl.substring(fileUrl.lastIndexOf('/') + 1);
+            if (!objectName.startsWith(KEY_PREFIX)) {
+                plainUrls.add(fileUrl);
+                continue;
+            }
+            try {
+                releaseObject(objectName);
+            } catch (RuntimeException e) {
+                log.error("\n\n❌ Error al liberar la referencia de {}: {}", objectName, e.getMessage());
+                failed.add(fileUrl);
+            }
+        }
+        if (!plainUrls.isEmpty()) {
+            failed.addAll(delegate.deleteFiles(plainUrls));
+        }
+        return failed;
+    }
+
+    /**
+     * Resta una referencia y, si era la última, borra la fila y el objeto en la misma transacción:
+     * el lock de la fila hace esperar a un acquire concurrente hasta que el objeto ya no está.
+     */
+    private void releaseObject(String objectKey) {
+        transactionTemplate.executeWithoutResult(status -> {
+            Long remaining = mediaBlobRepository.release(objectKey);
+            if (remaining == null) {
+                // Sin registro no se sabe quién más lo usa, así que se conserva
+                log.warn("\n\n⚠️ {} no estaba registrado en media_blobs, no se borra.", objectKey);
+            } else if (remaining <= 0 && mediaBlobRepository.deleteIfUnreferenced(objectKey) > 0) {
+                // Si el borrado falla se revierte la transacción y la referencia vuelve a contar
+                if (!delegate.deleteFiles(List.of(delegate.urlForObject(objectKey))).isEmpty()) {
+                    throw new IllegalStateException("No se pudo borrar el blob " + objectKey);
+                }
+                log.info("\n\n🗑️ Blob {} sin referencias eliminado.", objectKey);
+            }
+        });
+    }
+
+    /**
+     * Borra un blob que quedó en el bucket sin fila en media_blobs (p. ej. una subida que falló después de subir).
+     * La fila con cero referencias ocupa la clave mientras dura la transacción: un acquire concurrente espera
+     * y, si llega antes, el blob pasa a estar referenciado y se conserva.
+     * @return true si el blob se borró.
+     */
+    public boolean purgeIfUnreferenced(String objectKey, long sizeBytes) {
+        Boolean purged = transactionTemplate.execute(status -> {
+            mediaBlobRepository.registerUnreferenced(objectKey, sizeBytes);
+            if (mediaBlobRepository.deleteIfUnreferenced(objectKey) == 0) {
+                return false;
+            }
+            if (!delegate.deleteFiles(List.of(delegate.urlForObject(objectKey))).isEmpty()) {
+                throw new IllegalStateException("No se pudo borrar el blob " + objectKey);
+            }
+            return true;
+        });
+        return Boolean.TRUE.equals(purged);
+    }
+
+    @Override
+    public InputStream openStream(String fileUrl) {
+        return delegate.openStream(fileUrl);
+    }
+
+    @Override
+    public String urlForObject(String objectName) {
+        return delegate.urlForObject(objectName);
+    }
+
+    @Override
+    public boolean exists(String objectName) {
+        return delegate.exists(objectName);
+    }
+
+    @Override
+    public boolean supportsListing() {
+        return delegate.supportsListing();
+    }
+
+    @Override
+    public List<StoredObject> listObjects(String startAfter, int maxKeys) {
+        return delegate.listObjects(startAfter, maxKeys);
+    }
+
+    @Override
+    public boolean supportsPresignedUpload() {
+        return delegate.supportsPresignedUpload();
+    }
+
+    @Override
+    public Optional<PresignedUpload> presignUpload(String objectName, String contentType, long maxBytes, Duration expiry) {
+        return delegate.presignUpload(objectName, contentType, maxBytes, expiry);
+    }
+
+    @Override
+    public String presignDownload(String fileUrl, Duration expiry) {
+        return delegate.presignDownload(fileUrl, expiry);
+    }
+}
@@ -0,0 +1,114 @@
+package DeltaFlores.web.service;
+
+import DeltaFlores.web.repository.FavoriteRepository;
+import DeltaFlores.web.utils.LruCache;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Favoritos de cada usuario en memoria, como arrays ordenados de IDs por favorableType: una consulta
+ * por usuario los carga todos y después cada "¿es favorito?" es una búsqueda binaria.
+ * Los usuarios se guardan en una caché LRU acotada que FavoriteService invalida al agregar o quitar un favorito.
+ */
+@Component
+public class FavoriteMembershipCache {
+
+    private static final long[] EMPTY = new long[0];
+    // Generaciones por franja de usuarios: evict incrementa la de la franja del usuario
+    private static final int GENERATION_STRIPES = 64;
+
+    private final FavoriteRepository favoriteRepository;
+    private final LruCache<Long, Map<String, long[]>> membershipByUser;
+    private final long[] generations = new long[GENERATION_STRIPES];
+
+    public FavoriteMembershipCache(FavoriteRepository favoriteRepository,
+                                   @Value("${app.cache.favorites.max-users:10000}") int maxUsers) {
+        this.favoriteRepository = favoriteRepository;
+        this.membershipByUser = new LruCache<>(maxUsers);
+    }
+
+    /**
+     * @return bit i encendido si ids.get(i) es favorito del usuario para ese tipo.
+     */
+    public BitSet contains(Long userId, String favorableType, List<Long> ids) {
+        long[] favorites = membership(userId).getOrDefault(favorableType, EMPTY);
+        BitSet bits = new BitSet(ids.size());
+        for (int i = 0; i < ids.size(); i++) {
+            Long id = ids.get(i);
+            if (id != null && Arrays.binarySearch(favorites, id) >= 0) {
+                bits.set(i);
+            }
+        }
+        return bits;
+    }
+
+    /**
+     * Invalida los favoritos del usuario. Si hay una transacción activa se invalida también al confirmarla,
+     * para que una lectura concurrente no vuelva a cachear el estado anterior.
+     */
+    public void evict(Long userId) {
+        invalidate(userId);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    invalidate(userId);
+                }
+            });
+        }
+    }
+
+    /**
+     * La carga se hace fuera del lock; si mientras tanto se invalidó la franja del usuario, el resultado
+     * (que puede ser anterior al commit) se usa para esta consulta pero no se guarda.
+     */
+    private Map<String, long[]> membership(Long userId) {
+        Map<String, long[]> membership = membershipByUser.get(userId);
+        if (membership != null) {
+            return membership;
+        }
+        int stripe = stripe(userId);
+        long generation;
+        synchronized (generations) {
+            generation = generations[stripe];
+        }
+        membership = load(userId);
+        synchronized (generations) {
+            if (generations[stripe] == generation) {
+                membershipByUser.put(userId, membership);
+            }
+        }
+        return membership;
+    }
+
+    private void invalidate(Long userId) {
+        synchronized (generations) {
+            generations[stripe(userId)]++;
+            membershipByUser.remove(userId);
+        }
+    }
+
+    private static int stripe(Long userId) {
+        return Math.floorMod(Long.hashCode(userId), GENERATION_STRIPES);
+    }
+
+    private Map<String, long[]> load(Long userId) {
+        // Las filas vienen ordenadas por tipo e ID; los tipos ya están en mayúsculas (FavoriteService.normalizeFavorableTypes)
+        Map<String, List<Long>> idsByType = new HashMap<>();
+        for (Object[] row : favoriteRepository.findTypesAndIdsByUserId(userId)) {
+            idsByType.computeIfAbsent((String) row[0], type -> new ArrayList<>()).add((Long) row[1]);
+        }
+        Map<String, long[]> membership = new HashMap<>();
+        idsByType.forEach((type, ids) -> membership.put(type, ids.stream().mapToLong(Long::longValue).toArray()));
+        return membership;
+    }
+}
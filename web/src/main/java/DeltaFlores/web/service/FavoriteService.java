@@ -1,22 +1,37 @@
 package DeltaFlores.web.service;
 
+import DeltaFlores.web.dto.FavoriteMembershipDto;
+import DeltaFlores.web.dto.FavoritesDto;
 import DeltaFlores.web.dto.PlantaDto;
 import DeltaFlores.web.dto.SalaDto;
+import DeltaFlores.web.dto.SliceDto;
 import DeltaFlores.web.dto.UserDto;
 import DeltaFlores.web.entities.Favorite;
+import DeltaFlores.web.entities.Sala;
 import DeltaFlores.web.entities.User;
 import DeltaFlores.web.exception.ResourceAlreadyExistsException;
 import DeltaFlores.web.exception.ResourceNotFoundException;
 import DeltaFlores.web.repository.*;
-import DeltaFlores.web.security.CustomUserDetails;
+import DeltaFlores.web.security.CurrentUserContext;
 import DeltaFlores.web.utils.DtoMapper;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.log4j.Log4j2;
-import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Log4j2
@@ -24,73 +39,193 @@ import java.util.stream.Collectors;
 @RequiredArgsConstructor
 public class FavoriteService {
 
+    private static final Set<String> FAVORABLE_TYPES = Set.of("PLANTA", "SALA", "USER");
+    // Tope de IDs por consulta de membresía
+    private static final int MAX_MEMBERSHIP_IDS = 1000;
+    private static final int MAX_SECTION_SIZE = 100;
+
+    // Versiones anteriores guardaban el tipo tal como llegaba; se pasa a mayúsculas, que es como se consulta.
+    // Primero se borran las filas que al normalizarse duplicarían otra (restricción única).
+    private static final String DELETE_DUPLICATE_TYPES =
+            "DELETE FROM favorites f WHERE f.favorable_type <> upper(f.favorable_type) AND EXISTS (" +
+                    "SELECT 1 FROM favorites o WHERE o.user_id = f.user_id AND o.favorable_id = f.favorable_id " +
+                    "AND upper(o.favorable_type) = upper(f.favorable_type) " +
+                    "AND (o.favorable_type = upper(o.favorable_type) OR o.id < f.id))";
+    private static final String UPPERCASE_TYPES =
+            "UPDATE favorites SET favorable_type = upper(favorable_type) WHERE favorable_type <> upper(favorable_type)";
+
     private final FavoriteRepository favoriteRepository;
     private final UserRepository userRepository;
     private final PlantaRepository plantaRepository;
     private final SalaRepository salaRepository;
-
-    private User getCurrentUser() {
-        CustomUserDetails userDetails = (CustomUserDetails) SecurityContextHolder.getContext().getAuthentication().getPrincipal();
-        return userRepository.findById(userDetails.getId())
-                .orElseThrow(() -> new ResourceNotFoundException("Usuario no encontrado en el contexto de seguridad"));
+    private final SalaService salaService;
+    private final CurrentUserContext currentUserContext;
+    private final FavoriteMembershipCache favoriteMembershipCache;
+    private final JdbcTemplate jdbcTemplate;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void normalizeFavorableTypes() {
+        try {
+            int removed = jdbcTemplate.update(DELETE_DUPLICATE_TYPES);
+            int updated = jdbcTemplate.update(UPPERCASE_TYPES);
+            if (removed + updated > 0) {
+                log.info("\n\n🔠 Tipos de favoritos normalizados: {} filas actualizadas, {} duplicadas borradas.", updated, removed);
+            }
+        } catch (RuntimeException e) {
+            log.warn("\n\n⚠️ No se pudieron normalizar los tipos de favoritos: {}", e.getMessage());
+        }
     }
 
     @Transactional
-    public void addFavorite(Long entityId, String entityType) {
-        User currentUser = getCurrentUser();
-        log.info("Usuario '{}' intentando agregar {} ID: {} a favoritos.", currentUser.getUsername(), entityType, entityId);
+    public void addFavorite(Long entityId, String type) {
+        // Se guarda siempre en mayúsculas, que es como se consulta
+        String entityType = favorableType(type);
+        log.info("Usuario '{}' intentando agregar {} ID: {} a favoritos.", currentUserContext.getUsername(), entityType, entityId);
 
         // Validate that the target entity exists
         validateEntityExists(entityId, entityType);
 
-        if (favoriteRepository.findByUserIdAndFavorableIdAndFavorableType(currentUser.getId(), entityId, entityType).isPresent()) {
+        if (favoriteRepository.findByUserIdAndFavorableIdAndFavorableType(currentUserContext.getId(), entityId, entityType).isPresent()) {
             throw new ResourceAlreadyExistsException("Este item ya está en tus favoritos.");
         }
 
-        Favorite favorite = new Favorite(currentUser, entityId, entityType);
+        Favorite favorite = new Favorite(currentUserContext.getUserReference(), entityId, entityType);
         favoriteRepository.save(favorite);
-        log.info("{} ID: {} agregado a favoritos para el usuario '{}'.", entityType, entityId, currentUser.getUsername());
+        favoriteMembershipCache.evict(currentUserContext.getId());
+        log.info("{} ID: {} agregado a favoritos para el usuario '{}'.", entityType, entityId, currentUserContext.getUsername());
     }
 
     @Transactional
-    public void removeFavorite(Long entityId, String entityType) {
-        User currentUser = getCurrentUser();
-        log.info("Usuario '{}' intentando remover {} ID: {} de favoritos.", currentUser.getUsername(), entityType, entityId);
+    public void removeFavorite(Long entityId, String type) {
+        String entityType = favorableType(type);
+        log.info("Usuario '{}' intentando remover {} ID: {} de favoritos.", currentUserContext.getUsername(), entityType, entityId);
 
-        Favorite favorite = favoriteRepository.findByUserIdAndFavorableIdAndFavorableType(currentUser.getId(), entityId, entityType)
+        Favorite favorite = favoriteRepository.findByUserIdAndFavorableIdAndFavorableType(currentUserContext.getId(), entityId, entityType)
                 .orElseThrow(() -> new ResourceNotFoundException("Este item no se encuentra en tus favoritos."));
 
         favoriteRepository.delete(favorite);
-        log.info("{} ID: {} removido de favoritos para el usuario '{}'.", entityType, entityId, currentUser.getUsername());
+        favoriteMembershipCache.evict(currentUserContext.getId());
+        log.info("{} ID: {} removido de favoritos para el usuario '{}'.", entityType, entityId, currentUserContext.getUsername());
     }
 
     @Transactional(readOnly = true)
     public List<PlantaDto> getFavoritePlantas() {
-        User currentUser = getCurrentUser();
-        List<Long> plantIds = favoriteRepository.findFavorableIdsByUserIdAndFavorableType(currentUser.getId(), "PLANTA");
-        return plantaRepository.findAllById(plantIds).stream()
-                .map(DtoMapper::plantaToPlantaDto)
+        return plantaRepository.findFavoriteSummariesByUserId(currentUserContext.getId()).stream()
+                .map(DtoMapper::plantaSummaryRowToPlantaDto)
                 .collect(Collectors.toList());
     }
 
     @Transactional(readOnly = true)
     public List<SalaDto> getFavoriteSalas() {
-        User currentUser = getCurrentUser();
-        List<Long> salaIds = favoriteRepository.findFavorableIdsByUserIdAndFavorableType(currentUser.getId(), "SALA");
-        return salaRepository.findAllById(salaIds).stream()
-                .map(DtoMapper::salaToSalaDto)
-                .collect(Collectors.toList());
+        List<Long> salaIds = favoriteRepository.findFavorableIdsByUserIdAndFavorableType(currentUserContext.getId(), "SALA");
+        return salaService.toSalaDtos(salaRepository.findAllById(salaIds));
     }
 
     @Transactional(readOnly = true)
     public List<UserDto> getFavoriteUsers() {
-        User currentUser = getCurrentUser();
-        List<Long> userIds = favoriteRepository.findFavorableIdsByUserIdAndFavorableType(currentUser.getId(), "USER");
+        List<Long> userIds = favoriteRepository.findFavorableIdsByUserIdAndFavorableType(currentUserContext.getId(), "USER");
         return userRepository.findAllById(userIds).stream()
                 .map(DtoMapper::userToUserDto)
                 .collect(Collectors.toList());
     }
 
+    /**
+     * Todos los favoritos del usuario actual en una sola respuesta. Las filas de favorites se leen una vez y se
+     * agrupan por tipo; cada sección pagina sus IDs en memoria y resuelve la página con una única consulta por lote.
+     */
+    @Transactional(readOnly = true)
+    public FavoritesDto getAllFavorites(int page, int size) {
+        if (page < 0) {
+            throw new IllegalArgumentException("El número de página no puede ser negativo.");
+        }
+        int pageSize = Math.max(1, Math.min(size, MAX_SECTION_SIZE));
+        Long userId = currentUserContext.getId();
+        log.info("Obteniendo la página {} de todos los favoritos del usuario '{}' (ID: {})", page, currentUserContext.getUsername(), userId);
+
+        Map<String, List<Long>> idsByType = new HashMap<>();
+        for (Object[] row : favoriteRepository.findTypesAndIdsByUserId(userId)) {
+            idsByType.computeIfAbsent((String) row[0], type -> new ArrayList<>()).add((Long) row[1]);
+        }
+
+        FavoritesDto favorites = new FavoritesDto();
+        favorites.setPlantas(section(idsByType.get("PLANTA"), page, pageSize, this::loadPlantas, PlantaDto::getId));
+        favorites.setSalas(section(idsByType.get("SALA"), page, pageSize, this::loadSalas, SalaDto::getId));
+        favorites.setUsers(section(idsByType.get("USER"), page, pageSize, this::loadUsers, UserDto::getId));
+        return favorites;
+    }
+
+    /**
+     * Arma una sección a partir de los IDs ordenados de un tipo: solo se consultan los de la página pedida
+     * y el resultado conserva ese orden. Los favoritos cuya entidad ya no existe se omiten.
+     */
+    private static <D> SliceDto<D> section(List<Long> ids, int page, int size,
+                                           Function<Collection<Long>, List<D>> loader, Function<D, Long> idOf) {
+        List<Long> allIds = ids != null ? ids : List.of();
+        long from = Math.min((long) page * size, allIds.size());
+        int to = (int) Math.min(from + size, allIds.size());
+        List<Long> pageIds = allIds.subList((int) from, to);
+
+        List<D> content = new ArrayList<>(pageIds.size());
+        if (!pageIds.isEmpty()) {
+            Map<Long, D> loaded = new HashMap<>();
+            for (D dto : loader.apply(pageIds)) {
+                loaded.put(idOf.apply(dto), dto);
+            }
+            pageIds.stream().map(loaded::get).filter(Objects::nonNull).forEach(content::add);
+        }
+
+        SliceDto<D> sliceDto = new SliceDto<>();
+        sliceDto.setContent(content);
+        sliceDto.setPage(page);
+        sliceDto.setSize(size);
+        sliceDto.setHasNext(to < allIds.size());
+        sliceDto.setTotalEstimate((long) allIds.size());
+        return sliceDto;
+    }
+
+    private List<PlantaDto> loadPlantas(Collection<Long> ids) {
+        return plantaRepository.findSummariesByIds(ids).stream()
+                .map(DtoMapper::plantaSummaryRowToPlantaDto)
+                .collect(Collectors.toList());
+    }
+
+    private List<SalaDto> loadSalas(Collection<Long> ids) {
+        List<Sala> salas = salaRepository.findAllById(ids);
+        return salaService.toSalaDtos(salas);
+    }
+
+    private List<UserDto> loadUsers(Collection<Long> ids) {
+        List<User> users = userRepository.findAllById(ids);
+        return users.stream()
+                .map(DtoMapper::userToUserDto)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Indica, para cada ID, si es favorito del usuario actual. Se responde desde FavoriteMembershipCache,
+     * sin consultar la base mientras el usuario siga en caché.
+     */
+    public FavoriteMembershipDto checkFavorites(String entityType, List<Long> ids) {
+        String favorableType = favorableType(entityType);
+        if (ids.size() > MAX_MEMBERSHIP_IDS) {
+            throw new IllegalArgumentException("Se pueden consultar hasta " + MAX_MEMBERSHIP_IDS + " IDs por vez.");
+        }
+        BitSet bits = favoriteMembershipCache.contains(currentUserContext.getId(), favorableType, ids);
+        StringBuilder encoded = new StringBuilder(ids.size());
+        for (int i = 0; i < ids.size(); i++) {
+            encoded.append(bits.get(i) ? '1' : '0');
+        }
+        return new FavoriteMembershipDto(favorableType, ids, encoded.toString());
+    }
+
+    private static String favorableType(String entityType) {
+        String favorableType = entityType.toUpperCase(Locale.ROOT);
+        if (!FAVORABLE_TYPES.contains(favorableType)) {
+            throw new IllegalArgumentException("Tipo de entidad no soportada para favoritos: " + entityType);
+        }
+        return favorableType;
+    }
+
     private void validateEntityExists(Long entityId, String entityType) {
         boolean exists;
         switch (entityType.toUpperCase()) {
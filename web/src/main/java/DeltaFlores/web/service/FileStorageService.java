@@ -2,7 +2,101 @@ package DeltaFlores.web.service;
 
 import org.springframework.web.multipart.MultipartFile;
 
+import java.io.InputStream;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
 public interface FileStorageService {
+
+    /**
+     * Prefijo de las partes temporales de una subida por partes. Si el proceso se cae antes de unirlas
+     * quedan en el bucket sin referencias; la reconciliación las borra pasado el período de gracia.
+     */
+    String UPLOAD_PART_PREFIX = "upload-part-";
+
+    /**
+     * Objeto del bucket tal como lo informa el listado.
+     */
+    record StoredObject(String name, long size, Instant lastModified) {
+    }
+
+    /**
+     * Subida directa al bucket. Con method PUT el cliente envía el archivo como cuerpo junto con las cabeceras
+     * indicadas; con POST envía un multipart/form-data con formFields y el archivo al final, en el campo "file".
+     */
+    record PresignedUpload(String method, String url, Map<String, String> headers, Map<String, String> formFields) {
+    }
+
     String uploadFile(MultipartFile file);
+
+    /**
+     * Sube el contenido leyendo el stream por partes de tamaño acotado (storage.upload.part-size-bytes),
+     * de modo que la memoria usada no depende del tamaño del archivo. Cada parte se reintenta por separado.
+     *
+     * @param size tamaño en bytes, o -1 si no se conoce
+     * @return la URL del archivo subido
+     */
+    String uploadStream(InputStream inputStream, long size, String contentType, String originalFilename);
+
+    /**
+     * Igual que uploadStream pero con el nombre de objeto indicado; si ya existe se sobrescribe.
+     */
+    String uploadStreamAs(String objectName, InputStream inputStream, long size, String contentType);
+
     void deleteFile(String fileUrl);
+
+    /**
+     * Borra varios archivos en lote. A diferencia de deleteFile informa los errores: devuelve las URLs
+     * que no se pudieron borrar para reintentarlas. Un archivo que ya no existe cuenta como borrado.
+     */
+    Set<String> deleteFiles(Collection<String> fileUrls);
+
+    /**
+     * Abre el contenido del archivo guardado en fileUrl. Quien llama debe cerrar el stream.
+     */
+    InputStream openStream(String fileUrl);
+
+    /**
+     * URL con la que se guarda en base de datos el objeto indicado (la misma forma que devuelve uploadFile).
+     */
+    String urlForObject(String objectName);
+
+    boolean exists(String objectName);
+
+    /**
+     * Indica si listObjects está disponible; la reconciliación del almacenamiento lo necesita.
+     */
+    boolean supportsListing();
+
+    /**
+     * Una página del listado del bucket: hasta maxKeys objetos con nombre estrictamente mayor que startAfter
+     * ("" para empezar), en orden binario (UTF-8), que es el orden nativo de S3/MinIO y GCS.
+     */
+    List<StoredObject> listObjects(String startAfter, int maxKeys);
+
+    /**
+     * Indica si el almacenamiento admite subidas directas al bucket. Por defecto no: los archivos pasan por la aplicación.
+     */
+    default boolean supportsPresignedUpload() {
+        return false;
+    }
+
+    /**
+     * Subida firmada para que el cliente suba el objeto directo al bucket. La firma exige que el cuerpo mida
+     * como mucho maxBytes, así que el bucket rechaza un archivo más grande que el declarado.
+     * Vacío si supportsPresignedUpload es false.
+     */
+    default Optional<PresignedUpload> presignUpload(String objectName, String contentType, long maxBytes, Duration expiry) {
+        return Optional.empty();
+    }
+
+    /**
+     * URL firmada de corta duración para descargar el archivo guardado en fileUrl.
+     */
+    String presignDownload(String fileUrl, Duration expiry);
 }
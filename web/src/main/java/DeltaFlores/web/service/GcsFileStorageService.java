@@ -1,16 +1,35 @@
 package DeltaFlores.web.service;
 
+import com.google.cloud.ReadChannel;
+import com.google.cloud.WriteChannel;
+import com.google.cloud.storage.Blob;
 import com.google.cloud.storage.BlobId;
 import com.google.cloud.storage.BlobInfo;
+import com.google.cloud.storage.HttpMethod;
 import com.google.cloud.storage.Storage;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.log4j.Log4j2;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Profile;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Implementación de FileStorageService para Google Cloud Storage.
@@ -19,36 +38,171 @@ import java.util.UUID;
 @Service
 @Profile("gcs")
 @RequiredArgsConstructor
+@Log4j2
 public class GcsFileStorageService implements FileStorageService {
 
+    // Las subidas resumibles de GCS requieren chunks múltiplos de 256 KiB
+    private static final int CHUNK_GRANULARITY_BYTES = 256 * 1024;
+    private static final int COPY_BUFFER_BYTES = 64 * 1024;
+
     private final Storage storage;
 
     @Value("${gcs.bucket.name}")
     private String bucketName;
 
+    @Value("${storage.upload.part-size-bytes:8388608}")
+    private int partSizeBytes;
+
     @Override
     public String uploadFile(MultipartFile file) {
-        try {
-            String originalFilename = file.getOriginalFilename();
-            String fileExtension = "";
-            if (originalFilename != null && originalFilename.contains(".")) {
-                fileExtension = originalFilename.substring(originalFilename.lastIndexOf("."));
-            }
-            String uniqueFileName = UUID.randomUUID().toString() + fileExtension;
-
-            BlobId blobId = BlobId.of(bucketName, uniqueFileName);
-            BlobInfo blobInfo = BlobInfo.newBuilder(blobId)
-                    .setContentType(file.getContentType())
-                    .build();
+        try (InputStream inputStream = file.getInputStream()) {
+            return uploadStream(inputStream, file.getSize(), file.getContentType(), file.getOriginalFilename());
+        } catch (IOException e) {
+            throw new RuntimeException("Error uploading file to GCS", e);
+        }
+    }
 
-            storage.create(blobInfo, file.getBytes());
+    /**
+     * Sube el archivo con una subida resumible: el WriteChannel envía un chunk por vez
+     * (storage.upload.part-size-bytes) y la librería reintenta cada chunk fallido,
+     * así que en memoria nunca hay más de un chunk.
+     */
+    @Override
+    public String uploadStream(InputStream inputStream, long size, String contentType, String originalFilename) {
+        String fileExtension = "";
+        if (originalFilename != null && originalFilename.contains(".")) {
+            fileExtension = originalFilename.substring(originalFilename.lastIndexOf("."));
+        }
+        String uniqueFileName = UUID.randomUUID().toString() + fileExtension;
+        return uploadStreamAs(uniqueFileName, inputStream, size, contentType);
+    }
 
-            // Devuelve la URL pública del archivo
-            return String.format("https://storage.googleapis.com/%s/%s", bucketName, uniqueFileName);
+    @Override
+    public String uploadStreamAs(String objectName, InputStream inputStream, long size, String contentType) {
+        BlobId blobId = BlobId.of(bucketName, objectName);
+        BlobInfo blobInfo = BlobInfo.newBuilder(blobId)
+                .setContentType(contentType)
+                .build();
 
+        int chunkSize = Math.max(CHUNK_GRANULARITY_BYTES, partSizeBytes / CHUNK_GRANULARITY_BYTES * CHUNK_GRANULARITY_BYTES);
+        try (WriteChannel writer = storage.writer(blobInfo)) {
+            writer.setChunkSize(chunkSize);
+            byte[] buffer = new byte[COPY_BUFFER_BYTES];
+            int read;
+            while ((read = inputStream.read(buffer)) != -1) {
+                ByteBuffer byteBuffer = ByteBuffer.wrap(buffer, 0, read);
+                while (byteBuffer.hasRemaining()) {
+                    writer.write(byteBuffer);
+                }
+            }
         } catch (IOException e) {
             throw new RuntimeException("Error uploading file to GCS", e);
         }
+
+        return urlForObject(objectName);
+    }
+
+    /**
+     * Borrado en lote con una sola petición batch; un false en el resultado significa que el objeto no existía.
+     */
+    @Override
+    public Set<String> deleteFiles(Collection<String> fileUrls) {
+        List<String> urls = new ArrayList<>(fileUrls);
+        List<BlobId> blobIds = urls.stream()
+                .map(fileUrl -> BlobId.of(bucketName, fileUrl.substring(fileUrl.lastIndexOf('/') + 1)))
+                .toList();
+        try {
+            storage.delete(blobIds);
+            return new HashSet<>();
+        } catch (Exception e) {
+            log.error("\n\n❌ Error al borrar {} objeto(s) de GCS {}: {}", blobIds.size(),
+                    blobIds.stream().map(BlobId::getName).toList(), e.getMessage(), e);
+            return new HashSet<>(urls);
+        }
+    }
+
+    @Override
+    public InputStream openStream(String fileUrl) {
+        String objectName = fileUrl.substring(fileUrl.lastIndexOf('/') + 1);
+        ReadChannel reader = storage.reader(BlobId.of(bucketName, objectName));
+        return Channels.newInputStream(reader);
+    }
+
+    @Override
+    public String urlForObject(String objectName) {
+        // Devuelve la URL pública del archivo
+        return String.format("https://storage.googleapis.com/%s/%s", bucketName, objectName);
+    }
+
+    @Override
+    public boolean exists(String objectName) {
+        return storage.get(BlobId.of(bucketName, objectName)) != null;
+    }
+
+    @Override
+    public boolean supportsListing() {
+        return true;
+    }
+
+    /**
+     * startOffset es inclusivo, así que se descarta el propio startAfter si sigue existiendo.
+     */
+    @Override
+    public List<StoredObject> listObjects(String startAfter, int maxKeys) {
+        List<Storage.BlobListOption> options = new ArrayList<>();
+        options.add(Storage.BlobListOption.pageSize(maxKeys));
+        if (startAfter != null && !startAfter.isEmpty()) {
+            options.add(Storage.BlobListOption.startOffset(startAfter));
+        }
+        List<StoredObject> page = new ArrayList<>(maxKeys);
+        for (Blob blob : storage.list(bucketName, options.toArray(new Storage.BlobListOption[0])).iterateAll()) {
+            if (blob.getName().equals(startAfter)) {
+                continue;
+            }
+            OffsetDateTime updated = blob.getUpdateTimeOffsetDateTime();
+            page.add(new StoredObject(blob.getName(), blob.getSize() != null ? blob.getSize() : 0,
+                    updated != null ? updated.toInstant() : null));
+            if (page.size() >= maxKeys) {
+                break;
+            }
+        }
+        return page;
+    }
+
+    @Override
+    public boolean supportsPresignedUpload() {
+        return true;
+    }
+
+    /**
+     * PUT firmado con la cabecera x-goog-content-length-range: GCS rechaza un cuerpo de más de maxBytes.
+     */
+    @Override
+    public Optional<PresignedUpload> presignUpload(String objectName, String contentType, long maxBytes, Duration expiry) {
+        Map<String, String> headers = new LinkedHashMap<>();
+        headers.put("x-goog-content-length-range", "0," + maxBytes);
+        BlobInfo.Builder blobInfo = BlobInfo.newBuilder(BlobId.of(bucketName, objectName));
+        List<Storage.SignUrlOption> options = new ArrayList<>(List.of(
+                Storage.SignUrlOption.httpMethod(HttpMethod.PUT),
+                Storage.SignUrlOption.withExtHeaders(Map.copyOf(headers)),
+                Storage.SignUrlOption.withV4Signature()));
+        if (contentType != null) {
+            // El cliente debe enviar el mismo Content-Type con el que se firmó la URL
+            blobInfo.setContentType(contentType);
+            options.add(Storage.SignUrlOption.withContentType());
+            headers.put("Content-Type", contentType);
+        }
+        String url = storage.signUrl(blobInfo.build(), expiry.toSeconds(), TimeUnit.SECONDS,
+                options.toArray(new Storage.SignUrlOption[0])).toString();
+        return Optional.of(new PresignedUpload("PUT", url, headers, Map.of()));
+    }
+
+    @Override
+    public String presignDownload(String fileUrl, Duration expiry) {
+        String objectName = fileUrl.substring(fileUrl.lastIndexOf('/') + 1);
+        return storage.signUrl(BlobInfo.newBuilder(BlobId.of(bucketName, objectName)).build(), expiry.toSeconds(), TimeUnit.SECONDS,
+                Storage.SignUrlOption.httpMethod(HttpMethod.GET),
+                Storage.SignUrlOption.withV4Signature()).toString();
     }
 
     @Override
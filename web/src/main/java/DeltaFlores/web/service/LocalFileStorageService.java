@@ -0,0 +1,233 @@
+package DeltaFlores.web.service;
+
+import DeltaFlores.web.security.MediaUrlSignature;
+import DeltaFlores.web.utils.Retry;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+/**
+ * Implementación de FileStorageService sobre el disco local, pensada para desarrollo y pruebas sin MinIO ni GCS.
+ * Esta clase se activará solo cuando el perfil de Spring 'local' esté activo.
+ * Escribe por partes igual que los almacenamientos remotos (mismo tamaño de parte y reintentos por parte).
+ * Los archivos se sirven desde MediaController en storage.local.public-base-url.
+ */
+@Service
+@Profile("local")
+@Log4j2
+public class LocalFileStorageService implements FileStorageService {
+
+    @Value("${storage.local.root-dir:${java.io.tmpdir}/delta-flores-media}")
+    private String rootDir;
+
+    @Value("${storage.upload.part-size-bytes:8388608}")
+    private int partSizeBytes;
+
+    @Value("${storage.upload.part-retries:3}")
+    private int partRetries;
+
+    @Value("${storage.local.public-base-url:/api/media}")
+    private String publicBaseUrl;
+
+    private final MediaUrlSignature mediaUrlSignature;
+
+    private Path root;
+
+    public LocalFileStorageService(MediaUrlSignature mediaUrlSignature) {
+        this.mediaUrlSignature = mediaUrlSignature;
+    }
+
+    @PostConstruct
+    void init() throws IOException {
+        root = Paths.get(rootDir).toAbsolutePath().normalize();
+        Files.createDirectories(root);
+        log.info("\n\n📁 Almacenamiento local de archivos en: {}", root);
+    }
+
+    @Override
+    public String uploadFile(MultipartFile file) {
+        try (InputStream inputStream = file.getInputStream()) {
+            return uploadStream(inputStream, file.getSize(), file.getContentType(), file.getOriginalFilename());
+        } catch (IOException e) {
+            throw new RuntimeException("Error uploading file to local storage: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public String uploadStream(InputStream inputStream, long size, String contentType, String originalFilename) {
+        String objectName = UUID.randomUUID().toString().replace("-", "") + "-" + sanitizeFilename(originalFilename);
+        return uploadStreamAs(objectName, inputStream, size, contentType);
+    }
+
+    @Override
+    public String uploadStreamAs(String objectName, InputStream inputStream, long size, String contentType) {
+        Path target = resolveObject(objectName);
+        Path temp = root.resolve(objectName + "." + UUID.randomUUID() + ".uploading");
+        try {
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                byte[] buffer = new byte[Math.max(1, partSizeBytes)];
+                long position = 0;
+                int partNumber = 1;
+                int read;
+                while ((read = inputStream.readNBytes(buffer, 0, buffer.length)) > 0) {
+                    long offset = position;
+                    int length = read;
+                    // Escribir siempre en el mismo offset hace que reintentar la parte sea idempotente
+                    Retry.withBackoff("escritura de la parte " + partNumber + " de " + objectName, partRetries, () -> {
+                        ByteBuffer byteBuffer = ByteBuffer.wrap(buffer, 0, length);
+                        long writePosition = offset;
+                        while (byteBuffer.hasRemaining()) {
+                            writePosition += channel.write(byteBuffer, writePosition);
+                        }
+                        return null;
+                    });
+                    position += read;
+                    partNumber++;
+                }
+            }
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            return urlForObject(objectName);
+        } catch (Exception e) {
+            try {
+                Files.deleteIfExists(temp);
+            } catch (IOException ignored) {
+                // el error original es el relevante
+            }
+            throw new RuntimeException("Error uploading file to local storage: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public void deleteFile(String fileUrl) {
+        try {
+            Path file = resolveObject(fileUrl.substring(fileUrl.lastIndexOf('/') + 1));
+            if (!Files.deleteIfExists(file)) {
+                log.warn("\n\n⚠️ Archivo no encontrado en el almacenamiento local: {}", fileUrl);
+            }
+        } catch (Exception e) {
+            log.error("\n\n❌ Error al eliminar archivo del almacenamiento local: {}", e.getMessage());
+        }
+    }
+
+    @Override
+    public Set<String> deleteFiles(Collection<String> fileUrls) {
+        Set<String> failed = new HashSet<>();
+        for (String fileUrl : fileUrls) {
+            try {
+                Files.deleteIfExists(resolveObject(fileUrl.substring(fileUrl.lastIndexOf('/') + 1)));
+            } catch (IOException e) {
+                log.error("\n\n❌ Error al eliminar archivo del almacenamiento local: {}", e.getMessage());
+                failed.add(fileUrl);
+            } catch (IllegalArgumentException e) {
+                // Nombre inválido: no hay nada que reintentar
+                log.warn("\n\n⚠️ {}", e.getMessage());
+            }
+        }
+        return failed;
+    }
+
+    @Override
+    public InputStream openStream(String fileUrl) {
+        try {
+            return Files.newInputStream(resolveObject(fileUrl.substring(fileUrl.lastIndexOf('/') + 1)));
+        } catch (IOException e) {
+            throw new RuntimeException("Error reading file from local storage: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public String urlForObject(String objectName) {
+        return publicBaseUrl + "/" + resolveObject(objectName).getFileName();
+    }
+
+    @Override
+    public boolean exists(String objectName) {
+        return Files.isRegularFile(resolveObject(objectName));
+    }
+
+    @Override
+    public boolean supportsListing() {
+        return true;
+    }
+
+    /**
+     * El directorio no tiene un orden nativo: cada página lo recorre entero. Suficiente para desarrollo.
+     * Se ordena en binario (UTF-8) como S3/GCS, que es el orden que espera la reconciliación.
+     */
+    @Override
+    public List<StoredObject> listObjects(String startAfter, int maxKeys) {
+        String after = startAfter != null ? startAfter : "";
+        try (Stream<Path> files = Files.list(root)) {
+            return files.filter(Files::isRegularFile)
+                    .filter(file -> StorageReconciliationService.compareBinary(file.getFileName().toString(), after) > 0)
+                    .sorted(Comparator.comparing(file -> file.getFileName().toString(), StorageReconciliationService::compareBinary))
+                    .limit(maxKeys)
+                    .map(this::toStoredObject)
+                    .toList();
+        } catch (IOException e) {
+            throw new RuntimeException("Error listing local storage: " + e.getMessage(), e);
+        }
+    }
+
+    private StoredObject toStoredObject(Path file) {
+        try {
+            return new StoredObject(file.getFileName().toString(), Files.size(file), Files.getLastModifiedTime(file).toInstant());
+        } catch (IOException e) {
+            // Se borró mientras se listaba; sin fecha la reconciliación no lo toca
+            return new StoredObject(file.getFileName().toString(), 0, null);
+        }
+    }
+
+    /**
+     * URL de MediaController con vencimiento y firma HMAC, para usarla sin cabecera Authorization (p. ej. en un &lt;img&gt;).
+     */
+    @Override
+    public String presignDownload(String fileUrl, Duration expiry) {
+        String objectName = resolveObject(fileUrl.substring(fileUrl.lastIndexOf('/') + 1)).getFileName().toString();
+        return mediaUrlSignature.signedUrl(publicBaseUrl, objectName, expiry);
+    }
+
+    /**
+     * Ruta en disco del objeto; rechaza nombres que intenten salir del directorio raíz.
+     */
+    public Path resolveFile(String objectName) {
+        return resolveObject(objectName);
+    }
+
+    private Path resolveObject(String objectName) {
+        Path file = root.resolve(objectName).normalize();
+        if (!file.getParent().equals(root)) {
+            throw new IllegalArgumentException("Nombre de archivo inválido: " + objectName);
+        }
+        return file;
+    }
+
+    private static String sanitizeFilename(String originalFilename) {
+        if (originalFilename == null || originalFilename.isBlank()) {
+            return "file";
+        }
+        String name = originalFilename.substring(Math.max(originalFilename.lastIndexOf('/'), originalFilename.lastIndexOf('\\')) + 1);
+        return name.replaceAll("[^A-Za-z0-9._-]", "_");
+    }
+}
@@ -0,0 +1,351 @@
+package DeltaFlores.web.service;
+
+import DeltaFlores.web.dto.LogEntryDto;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Índices de los logs rotados (logs/app-yyyy-MM-dd.log.gz). Un gzip normal no admite saltar a una posición,
+ * así que al indexar se escribe al lado una copia (.blocks) con varios miembros gzip concatenados, uno por bloque;
+ * el archivo de log4j2 no se toca. El índice (.idx) guarda por bloque su posición en la copia, su rango de tiempo,
+ * la cantidad de entradas por nivel y los loggers que aparecen; una búsqueda descomprime solo los bloques
+ * que pueden tener resultados.
+ */
+@Service
+@Log4j2
+public class LogArchiveIndexer {
+
+    /**
+     * Bloque comprimido independiente. Los tiempos son los de LogEntryReader.toMillis.
+     */
+    record Block(long offset, long length, long firstMillis, long lastMillis, int[] levelCounts, Set<String> loggers) {
+    }
+
+    record ArchiveIndex(long archiveSize, List<Block> blocks) {
+    }
+
+    private static final String ARCHIVE_PREFIX = "app-";
+    private static final String ARCHIVE_SUFFIX = ".log.gz";
+    private static final String INDEX_SUFFIX = ".idx";
+    private static final String BLOCKS_SUFFIX = ".blocks";
+    // v2: las posiciones son de la copia .blocks; un índice v1 (archivo reescrito en el lugar) se reconstruye
+    private static final String INDEX_VERSION = "v2";
+
+    private final Path logsDir;
+    private final int blockSizeBytes;
+    private final Map<Path, ArchiveIndex> loaded = new ConcurrentHashMap<>();
+
+    public LogArchiveIndexer(@Value("${logs.dir:logs}") String logsDir,
+                             @Value("${logs.index.block-size-bytes:1048576}") int blockSizeBytes) {
+        this.logsDir = Paths.get(logsDir);
+        this.blockSizeBytes = blockSizeBytes;
+    }
+
+    /**
+     * Indexa los archivos que rotó log4j2 desde la última pasada y borra los índices y copias de archivos ya eliminados.
+     */
+    @Scheduled(fixedDelayString = "${logs.index.scan-interval-ms:300000}", initialDelayString = "${logs.index.initial-delay-ms:60000}")
+    public void indexPendingArchives() {
+        try {
+            for (Path archive : listArchives(null, null)) {
+                indexFor(archive);
+            }
+            try (DirectoryStream<Path> sidecars = Files.newDirectoryStream(logsDir,
+                    "*" + ARCHIVE_SUFFIX + "{" + INDEX_SUFFIX + "," + BLOCKS_SUFFIX + "}")) {
+                for (Path sidecar : sidecars) {
+                    String name = sidecar.getFileName().toString();
+                    Path archive = sidecar.resolveSibling(name.substring(0, name.lastIndexOf(ARCHIVE_SUFFIX) + ARCHIVE_SUFFIX.length()));
+                    if (!Files.exists(archive)) {
+                        Files.deleteIfExists(sidecar);
+                        loaded.remove(archive);
+                    }
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            log.error("Error al indexar los logs rotados", e);
+        }
+    }
+
+    /**
+     * Archivos rotados cuya fecha (la del nombre) cae en el rango, en orden cronológico. Null en un extremo = sin límite.
+     */
+    List<Path> listArchives(LocalDate fromDate, LocalDate toDate) throws IOException {
+        if (!Files.isDirectory(logsDir)) {
+            return List.of();
+        }
+        TreeMap<LocalDate, Path> archives = new TreeMap<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(logsDir, ARCHIVE_PREFIX + "*" + ARCHIVE_SUFFIX)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                try {
+                    LocalDate date = LocalDate.parse(name.substring(ARCHIVE_PREFIX.length(), name.length() - ARCHIVE_SUFFIX.length()));
+                    if ((fromDate == null || !date.isBefore(fromDate)) && (toDate == null || !date.isAfter(toDate))
+                            && isComplete(file)) {
+                        archives.put(date, file);
+                    }
+                } catch (DateTimeParseException e) {
+                    // otro archivo con el mismo prefijo
+                }
+            }
+        }
+        return new ArrayList<>(archives.values());
+    }
+
+    /**
+     * log4j2 comprime después de rotar, escribiendo el .gz en su lugar definitivo: mientras el .log sin comprimir
+     * sigue ahí o el .gz se modificó hace muy poco, todavía se está escribiendo. Uno ya indexado está completo.
+     */
+    private boolean isComplete(Path archive) throws IOException {
+        if (loaded.containsKey(archive)) {
+            return true;
+        }
+        String name = archive.getFileName().toString();
+        Path uncompressed = archive.resolveSibling(name.substring(0, name.length() - ".gz".length()));
+        long age = System.currentTimeMillis() - Files.getLastModifiedTime(archive).toMillis();
+        return !Files.exists(uncompressed) && age > 60_000;
+    }
+
+    /**
+     * Índice del archivo; si no existe, quedó desactualizado o falta su copia por bloques, lo reconstruye.
+     */
+    synchronized ArchiveIndex indexFor(Path archive) throws IOException {
+        long size = Files.size(archive);
+        ArchiveIndex cached = loaded.get(archive);
+        if (cached != null && cached.archiveSize() == size) {
+            return cached;
+        }
+        Path indexFile = archive.resolveSibling(archive.getFileName() + INDEX_SUFFIX);
+        ArchiveIndex index = Files.exists(indexFile) ? readIndex(indexFile) : null;
+        if (index == null || index.archiveSize() != size || !matchesBlocksFile(index, blocksFile(archive))) {
+            index = rebuild(archive, indexFile);
+        }
+        loaded.put(archive, index);
+        return index;
+    }
+
+    private static Path blocksFile(Path archive) {
+        return archive.resolveSibling(archive.getFileName() + BLOCKS_SUFFIX);
+    }
+
+    private static boolean matchesBlocksFile(ArchiveIndex index, Path blocksFile) throws IOException {
+        List<Block> blocks = index.blocks();
+        long expectedSize = blocks.isEmpty() ? 0 : blocks.get(blocks.size() - 1).offset() + blocks.get(blocks.size() - 1).length();
+        return Files.exists(blocksFile) && Files.size(blocksFile) == expectedSize;
+    }
+
+    /**
+     * Lee el archivo original y escribe la copia por bloques en un temporal que se mueve atómicamente;
+     * el índice se escribe después, así que un índice siempre apunta a una copia completa.
+     */
+    private ArchiveIndex rebuild(Path archive, Path indexFile) throws IOException {
+        long started = System.currentTimeMillis();
+        long archiveSize = Files.size(archive);
+        Path blocksFile = blocksFile(archive);
+        Path temp = blocksFile.resolveSibling(blocksFile.getFileName() + ".tmp");
+        List<Block> blocks = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                new GZIPInputStream(Files.newInputStream(archive), 64 * 1024), StandardCharsets.UTF_8));
+             FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                     StandardOpenOption.TRUNCATE_EXISTING)) {
+            BufferedOutputStream out = new BufferedOutputStream(Channels.newOutputStream(channel), 64 * 1024);
+            BlockWriter block = null;
+            String line;
+            while ((line = reader.readLine()) != null) {
+                LogEntryDto header = LogEntryReader.parseHeader(line);
+                // Los bloques solo se cortan al empezar una entrada, para que ninguna quede partida en dos
+                if (block != null && header != null && block.uncompressedBytes >= blockSizeBytes) {
+                    blocks.add(block.finish(out, channel));
+                    block = null;
+                }
+                if (block == null) {
+                    out.flush();
+                    block = new BlockWriter(out, channel.position());
+                }
+                block.write(line, header);
+            }
+            if (block != null) {
+                blocks.add(block.finish(out, channel));
+            }
+            out.flush();
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+        Files.move(temp, blocksFile, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        ArchiveIndex index = new ArchiveIndex(archiveSize, blocks);
+        writeIndex(indexFile, index);
+        log.info("\n\n🗂️ Log {} indexado: {} bloques en {} ms.", archive.getFileName(), blocks.size(), System.currentTimeMillis() - started);
+        return index;
+    }
+
+    /**
+     * Abre el contenido descomprimido de un bloque (de la copia .blocks del archivo). Quien llama debe cerrar el stream.
+     */
+    InputStream openBlock(Path archive, Block block) throws IOException {
+        FileChannel channel = FileChannel.open(blocksFile(archive), StandardOpenOption.READ);
+        channel.position(block.offset());
+        InputStream bounded = new BoundedInputStream(Channels.newInputStream(channel), block.length());
+        return new GZIPInputStream(bounded, 64 * 1024);
+    }
+
+    private static ArchiveIndex readIndex(Path indexFile) {
+        try {
+            List<String> lines = Files.readAllLines(indexFile, StandardCharsets.UTF_8);
+            String[] header = lines.get(0).split(" ");
+            if (!INDEX_VERSION.equals(header[0])) {
+                return null;
+            }
+            List<Block> blocks = new ArrayList<>();
+            for (String line : lines.subList(1, lines.size())) {
+                String[] fields = line.split("\t", -1);
+                int[] levelCounts = Arrays.stream(fields[4].split(",")).mapToInt(Integer::parseInt).toArray();
+                Set<String> loggers = fields[5].isEmpty() ? Set.of() : Set.of(fields[5].split(","));
+                blocks.add(new Block(Long.parseLong(fields[0]), Long.parseLong(fields[1]), Long.parseLong(fields[2]),
+                        Long.parseLong(fields[3]), levelCounts, loggers));
+            }
+            return new ArchiveIndex(Long.parseLong(header[1]), blocks);
+        } catch (IOException | RuntimeException e) {
+            log.warn("\n\n⚠️ Índice de log ilegible {}, se reconstruye: {}", indexFile, e.getMessage());
+            return null;
+        }
+    }
+
+    private static void writeIndex(Path indexFile, ArchiveIndex index) throws IOException {
+        List<String> lines = new ArrayList<>();
+        lines.add(INDEX_VERSION + " " + index.archiveSize());
+        for (Block block : index.blocks()) {
+            lines.add(block.offset() + "\t" + block.length() + "\t" + block.firstMillis() + "\t" + block.lastMillis() + "\t"
+                    + String.join(",", Arrays.stream(block.levelCounts()).mapToObj(String::valueOf).toList()) + "\t"
+                    + String.join(",", block.loggers()));
+        }
+        Path temp = indexFile.resolveSibling(indexFile.getFileName() + ".tmp");
+        Files.write(temp, lines, StandardCharsets.UTF_8);
+        Files.move(temp, indexFile, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /**
+     * Un miembro gzip en escritura y las estadísticas de sus entradas.
+     */
+    private static final class BlockWriter {
+        private final long offset;
+        private final GZIPOutputStream gzip;
+        private final int[] levelCounts = new int[LogEntryReader.LEVELS.size()];
+        private final Set<String> loggers = new TreeSet<>();
+        private long firstMillis = Long.MAX_VALUE;
+        private long lastMillis = Long.MIN_VALUE;
+        private long uncompressedBytes;
+
+        BlockWriter(OutputStream out, long offset) throws IOException {
+            this.offset = offset;
+            // Cerrar el miembro libera el Deflater sin cerrar el archivo
+            this.gzip = new GZIPOutputStream(new FilterOutputStream(out) {
+                @Override
+                public void write(byte[] b, int off, int len) throws IOException {
+                    out.write(b, off, len);
+                }
+
+                @Override
+                public void close() throws IOException {
+                    flush();
+                }
+            }, 64 * 1024);
+        }
+
+        void write(String line, LogEntryDto header) throws IOException {
+            byte[] bytes = (line + "\n").getBytes(StandardCharsets.UTF_8);
+            gzip.write(bytes);
+            uncompressedBytes += bytes.length;
+            if (header != null) {
+                long millis = LogEntryReader.toMillis(header.getTimestamp());
+                firstMillis = Math.min(firstMillis, millis);
+                lastMillis = Math.max(lastMillis, millis);
+                levelCounts[LogEntryReader.levelIndex(header.getLevel())]++;
+                loggers.add(header.getLogger());
+            }
+        }
+
+        Block finish(BufferedOutputStream out, FileChannel channel) throws IOException {
+            gzip.close();
+            out.flush();
+            return new Block(offset, channel.position() - offset, firstMillis, lastMillis, levelCounts, loggers);
+        }
+    }
+
+    /**
+     * Corta la lectura al final del bloque para que GZIPInputStream no siga con los miembros siguientes.
+     */
+    private static final class BoundedInputStream extends InputStream {
+        private final InputStream in;
+        private long remaining;
+
+        BoundedInputStream(InputStream in, long limit) {
+            this.in = in;
+            this.remaining = limit;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (remaining <= 0) {
+                return -1;
+            }
+            int b = in.read();
+            if (b >= 0) {
+                remaining--;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (remaining <= 0) {
+                return -1;
+            }
+            int read = in.read(b, off, (int) Math.min(len, remaining));
+            if (read > 0) {
+                remaining -= read;
+            }
+            return read;
+        }
+
+        @Override
+        public int available() throws IOException {
+            return (int) Math.min(in.available(), remaining);
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+}
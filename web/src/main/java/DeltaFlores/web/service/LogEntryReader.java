@@ -0,0 +1,117 @@
+package DeltaFlores.web.service;
+
+import DeltaFlores.web.dto.LogEntryDto;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Arma entradas de log a partir de las líneas del patrón de log4j2-spring.properties
+ * ({@code %d{yyyy-MM-dd HH:mm:ss.SSS} %-5p [%t] %c{1} - %m%n}). Los logs anteriores a los loggers asíncronos
+ * traen además el número de línea ({@code %c{1}:%L}), que se acepta y se ignora. Las líneas que no empiezan con fecha
+ * (los mensajes con "\n\n" al principio, stack traces) se agregan a la entrada anterior.
+ */
+final class LogEntryReader {
+
+    static final List<String> LEVELS = List.of("TRACE", "DEBUG", "INFO", "WARN", "ERROR", "FATAL");
+
+    private static final Pattern HEADER = Pattern.compile(
+            "^(\\d{4}-\\d{2}-\\d{2} \\d{2}:\\d{2}:\\d{2}\\.\\d{3}) (\\w+)\\s+\\[(.*?)] (\\S+?)(?::(?:\\d+|\\?))? - (.*)$");
+    private static final DateTimeFormatter TIMESTAMP = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss.SSS");
+
+    // Tope del mensaje armado: un stack trace gigante no debe inflar la respuesta
+    private static final int MAX_MESSAGE_CHARS = 16 * 1024;
+
+    private final BufferedReader reader;
+    private String pendingLine;
+    private boolean exhausted;
+
+    LogEntryReader(BufferedReader reader) {
+        this.reader = reader;
+    }
+
+    /**
+     * Siguiente entrada completa, o null al final. Las líneas sueltas antes de la primera fecha se descartan.
+     */
+    LogEntryDto next() throws IOException {
+        String line = pendingLine != null ? pendingLine : readLine();
+        pendingLine = null;
+        LogEntryDto entry = null;
+        while (line != null && entry == null) {
+            entry = parseHeader(line);
+            if (entry == null) {
+                line = readLine();
+            }
+        }
+        if (entry == null) {
+            return null;
+        }
+        StringBuilder message = new StringBuilder(entry.getMessage());
+        String continuation;
+        while ((continuation = readLine()) != null) {
+            if (isHeader(continuation)) {
+                pendingLine = continuation;
+                break;
+            }
+            if (message.length() < MAX_MESSAGE_CHARS) {
+                message.append('\n').append(continuation);
+            }
+        }
+        if (message.length() > MAX_MESSAGE_CHARS) {
+            message.setLength(MAX_MESSAGE_CHARS);
+        }
+        entry.setMessage(message.toString().strip());
+        return entry;
+    }
+
+    private String readLine() throws IOException {
+        if (exhausted) {
+            return null;
+        }
+        String line = reader.readLine();
+        exhausted = line == null;
+        return line;
+    }
+
+    static boolean isHeader(String line) {
+        return line.length() >= 23 && Character.isDigit(line.charAt(0)) && HEADER.matcher(line).matches();
+    }
+
+    static LogEntryDto parseHeader(String line) {
+        if (line.length() < 23 || !Character.isDigit(line.charAt(0))) {
+            return null;
+        }
+        Matcher matcher = HEADER.matcher(line);
+        if (!matcher.matches()) {
+            return null;
+        }
+        try {
+            LocalDateTime timestamp = LocalDateTime.parse(matcher.group(1), TIMESTAMP);
+            return new LogEntryDto(timestamp, matcher.group(2), matcher.group(3), matcher.group(4), matcher.group(5));
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Posición del nivel en LEVELS (los desconocidos cuentan como INFO).
+     */
+    static int levelIndex(String level) {
+        int index = LEVELS.indexOf(level == null ? "" : level.toUpperCase());
+        return index >= 0 ? index : LEVELS.indexOf("INFO");
+    }
+
+    /**
+     * Los logs se escriben con la hora local del servidor; se comparan como si fueran UTC, sin convertir zona.
+     */
+    static long toMillis(LocalDateTime timestamp) {
+        return timestamp.toInstant(ZoneOffset.UTC).toEpochMilli();
+    }
+}
@@ -0,0 +1,245 @@
+package DeltaFlores.web.service;
+
+import DeltaFlores.web.dto.LogEntryDto;
+import DeltaFlores.web.dto.LogQueryResultDto;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.Locale;
+
+/**
+ * Búsqueda en el log actual (logs/app.log) y en los rotados (.gz) por rango de tiempo, nivel mínimo,
+ * logger y texto libre. En los rotados usa los índices de LogArchiveIndexer para descomprimir solo los bloques
+ * que pueden tener resultados; en el actual busca el comienzo del rango con una búsqueda binaria por fecha.
+ */
+@Service
+@Log4j2
+public class LogQueryService {
+
+    private static final int MAX_LIMIT = 2000;
+    // Ventana leída en cada paso de la búsqueda binaria sobre app.log
+    private static final int PROBE_BYTES = 16 * 1024;
+
+    /**
+     * Filtros de la búsqueda; los null no filtran. level es el nivel mínimo (WARN incluye ERROR y FATAL).
+     */
+    public record LogQuery(LocalDateTime from, LocalDateTime to, String level, String logger, String text, int limit) {
+    }
+
+    private final LogArchiveIndexer logArchiveIndexer;
+    private final Path currentLog;
+
+    public LogQueryService(LogArchiveIndexer logArchiveIndexer, @Value("${logs.dir:logs}") String logsDir) {
+        this.logArchiveIndexer = logArchiveIndexer;
+        this.currentLog = Paths.get(logsDir, "app.log");
+    }
+
+    public LogQueryResultDto search(LogQuery query) {
+        if (query.from() != null && query.to() != null && query.from().isAfter(query.to())) {
+            throw new IllegalArgumentException("El inicio del rango es posterior al final");
+        }
+        if (query.level() != null && !LogEntryReader.LEVELS.contains(query.level().toUpperCase(Locale.ROOT))) {
+            throw new IllegalArgumentException("Nivel de log desconocido: " + query.level());
+        }
+        Filters filters = new Filters(query);
+        LogQueryResultDto result = new LogQueryResultDto();
+
+        try {
+            for (Path archive : logArchiveIndexer.listArchives(
+                    query.from() != null ? query.from().toLocalDate() : null,
+                    query.to() != null ? query.to().toLocalDate() : null)) {
+                if (!searchArchive(archive, filters, result)) {
+                    return result;
+                }
+            }
+            searchCurrentLog(filters, result);
+        } catch (IOException e) {
+            log.error("Error al buscar en los logs", e);
+            throw new IllegalStateException("No se pudieron leer los logs: " + e.getMessage(), e);
+        }
+        return result;
+    }
+
+    /**
+     * @return false si se alcanzó el límite y hay que cortar la búsqueda.
+     */
+    private boolean searchArchive(Path archive, Filters filters, LogQueryResultDto result) throws IOException {
+        LogArchiveIndexer.ArchiveIndex index;
+        try {
+            index = logArchiveIndexer.indexFor(archive);
+        } catch (IOException e) {
+            log.warn("\n\n⚠️ No se pudo indexar {}, se omite: {}", archive.getFileName(), e.getMessage());
+            return true;
+        }
+        result.setFilesScanned(result.getFilesScanned() + 1);
+        for (LogArchiveIndexer.Block block : index.blocks()) {
+            if (!filters.mayMatch(block)) {
+                result.setBlocksSkipped(result.getBlocksSkipped() + 1);
+                continue;
+            }
+            result.setBlocksScanned(result.getBlocksScanned() + 1);
+            try (InputStream in = logArchiveIndexer.openBlock(archive, block)) {
+                if (!collect(new LogEntryReader(reader(in)), filters, result)) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    private void searchCurrentLog(Filters filters, LogQueryResultDto result) throws IOException {
+        if (!Files.exists(currentLog)) {
+            return;
+        }
+        result.setFilesScanned(result.getFilesScanned() + 1);
+        try (FileChannel channel = FileChannel.open(currentLog, StandardOpenOption.READ)) {
+            long start = filters.from != Long.MIN_VALUE ? seek(channel, filters.from) : 0;
+            channel.position(start);
+            collect(new LogEntryReader(reader(Channels.newInputStream(channel))), filters, result);
+        }
+    }
+
+    /**
+     * Lee entradas hasta pasar el final del rango o llenar el límite.
+     * @return false si se alcanzó el límite.
+     */
+    private boolean collect(LogEntryReader reader, Filters filters, LogQueryResultDto result) throws IOException {
+        LogEntryDto entry;
+        while ((entry = reader.next()) != null) {
+            long millis = LogEntryReader.toMillis(entry.getTimestamp());
+            if (millis > filters.to) {
+                // Las entradas de un bloque están en orden; las que siguen también quedan afuera
+                return true;
+            }
+            if (millis < filters.from || !filters.matches(entry)) {
+                continue;
+            }
+            if (result.getEntries().size() >= filters.limit) {
+                result.setTruncated(true);
+                return false;
+            }
+            result.getEntries().add(entry);
+        }
+        return true;
+    }
+
+    /**
+     * Búsqueda binaria por fecha sobre app.log: devuelve una posición de comienzo de línea anterior
+     * a la primera entrada con fecha >= from (puede sobrar un tramo corto, que se filtra al leer).
+     */
+    private long seek(FileChannel channel, long from) throws IOException {
+        long low = 0;
+        long high = channel.size();
+        ByteBuffer probe = ByteBuffer.allocate(PROBE_BYTES);
+        while (high - low > PROBE_BYTES) {
+            long mid = low + (high - low) / 2;
+            Long millis = firstTimestampAfter(channel, mid, probe);
+            if (millis == null || millis >= from) {
+                high = mid;
+            } else {
+                low = mid;
+            }
+        }
+        return lineStartAtOrBefore(channel, low, probe);
+    }
+
+    private static Long firstTimestampAfter(FileChannel channel, long position, ByteBuffer probe) throws IOException {
+        probe.clear();
+        int read = channel.read(probe, position);
+        if (read <= 0) {
+            return null;
+        }
+        String window = new String(probe.array(), 0, read, StandardCharsets.UTF_8);
+        int lineStart = window.indexOf('\n') + 1;
+        while (lineStart > 0 && lineStart < window.length()) {
+            int lineEnd = window.indexOf('\n', lineStart);
+            if (lineEnd < 0) {
+                return null;
+            }
+            LogEntryDto header = LogEntryReader.parseHeader(window.substring(lineStart, lineEnd));
+            if (header != null) {
+                return LogEntryReader.toMillis(header.getTimestamp());
+            }
+            lineStart = lineEnd + 1;
+        }
+        return null;
+    }
+
+    private static long lineStartAtOrBefore(FileChannel channel, long position, ByteBuffer probe) throws IOException {
+        if (position == 0) {
+            return 0;
+        }
+        long windowStart = Math.max(0, position - PROBE_BYTES);
+        probe.clear().limit((int) (position - windowStart));
+        int read = channel.read(probe, windowStart);
+        for (int i = read - 1; i >= 0; i--) {
+            if (probe.get(i) == '\n') {
+                return windowStart + i + 1;
+            }
+        }
+        return windowStart;
+    }
+
+    private static BufferedReader reader(InputStream in) {
+        return new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8), 64 * 1024);
+    }
+
+    /**
+     * Filtros ya normalizados, y la poda de bloques a partir de su índice.
+     */
+    private static final class Filters {
+        private final long from;
+        private final long to;
+        private final int minLevel;
+        private final String logger;
+        private final String text;
+        private final int limit;
+
+        Filters(LogQuery query) {
+            this.from = query.from() != null ? LogEntryReader.toMillis(query.from()) : Long.MIN_VALUE;
+            this.to = query.to() != null ? LogEntryReader.toMillis(query.to()) : Long.MAX_VALUE;
+            this.minLevel = query.level() != null ? LogEntryReader.levelIndex(query.level()) : 0;
+            this.logger = query.logger() != null && !query.logger().isBlank() ? query.logger().toLowerCase(Locale.ROOT) : null;
+            this.text = query.text() != null && !query.text().isBlank() ? query.text().toLowerCase(Locale.ROOT) : null;
+            this.limit = Math.max(1, Math.min(query.limit(), MAX_LIMIT));
+        }
+
+        boolean mayMatch(LogArchiveIndexer.Block block) {
+            if (block.lastMillis() < from || block.firstMillis() > to) {
+                return false;
+            }
+            boolean hasLevel = false;
+            for (int i = minLevel; i < block.levelCounts().length && !hasLevel; i++) {
+                hasLevel = block.levelCounts()[i] > 0;
+            }
+            if (!hasLevel) {
+                return false;
+            }
+            return logger == null || block.loggers().stream().anyMatch(name -> name.toLowerCase(Locale.ROOT).contains(logger));
+        }
+
+        boolean matches(LogEntryDto entry) {
+            if (LogEntryReader.levelIndex(entry.getLevel()) < minLevel) {
+                return false;
+            }
+            if (logger != null && !entry.getLogger().toLowerCase(Locale.ROOT).contains(logger)) {
+                return false;
+            }
+            return text == null || entry.getMessage().toLowerCase(Locale.ROOT).contains(text);
+        }
+    }
+}
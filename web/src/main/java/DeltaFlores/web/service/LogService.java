@@ -1,23 +1,74 @@
 package DeltaFlores.web.service;
 
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
 import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
-import java.nio.file.Files;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
 
 @Service
 @Log4j2
 public class LogService {
 
+    // Tamaño de bloque de lectura y tope de líneas por respuesta (o por evento al seguir el archivo)
+    private static final int BLOCK_SIZE = 64 * 1024;
+    private static final int MAX_LINES = 10_000;
+
     private final File logFile = new File("logs/app.log");
+    private final List<SseEmitter> subscribers = new CopyOnWriteArrayList<>();
+    private final ScheduledExecutorService tailer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "log-tailer");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    @Value("${logs.stream.timeout-ms:1800000}")
+    private long streamTimeoutMs;
+
+    @Value("${logs.stream.heartbeat-seconds:15}")
+    private long heartbeatSeconds;
+
+    @Value("${logs.stream.poll-interval-ms:500}")
+    private long pollIntervalMs;
+
+    // Estado del seguimiento; solo lo toca el hilo log-tailer
+    private long position = -1;
+    private final ByteArrayOutputStream partialLine = new ByteArrayOutputStream();
+    private long lastSentAt;
+
+    @PostConstruct
+    void startTailer() {
+        tailer.scheduleWithFixedDelay(this::poll, pollIntervalMs, pollIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        tailer.shutdownNow();
+        subscribers.forEach(SseEmitter::complete);
+    }
 
     /**
      * Obtiene las últimas N líneas del archivo de log principal.
-     * @param numberOfLines El número de líneas a obtener desde el final del archivo.
+     * Lee el archivo hacia atrás por bloques, así que el costo depende de N y no del tamaño del log.
+     * @param numberOfLines El número de líneas a obtener desde el final del archivo (máximo 10000).
      * @return Una lista de strings, donde cada string es una línea del log.
      */
     public List<String> getLatestLogs(int numberOfLines) {
@@ -26,14 +77,157 @@ public class LogService {
             return Collections.singletonList("El archivo de log no se ha generado todavía. Realice algunas acciones para que se cree.");
         }
 
-        try {
-            List<String> allLines = Files.readAllLines(logFile.toPath());
-            int totalLines = allLines.size();
-            int fromIndex = Math.max(0, totalLines - numberOfLines);
-            return allLines.subList(fromIndex, totalLines);
+        int lines = Math.max(0, Math.min(numberOfLines, MAX_LINES));
+        try (FileChannel channel = FileChannel.open(logFile.toPath(), StandardOpenOption.READ)) {
+            long end = channel.size();
+            long start = findStartOfLastLines(channel, end, lines);
+            ByteBuffer buffer = ByteBuffer.allocate((int) (end - start));
+            while (buffer.hasRemaining() && channel.read(buffer, start + buffer.position()) > 0) {
+                // leer hasta completar el rango
+            }
+            return splitLines(new String(buffer.array(), 0, buffer.position(), StandardCharsets.UTF_8));
         } catch (IOException e) {
             log.error("Error al leer el archivo de log 'logs/app.log'", e);
             return Collections.singletonList("Error al leer el archivo de log: " + e.getMessage());
         }
     }
+
+    /**
+     * Posición donde empiezan las últimas N líneas. Un salto de línea final no cuenta como línea vacía.
+     * Buscar el byte '\n' es seguro en UTF-8: nunca aparece dentro de un carácter multibyte.
+     */
+    private long findStartOfLastLines(FileChannel channel, long end, int lines) throws IOException {
+        if (lines == 0) {
+            return end;
+        }
+        ByteBuffer block = ByteBuffer.allocate(BLOCK_SIZE);
+        int newlines = 0;
+        long blockEnd = end;
+        boolean lastByte = true;
+        while (blockEnd > 0) {
+            long blockStart = Math.max(0, blockEnd - BLOCK_SIZE);
+            block.clear().limit((int) (blockEnd - blockStart));
+            while (block.hasRemaining() && channel.read(block, blockStart + block.position()) > 0) {
+                // leer el bloque completo
+            }
+            for (int i = block.position() - 1; i >= 0; i--) {
+                if (block.get(i) == '\n') {
+                    if (lastByte) {
+                        lastByte = false;
+                        continue;
+                    }
+                    if (++newlines == lines) {
+                        return blockStart + i + 1;
+                    }
+                }
+                lastByte = false;
+            }
+            blockEnd = blockStart;
+        }
+        return 0;
+    }
+
+    /**
+     * Suscribe un cliente a las líneas nuevas del log (Server-Sent Events, evento "log" con un arreglo de líneas).
+     * Todos los clientes comparten un único lector que solo lee lo que se agregó desde el último sondeo.
+     */
+    public SseEmitter subscribe() {
+        SseEmitter emitter = new SseEmitter(streamTimeoutMs);
+        emitter.onCompletion(() -> subscribers.remove(emitter));
+        emitter.onTimeout(() -> subscribers.remove(emitter));
+        emitter.onError(error -> subscribers.remove(emitter));
+        subscribers.add(emitter);
+        log.info("\n\n📡 Nuevo suscriptor al log en vivo ({} activos).", subscribers.size());
+        return emitter;
+    }
+
+    private void poll() {
+        try {
+            if (subscribers.isEmpty()) {
+                // Sin suscriptores no se lee; el próximo arranca desde el final del archivo
+                position = -1;
+                partialLine.reset();
+                return;
+            }
+            List<String> lines = readAppendedLines();
+            long now = System.currentTimeMillis();
+            if (!lines.isEmpty()) {
+                broadcast(() -> SseEmitter.event().name("log").data(lines, MediaType.APPLICATION_JSON));
+                lastSentAt = now;
+            } else if (now - lastSentAt >= TimeUnit.SECONDS.toMillis(heartbeatSeconds)) {
+                // Un comentario SSE detecta clientes desconectados aunque el log esté quieto
+                broadcast(() -> SseEmitter.event().comment("keepalive"));
+                lastSentAt = now;
+            }
+        } catch (RuntimeException | IOException e) {
+            log.error("Error al seguir el archivo de log 'logs/app.log'", e);
+        }
+    }
+
+    private List<String> readAppendedLines() throws IOException {
+        if (!logFile.exists()) {
+            return List.of();
+        }
+        try (FileChannel channel = FileChannel.open(logFile.toPath(), StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (position < 0) {
+                position = size;
+                return List.of();
+            }
+            if (size < position) {
+                // Rotación diaria: app.log se renombró y empezó de nuevo
+                position = 0;
+                partialLine.reset();
+            }
+            List<String> lines = new ArrayList<>();
+            ByteBuffer buffer = ByteBuffer.allocate(BLOCK_SIZE);
+            while (position < size) {
+                buffer.clear();
+                int read = channel.read(buffer, position);
+                if (read <= 0) {
+                    break;
+                }
+                position += read;
+                for (int i = 0; i < read; i++) {
+                    byte b = buffer.get(i);
+                    if (b == '\n') {
+                        lines.add(partialLine.toString(StandardCharsets.UTF_8));
+                        partialLine.reset();
+                    } else if (b != '\r') {
+                        partialLine.write(b);
+                    }
+                }
+                if (lines.size() >= MAX_LINES) {
+                    // Ráfaga muy grande: se envía esta tanda y el resto en el próximo sondeo
+                    break;
+                }
+            }
+            return lines;
+        }
+    }
+
+    /**
+     * Un builder por cliente: SseEventBuilder acumula estado al construirse y no se puede reutilizar.
+     */
+    private void broadcast(Supplier<SseEmitter.SseEventBuilder> event) {
+        for (SseEmitter emitter : subscribers) {
+            try {
+                emitter.send(event.get());
+            } catch (IOException | IllegalStateException e) {
+                subscribers.remove(emitter);
+                emitter.completeWithError(e);
+            }
+        }
+    }
+
+    private static List<String> splitLines(String content) {
+        if (content.isEmpty()) {
+            return new ArrayList<>();
+        }
+        List<String> lines = new ArrayList<>(List.of(content.split("\r?\n", -1)));
+        if (lines.get(lines.size() - 1).isEmpty()) {
+            lines.remove(lines.size() - 1);
+        }
+        return lines;
+    }
 }
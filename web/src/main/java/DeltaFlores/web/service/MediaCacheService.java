@@ -0,0 +1,237 @@
+package DeltaFlores.web.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+/**
+ * Caché en disco, acotada por tamaño total y con política LRU, de los archivos del bucket (MinIO o GCS).
+ * Un fallo de caché descarga el objeto una sola vez aunque lleguen varias peticiones a la vez:
+ * las demás esperan la misma descarga. Publica métricas media.cache.requests (hit / miss / coalesced)
+ * y media.cache.size.bytes.
+ */
+@Service
+@Profile("!local")
+@Log4j2
+public class MediaCacheService {
+
+    /**
+     * Archivo cacheado. El nombre en disco es el SHA-256 de la clave, así que nunca depende de la entrada del cliente.
+     */
+    public record CachedMedia(Path path, long size, long cachedAtMillis) {
+    }
+
+    private final FileStorageService fileStorageService;
+    private final Path cacheDir;
+    private final long maxBytes;
+    private final LinkedHashMap<String, CachedMedia> entries = new LinkedHashMap<>(256, 0.75f, true);
+    private final Map<String, CompletableFuture<CachedMedia>> inFlight = new ConcurrentHashMap<>();
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter coalesced;
+    private long totalBytes;
+
+    public MediaCacheService(FileStorageService fileStorageService,
+                             MeterRegistry meterRegistry,
+                             @Value("${media.cache.dir:${java.io.tmpdir}/delta-flores-media-cache}") String cacheDir,
+                             @Value("${media.cache.max-bytes:2147483648}") long maxBytes) {
+        this.fileStorageService = fileStorageService;
+        this.cacheDir = Paths.get(cacheDir).toAbsolutePath().normalize();
+        this.maxBytes = maxBytes;
+        this.hits = Counter.builder("media.cache.requests").tag("result", "hit").register(meterRegistry);
+        this.misses = Counter.builder("media.cache.requests").tag("result", "miss").register(meterRegistry);
+        this.coalesced = Counter.builder("media.cache.requests").tag("result", "coalesced").register(meterRegistry);
+        Gauge.builder("media.cache.size.bytes", this, MediaCacheService::currentBytes).register(meterRegistry);
+    }
+
+    /**
+     * Reconstruye el índice con lo que quedó en disco de una ejecución anterior (los más viejos primero en el LRU).
+     */
+    @PostConstruct
+    void init() throws IOException {
+        Files.createDirectories(cacheDir);
+        List<Path> files;
+        try (Stream<Path> stream = Files.list(cacheDir)) {
+            files = stream.filter(Files::isRegularFile).toList();
+        }
+        List<CachedMedia> existing = files.stream()
+                .map(this::toCachedMediaOrDelete)
+                .filter(cached -> cached != null)
+                .sorted(Comparator.comparingLong(CachedMedia::cachedAtMillis))
+                .toList();
+        synchronized (this) {
+            for (CachedMedia cached : existing) {
+                entries.put(cached.path().getFileName().toString(), cached);
+                totalBytes += cached.size();
+            }
+            evictOverflow(null);
+        }
+        log.info("\n\n🗄️ Caché de archivos en {}: {} archivos, {} bytes (máximo {}).", cacheDir, entries.size(), totalBytes, maxBytes);
+    }
+
+    /**
+     * Devuelve el archivo cacheado para el objeto, descargándolo del bucket si no está.
+     */
+    public CachedMedia get(String objectName) {
+        String key = cacheKey(objectName);
+        synchronized (this) {
+            CachedMedia cached = entries.get(key);
+            if (cached != null && Files.exists(cached.path())) {
+                hits.increment();
+                return cached;
+            }
+        }
+
+        CompletableFuture<CachedMedia> created = new CompletableFuture<>();
+        CompletableFuture<CachedMedia> pending = inFlight.putIfAbsent(key, created);
+        if (pending != null) {
+            coalesced.increment();
+            try {
+                return pending.join();
+            } catch (CompletionException e) {
+                throw e.getCause() instanceof RuntimeException runtimeException ? runtimeException : e;
+            }
+        }
+
+        misses.increment();
+        try {
+            CachedMedia fetched = fetch(objectName, key);
+            created.complete(fetched);
+            return fetched;
+        } catch (RuntimeException e) {
+            created.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, created);
+        }
+    }
+
+    /**
+     * Quita el objeto de la caché y borra su archivo; la próxima petición lo vuelve a pedir al bucket.
+     * Se llama cuando el objeto se borra o deja de estar referenciado.
+     */
+    public void evict(String objectName) {
+        CachedMedia removed;
+        synchronized (this) {
+            removed = entries.remove(cacheKey(objectName));
+            if (removed != null) {
+                totalBytes -= removed.size();
+            }
+        }
+        if (removed != null) {
+            deleteCachedFile(removed.path());
+        }
+    }
+
+    /**
+     * Igual que evict, a partir de la URL guardada en base de datos.
+     */
+    public void evictUrl(String fileUrl) {
+        evict(fileUrl.substring(fileUrl.lastIndexOf('/') + 1));
+    }
+
+    private CachedMedia fetch(String objectName, String key) {
+        Path target = cacheDir.resolve(key);
+        Path temp = cacheDir.resolve(key + "." + UUID.randomUUID() + ".tmp");
+        try {
+            try (InputStream in = fileStorageService.openStream(fileStorageService.urlForObject(objectName))) {
+                Files.copy(in, temp);
+            }
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            CachedMedia cached = new CachedMedia(target, Files.size(target), System.currentTimeMillis());
+            synchronized (this) {
+                CachedMedia previous = entries.put(key, cached);
+                if (previous != null) {
+                    totalBytes -= previous.size();
+                }
+                totalBytes += cached.size();
+                evictOverflow(key);
+            }
+            return cached;
+        } catch (IOException e) {
+            throw new RuntimeException("Error al descargar " + objectName + " a la caché: " + e.getMessage(), e);
+        } finally {
+            try {
+                Files.deleteIfExists(temp);
+            } catch (IOException ignored) {
+                // el temporal se limpia en el próximo arranque
+            }
+        }
+    }
+
+    /**
+     * Borra los menos usados hasta quedar bajo el máximo; nunca el recién agregado.
+     * En Linux borrar un archivo que se está leyendo no corta la lectura en curso.
+     */
+    private void evictOverflow(String keep) {
+        Iterator<Map.Entry<String, CachedMedia>> iterator = entries.entrySet().iterator();
+        while (totalBytes > maxBytes && iterator.hasNext()) {
+            Map.Entry<String, CachedMedia> eldest = iterator.next();
+            if (eldest.getKey().equals(keep)) {
+                continue;
+            }
+            iterator.remove();
+            totalBytes -= eldest.getValue().size();
+            deleteCachedFile(eldest.getValue().path());
+        }
+    }
+
+    private void deleteCachedFile(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            log.warn("\n\n⚠️ No se pudo borrar {} de la caché: {}", path, e.getMessage());
+        }
+    }
+
+    private CachedMedia toCachedMediaOrDelete(Path file) {
+        try {
+            if (file.getFileName().toString().endsWith(".tmp")) {
+                Files.deleteIfExists(file);
+                return null;
+            }
+            return new CachedMedia(file, Files.size(file), Files.getLastModifiedTime(file).toMillis());
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private synchronized long currentBytes() {
+        return totalBytes;
+    }
+
+    private static String cacheKey(String objectName) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(objectName.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,181 @@
+package DeltaFlores.web.service;
+
+import DeltaFlores.web.entities.MediaDeletion;
+import DeltaFlores.web.repository.MediaDeletionRepository;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Cola persistente de archivos a borrar del almacenamiento (tabla media_deletion_queue).
+ * Los servicios encolan dentro de su propia transacción, así el borrado del evento responde en tiempo constante
+ * y solo se borran archivos si el commit se hizo. Un worker programado procesa la cola en lotes, con reintentos
+ * y espera exponencial, sin retener la conexión JDBC mientras habla con el almacenamiento.
+ */
+@Service
+@Log4j2
+public class MediaDeletionQueue {
+
+    private final MediaDeletionRepository mediaDeletionRepository;
+    private final FileStorageService fileStorageService;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectProvider<MediaCacheService> mediaCacheService;
+
+    @Value("${media.deletion.batch-size:100}")
+    private int batchSize;
+
+    @Value("${media.deletion.base-backoff-seconds:30}")
+    private long baseBackoffSeconds;
+
+    @Value("${media.deletion.max-backoff-seconds:3600}")
+    private long maxBackoffSeconds;
+
+    // Tiempo durante el cual un lote tomado por un worker no lo toma otro (por si el proceso muere a mitad)
+    @Value("${media.deletion.lease-seconds:300}")
+    private long leaseSeconds;
+
+    @Value("${media.deletion.alert-after-attempts:10}")
+    private int alertAfterAttempts;
+
+    public MediaDeletionQueue(MediaDeletionRepository mediaDeletionRepository,
+                              FileStorageService fileStorageService,
+                              TransactionTemplate transactionTemplate,
+                              ObjectProvider<MediaCacheService> mediaCacheService) {
+        this.mediaDeletionRepository = mediaDeletionRepository;
+        this.fileStorageService = fileStorageService;
+        this.transactionTemplate = transactionTemplate;
+        this.mediaCacheService = mediaCacheService;
+    }
+
+    /**
+     * Encola los archivos en la transacción en curso: si se revierte, no se borra nada.
+     */
+    @Transactional
+    public void enqueue(Collection<String> fileUrls) {
+        if (fileUrls == null || fileUrls.isEmpty()) {
+            return;
+        }
+        LocalDateTime now = LocalDateTime.now();
+        List<MediaDeletion> deletions = new ArrayList<>(fileUrls.size());
+        for (String fileUrl : fileUrls) {
+            deletions.add(new MediaDeletion(fileUrl, now));
+        }
+        mediaDeletionRepository.saveAll(deletions);
+        log.info("\n\n🗑️ {} archivo(s) encolados para borrar del almacenamiento.", deletions.size());
+    }
+
+    /**
+     * Encola en una transacción propia; para compensaciones que ocurren fuera (o después) de la transacción que falló.
+     */
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public void enqueueIndependently(Collection<String> fileUrls) {
+        enqueue(fileUrls);
+    }
+
+    @Scheduled(fixedDelayString = "${media.deletion.poll-interval-ms:5000}", initialDelayString = "${media.deletion.initial-delay-ms:30000}")
+    public void drain() {
+        try {
+            int processed;
+            do {
+                processed = processBatch();
+            } while (processed >= batchSize);
+        } catch (RuntimeException e) {
+            log.error("\n\n❌ Error al procesar la cola de borrado de archivos: {}", e.getMessage(), e);
+        }
+    }
+
+    private int processBatch() {
+        // 1. Tomar el lote y correr su próximo intento (lease) en una transacción corta
+        List<MediaDeletion> batch = transactionTemplate.execute(status -> {
+            List<MediaDeletion> due = mediaDeletionRepository.lockDueBatch(batchSize);
+            LocalDateTime leaseUntil = LocalDateTime.now().plusSeconds(leaseSeconds);
+            for (MediaDeletion deletion : due) {
+                deletion.setNextAttemptAt(leaseUntil);
+            }
+            return due;
+        });
+        if (batch == null || batch.isEmpty()) {
+            return 0;
+        }
+
+        // 2. Borrar en el almacenamiento, fuera de cualquier transacción. Cada fila es una referencia: con el
+        // almacenamiento direccionado por contenido dos filas con la misma URL tienen que liberar dos veces. Por eso
+        // se borra por rondas, cada una con a lo sumo una fila por URL; si una URL falla, sus filas restantes
+        // ni se intentan y se reintentan todas juntas.
+        Map<String, Deque<MediaDeletion>> pending = new LinkedHashMap<>();
+        for (MediaDeletion deletion : batch) {
+            pending.computeIfAbsent(deletion.getFileUrl(), url -> new ArrayDeque<>()).add(deletion);
+        }
+        List<MediaDeletion> done = new ArrayList<>();
+        List<MediaDeletion> failed = new ArrayList<>();
+        String error = null;
+        while (!pending.isEmpty()) {
+            List<String> round = new ArrayList<>(pending.keySet());
+            Set<String> failedUrls;
+            try {
+                failedUrls = fileStorageService.deleteFiles(round);
+                if (!failedUrls.isEmpty()) {
+                    error = "Borrado rechazado por el almacenamiento";
+                }
+            } catch (RuntimeException e) {
+                failedUrls = new HashSet<>(round);
+                error = e.getMessage();
+            }
+            for (String url : round) {
+                Deque<MediaDeletion> rows = pending.get(url);
+                if (failedUrls.contains(url)) {
+                    failed.addAll(rows);
+                    pending.remove(url);
+                    continue;
+                }
+                done.add(rows.poll());
+                // Se vuelve a quitar de la caché del proxy: pudo descargarse de nuevo entre el encolado y el borrado
+                mediaCacheService.ifAvailable(cache -> cache.evictUrl(url));
+                if (rows.isEmpty()) {
+                    pending.remove(url);
+                }
+            }
+        }
+
+        // 3. Quitar los completados y reprogramar los fallidos con espera exponencial
+        String lastError = error;
+        transactionTemplate.executeWithoutResult(status -> {
+            List<Long> doneIds = done.stream().map(MediaDeletion::getId).toList();
+            LocalDateTime now = LocalDateTime.now();
+            for (MediaDeletion deletion : failed) {
+                int attempts = deletion.getAttempts() + 1;
+                deletion.setAttempts(attempts);
+                deletion.setNextAttemptAt(now.plusSeconds(backoffSeconds(attempts)));
+                deletion.setLastError(lastError != null && lastError.length() > 1000 ? lastError.substring(0, 1000) : lastError);
+                if (attempts >= alertAfterAttempts) {
+                    log.error("\n\n❌ El archivo {} sigue sin poder borrarse tras {} intentos: {}", deletion.getFileUrl(), attempts, lastError);
+                }
+            }
+            mediaDeletionRepository.deleteAllByIdInBatch(doneIds);
+            mediaDeletionRepository.saveAll(failed);
+            log.info("\n\n🧹 Cola de borrado: {} archivo(s) borrados, {} para reintentar.", doneIds.size(), failed.size());
+        });
+        return batch.size();
+    }
+
+    private long backoffSeconds(int attempts) {
+        long backoff = baseBackoffSeconds << Math.min(attempts - 1, 20);
+        return Math.min(backoff, maxBackoffSeconds);
+    }
+}
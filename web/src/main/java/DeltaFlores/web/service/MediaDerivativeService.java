@@ -0,0 +1,248 @@
+package DeltaFlores.web.service;
+
+import DeltaFlores.web.entities.MediaVariant;
+import DeltaFlores.web.entities.MediaVariantType;
+import DeltaFlores.web.entities.NoteEvent;
+import DeltaFlores.web.repository.NoteEventRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Genera en segundo plano las miniaturas y versiones web de las imágenes de los eventos de nota.
+ * Los trabajos van a una cola acotada atendida por un pool fijo de workers; si la cola está llena
+ * el trabajo se descarta (el original sigue disponible y las vistas usan la URL original como respaldo).
+ */
+@Service
+@Log4j2
+public class MediaDerivativeService {
+
+    private final FileStorageService fileStorageService;
+    private final MediaDeletionQueue mediaDeletionQueue;
+    private final NoteEventRepository noteEventRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final ThreadPoolExecutor executor;
+
+    @Value("${media.derivatives.enabled:true}")
+    private boolean enabled;
+
+    @Value("${media.derivatives.thumbnail-max-size:320}")
+    private int thumbnailMaxSize;
+
+    @Value("${media.derivatives.web-max-size:1280}")
+    private int webMaxSize;
+
+    @Value("${media.derivatives.jpeg-quality:0.82}")
+    private float jpegQuality;
+
+    public MediaDerivativeService(FileStorageService fileStorageService,
+                                  MediaDeletionQueue mediaDeletionQueue,
+                                  NoteEventRepository noteEventRepository,
+                                  TransactionTemplate transactionTemplate,
+                                  @Value("${media.derivatives.workers:2}") int workers,
+                                  @Value("${media.derivatives.queue-capacity:100}") int queueCapacity) {
+        this.fileStorageService = fileStorageService;
+        this.mediaDeletionQueue = mediaDeletionQueue;
+        this.noteEventRepository = noteEventRepository;
+        this.transactionTemplate = transactionTemplate;
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(workers, workers, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "media-derivatives-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    /**
+     * Encola la generación de variantes para los archivos originales de un evento ya guardado.
+     * Debe llamarse después del commit, para que el worker encuentre el evento.
+     */
+    public void enqueue(Long noteEventId, List<String> originalUrls) {
+        if (!enabled || originalUrls == null) {
+            return;
+        }
+        for (String originalUrl : originalUrls) {
+            try {
+                executor.execute(() -> generateVariants(noteEventId, originalUrl));
+            } catch (RejectedExecutionException e) {
+                log.warn("\n\n⚠️ Cola de variantes llena, se omite {} del evento de nota ID: {}", originalUrl, noteEventId);
+            }
+        }
+    }
+
+    /**
+     * Quita del evento las variantes cuyo original ya no está en mediaUrls y las devuelve,
+     * para que quien llama borre sus archivos.
+     */
+    public static List<MediaVariant> removeOrphanVariants(NoteEvent event) {
+        List<MediaVariant> orphans = new ArrayList<>();
+        List<String> mediaUrls = event.getMediaUrls() != null ? event.getMediaUrls() : List.of();
+        event.getMediaVariants().removeIf(variant -> {
+            boolean orphan = !mediaUrls.contains(variant.getOriginalUrl());
+            if (orphan) {
+                orphans.add(variant);
+            }
+            return orphan;
+        });
+        return orphans;
+    }
+
+    private void generateVariants(Long noteEventId, String originalUrl) {
+        BufferedImage source;
+        try (InputStream inputStream = fileStorageService.openStream(originalUrl)) {
+            source = readSubsampled(inputStream, webMaxSize * 2);
+        } catch (Exception e) {
+            log.error("\n\n❌ No se pudo leer {} para generar variantes: {}", originalUrl, e.getMessage());
+            return;
+        }
+        if (source == null) {
+            log.info("\n\n🎞️ {} no es una imagen soportada, no se generan variantes.", originalUrl);
+            return;
+        }
+
+        List<MediaVariant> variants = new ArrayList<>(2);
+        try {
+            variants.add(storeVariant(originalUrl, MediaVariantType.THUMBNAIL, resize(source, thumbnailMaxSize)));
+            variants.add(storeVariant(originalUrl, MediaVariantType.WEB, resize(source, webMaxSize)));
+        } catch (Exception e) {
+            log.error("\n\n❌ Error al generar variantes de {}: {}", originalUrl, e.getMessage());
+            discard(variants);
+            return;
+        }
+
+        Boolean recorded;
+        try {
+            recorded = transactionTemplate.execute(status -> {
+                NoteEvent event = noteEventRepository.findById(noteEventId).orElse(null);
+                // El evento pudo borrarse o el original quitarse mientras el trabajo estaba en cola
+                if (event == null || event.getMediaUrls() == null || !event.getMediaUrls().contains(originalUrl)) {
+                    return false;
+                }
+                event.getMediaVariants().removeIf(variant -> variant.getOriginalUrl().equals(originalUrl));
+                event.getMediaVariants().addAll(variants);
+                return true;
+            });
+        } catch (RuntimeException e) {
+            log.error("\n\n❌ Error al registrar variantes de {} en el evento de nota ID {}: {}", originalUrl, noteEventId, e.getMessage());
+            recorded = false;
+        }
+        if (Boolean.TRUE.equals(recorded)) {
+            log.info("\n\n🖼️ Variantes generadas para {} (evento de nota ID: {}).", originalUrl, noteEventId);
+        } else {
+            discard(variants);
+        }
+    }
+
+    private MediaVariant storeVariant(String originalUrl, MediaVariantType type, BufferedImage image) throws IOException {
+        byte[] jpeg = encodeJpeg(image);
+        String url = fileStorageService.uploadStream(new ByteArrayInputStream(jpeg), jpeg.length, "image/jpeg",
+                type.name().toLowerCase() + ".jpg");
+        return new MediaVariant(originalUrl, type, url, image.getWidth(), image.getHeight());
+    }
+
+    private void discard(List<MediaVariant> variants) {
+        if (variants.isEmpty()) {
+            return;
+        }
+        try {
+            mediaDeletionQueue.enqueueIndependently(variants.stream().map(MediaVariant::getUrl).toList());
+        } catch (RuntimeException e) {
+            log.error("\n\n❌ No se pudieron encolar las variantes descartadas: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Decodifica la imagen submuestreando al leer, para no cargar en memoria la resolución completa de la cámara.
+     * Devuelve null si el formato no es una imagen que ImageIO sepa leer (p. ej. videos).
+     */
+    private static BufferedImage readSubsampled(InputStream inputStream, int targetMaxSize) throws IOException {
+        try (ImageInputStream imageInput = ImageIO.createImageInputStream(inputStream)) {
+            if (imageInput == null) {
+                return null;
+            }
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(imageInput);
+            if (!readers.hasNext()) {
+                return null;
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(imageInput, true, true);
+                int longestSide = Math.max(reader.getWidth(0), reader.getHeight(0));
+                int subsampling = Math.max(1, longestSide / targetMaxSize);
+                ImageReadParam param = reader.getDefaultReadParam();
+                param.setSourceSubsampling(subsampling, subsampling, 0, 0);
+                return reader.read(0, param);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    private static BufferedImage resize(BufferedImage source, int maxSize) {
+        double scale = Math.min(1.0, (double) maxSize / Math.max(source.getWidth(), source.getHeight()));
+        int width = Math.max(1, (int) Math.round(source.getWidth() * scale));
+        int height = Math.max(1, (int) Math.round(source.getHeight() * scale));
+        BufferedImage target = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = target.createGraphics();
+        try {
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            // JPEG no tiene canal alfa: las transparencias quedan sobre fondo blanco
+            graphics.drawImage(source, 0, 0, width, height, Color.WHITE, null);
+        } finally {
+            graphics.dispose();
+        }
+        return target;
+    }
+
+    private byte[] encodeJpeg(BufferedImage image) throws IOException {
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        try (ImageOutputStream imageOutput = ImageIO.createImageOutputStream(output)) {
+            writer.setOutput(imageOutput);
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            param.setCompressionQuality(jpegQuality);
+            param.setProgressiveMode(ImageWriteParam.MODE_DEFAULT);
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+        return output.toByteArray();
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,231 @@
+package DeltaFlores.web.service;
+
+import DeltaFlores.web.dto.MediaUploadRequestDto;
+import DeltaFlores.web.dto.PresignedUploadDto;
+import DeltaFlores.web.repository.MediaUploadClaimRepository;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.access.AccessDeniedException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Sube los archivos multimedia de un evento en paralelo (un hilo virtual por archivo)
+ * y fuera de cualquier transacción, para que la conexión JDBC no quede retenida mientras
+ * dura la subida. Si alguna subida falla se eliminan las que sí se completaron.
+ * También emite URLs prefirmadas para que el cliente suba directo al bucket sin pasar por la aplicación.
+ */
+@Service
+@Log4j2
+public class MediaUploadService {
+
+    private final FileStorageService fileStorageService;
+    private final MediaDeletionQueue mediaDeletionQueue;
+    private final MediaUploadClaimRepository mediaUploadClaimRepository;
+    private final int maxConcurrentUploads;
+    private final Duration uploadUrlExpiry;
+    private final int maxPresignedPerRequest;
+    private final long maxPresignedFileBytes;
+
+    public MediaUploadService(FileStorageService fileStorageService,
+                              MediaDeletionQueue mediaDeletionQueue,
+                              MediaUploadClaimRepository mediaUploadClaimRepository,
+                              @Value("${media.upload.max-concurrent:4}") int maxConcurrentUploads,
+                              @Value("${storage.presign.upload-expiry-seconds:600}") long uploadUrlExpirySeconds,
+                              @Value("${storage.presign.max-files-per-request:20}") int maxPresignedPerRequest,
+                              @Value("${storage.presign.max-file-bytes:629145600}") long maxPresignedFileBytes) {
+        this.fileStorageService = fileStorageService;
+        this.mediaDeletionQueue = mediaDeletionQueue;
+        this.mediaUploadClaimRepository = mediaUploadClaimRepository;
+        this.maxConcurrentUploads = Math.max(1, maxConcurrentUploads);
+        this.uploadUrlExpiry = Duration.ofSeconds(uploadUrlExpirySeconds);
+        this.maxPresignedPerRequest = maxPresignedPerRequest;
+        this.maxPresignedFileBytes = maxPresignedFileBytes;
+    }
+
+    public boolean supportsPresignedUploads() {
+        return fileStorageService.supportsPresignedUpload();
+    }
+
+    /**
+     * Emite una URL de subida por archivo. Las claves llevan el prefijo del usuario (u{id}-) para que
+     * al confirmarlas solo se acepten objetos pedidos por ese mismo usuario. Cada subida queda limitada
+     * al tamaño declarado, que no puede pasar de storage.presign.max-file-bytes.
+     */
+    public List<PresignedUploadDto> presignUploads(List<MediaUploadRequestDto> requests, Long userId) {
+        if (requests == null || requests.isEmpty()) {
+            throw new IllegalArgumentException("Debe indicar al menos un archivo a subir");
+        }
+        if (requests.size() > maxPresignedPerRequest) {
+            throw new IllegalArgumentException("No se pueden solicitar más de " + maxPresignedPerRequest + " URLs de subida por petición");
+        }
+        if (!fileStorageService.supportsPresignedUpload()) {
+            throw new IllegalStateException("El almacenamiento configurado no admite subidas prefirmadas");
+        }
+        for (MediaUploadRequestDto request : requests) {
+            if (request.getSize() == null || request.getSize() <= 0 || request.getSize() > maxPresignedFileBytes) {
+                throw new IllegalArgumentException("Cada archivo debe declarar su tamaño, entre 1 y " + maxPresignedFileBytes + " bytes");
+            }
+        }
+        log.info("\n\n🔏 Generando {} URL(s) de subida prefirmadas para el usuario ID: {}", requests.size(), userId);
+        Instant expiresAt = Instant.now().plus(uploadUrlExpiry);
+        List<PresignedUploadDto> uploads = new ArrayList<>(requests.size());
+        for (MediaUploadRequestDto request : requests) {
+            String objectKey = userKeyPrefix(userId) + UUID.randomUUID().toString().replace("-", "") + "-" + sanitizeFilename(request.getFilename());
+            FileStorageService.PresignedUpload upload = fileStorageService
+                    .presignUpload(objectKey, request.getContentType(), request.getSize(), uploadUrlExpiry)
+                    .orElseThrow(() -> new IllegalStateException("El almacenamiento configurado no admite subidas prefirmadas"));
+            uploads.add(new PresignedUploadDto(objectKey, upload.url(), upload.method(), upload.headers(), upload.formFields(), expiresAt));
+        }
+        return uploads;
+    }
+
+    /**
+     * Verifica que las claves subidas con URLs prefirmadas pertenezcan al usuario y existan en el bucket,
+     * y devuelve las URLs con las que se guardan en el evento.
+     */
+    public List<String> confirmUploadedKeys(List<String> objectKeys, Long userId) {
+        if (objectKeys == null || objectKeys.isEmpty()) {
+            return new ArrayList<>();
+        }
+        String prefix = userKeyPrefix(userId);
+        List<String> urls = new ArrayList<>(objectKeys.size());
+        for (String objectKey : new LinkedHashSet<>(objectKeys)) {
+            if (objectKey == null || !objectKey.startsWith(prefix) || objectKey.contains("/")) {
+                throw new AccessDeniedException("No tienes permiso para adjuntar el archivo " + objectKey);
+            }
+            if (mediaUploadClaimRepository.existsById(objectKey)) {
+                throw new IllegalArgumentException("El archivo " + objectKey + " ya está adjunto a otro evento");
+            }
+            if (!fileStorageService.exists(objectKey)) {
+                throw new IllegalArgumentException("El archivo " + objectKey + " no fue subido");
+            }
+            urls.add(fileStorageService.urlForObject(objectKey));
+        }
+        log.info("\n\n✅ {} archivo(s) subidos directamente al bucket confirmados.", urls.size());
+        return urls;
+    }
+
+    /**
+     * Marca las claves como adjuntas dentro de la transacción que guarda el evento. confirmUploadedKeys ya
+     * descarta las adjuntas, pero dos peticiones concurrentes con la misma clave pasan ambas esa verificación:
+     * acá la segunda espera a la primera y, si esta confirmó, se rechaza (y se revierte su escritura).
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void claimUploadedKeys(List<String> objectKeys, Long userId) {
+        if (objectKeys == null || objectKeys.isEmpty()) {
+            return;
+        }
+        for (String objectKey : new LinkedHashSet<>(objectKeys)) {
+            if (mediaUploadClaimRepository.claim(objectKey, userId) == 0) {
+                throw new IllegalArgumentException("El archivo " + objectKey + " ya está adjunto a otro evento");
+            }
+        }
+    }
+
+    /**
+     * Sube todos los archivos y devuelve sus URLs en el mismo orden en que llegaron.
+     * Es todo o nada: ante el primer error se borran los archivos ya subidos y se relanza.
+     */
+    public List<String> uploadAll(List<MultipartFile> files) {
+        if (files == null || files.isEmpty()) {
+            return new ArrayList<>();
+        }
+        log.info("\n\n⬆️ Subiendo {} archivo(s) en paralelo (máximo {} simultáneos)...", files.size(), maxConcurrentUploads);
+
+        Semaphore permits = new Semaphore(maxConcurrentUploads);
+        List<Future<String>> uploads = new ArrayList<>(files.size());
+        // close() del executor espera a que terminen todas las subidas
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (MultipartFile file : files) {
+                uploads.add(executor.submit(() -> {
+                    permits.acquire();
+                    try {
+                        return fileStorageService.uploadFile(file);
+                    } finally {
+                        permits.release();
+                    }
+                }));
+            }
+        }
+
+        List<String> uploadedUrls = new ArrayList<>(files.size());
+        RuntimeException failure = null;
+        for (Future<String> upload : uploads) {
+            try {
+                uploadedUrls.add(upload.get());
+            } catch (ExecutionException e) {
+                if (failure == null) {
+                    Throwable cause = e.getCause();
+                    failure = cause instanceof RuntimeException runtimeException
+                            ? runtimeException
+                            : new RuntimeException("Error al subir archivo: " + cause.getMessage(), cause);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                if (failure == null) {
+                    failure = new RuntimeException("Subida de archivos interrumpida", e);
+                }
+            }
+        }
+
+        if (failure != null) {
+            log.error("\n\n❌ Falló la subida de archivos, eliminando {} archivo(s) ya subidos: {}", uploadedUrls.size(), failure.getMessage());
+            discardAll(uploadedUrls);
+            throw failure;
+        }
+        log.info("\n\n✅ {} archivo(s) subidos correctamente.", uploadedUrls.size());
+        return uploadedUrls;
+    }
+
+    private static String userKeyPrefix(Long userId) {
+        return "u" + userId + "-";
+    }
+
+    private static String sanitizeFilename(String filename) {
+        if (filename == null || filename.isBlank()) {
+            return "file";
+        }
+        String name = filename.substring(Math.max(filename.lastIndexOf('/'), filename.lastIndexOf('\\')) + 1);
+        return name.replaceAll("[^A-Za-z0-9._-]", "_");
+    }
+
+    /**
+     * Descarta archivos ya subidos cuando la operación que los iba a referenciar no se completó.
+     * Se encolan en media_deletion_queue con una transacción propia; si ni eso es posible (p. ej. la base
+     * no responde) se intenta borrarlos directamente. Los errores se registran pero no se propagan,
+     * para no ocultar la causa original.
+     */
+    public void discardAll(Collection<String> fileUrls) {
+        if (fileUrls == null || fileUrls.isEmpty()) {
+            return;
+        }
+        log.warn("\n\n⚠️ Descartando {} archivo(s) huérfanos por compensación.", fileUrls.size());
+        try {
+            mediaDeletionQueue.enqueueIndependently(fileUrls);
+        } catch (RuntimeException e) {
+            log.error("\n\n❌ No se pudieron encolar los archivos huérfanos, se borran directamente: {}", e.getMessage());
+            try {
+                fileStorageService.deleteFiles(fileUrls).forEach(fileUrl ->
+                        log.error("\n\n❌ No se pudo eliminar el archivo {}", fileUrl));
+            } catch (RuntimeException deleteError) {
+                log.error("\n\n❌ No se pudieron eliminar los archivos huérfanos: {}", deleteError.getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package DeltaFlores.web.service;
+
+import DeltaFlores.web.security.MediaUrlSignature;
+import DeltaFlores.web.utils.LruCache;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Genera URLs de descarga firmadas y de corta duración para los archivos multimedia.
+ * Cada URL firmada se reutiliza desde caché hasta que le queda menos de
+ * storage.presign.download-refresh-margin-seconds de vida, así las lecturas repetidas no vuelven a firmar.
+ * Con media.proxy.enabled=true las URLs apuntan al proxy /api/media (caché en disco) en lugar del bucket.
+ */
+@Component
+@Log4j2
+public class MediaUrlSigner {
+
+    private record SignedUrl(String url, long expiresAtMillis) {
+    }
+
+    private final FileStorageService fileStorageService;
+    private final MediaUrlSignature mediaUrlSignature;
+    private final boolean proxyEnabled;
+    private final String proxyBaseUrl;
+    private final Duration downloadExpiry;
+    private final long refreshMarginMillis;
+    private final LruCache<String, SignedUrl> signedUrls;
+
+    public MediaUrlSigner(FileStorageService fileStorageService,
+                          MediaUrlSignature mediaUrlSignature,
+                          @Value("${media.proxy.enabled:false}") boolean proxyEnabled,
+                          @Value("${media.proxy.base-url:/api/media}") String proxyBaseUrl,
+                          @Value("${storage.presign.download-expiry-seconds:900}") long downloadExpirySeconds,
+                          @Value("${storage.presign.download-refresh-margin-seconds:60}") long refreshMarginSeconds,
+                          @Value("${storage.presign.cache.max-entries:10000}") int maxEntries) {
+        this.fileStorageService = fileStorageService;
+        this.mediaUrlSignature = mediaUrlSignature;
+        this.proxyEnabled = proxyEnabled;
+        this.proxyBaseUrl = proxyBaseUrl;
+        this.downloadExpiry = Duration.ofSeconds(downloadExpirySeconds);
+        this.refreshMarginMillis = Math.min(refreshMarginSeconds, downloadExpirySeconds / 2) * 1000;
+        this.signedUrls = new LruCache<>(maxEntries);
+    }
+
+    public String sign(String fileUrl) {
+        long now = System.currentTimeMillis();
+        SignedUrl cached = signedUrls.get(fileUrl);
+        if (cached != null && cached.expiresAtMillis() - now > refreshMarginMillis) {
+            return cached.url();
+        }
+        String url = proxyEnabled
+                ? mediaUrlSignature.signedUrl(proxyBaseUrl, fileUrl.substring(fileUrl.lastIndexOf('/') + 1), downloadExpiry)
+                : fileStorageService.presignDownload(fileUrl, downloadExpiry);
+        signedUrls.put(fileUrl, new SignedUrl(url, now + downloadExpiry.toMillis()));
+        return url;
+    }
+
+    /**
+     * Firma una lista de URLs conservando el orden. Si alguna no se puede firmar se registra y queda en null,
+     * para no romper la lectura del evento.
+     */
+    public List<String> signAll(List<String> fileUrls) {
+        if (fileUrls == null) {
+            return null;
+        }
+        List<String> signed = new ArrayList<>(fileUrls.size());
+        for (String fileUrl : fileUrls) {
+            if (fileUrl == null) {
+                signed.add(null);
+                continue;
+            }
+            try {
+                signed.add(sign(fileUrl));
+            } catch (RuntimeException e) {
+                log.error("\n\n❌ No se pudo firmar la URL {}: {}", fileUrl, e.getMessage());
+                signed.add(null);
+            }
+        }
+        return signed;
+    }
+
+    public void evict(String fileUrl) {
+        signedUrls.remove(fileUrl);
+    }
+}
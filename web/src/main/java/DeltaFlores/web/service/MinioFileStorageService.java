@@ -1,20 +1,54 @@
 package DeltaFlores.web.service;
 
+import DeltaFlores.web.utils.Retry;
+import io.minio.ComposeObjectArgs;
+import io.minio.ComposeSource;
+import io.minio.GetObjectArgs;
+import io.minio.GetPresignedObjectUrlArgs;
+import io.minio.ListObjectsArgs;
 import io.minio.MinioClient;
+import io.minio.PostPolicy;
 import io.minio.PutObjectArgs;
+import io.minio.RemoveObjectsArgs;
+import io.minio.Result;
+import io.minio.StatObjectArgs;
+import io.minio.errors.ErrorResponseException;
+import io.minio.http.Method;
+import io.minio.messages.DeleteError;
+import io.minio.messages.DeleteObject;
+import io.minio.messages.Item;
+import lombok.extern.log4j.Log4j2;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Profile;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
 import java.io.InputStream;
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.TimeUnit;
 
 @Service
 @Profile("minio")
+@Log4j2
 public class MinioFileStorageService implements FileStorageService {
 
+    // MinIO/S3 exige que todas las partes de un compose salvo la última midan al menos 5 MiB
+    private static final int MIN_PART_SIZE_BYTES = 5 * 1024 * 1024;
+
     private final MinioClient minioClient;
 
     @Value("${minio.bucket.name}")
@@ -23,6 +57,12 @@ public class MinioFileStorageService implements FileStorageService {
     @Value("${minio.endpoint}")
     private String endpoint;
 
+    @Value("${storage.upload.part-size-bytes:8388608}")
+    private int partSizeBytes;
+
+    @Value("${storage.upload.part-retries:3}")
+    private int partRetries;
+
     @Autowired
     public MinioFileStorageService(MinioClient minioClient) {
         this.minioClient = minioClient;
@@ -30,25 +70,234 @@ public class MinioFileStorageService implements FileStorageService {
 
     @Override
     public String uploadFile(MultipartFile file) {
+        try (InputStream inputStream = file.getInputStream()) {
+            return uploadStream(inputStream, file.getSize(), file.getContentType(), file.getOriginalFilename());
+        } catch (IOException e) {
+            throw new RuntimeException("Error uploading file to MinIO: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Files that fit in one part go up with a single PUT. Larger files are uploaded as temporary
+     * part objects (each retried on its own) and then joined server-side with composeObject,
+     * so only one part is ever held in memory. Parts left behind by a crash carry UPLOAD_PART_PREFIX
+     * and are swept by the storage reconciliation.
+     */
+    @Override
+    public String uploadStream(InputStream inputStream, long size, String contentType, String originalFilename) {
+        String objectName = UUID.randomUUID().toString().replace("-", "") + "-" + originalFilename;
+        return uploadStreamAs(objectName, inputStream, size, contentType);
+    }
+
+    @Override
+    public String uploadStreamAs(String objectName, InputStream inputStream, long size, String contentType) {
+        int partSize = Math.max(partSizeBytes, MIN_PART_SIZE_BYTES);
+        List<String> partNames = new ArrayList<>();
         try {
-            InputStream inputStream = file.getInputStream();
-            String objectName = UUID.randomUUID().toString().replace("-", "") + "-" + file.getOriginalFilename();
+            byte[] buffer = new byte[partSize];
+            int read = inputStream.readNBytes(buffer, 0, partSize);
+            if (read < partSize) {
+                putPart(objectName, buffer, read, contentType);
+            } else {
+                while (read > 0) {
+                    String partName = UPLOAD_PART_PREFIX + objectName + "-" + (partNames.size() + 1);
+                    putPart(partName, buffer, read, contentType);
+                    partNames.add(partName);
+                    read = inputStream.readNBytes(buffer, 0, partSize);
+                }
+                List<ComposeSource> sources = new ArrayList<>(partNames.size());
+                for (String partName : partNames) {
+                    sources.add(ComposeSource.builder().bucket(bucketName).object(partName).build());
+                }
+                ComposeObjectArgs.Builder compose = ComposeObjectArgs.builder()
+                        .bucket(bucketName)
+                        .object(objectName)
+                        .sources(sources);
+                if (contentType != null) {
+                    compose.headers(Map.of("Content-Type", contentType));
+                }
+                Retry.withBackoff("compose de " + objectName, partRetries, () -> minioClient.composeObject(compose.build()));
+            }
+
+            return urlForObject(objectName);
 
-            minioClient.putObject(
-                    PutObjectArgs.builder()
+        } catch (Exception e) {
+            throw new RuntimeException("Error uploading file to MinIO: " + e.getMessage(), e);
+        } finally {
+            removeParts(partNames);
+        }
+    }
+
+    /**
+     * Un único removeObjects por lote (hasta 1000 claves por petición en S3/MinIO).
+     */
+    @Override
+    public Set<String> deleteFiles(Collection<String> fileUrls) {
+        Map<String, String> urlsByObject = new HashMap<>();
+        for (String fileUrl : fileUrls) {
+            urlsByObject.put(fileUrl.substring(fileUrl.lastIndexOf('/') + 1), fileUrl);
+        }
+        List<DeleteObject> objects = urlsByObject.keySet().stream().map(DeleteObject::new).toList();
+        Set<String> failed = new HashSet<>();
+        try {
+            for (Result<DeleteError> result : minioClient.removeObjects(
+                    RemoveObjectsArgs.builder().bucket(bucketName).objects(objects).build())) {
+                DeleteError error = result.get();
+                log.error("\n\n❌ MinIO rechazó el borrado de {}: {}", error.objectName(), error.message());
+                failed.add(urlsByObject.getOrDefault(error.objectName(), error.objectName()));
+            }
+        } catch (Exception e) {
+            log.error("\n\n❌ Error al borrar {} objeto(s) de MinIO {}: {}", objects.size(), urlsByObject.keySet(), e.getMessage(), e);
+            return new HashSet<>(fileUrls);
+        }
+        return failed;
+    }
+
+    @Override
+    public InputStream openStream(String fileUrl) {
+        try {
+            return minioClient.getObject(
+                    GetObjectArgs.builder()
+                            .bucket(bucketName)
+                            .object(fileUrl.substring(fileUrl.lastIndexOf('/') + 1))
+                            .build()
+            );
+        } catch (Exception e) {
+            throw new RuntimeException("Error reading file from MinIO: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public String urlForObject(String objectName) {
+        // Construct the URL. Assuming the endpoint is the public URL.
+        // This might need adjustment if a different public URL is used.
+        return endpoint + "/" + bucketName + "/" + objectName;
+    }
+
+    @Override
+    public boolean exists(String objectName) {
+        try {
+            minioClient.statObject(StatObjectArgs.builder().bucket(bucketName).object(objectName).build());
+            return true;
+        } catch (ErrorResponseException e) {
+            if ("NoSuchKey".equals(e.errorResponse().code())) {
+                return false;
+            }
+            throw new RuntimeException("Error checking object in MinIO: " + e.getMessage(), e);
+        } catch (Exception e) {
+            throw new RuntimeException("Error checking object in MinIO: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public boolean supportsListing() {
+        return true;
+    }
+
+    /**
+     * ListObjectsV2 con start-after; el iterador de MinIO pide más páginas solo si se sigue consumiendo.
+     */
+    @Override
+    public List<StoredObject> listObjects(String startAfter, int maxKeys) {
+        ListObjectsArgs.Builder args = ListObjectsArgs.builder().bucket(bucketName).recursive(true).maxKeys(maxKeys);
+        if (startAfter != null && !startAfter.isEmpty()) {
+            args.startAfter(startAfter);
+        }
+        List<StoredObject> page = new ArrayList<>(maxKeys);
+        try {
+            for (Result<Item> result : minioClient.listObjects(args.build())) {
+                Item item = result.get();
+                if (item.isDir()) {
+                    continue;
+                }
+                page.add(new StoredObject(item.objectName(), item.size(),
+                        item.lastModified() != null ? item.lastModified().toInstant() : null));
+                if (page.size() >= maxKeys) {
+                    break;
+                }
+            }
+        } catch (Exception e) {
+            throw new RuntimeException("Error listing objects in MinIO: " + e.getMessage(), e);
+        }
+        return page;
+    }
+
+    @Override
+    public boolean supportsPresignedUpload() {
+        return true;
+    }
+
+    /**
+     * POST con política firmada en lugar de un PUT prefirmado: un PUT de S3 no puede limitar el tamaño,
+     * la política sí (content-length-range), además de fijar la clave y el Content-Type.
+     */
+    @Override
+    public Optional<PresignedUpload> presignUpload(String objectName, String contentType, long maxBytes, Duration expiry) {
+        PostPolicy policy = new PostPolicy(bucketName, ZonedDateTime.now().plus(expiry));
+        policy.addEqualsCondition("key", objectName);
+        if (contentType != null) {
+            policy.addEqualsCondition("Content-Type", contentType);
+        }
+        policy.addContentLengthRangeCondition(1, maxBytes);
+        try {
+            Map<String, String> formFields = new LinkedHashMap<>();
+            formFields.put("key", objectName);
+            if (contentType != null) {
+                formFields.put("Content-Type", contentType);
+            }
+            formFields.putAll(minioClient.getPresignedPostFormData(policy));
+            return Optional.of(new PresignedUpload("POST", endpoint + "/" + bucketName, Map.of(), formFields));
+        } catch (Exception e) {
+            throw new RuntimeException("Error presigning MinIO upload: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public String presignDownload(String fileUrl, Duration expiry) {
+        return presign(Method.GET, fileUrl.substring(fileUrl.lastIndexOf('/') + 1), expiry);
+    }
+
+    private String presign(Method method, String objectName, Duration expiry) {
+        try {
+            return minioClient.getPresignedObjectUrl(
+                    GetPresignedObjectUrlArgs.builder()
+                            .method(method)
                             .bucket(bucketName)
                             .object(objectName)
-                            .stream(inputStream, file.getSize(), -1)
-                            .contentType(file.getContentType())
+                            .expiry((int) expiry.toSeconds(), TimeUnit.SECONDS)
                             .build()
             );
+        } catch (Exception e) {
+            throw new RuntimeException("Error presigning MinIO URL: " + e.getMessage(), e);
+        }
+    }
 
-            // Construct the URL. Assuming the endpoint is the public URL.
-            // This might need adjustment if a different public URL is used.
-            return endpoint + "/" + bucketName + "/" + objectName;
+    private void putPart(String objectName, byte[] buffer, int length, String contentType) throws Exception {
+        Retry.withBackoff("subida de " + objectName, partRetries, () -> minioClient.putObject(
+                PutObjectArgs.builder()
+                        .bucket(bucketName)
+                        .object(objectName)
+                        .stream(new ByteArrayInputStream(buffer, 0, length), length, -1)
+                        .contentType(contentType != null ? contentType : "application/octet-stream")
+                        .build()
+        ));
+    }
 
+    private void removeParts(List<String> partNames) {
+        if (partNames.isEmpty()) {
+            return;
+        }
+        List<DeleteObject> objects = partNames.stream().map(DeleteObject::new).toList();
+        try {
+            // removeObjects es perezoso: hay que recorrer el resultado para que se ejecute
+            for (Result<DeleteError> result : minioClient.removeObjects(
+                    RemoveObjectsArgs.builder().bucket(bucketName).objects(objects).build())) {
+                DeleteError error = result.get();
+                log.error("\n\n❌ No se pudo borrar la parte temporal {} de MinIO: {}", error.objectName(), error.message());
+            }
         } catch (Exception e) {
-            throw new RuntimeException("Error uploading file to MinIO: " + e.getMessage(), e);
+            // Las partes que queden las borra la reconciliación (UPLOAD_PART_PREFIX)
+            log.error("\n\n❌ No se pudieron borrar las partes temporales {} de MinIO: {}", partNames, e.getMessage(), e);
         }
     }
 
@@ -1,18 +1,14 @@
 package DeltaFlores.web.service;
 
 import DeltaFlores.web.dto.NutrienteDto;
-import DeltaFlores.web.entities.AppRole;
 import DeltaFlores.web.entities.Nutriente;
-import DeltaFlores.web.entities.User;
 import DeltaFlores.web.exception.ResourceNotFoundException;
 import DeltaFlores.web.repository.NutrienteRepository;
-import DeltaFlores.web.repository.UserRepository;
+import DeltaFlores.web.security.CurrentUserContext;
 import DeltaFlores.web.utils.DtoMapper;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.log4j.Log4j2;
 import org.springframework.security.access.AccessDeniedException;
-import org.springframework.security.core.Authentication;
-import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -25,21 +21,13 @@ import java.util.stream.Collectors;
 public class NutrienteService {
 
     private final NutrienteRepository nutrienteRepository;
-    private final UserRepository userRepository;
-
-    private User getCurrentUser() {
-        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
-        String currentUsername = authentication.getName();
-        return userRepository.findByUsername(currentUsername)
-                .orElseThrow(() -> new ResourceNotFoundException("Usuario no encontrado"));
-    }
+    private final CurrentUserContext currentUserContext;
 
     @Transactional
     public NutrienteDto createNutriente(NutrienteDto dto) {
         log.info("\n\n🍏 Creando nuevo nutriente: {}", dto.getTitulo());
-        User currentUser = getCurrentUser();
         Nutriente nutriente = DtoMapper.nutrienteDtoToNutriente(dto, new Nutriente());
-        nutriente.setUser(currentUser);
+        nutriente.setUser(currentUserContext.getUserReference());
         Nutriente savedNutriente = nutrienteRepository.save(nutriente);
         log.info("\n\n✨ Nutriente {} creado con ID: {}", savedNutriente.getTitulo(), savedNutriente.getId());
         return DtoMapper.nutrienteToNutrienteDto(savedNutriente);
@@ -48,13 +36,11 @@ public class NutrienteService {
     @Transactional(readOnly = true)
     public NutrienteDto getNutrienteById(Long id) {
         log.info("\n\n🔎 Buscando nutriente con ID: {}", id);
-        User currentUser = getCurrentUser();
         Nutriente nutriente = nutrienteRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Nutriente no encontrado con id: " + id));
 
-        if (!nutriente.getUser().equals(currentUser) &&
-            currentUser.getRol() != AppRole.ROLE_ADMIN &&
-            currentUser.getRol() != AppRole.ROLE_SUPER_ADMIN) {
+        if (!nutriente.getUser().getId().equals(currentUserContext.getId()) &&
+            !currentUserContext.isAdmin()) {
             throw new AccessDeniedException("No tienes permiso para ver este nutriente");
         }
 
@@ -64,14 +50,13 @@ public class NutrienteService {
     @Transactional(readOnly = true)
     public List<NutrienteDto> getAllNutrientes() {
         log.info("\n\n🔎 Obteniendo todos los nutrientes.");
-        User currentUser = getCurrentUser();
 
-        if (currentUser.getRol() == AppRole.ROLE_ADMIN || currentUser.getRol() == AppRole.ROLE_SUPER_ADMIN) {
+        if (currentUserContext.isAdmin()) {
             return nutrienteRepository.findAll().stream()
                     .map(DtoMapper::nutrienteToNutrienteDto)
                     .collect(Collectors.toList());
         } else {
-            return nutrienteRepository.findByUserId(currentUser.getId()).stream()
+            return nutrienteRepository.findByUserId(currentUserContext.getId()).stream()
                     .map(DtoMapper::nutrienteToNutrienteDto)
                     .collect(Collectors.toList());
         }
@@ -88,16 +73,15 @@ public class NutrienteService {
     @Transactional
     public NutrienteDto updateNutriente(Long id, NutrienteDto dto) {
         log.info("\n\n⬆️ Actualizando nutriente con ID: {}", id);
-        User currentUser = getCurrentUser();
         Nutriente existingNutriente = nutrienteRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Nutriente no encontrado con id: " + id));
 
-        if (!existingNutriente.getUser().equals(currentUser)) {
+        if (!existingNutriente.getUser().getId().equals(currentUserContext.getId())) {
             throw new AccessDeniedException("No tienes permiso para actualizar este nutriente");
         }
 
         Nutriente updatedNutriente = DtoMapper.nutrienteDtoToNutriente(dto, existingNutriente);
-        updatedNutriente.setUser(currentUser); // Ensure the user is not changed
+        updatedNutriente.setUser(existingNutriente.getUser()); // Ensure the user is not changed
         updatedNutriente = nutrienteRepository.save(updatedNutriente);
         log.info("\n\n✨ Nutriente con ID: {} actualizado.", updatedNutriente.getId());
         return DtoMapper.nutrienteToNutrienteDto(updatedNutriente);
@@ -106,13 +90,11 @@ public class NutrienteService {
     @Transactional
     public void deleteNutriente(Long id) {
         log.info("\n\n🗑️ Eliminando nutriente con ID: {}", id);
-        User currentUser = getCurrentUser();
         Nutriente nutriente = nutrienteRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Nutriente no encontrado con id: " + id));
 
-        if (!nutriente.getUser().equals(currentUser) &&
-            currentUser.getRol() != AppRole.ROLE_ADMIN &&
-            currentUser.getRol() != AppRole.ROLE_SUPER_ADMIN) {
+        if (!nutriente.getUser().getId().equals(currentUserContext.getId()) &&
+            !currentUserContext.isAdmin()) {
             throw new AccessDeniedException("No tienes permiso para eliminar este nutriente");
         }
 
@@ -0,0 +1,113 @@
+package DeltaFlores.web.service;
+
+import DeltaFlores.web.entities.MediaVariant;
+import DeltaFlores.web.entities.NoteEvent;
+import DeltaFlores.web.entities.PlantEvent;
+import DeltaFlores.web.repository.PlantEventRepository;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Borra en segundo plano los eventos que quedaron sin plantas al eliminar la última planta a la que estaban asociados
+ * (PlantaService los marca con orphaned_at). Los eventos creados sin plantas a propósito no se tocan.
+ * Trabaja por lotes acotados, cada uno en su propia transacción corta: toma los eventos con SKIP LOCKED,
+ * encola sus archivos en MediaDeletionQueue y los borra, así nunca bloquea plant_events por mucho tiempo.
+ */
+@Service
+@Log4j2
+public class OrphanPlantEventCollector {
+
+    private record BatchResult(int deleted, long lastId) {
+    }
+
+    private final PlantEventRepository plantEventRepository;
+    private final MediaDeletionQueue mediaDeletionQueue;
+    private final MediaUrlSigner mediaUrlSigner;
+    private final ObjectProvider<MediaCacheService> mediaCacheService;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${plant-events.gc.enabled:true}")
+    private boolean enabled;
+
+    @Value("${plant-events.gc.batch-size:100}")
+    private int batchSize;
+
+    // Tope por pasada: lo que quede se sigue en la próxima
+    @Value("${plant-events.gc.max-batches-per-run:100}")
+    private int maxBatchesPerRun;
+
+    public OrphanPlantEventCollector(PlantEventRepository plantEventRepository,
+                                     MediaDeletionQueue mediaDeletionQueue,
+                                     MediaUrlSigner mediaUrlSigner,
+                                     ObjectProvider<MediaCacheService> mediaCacheService,
+                                     TransactionTemplate transactionTemplate) {
+        this.plantEventRepository = plantEventRepository;
+        this.mediaDeletionQueue = mediaDeletionQueue;
+        this.mediaUrlSigner = mediaUrlSigner;
+        this.mediaCacheService = mediaCacheService;
+        this.transactionTemplate = transactionTemplate;
+    }
+
+    @Scheduled(fixedDelayString = "${plant-events.gc.interval-ms:3600000}", initialDelayString = "${plant-events.gc.initial-delay-ms:120000}")
+    public void collect() {
+        if (!enabled) {
+            return;
+        }
+        long afterId = 0;
+        int total = 0;
+        try {
+            for (int batch = 0; batch < maxBatchesPerRun; batch++) {
+                long from = afterId;
+                BatchResult result = transactionTemplate.execute(status -> collectBatch(from));
+                if (result == null || result.lastId() == from) {
+                    break;
+                }
+                total += result.deleted();
+                afterId = result.lastId();
+                if (result.deleted() < batchSize) {
+                    break;
+                }
+            }
+        } catch (RuntimeException e) {
+            log.error("\n\n❌ Error al borrar eventos sin plantas: {}", e.getMessage(), e);
+        }
+        if (total > 0) {
+            log.info("\n\n🧹 {} evento(s) sin plantas eliminados.", total);
+        }
+    }
+
+    private BatchResult collectBatch(long afterId) {
+        List<Long> ids = plantEventRepository.lockOrphanEventIds(afterId, batchSize);
+        if (ids.isEmpty()) {
+            return new BatchResult(0, afterId);
+        }
+        List<PlantEvent> events = plantEventRepository.findAllById(ids);
+
+        // Los archivos se encolan en la misma transacción: si el borrado se revierte, no se borra nada
+        List<String> fileUrls = new ArrayList<>();
+        for (PlantEvent event : events) {
+            if (event instanceof NoteEvent noteEvent) {
+                if (noteEvent.getMediaUrls() != null) {
+                    fileUrls.addAll(noteEvent.getMediaUrls());
+                }
+                for (MediaVariant variant : noteEvent.getMediaVariants()) {
+                    fileUrls.add(variant.getUrl());
+                }
+            }
+        }
+        fileUrls.forEach(mediaUrlSigner::evict);
+        mediaCacheService.ifAvailable(cache -> fileUrls.forEach(cache::evictUrl));
+        mediaDeletionQueue.enqueue(fileUrls);
+
+        // Uno por uno (no deleteAllInBatch) para que Hibernate borre también las colecciones de cada nota
+        plantEventRepository.deleteAll(events);
+        return new BatchResult(ids.size(), ids.get(ids.size() - 1));
+    }
+}
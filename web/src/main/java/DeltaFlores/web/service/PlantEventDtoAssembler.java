@@ -0,0 +1,93 @@
+package DeltaFlores.web.service;
+
+import DeltaFlores.web.dto.PlantEventDto;
+import DeltaFlores.web.dto.SliceDto;
+import DeltaFlores.web.entities.MediaVariant;
+import DeltaFlores.web.entities.MediaVariantType;
+import DeltaFlores.web.entities.NoteEvent;
+import DeltaFlores.web.entities.PlantEvent;
+import DeltaFlores.web.repository.NoteEventRepository;
+import DeltaFlores.web.repository.PlantEventRepository;
+import DeltaFlores.web.utils.DtoMapper;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Slice;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Arma los DTOs de una lista de eventos cargando los plantaIds de todos juntos: una consulta a plants_has_events
+ * por cada tanda de CHUNK_SIZE eventos, en lugar de inicializar la colección plantas de cada evento (una consulta por evento).
+ * Las variantes de los eventos de nota se cargan igual, desde note_event_media_variants.
+ * Lo usan los siete servicios de eventos y la línea de tiempo de PlantEventService.
+ */
+@Component
+@RequiredArgsConstructor
+public class PlantEventDtoAssembler {
+
+    // Tope de IDs por consulta, para no armar IN (...) gigantes
+    private static final int CHUNK_SIZE = 1000;
+
+    private final PlantEventRepository plantEventRepository;
+    private final NoteEventRepository noteEventRepository;
+
+    public <D extends PlantEventDto> List<D> toDtos(List<? extends PlantEvent> events, Class<D> dtoType) {
+        Map<Long, List<Long>> plantaIds = loadPlantaIds(events.stream().map(PlantEvent::getId).toList());
+        Map<Long, List<MediaVariant>> mediaVariants = loadMediaVariants(events.stream()
+                .filter(event -> event instanceof NoteEvent).map(PlantEvent::getId).toList());
+        List<D> dtos = new ArrayList<>(events.size());
+        for (PlantEvent event : events) {
+            // Un evento de nota que no está en el mapa no tiene variantes; nunca se cae a la colección lazy
+            List<MediaVariant> variants = event instanceof NoteEvent ? mediaVariants.getOrDefault(event.getId(), List.of()) : null;
+            dtos.add(dtoType.cast(DtoMapper.plantEventToPlantEventDto(event, plantaIds.get(event.getId()), variants)));
+        }
+        return dtos;
+    }
+
+    public <D extends PlantEventDto> SliceDto<D> toSliceDto(Slice<? extends PlantEvent> slice, Class<D> dtoType) {
+        SliceDto<D> sliceDto = new SliceDto<>();
+        sliceDto.setContent(toDtos(slice.getContent(), dtoType));
+        sliceDto.setPage(slice.getNumber());
+        sliceDto.setSize(slice.getSize());
+        sliceDto.setHasNext(slice.hasNext());
+        return sliceDto;
+    }
+
+    /**
+     * @return IDs de plantas por ID de evento; los eventos sin plantas no aparecen en el mapa.
+     */
+    public Map<Long, List<Long>> loadPlantaIds(Collection<Long> eventIds) {
+        Map<Long, List<Long>> plantaIds = new HashMap<>();
+        List<Long> ids = new ArrayList<>(eventIds);
+        for (int from = 0; from < ids.size(); from += CHUNK_SIZE) {
+            List<Long> chunk = ids.subList(from, Math.min(from + CHUNK_SIZE, ids.size()));
+            for (Object[] row : plantEventRepository.findPlantaIdsByEventIds(chunk)) {
+                plantaIds.computeIfAbsent(((Number) row[0]).longValue(), id -> new ArrayList<>())
+                        .add(((Number) row[1]).longValue());
+            }
+        }
+        return plantaIds;
+    }
+
+    /**
+     * @return Variantes por ID de evento de nota; los eventos sin variantes no aparecen en el mapa.
+     */
+    public Map<Long, List<MediaVariant>> loadMediaVariants(Collection<Long> noteEventIds) {
+        Map<Long, List<MediaVariant>> mediaVariants = new HashMap<>();
+        List<Long> ids = new ArrayList<>(noteEventIds);
+        for (int from = 0; from < ids.size(); from += CHUNK_SIZE) {
+            List<Long> chunk = ids.subList(from, Math.min(from + CHUNK_SIZE, ids.size()));
+            for (Object[] row : noteEventRepository.findMediaVariantsByEventIds(chunk)) {
+                MediaVariant variant = new MediaVariant((String) row[1], MediaVariantType.valueOf((String) row[2]), (String) row[3],
+                        row[4] != null ? ((Number) row[4]).intValue() : null,
+                        row[5] != null ? ((Number) row[5]).intValue() : null);
+                mediaVariants.computeIfAbsent(((Number) row[0]).longValue(), id -> new ArrayList<>()).add(variant);
+            }
+        }
+        return mediaVariants;
+    }
+}
@@ -1,30 +1,47 @@
 package DeltaFlores.web.service;
 
 import DeltaFlores.web.dto.PlantEventDto;
+import DeltaFlores.web.dto.PlantEventPageDto;
 import DeltaFlores.web.dto.StageChangeEventDto;
-import DeltaFlores.web.entities.Planta;
-import DeltaFlores.web.entities.PlantEvent;
-import DeltaFlores.web.entities.StageChangeEvent;
+import DeltaFlores.web.entities.*;
 import DeltaFlores.web.exception.ResourceNotFoundException;
 import DeltaFlores.web.repository.PlantEventRepository;
 import DeltaFlores.web.repository.PlantaRepository;
-import DeltaFlores.web.utils.DtoMapper;
+import DeltaFlores.web.utils.KeysetCursor;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.log4j.Log4j2;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Map;
 
 @Log4j2
 @Service
 @RequiredArgsConstructor
 public class PlantEventService {
 
+    public static final int DEFAULT_TIMELINE_PAGE_SIZE = 50;
+    public static final int MAX_TIMELINE_PAGE_SIZE = 200;
+
+    // Valores del discriminador event_type y la subclase que los persiste.
+    private static final Map<String, Class<? extends PlantEvent>> EVENT_TYPES = Map.of(
+            "NOTE", NoteEvent.class,
+            "WATERING", WateringEvent.class,
+            "PRUNING", PruningEvent.class,
+            "DEFOLIATION", DefoliationEvent.class,
+            "NUTRIENT", NutrientEvent.class,
+            "STAGE_CHANGE", StageChangeEvent.class,
+            "MEASUREMENT", MeasurementEvent.class);
+
     private final PlantEventRepository plantEventRepository;
     private final PlantaRepository plantaRepository;
-    private final MinioFileStorageService fileStorageService; // Keep this injected for future use or other methods
+    private final PlantEventDtoAssembler plantEventDtoAssembler;
+    private final FileStorageService fileStorageService; // Keep this injected for future use or other methods
 
 
 
@@ -36,8 +53,80 @@ public class PlantEventService {
         }
         List<PlantEvent> events = plantEventRepository.findByPlantasIdOrderByFechaAsc(plantaId);
         log.info("\n\n\u2728 {} eventos encontrados para la planta ID: {}.", events.size(), plantaId);
-        return events.stream()
-                .map(DtoMapper::plantEventToPlantEventDto)
-                .collect(Collectors.toList());
+        return plantEventDtoAssembler.toDtos(events, PlantEventDto.class);
+    }
+
+    /**
+     * Devuelve una página de la línea de tiempo de una planta usando paginación por keyset
+     * sobre (fecha, id), de modo que el costo de cada página no depende de la profundidad del historial.
+     * Los eventos sin fecha van al final; en el cursor su fecha queda vacía.
+     *
+     * @param plantaId  ID de la planta
+     * @param cursor    cursor opaco devuelto por la página anterior, o null para la primera página
+     * @param size      cantidad de eventos por página
+     * @param eventType valor opcional del discriminador (NOTE, WATERING, ...) para filtrar
+     */
+    @Transactional(readOnly = true)
+    public PlantEventPageDto getEventTimelineForPlanta(Long plantaId, String cursor, Integer size, String eventType) {
+        log.info("\n\n\uD83D\uDD0E Obteniendo línea de tiempo para la planta ID: {} (cursor: {}, tipo: {})", plantaId, cursor, eventType);
+        if (!plantaRepository.existsById(plantaId)) {
+            throw new ResourceNotFoundException("Planta no encontrada con id: " + plantaId);
+        }
+        int pageSize = resolvePageSize(size);
+        Collection<Class<? extends PlantEvent>> types = resolveEventTypes(eventType);
+        // Se pide un elemento extra para saber si existe una página siguiente sin hacer un COUNT.
+        Pageable limit = PageRequest.of(0, pageSize + 1);
+
+        List<PlantEvent> events;
+        if (cursor == null || cursor.isBlank()) {
+            events = plantEventRepository.findTimelineFirstPage(plantaId, types, limit);
+        } else {
+            String[] position = KeysetCursor.decode(cursor, 2);
+            LocalDate fecha;
+            Long id;
+            try {
+                fecha = position[0].isEmpty() ? null : LocalDate.parse(position[0]);
+                id = Long.valueOf(position[1]);
+            } catch (RuntimeException e) {
+                throw new IllegalArgumentException("Cursor inválido: " + cursor, e);
+            }
+            events = fecha != null
+                    ? plantEventRepository.findTimelinePageAfter(plantaId, types, fecha, id, limit)
+                    : plantEventRepository.findUndatedTimelinePageAfter(plantaId, types, id, limit);
+        }
+
+        boolean hasMore = events.size() > pageSize;
+        if (hasMore) {
+            events = events.subList(0, pageSize);
+        }
+        String nextCursor = null;
+        if (hasMore) {
+            PlantEvent last = events.get(events.size() - 1);
+            nextCursor = KeysetCursor.encode(last.getFecha() != null ? last.getFecha() : "", last.getId());
+        }
+        log.info("\n\n\u2728 {} eventos en la página para la planta ID: {} (hay más: {}).", events.size(), plantaId, hasMore);
+        List<PlantEventDto> dtos = plantEventDtoAssembler.toDtos(events, PlantEventDto.class);
+        return new PlantEventPageDto(dtos, nextCursor, hasMore);
+    }
+
+    private int resolvePageSize(Integer size) {
+        if (size == null) {
+            return DEFAULT_TIMELINE_PAGE_SIZE;
+        }
+        if (size < 1) {
+            throw new IllegalArgumentException("El tamaño de página debe ser mayor a 0.");
+        }
+        return Math.min(size, MAX_TIMELINE_PAGE_SIZE);
+    }
+
+    private Collection<Class<? extends PlantEvent>> resolveEventTypes(String eventType) {
+        if (eventType == null || eventType.isBlank()) {
+            return EVENT_TYPES.values();
+        }
+        Class<? extends PlantEvent> type = EVENT_TYPES.get(eventType.trim().toUpperCase());
+        if (type == null) {
+            throw new IllegalArgumentException("Tipo de evento no soportado: " + eventType);
+        }
+        return List.of(type);
     }
-}
\ No newline at end of file
+}
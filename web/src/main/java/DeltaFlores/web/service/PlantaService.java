@@ -2,26 +2,32 @@ package DeltaFlores.web.service;
 
 import DeltaFlores.web.dto.PlantaDto;
 import DeltaFlores.web.dto.SalaDto;
+import DeltaFlores.web.dto.SliceDto;
 import DeltaFlores.web.entities.Cepa;
 import DeltaFlores.web.entities.Planta;
 import DeltaFlores.web.entities.Sala;
 import DeltaFlores.web.entities.User;
 import DeltaFlores.web.exception.ResourceNotFoundException;
 import DeltaFlores.web.repository.CepaRepository;
+import DeltaFlores.web.repository.PlantEventRepository;
 import DeltaFlores.web.repository.PlantaRepository;
 import DeltaFlores.web.repository.SalaRepository;
 import DeltaFlores.web.repository.UserRepository;
-import DeltaFlores.web.security.CustomUserDetails;
+import DeltaFlores.web.security.CurrentUserContext;
+import DeltaFlores.web.security.PlantaOwnershipAuthorizer;
 import DeltaFlores.web.utils.DtoMapper;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.log4j.Log4j2;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.security.access.AccessDeniedException;
-import org.springframework.security.core.Authentication;
-import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 @Log4j2
@@ -30,95 +36,103 @@ import java.util.stream.Collectors;
 public class PlantaService {
 
     private final PlantaRepository plantaRepository;
+    private final PlantEventRepository plantEventRepository;
     private final UserRepository userRepository;
     private final SalaService salaService;
     private final CepaRepository cepaRepository;
     private final SalaRepository salaRepository;
+    private final PlantaOwnershipAuthorizer plantaOwnershipAuthorizer;
+    private final CurrentUserContext currentUserContext;
 
     // --- Security & Helper Methods ---
 
-    private Authentication getAuthentication() {
-        return SecurityContextHolder.getContext().getAuthentication();
-    }
-
-    private User getCurrentUser() {
-        CustomUserDetails userDetails = (CustomUserDetails) getAuthentication().getPrincipal();
-        return userRepository.findById(userDetails.getId())
-                .orElseThrow(() -> new ResourceNotFoundException("Usuario no encontrado en el contexto de seguridad"));
-    }
-
     private void checkOwnership(Planta planta) {
-        Authentication authentication = getAuthentication();
-        User currentUser = getCurrentUser();
-
-        boolean isAdmin = authentication.getAuthorities().stream()
-                .anyMatch(role -> role.getAuthority().equals("ROLE_ADMIN") || role.getAuthority().equals("ROLE_SUPER_ADMIN"));
-
-        if (isAdmin) {
-            log.info("Acceso de administrador concedido para el usuario '{}' a la planta con ID: {}", currentUser.getUsername(), planta.getId());
+        if (currentUserContext.isAdmin()) {
+            log.info("Acceso de administrador concedido para el usuario '{}' a la planta con ID: {}", currentUserContext.getUsername(), planta.getId());
             return; // Skip ownership check
         }
 
-        if (!planta.getUser().getId().equals(currentUser.getId())) {
+        if (!planta.getUser().getId().equals(currentUserContext.getId())) {
             log.warn("ACCESO DENEGADO: El usuario '{}' (ID: {}) intentó acceder a la planta con ID: {}, que pertenece al usuario con ID: {}",
-                    currentUser.getUsername(), currentUser.getId(), planta.getId(), planta.getUser().getId());
+                    currentUserContext.getUsername(), currentUserContext.getId(), planta.getId(), planta.getUser().getId());
             throw new AccessDeniedException("No tiene permiso para acceder a esta planta.");
         }
     }
 
-    private boolean isAdmin(Authentication authentication) {
-        return authentication.getAuthorities().stream()
-                .anyMatch(role -> role.getAuthority().equals("ROLE_ADMIN") || role.getAuthority().equals("ROLE_SUPER_ADMIN"));
+    private static List<PlantaDto> toPlantaDtos(List<Object[]> summaryRows) {
+        return summaryRows.stream().map(DtoMapper::plantaSummaryRowToPlantaDto).collect(Collectors.toList());
+    }
+
+    /**
+     * Mapea una página cargada con el plan Planta.summary; los IDs de eventos de toda la página salen de una sola consulta.
+     */
+    private SliceDto<PlantaDto> toPlantaSliceDto(Slice<Planta> slice, Long totalEstimate) {
+        Map<Long, List<Long>> eventIds = new HashMap<>();
+        if (slice.hasContent()) {
+            List<Long> plantaIds = slice.getContent().stream().map(Planta::getId).toList();
+            for (Object[] row : plantaRepository.findEventIdsByPlantaIds(plantaIds)) {
+                eventIds.computeIfAbsent(((Number) row[0]).longValue(), id -> new ArrayList<>())
+                        .add(((Number) row[1]).longValue());
+            }
+        }
+        return DtoMapper.sliceToSliceDto(slice, planta -> DtoMapper.plantaToPlantaDto(planta, eventIds.get(planta.getId())),
+                totalEstimate);
     }
 
     // --- CRUD Methods ---
 
     @Transactional
     public PlantaDto createPlanta(PlantaDto plantaDto) {
-        User currentUser = getCurrentUser();
-        log.info("Usuario '{}' creando nueva planta: {}", currentUser.getUsername(), plantaDto.getNombre());
+        log.info("Usuario '{}' creando nueva planta: {}", currentUserContext.getUsername(), plantaDto.getNombre());
 
         // Fetch Cepa and check authorization
         Cepa cepa = cepaRepository.findById(plantaDto.getCepaId())
                 .orElseThrow(() -> new ResourceNotFoundException("Cepa no encontrada con id: " + plantaDto.getCepaId()));
         
-        boolean isOwner = cepa.getUser().getId().equals(currentUser.getId());
-        boolean isAdmin = currentUser.getAuthorities().stream()
-                .anyMatch(role -> role.getAuthority().equals("ROLE_ADMIN") || role.getAuthority().equals("ROLE_SUPER_ADMIN"));
+        boolean isOwner = cepa.getUser().getId().equals(currentUserContext.getId());
+        boolean isAdmin = currentUserContext.isAdmin();
 
         if (!isOwner && !isAdmin) {
             log.warn("ACCESO DENEGADO: El usuario '{}' intentó crear una planta usando la cepa con ID: {}, que no le pertenece.",
-                    currentUser.getUsername(), cepa.getId());
+                    currentUserContext.getUsername(), cepa.getId());
             throw new AccessDeniedException("No tienes permiso para usar esta cepa. Solo los dueños o administradores pueden hacerlo.");
         }
 
         // Fetch Sala and check ownership
         Sala sala = salaRepository.findById(plantaDto.getSalaId())
                 .orElseThrow(() -> new ResourceNotFoundException("Sala no encontrada con id: " + plantaDto.getSalaId()));
-        if (!sala.getUser().getId().equals(currentUser.getId()) && !isAdmin(getAuthentication())) {
+        if (!sala.getUser().getId().equals(currentUserContext.getId()) && !isAdmin) {
              throw new AccessDeniedException("No tiene permiso para asignar una planta a esta sala.");
         }
 
 
         Planta planta = DtoMapper.plantaDtoToPlanta(new Planta(), plantaDto, cepa, sala);
-        planta.setUser(currentUser); // Set owner
+        planta.setUser(currentUserContext.getUserReference()); // Set owner
 
         Planta savedPlanta = plantaRepository.save(planta);
-        log.info("Planta {} creada con ID: {} para el usuario '{}'", savedPlanta.getNombre(), savedPlanta.getId(), currentUser.getUsername());
+        log.info("Planta {} creada con ID: {} para el usuario '{}'", savedPlanta.getNombre(), savedPlanta.getId(), currentUserContext.getUsername());
         return DtoMapper.plantaToPlantaDto(savedPlanta);
     }
 
     @Transactional(readOnly = true)
     public List<PlantaDto> getAllPlantas() {
-        Authentication authentication = getAuthentication();
-        User currentUser = getCurrentUser();
+        if (currentUserContext.isAdmin()) {
+            log.info("Usuario admin '{}' obteniendo todas las plantas del sistema.", currentUserContext.getUsername());
+            return toPlantaDtos(plantaRepository.findAllSummaries());
+        } else {
+            log.info("Obteniendo todas las plantas para el usuario '{}'", currentUserContext.getUsername());
+            return toPlantaDtos(plantaRepository.findSummariesByUserId(currentUserContext.getId()));
+        }
+    }
 
-        if (isAdmin(authentication)) {
-            log.info("Usuario admin '{}' obteniendo todas las plantas del sistema.", currentUser.getUsername());
-            return plantaRepository.findAll().stream().map(DtoMapper::plantaToPlantaDto).collect(Collectors.toList());
+    @Transactional(readOnly = true)
+    public SliceDto<PlantaDto> getPlantasPage(Pageable pageable) {
+        if (currentUserContext.isAdmin()) {
+            log.info("Usuario admin '{}' obteniendo la página {} de plantas del sistema.", currentUserContext.getUsername(), pageable.getPageNumber());
+            return toPlantaSliceDto(plantaRepository.findAllBy(pageable), plantaRepository.estimateCount());
         } else {
-            log.info("Obteniendo todas las plantas para el usuario '{}'", currentUser.getUsername());
-            return plantaRepository.findByUserId(currentUser.getId()).stream().map(DtoMapper::plantaToPlantaDto).collect(Collectors.toList());
+            log.info("Obteniendo la página {} de plantas para el usuario '{}'", pageable.getPageNumber(), currentUserContext.getUsername());
+            return toPlantaSliceDto(plantaRepository.findByUserId(currentUserContext.getId(), pageable), null);
         }
     }
 
@@ -138,8 +152,11 @@ public class PlantaService {
         Planta planta = plantaRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Planta no encontrada con id: " + id));
         checkOwnership(planta);
+        // Los eventos que solo tenía esta planta quedan para OrphanPlantEventCollector
+        int orphaned = plantEventRepository.markOrphanedByPlantaDeletion(id);
         plantaRepository.deleteById(id);
-        log.info("Planta con ID: {} eliminada con éxito.", id);
+        plantaOwnershipAuthorizer.evict(id);
+        log.info("Planta con ID: {} eliminada con éxito ({} evento(s) quedan sin plantas).", id, orphaned);
     }
 
     @Transactional
@@ -153,20 +170,19 @@ public class PlantaService {
         Cepa cepa = cepaRepository.findById(plantaDto.getCepaId())
                 .orElseThrow(() -> new ResourceNotFoundException("Cepa no encontrada con id: " + plantaDto.getCepaId()));
         
-        User currentUser = getCurrentUser();
-        boolean isOwner = cepa.getUser().getId().equals(currentUser.getId());
-        boolean isAdmin = isAdmin(getAuthentication());
+        boolean isOwner = cepa.getUser().getId().equals(currentUserContext.getId());
+        boolean isAdmin = currentUserContext.isAdmin();
 
         if (!isOwner && !isAdmin) {
             log.warn("ACCESO DENEGADO: El usuario '{}' intentó actualizar una planta usando la cepa con ID: {}, que no le pertenece.",
-                    currentUser.getUsername(), cepa.getId());
+                    currentUserContext.getUsername(), cepa.getId());
             throw new AccessDeniedException("No tienes permiso para usar esta cepa.");
         }
 
         // Fetch Sala and check ownership
         Sala sala = salaRepository.findById(plantaDto.getSalaId())
                 .orElseThrow(() -> new ResourceNotFoundException("Sala no encontrada con id: " + plantaDto.getSalaId()));
-        if (!sala.getUser().getId().equals(currentUser.getId()) && !isAdmin) {
+        if (!sala.getUser().getId().equals(currentUserContext.getId()) && !isAdmin) {
              throw new AccessDeniedException("No tiene permiso para asignar una planta a esta sala.");
         }
 
@@ -182,38 +198,33 @@ public class PlantaService {
 
     @Transactional(readOnly = true)
     public List<PlantaDto> buscarPlantasPorPalabraClave(String palabraClave) {
-        Authentication authentication = getAuthentication();
-        User currentUser = getCurrentUser();
-        List<Planta> plantas;
+        List<PlantaDto> plantas;
 
-        if (isAdmin(authentication)) {
+        // Coincidencia parcial sobre nombre, resuelta por el índice de trigramas (ver SearchService)
+        String pattern = SearchService.containsPattern(palabraClave.strip());
+        if (currentUserContext.isAdmin()) {
             log.info("Admin buscando todas las plantas por palabra clave: {}", palabraClave);
-            plantas = plantaRepository.findByNombre(palabraClave);
+            plantas = toPlantaDtos(plantaRepository.findSummariesByNombreLike(pattern, null));
         } else {
-            log.info("Usuario '{}' buscando sus plantas por palabra clave: {}", currentUser.getUsername(), palabraClave);
-            // This is not optimal. A custom query would be better.
-            // For now, filter in memory.
-            List<Planta> userPlantas = plantaRepository.findByUserId(currentUser.getId());
-            plantas = userPlantas.stream()
-                .filter(p -> p.getNombre().toLowerCase().contains(palabraClave.toLowerCase()))
-                .collect(Collectors.toList());
+            log.info("Usuario '{}' buscando sus plantas por palabra clave: {}", currentUserContext.getUsername(), palabraClave);
+            plantas = toPlantaDtos(plantaRepository.findSummariesByNombreLike(pattern, currentUserContext.getId()));
         }
         
         log.info("{} plantas encontradas por palabra clave '{}'.", plantas.size(), palabraClave);
-        return plantas.stream().map(DtoMapper::plantaToPlantaDto).collect(Collectors.toList());
+        return plantas;
     }
 
     @Transactional(readOnly = true)
     public List<PlantaDto> plantasPorSala(Long salaId) {
         log.info("Buscando plantas por ID de sala: {}", salaId);
         // First, check if the user has access to the sala
-        salaService.getSalaById(salaId);
+        salaService.checkAccess(salaId);
         
         // If the above check passes, the user is either the owner or an admin, so it's safe to list the plants.
-        List<Planta> plantas = plantaRepository.findBySalaId(salaId);
+        List<PlantaDto> plantas = toPlantaDtos(plantaRepository.findSummariesBySalaId(salaId));
                 
                 log.info("{} plantas encontradas para sala ID: {}.", plantas.size(), salaId);
-                return plantas.stream().map(DtoMapper::plantaToPlantaDto).collect(Collectors.toList());
+                return plantas;
             }
         
                 @Transactional
@@ -231,6 +242,7 @@ public class PlantaService {
             
                     planta.setUser(newOwner);
                     Planta transferredPlanta = plantaRepository.save(planta);
+                    plantaOwnershipAuthorizer.evict(plantaId);
                     
                     return DtoMapper.plantaToPlantaDto(transferredPlanta);
                 }
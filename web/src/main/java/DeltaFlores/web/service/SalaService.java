@@ -1,22 +1,26 @@
 package DeltaFlores.web.service;
 
 import DeltaFlores.web.dto.SalaDto;
+import DeltaFlores.web.dto.SliceDto;
 import DeltaFlores.web.entities.Sala;
-import DeltaFlores.web.entities.User;
 import DeltaFlores.web.exception.ResourceNotFoundException;
+import DeltaFlores.web.repository.PlantaRepository;
 import DeltaFlores.web.repository.SalaRepository;
-import DeltaFlores.web.repository.UserRepository;
-import DeltaFlores.web.security.CustomUserDetails;
+import DeltaFlores.web.security.CurrentUserContext;
 import DeltaFlores.web.utils.DtoMapper;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.log4j.Log4j2;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.security.access.AccessDeniedException;
-import org.springframework.security.core.Authentication;
-import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 @Service
@@ -24,78 +28,70 @@ import java.util.stream.Collectors;
 @RequiredArgsConstructor
 public class SalaService {
 
-    private final SalaRepository salaRepository;
-    private final UserRepository userRepository;
-
-    private Authentication getAuthentication() {
-        return SecurityContextHolder.getContext().getAuthentication();
-    }
+    // Tope de IDs por consulta, para no armar IN (...) gigantes
+    private static final int ID_CHUNK_SIZE = 1000;
 
-    private User getCurrentUser() {
-        CustomUserDetails userDetails = (CustomUserDetails) getAuthentication().getPrincipal();
-        return userRepository.findById(userDetails.getId())
-                .orElseThrow(() -> new ResourceNotFoundException("Usuario no encontrado en el contexto de seguridad"));
-    }
+    private final SalaRepository salaRepository;
+    private final PlantaRepository plantaRepository;
+    private final CurrentUserContext currentUserContext;
 
     private void checkOwnership(Sala sala) {
-        Authentication authentication = getAuthentication();
-        User currentUser = getCurrentUser();
+        checkOwnership(sala.getId(), sala.getUser().getId());
+    }
 
+    private void checkOwnership(Long salaId, Long ownerId) {
         // Admin/Super_Admin can bypass the ownership check
-        boolean isAdmin = authentication.getAuthorities().stream()
-                .anyMatch(role -> role.getAuthority().equals("ROLE_ADMIN") || role.getAuthority().equals("ROLE_SUPER_ADMIN"));
-
-        if (isAdmin) {
-            log.info("Acceso de administrador concedido para el usuario '{}' a la sala con ID: {}", currentUser.getUsername(), sala.getId());
+        if (currentUserContext.isAdmin()) {
+            log.info("Acceso de administrador concedido para el usuario '{}' a la sala con ID: {}", currentUserContext.getUsername(), salaId);
             return; // Skip ownership check
         }
 
         // For non-admin users, enforce ownership
-        if (!sala.getUser().getId().equals(currentUser.getId())) {
+        if (!ownerId.equals(currentUserContext.getId())) {
             log.warn("ACCESO DENEGADO: El usuario '{}' (ID: {}) intentó acceder a la sala con ID: {}, que pertenece al usuario con ID: {}",
-                    currentUser.getUsername(), currentUser.getId(), sala.getId(), sala.getUser().getId());
+                    currentUserContext.getUsername(), currentUserContext.getId(), salaId, ownerId);
             throw new AccessDeniedException("No tiene permiso para acceder a esta sala.");
         }
     }
 
     @Transactional
     public SalaDto createSala(SalaDto salaDto) {
-        User currentUser = getCurrentUser();
-        log.info("Usuario '{}' (ID: {}) está creando una nueva sala: {}", currentUser.getUsername(), currentUser.getId(), salaDto.getNombre());
+        log.info("Usuario '{}' (ID: {}) está creando una nueva sala: {}", currentUserContext.getUsername(), currentUserContext.getId(), salaDto.getNombre());
         
         Sala sala = DtoMapper.salaDtoToSala(salaDto, new Sala());
-        sala.setUser(currentUser); // Assign owner
+        sala.setUser(currentUserContext.getUserReference()); // Assign owner
         
         Sala savedSala = salaRepository.save(sala);
-        log.info("Sala {} creada con ID: {} para el usuario '{}'", savedSala.getNombre(), savedSala.getId(), currentUser.getUsername());
+        log.info("Sala {} creada con ID: {} para el usuario '{}'", savedSala.getNombre(), savedSala.getId(), currentUserContext.getUsername());
         return DtoMapper.salaToSalaDto(savedSala);
     }
 
     @Transactional(readOnly = true)
     public List<SalaDto> getAllSalas() {
-        Authentication authentication = getAuthentication();
-        User currentUser = getCurrentUser();
-
-        boolean isAdmin = authentication.getAuthorities().stream()
-                .anyMatch(role -> role.getAuthority().equals("ROLE_ADMIN") || role.getAuthority().equals("ROLE_SUPER_ADMIN"));
+        if (currentUserContext.isAdmin()) {
+            log.info("Usuario admin '{}' obteniendo todas las salas del sistema.", currentUserContext.getUsername());
+            return toSalaDtos(salaRepository.findAll());
+        } else {
+            log.info("Obteniendo todas las salas para el usuario '{}' (ID: {})", currentUserContext.getUsername(), currentUserContext.getId());
+            return toSalaDtos(salaRepository.findByUserId(currentUserContext.getId()));
+        }
+    }
 
-        if (isAdmin) {
-            log.info("Usuario admin '{}' obteniendo todas las salas del sistema.", currentUser.getUsername());
-            return salaRepository.findAll().stream()
-                    .map(DtoMapper::salaToSalaDto)
-                    .collect(Collectors.toList());
+    @Transactional(readOnly = true)
+    public SliceDto<SalaDto> getSalasPage(Pageable pageable) {
+        if (currentUserContext.isAdmin()) {
+            log.info("Usuario admin '{}' obteniendo la página {} de salas del sistema.", currentUserContext.getUsername(), pageable.getPageNumber());
+            return toSalaSliceDto(salaRepository.findAllBy(pageable), salaRepository.estimateCount());
         } else {
-            log.info("Obteniendo todas las salas para el usuario '{}' (ID: {})", currentUser.getUsername(), currentUser.getId());
-            return salaRepository.findByUserId(currentUser.getId()).stream()
-                    .map(DtoMapper::salaToSalaDto)
-                    .collect(Collectors.toList());
+            log.info("Obteniendo la página {} de salas para el usuario '{}' (ID: {})", pageable.getPageNumber(), currentUserContext.getUsername(), currentUserContext.getId());
+            return toSalaSliceDto(salaRepository.findByUserId(currentUserContext.getId(), pageable), null);
         }
     }
 
     @Transactional(readOnly = true)
     public SalaDto getSalaById(Long id) {
         log.info("Buscando sala con ID: {}", id);
-        Sala sala = salaRepository.findById(id)
+        Sala sala = salaRepository.findDetailById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Sala no encontrada con id: " + id));
         
         checkOwnership(sala); // Verify ownership or admin access
@@ -104,6 +100,45 @@ public class SalaService {
         return DtoMapper.salaToSalaDto(sala);
     }
 
+    /**
+     * Solo verifica que la sala exista y que el usuario actual tenga acceso, sin mapearla
+     * (salaToSalaDto cargaría todas las plantas solo para juntar sus IDs).
+     */
+    @Transactional(readOnly = true)
+    public void checkAccess(Long id) {
+        Long ownerId = salaRepository.findOwnerIdById(id)
+                .orElseThrow(() -> new ResourceNotFoundException("Sala no encontrada con id: " + id));
+        checkOwnership(id, ownerId);
+    }
+
+    /**
+     * Mapea una lista de salas cargando los plantaIds de todas juntas, en lugar de inicializar cada Sala.plantas.
+     */
+    public List<SalaDto> toSalaDtos(List<Sala> salas) {
+        Map<Long, Set<Long>> plantaIds = loadPlantaIds(salas);
+        return salas.stream()
+                .map(sala -> DtoMapper.salaToSalaDto(sala, plantaIds.getOrDefault(sala.getId(), new HashSet<>())))
+                .collect(Collectors.toList());
+    }
+
+    private SliceDto<SalaDto> toSalaSliceDto(Slice<Sala> slice, Long totalEstimate) {
+        Map<Long, Set<Long>> plantaIds = loadPlantaIds(slice.getContent());
+        return DtoMapper.sliceToSliceDto(slice,
+                sala -> DtoMapper.salaToSalaDto(sala, plantaIds.getOrDefault(sala.getId(), new HashSet<>())), totalEstimate);
+    }
+
+    private Map<Long, Set<Long>> loadPlantaIds(List<Sala> salas) {
+        List<Long> salaIds = salas.stream().map(Sala::getId).toList();
+        Map<Long, Set<Long>> plantaIds = new HashMap<>();
+        for (int from = 0; from < salaIds.size(); from += ID_CHUNK_SIZE) {
+            List<Long> chunk = salaIds.subList(from, Math.min(from + ID_CHUNK_SIZE, salaIds.size()));
+            for (Object[] row : plantaRepository.findIdsBySalaIds(chunk)) {
+                plantaIds.computeIfAbsent((Long) row[0], salaId -> new HashSet<>()).add((Long) row[1]);
+            }
+        }
+        return plantaIds;
+    }
+
     @Transactional
     public SalaDto updateSala(Long id, SalaDto salaDto) {
         log.info("Actualizando sala con ID: {}", id);
@@ -0,0 +1,252 @@
+package DeltaFlores.web.service;
+
+import DeltaFlores.web.dto.NoteSearchHitDto;
+import DeltaFlores.web.dto.NoteSearchPageDto;
+import DeltaFlores.web.dto.SearchHitDto;
+import DeltaFlores.web.dto.SliceDto;
+import DeltaFlores.web.repository.CepaRepository;
+import DeltaFlores.web.repository.NoteEventRepository;
+import DeltaFlores.web.repository.PlantaRepository;
+import DeltaFlores.web.repository.UserRepository;
+import DeltaFlores.web.security.CurrentUserContext;
+import DeltaFlores.web.utils.KeysetCursor;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.access.AccessDeniedException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.util.HtmlUtils;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.Function;
+
+/**
+ * Búsqueda de plantas, cepas, usuarios y texto de notas sobre índices de Postgres: columnas tsvector generadas
+ * (con stemming en español) para el texto y índices GIN de pg_trgm para coincidencias parciales y errores de tipeo.
+ * Los growers solo ven sus plantas, cepas y notas; la búsqueda de usuarios es solo para administradores.
+ */
+@Service
+@Log4j2
+public class SearchService {
+
+    public static final int MAX_PAGE_SIZE = 100;
+    private static final int DEFAULT_NOTE_PAGE_SIZE = 20;
+    private static final int MAX_TERM_LENGTH = 200;
+
+    // ts_headline no escapa el texto: se marca con caracteres de control, se escapa el HTML y recién después se
+    // reemplazan por <mark>, así una nota con HTML no se inyecta en el cliente
+    private static final char START_SEL = '\u0002';
+    private static final char STOP_SEL = '\u0003';
+    private static final String HEADLINE_OPTIONS = "StartSel=\"" + START_SEL + "\", StopSel=\"" + STOP_SEL + "\", " +
+            "MaxWords=35, MinWords=15, MaxFragments=2, FragmentDelimiter=\" … \"";
+
+    // Hibernate (ddl-auto=update) no conoce estas columnas ni índices: se crean al arrancar y son idempotentes
+    private static final List<String> SEARCH_DDL = List.of(
+            "CREATE EXTENSION IF NOT EXISTS pg_trgm",
+            "ALTER TABLE plantas ADD COLUMN IF NOT EXISTS search_vector tsvector GENERATED ALWAYS AS " +
+                    "(to_tsvector('spanish', coalesce(nombre, '') || ' ' || coalesce(ubicacion, ''))) STORED",
+            "CREATE INDEX IF NOT EXISTS idx_plantas_search_vector ON plantas USING GIN (search_vector)",
+            "CREATE INDEX IF NOT EXISTS idx_plantas_nombre_trgm ON plantas USING GIN (nombre gin_trgm_ops)",
+            "ALTER TABLE cepas ADD COLUMN IF NOT EXISTS search_vector tsvector GENERATED ALWAYS AS " +
+                    "(to_tsvector('spanish', coalesce(genetica_parental, '') || ' ' || coalesce(dominancia, '') || ' ' || " +
+                    "coalesce(aroma_sabor, '') || ' ' || coalesce(detalle, ''))) STORED",
+            "CREATE INDEX IF NOT EXISTS idx_cepas_search_vector ON cepas USING GIN (search_vector)",
+            "CREATE INDEX IF NOT EXISTS idx_cepas_genetica_parental_trgm ON cepas USING GIN (genetica_parental gin_trgm_ops)",
+            "CREATE INDEX IF NOT EXISTS idx_users_nombre_trgm ON users USING GIN (nombre gin_trgm_ops)",
+            "CREATE INDEX IF NOT EXISTS idx_users_apellido_trgm ON users USING GIN (apellido gin_trgm_ops)",
+            "CREATE INDEX IF NOT EXISTS idx_users_username_trgm ON users USING GIN (username gin_trgm_ops)",
+            // Solo las notas tienen texto: índice parcial sobre la tabla compartida de eventos
+            "ALTER TABLE plant_events ADD COLUMN IF NOT EXISTS text_vector tsvector GENERATED ALWAYS AS " +
+                    "(to_tsvector('spanish', coalesce(text, ''))) STORED",
+            "CREATE INDEX IF NOT EXISTS idx_plant_events_text_vector ON plant_events USING GIN (text_vector) " +
+                    "WHERE event_type = 'NOTE'"
+    );
+
+    public enum SearchType {
+        PLANTAS, CEPAS, USERS
+    }
+
+    private final PlantaRepository plantaRepository;
+    private final CepaRepository cepaRepository;
+    private final UserRepository userRepository;
+    private final NoteEventRepository noteEventRepository;
+    private final CurrentUserContext currentUserContext;
+    private final JdbcTemplate jdbcTemplate;
+
+    public SearchService(PlantaRepository plantaRepository,
+                         CepaRepository cepaRepository,
+                         UserRepository userRepository,
+                         NoteEventRepository noteEventRepository,
+                         CurrentUserContext currentUserContext,
+                         JdbcTemplate jdbcTemplate) {
+        this.plantaRepository = plantaRepository;
+        this.cepaRepository = cepaRepository;
+        this.userRepository = userRepository;
+        this.noteEventRepository = noteEventRepository;
+        this.currentUserContext = currentUserContext;
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void createSearchIndexes() {
+        for (String ddl : SEARCH_DDL) {
+            try {
+                jdbcTemplate.execute(ddl);
+            } catch (RuntimeException e) {
+                // Sin pg_trgm (p. ej. sin permisos para crear extensiones) la búsqueda falla, pero la aplicación arranca
+                log.warn("\n\n⚠️ No se pudo crear un índice de búsqueda ({}): {}", ddl, e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Busca {@code term} en el tipo pedido, ordenado por relevancia. La página se arma con LIMIT/OFFSET
+     * pidiendo un resultado de más para saber si hay siguiente, sin COUNT.
+     */
+    @Transactional(readOnly = true)
+    public SliceDto<SearchHitDto> search(SearchType type, String term, int page, int size) {
+        String normalized = term == null ? "" : term.strip();
+        if (normalized.isEmpty()) {
+            throw new IllegalArgumentException("El término de búsqueda no puede estar vacío");
+        }
+        if (normalized.length() > MAX_TERM_LENGTH) {
+            normalized = normalized.substring(0, MAX_TERM_LENGTH);
+        }
+        int pageSize = Math.max(1, Math.min(size, MAX_PAGE_SIZE));
+        int pageNumber = Math.max(0, page);
+        long offset = (long) pageNumber * pageSize;
+        String pattern = containsPattern(normalized);
+        Long ownerId = currentUserContext.isAdmin() ? null : currentUserContext.getId();
+
+        log.info("\n\n🔎 Usuario '{}' buscando {} por '{}' (página {}).",
+                currentUserContext.getUsername(), type.name().toLowerCase(Locale.ROOT), normalized, pageNumber);
+        List<SearchHitDto> hits = switch (type) {
+            case PLANTAS -> toHits(plantaRepository.search(normalized, pattern, ownerId, pageSize + 1, offset),
+                    row -> new SearchHitDto("planta", toLong(row[0]), (String) row[1], (String) row[2], toDouble(row[3])));
+            case CEPAS -> toHits(cepaRepository.search(normalized, pattern, ownerId, pageSize + 1, offset),
+                    row -> new SearchHitDto("cepa", toLong(row[0]), (String) row[1], (String) row[2], toDouble(row[3])));
+            case USERS -> {
+                if (!currentUserContext.isAdmin()) {
+                    throw new AccessDeniedException("Solo los administradores pueden buscar usuarios.");
+                }
+                yield toHits(userRepository.search(normalized, pattern, pageSize + 1, offset),
+                        row -> new SearchHitDto("user", toLong(row[0]), (String) row[1], fullName(row[2], row[3]), toDouble(row[4])));
+            }
+        };
+
+        SliceDto<SearchHitDto> slice = new SliceDto<>();
+        slice.setHasNext(hits.size() > pageSize);
+        slice.setContent(hits.size() > pageSize ? new ArrayList<>(hits.subList(0, pageSize)) : hits);
+        slice.setPage(pageNumber);
+        slice.setSize(pageSize);
+        return slice;
+    }
+
+    /**
+     * Busca {@code term} en el texto de las notas, ordenado por relevancia y paginado por keyset sobre (rank, id).
+     * La columna text_vector es generada por Postgres, así que el índice se mantiene solo al crear, editar o
+     * borrar notas desde NoteEventService.
+     *
+     * @param cursor cursor opaco devuelto por la página anterior, o null para la primera página
+     * @param size   cantidad de resultados por página (por defecto 20, máximo 100)
+     */
+    @Transactional(readOnly = true)
+    public NoteSearchPageDto searchNotes(String term, String cursor, Integer size) {
+        String normalized = term == null ? "" : term.strip();
+        if (normalized.isEmpty()) {
+            throw new IllegalArgumentException("El término de búsqueda no puede estar vacío");
+        }
+        if (normalized.length() > MAX_TERM_LENGTH) {
+            normalized = normalized.substring(0, MAX_TERM_LENGTH);
+        }
+        if (size != null && size < 1) {
+            throw new IllegalArgumentException("El tamaño de página debe ser mayor a 0.");
+        }
+        int pageSize = size == null ? DEFAULT_NOTE_PAGE_SIZE : Math.min(size, MAX_PAGE_SIZE);
+
+        Float afterRank = null;
+        Long afterId = null;
+        if (cursor != null && !cursor.isBlank()) {
+            String[] position = KeysetCursor.decode(cursor, 2);
+            try {
+                afterRank = Float.valueOf(position[0]);
+                afterId = Long.valueOf(position[1]);
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Cursor inválido: " + cursor, e);
+            }
+        }
+        Long ownerId = currentUserContext.isAdmin() ? null : currentUserContext.getId();
+
+        log.info("\n\n🔎 Usuario '{}' buscando en notas por '{}' (cursor: {}).", currentUserContext.getUsername(), normalized, cursor);
+        // Se pide un elemento extra para saber si existe una página siguiente sin hacer un COUNT.
+        List<Object[]> rows = noteEventRepository.searchText(normalized, ownerId, afterRank, afterId, HEADLINE_OPTIONS, pageSize + 1);
+        boolean hasMore = rows.size() > pageSize;
+        if (hasMore) {
+            rows = rows.subList(0, pageSize);
+        }
+
+        List<NoteSearchHitDto> hits = new ArrayList<>(rows.size());
+        for (Object[] row : rows) {
+            hits.add(new NoteSearchHitDto(toLong(row[0]), toLocalDate(row[1]), highlight((String) row[3]),
+                    ((Number) row[2]).floatValue()));
+        }
+        String nextCursor = null;
+        if (hasMore) {
+            NoteSearchHitDto last = hits.get(hits.size() - 1);
+            nextCursor = KeysetCursor.encode(last.getScore(), last.getId());
+        }
+        log.info("\n\n✨ {} notas encontradas en la página (hay más: {}).", hits.size(), hasMore);
+        return new NoteSearchPageDto(hits, nextCursor, hasMore);
+    }
+
+    private static String highlight(String headline) {
+        if (headline == null) {
+            return null;
+        }
+        return HtmlUtils.htmlEscape(headline)
+                .replace(String.valueOf(START_SEL), "<mark>")
+                .replace(String.valueOf(STOP_SEL), "</mark>");
+    }
+
+    private static LocalDate toLocalDate(Object value) {
+        if (value instanceof Date date) {
+            return date.toLocalDate();
+        }
+        return (LocalDate) value;
+    }
+
+    /**
+     * Patrón ILIKE '%term%' con los comodines del usuario escapados (la consulta usa ESCAPE '\').
+     */
+    public static String containsPattern(String term) {
+        String escaped = term.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+        return "%" + escaped + "%";
+    }
+
+    private static List<SearchHitDto> toHits(List<Object[]> rows, Function<Object[], SearchHitDto> mapper) {
+        List<SearchHitDto> hits = new ArrayList<>(rows.size());
+        for (Object[] row : rows) {
+            hits.add(mapper.apply(row));
+        }
+        return hits;
+    }
+
+    private static String fullName(Object nombre, Object apellido) {
+        String full = ((nombre != null ? nombre : "") + " " + (apellido != null ? apellido : "")).strip();
+        return full.isEmpty() ? null : full;
+    }
+
+    private static Long toLong(Object value) {
+        return ((Number) value).longValue();
+    }
+
+    private static double toDouble(Object value) {
+        return value != null ? ((Number) value).doubleValue() : 0;
+    }
+}
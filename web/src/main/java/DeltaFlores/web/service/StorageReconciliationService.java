@@ -0,0 +1,411 @@
+package DeltaFlores.web.service;
+
+import DeltaFlores.web.dto.StorageReconciliationReportDto;
+import DeltaFlores.web.repository.MediaBlobRepository;
+import DeltaFlores.web.repository.MediaDeletionRepository;
+import DeltaFlores.web.repository.NoteEventRepository;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+/**
+ * Reconcilia el bucket con las referencias en base de datos sin cargar ninguno de los dos lados entero:
+ * recorre el listado del bucket y las referencias (mediaUrls, variantes, media_blobs y la cola de borrado)
+ * por páginas, ambos en orden binario, y los cruza con un merge-join.
+ * Un objeto sin referencias más viejo que el período de gracia es huérfano: se informa o se encola para borrar.
+ * Una URL de nota o variante cuyo objeto no existe se informa como colgante; nunca se modifica la nota.
+ * Las partes temporales de subidas interrumpidas (FileStorageService.UPLOAD_PART_PREFIX) se borran siempre.
+ */
+@Service
+@Log4j2
+public class StorageReconciliationService {
+
+    // Índices de expresión para que cada página de referencias sea un index scan en lugar de ordenar la tabla entera
+    private static final List<String> REFERENCE_INDEXES = List.of(
+            "CREATE INDEX IF NOT EXISTS idx_note_event_media_urls_object_name ON note_event_media_urls " +
+                    "((substring(media_urls FROM '[^/]+$') COLLATE \"C\"))",
+            "CREATE INDEX IF NOT EXISTS idx_note_event_media_variants_object_name ON note_event_media_variants " +
+                    "((substring(url FROM '[^/]+$') COLLATE \"C\"))",
+            "CREATE INDEX IF NOT EXISTS idx_media_blobs_object_key_binary ON media_blobs ((object_key COLLATE \"C\"))",
+            "CREATE INDEX IF NOT EXISTS idx_media_deletion_queue_object_name ON media_deletion_queue " +
+                    "((substring(file_url FROM '[^/]+$') COLLATE \"C\"))"
+    );
+
+    private final FileStorageService fileStorageService;
+    private final ObjectProvider<ContentAddressedFileStorageService> contentAddressedStorage;
+    private final ObjectProvider<MediaCacheService> mediaCacheService;
+    private final MediaDeletionQueue mediaDeletionQueue;
+    private final NoteEventRepository noteEventRepository;
+    private final MediaBlobRepository mediaBlobRepository;
+    private final MediaDeletionRepository mediaDeletionRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    @Value("${storage.reconciliation.page-size:1000}")
+    private int pageSize;
+
+    @Value("${storage.reconciliation.grace-period-hours:24}")
+    private long gracePeriodHours;
+
+    @Value("${storage.reconciliation.delete-orphans:false}")
+    private boolean deleteOrphansOnSchedule;
+
+    @Value("${storage.reconciliation.max-reported:100}")
+    private int maxReported;
+
+    public StorageReconciliationService(FileStorageService fileStorageService,
+                                        ObjectProvider<ContentAddressedFileStorageService> contentAddressedStorage,
+                                        ObjectProvider<MediaCacheService> mediaCacheService,
+                                        MediaDeletionQueue mediaDeletionQueue,
+                                        NoteEventRepository noteEventRepository,
+                                        MediaBlobRepository mediaBlobRepository,
+                                        MediaDeletionRepository mediaDeletionRepository,
+                                        JdbcTemplate jdbcTemplate) {
+        this.fileStorageService = fileStorageService;
+        this.contentAddressedStorage = contentAddressedStorage;
+        this.mediaCacheService = mediaCacheService;
+        this.mediaDeletionQueue = mediaDeletionQueue;
+        this.noteEventRepository = noteEventRepository;
+        this.mediaBlobRepository = mediaBlobRepository;
+        this.mediaDeletionRepository = mediaDeletionRepository;
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void createReferenceIndexes() {
+        for (String ddl : REFERENCE_INDEXES) {
+            try {
+                jdbcTemplate.execute(ddl);
+            } catch (RuntimeException e) {
+                log.warn("\n\n⚠️ No se pudo crear un índice de reconciliación ({}): {}", ddl, e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Pasada programada (storage.reconciliation.cron, deshabilitada por defecto).
+     */
+    @Scheduled(cron = "${storage.reconciliation.cron:-}")
+    public void scheduledReconcile() {
+        if (!supportsReconciliation()) {
+            log.warn("\n\n⚠️ Reconciliación programada omitida: el almacenamiento configurado no permite listar objetos.");
+            return;
+        }
+        try {
+            reconcile(deleteOrphansOnSchedule);
+        } catch (RuntimeException e) {
+            log.error("\n\n❌ Error en la reconciliación programada del almacenamiento: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Cruza el bucket con las referencias en base de datos.
+     * @param deleteOrphans si es false solo se informa.
+     * @throws IllegalStateException si ya hay una reconciliación en curso o el almacenamiento no permite listar objetos.
+     */
+    public StorageReconciliationReportDto reconcile(boolean deleteOrphans) {
+        if (!supportsReconciliation()) {
+            throw new IllegalStateException("El almacenamiento configurado no permite listar objetos");
+        }
+        if (!running.compareAndSet(false, true)) {
+            throw new IllegalStateException("Ya hay una reconciliación del almacenamiento en curso");
+        }
+        try {
+            return doReconcile(deleteOrphans);
+        } finally {
+            running.set(false);
+        }
+    }
+
+    public boolean supportsReconciliation() {
+        return fileStorageService.supportsListing();
+    }
+
+    private StorageReconciliationReportDto doReconcile(boolean deleteOrphans) {
+        StorageReconciliationReportDto report = new StorageReconciliationReportDto();
+        report.setStartedAt(Instant.now());
+        report.setDeleteOrphans(deleteOrphans);
+        Instant cutoff = report.getStartedAt().minus(Duration.ofHours(gracePeriodHours));
+        log.info("\n\n🔍 Reconciliación del almacenamiento iniciada (borrar huérfanos: {}).", deleteOrphans);
+
+        SortedCursor<FileStorageService.StoredObject> bucket =
+                new SortedCursor<>(fileStorageService::listObjects, FileStorageService.StoredObject::name, pageSize);
+        ReferenceCursor references = new ReferenceCursor(
+                new SortedCursor<>(noteEventRepository::findMediaObjectNamesAfter, Function.identity(), pageSize),
+                new SortedCursor<>(noteEventRepository::findVariantObjectNamesAfter, Function.identity(), pageSize),
+                new SortedCursor<>(mediaBlobRepository::findObjectNamesAfter, Function.identity(), pageSize),
+                new SortedCursor<>(mediaDeletionRepository::findObjectNamesAfter, Function.identity(), pageSize));
+        List<String> pendingDeletions = new ArrayList<>();
+
+        mergeJoin(bucket, references, new MergeVisitor() {
+            @Override
+            public void referenced(FileStorageService.StoredObject object) {
+                report.setReferencedObjects(report.getReferencedObjects() + 1);
+                countListed(report, object);
+            }
+
+            @Override
+            public void unreferenced(FileStorageService.StoredObject object) {
+                countListed(report, object);
+                handleUnreferenced(object, cutoff, deleteOrphans, report, pendingDeletions);
+                if (pendingDeletions.size() >= pageSize) {
+                    flushDeletions(pendingDeletions);
+                }
+            }
+
+            @Override
+            public void dangling(String objectName) {
+                handleDangling(objectName, report);
+            }
+        });
+        flushDeletions(pendingDeletions);
+
+        report.setFinishedAt(Instant.now());
+        log.info("\n\n✅ Reconciliación terminada: {} objetos listados, {} huérfanos ({} bytes, {} borrados), {} partes temporales borradas, {} referencias colgantes.",
+                report.getObjectsListed(), report.getOrphanObjects(), report.getOrphanBytes(),
+                report.getOrphansDeleted(), report.getStaleUploadParts(), report.getDanglingReferences());
+        return report;
+    }
+
+    /**
+     * Lo que el merge-join encuentra al cruzar el bucket con las referencias.
+     */
+    interface MergeVisitor {
+        void referenced(FileStorageService.StoredObject object);
+
+        void unreferenced(FileStorageService.StoredObject object);
+
+        /**
+         * Nombre referenciado por una nota o variante que no apareció en el listado.
+         */
+        void dangling(String objectName);
+    }
+
+    /**
+     * Avanza las dos secuencias ordenadas a la vez: cada objeto del bucket y cada nombre referenciado se visitan una vez.
+     */
+    static void mergeJoin(SortedCursor<FileStorageService.StoredObject> bucket, ReferenceCursor references, MergeVisitor visitor) {
+        FileStorageService.StoredObject object = bucket.peek();
+        Reference reference = references.peek();
+        while (object != null || reference != null) {
+            int comparison = object == null ? 1 : reference == null ? -1 : compareBinary(object.name(), reference.name());
+            if (comparison == 0) {
+                visitor.referenced(object);
+                bucket.advance();
+                references.advance();
+            } else if (comparison < 0) {
+                visitor.unreferenced(object);
+                bucket.advance();
+            } else {
+                if (reference.fromNote()) {
+                    visitor.dangling(reference.name());
+                }
+                references.advance();
+            }
+            object = bucket.peek();
+            reference = references.peek();
+        }
+    }
+
+    private void countListed(StorageReconciliationReportDto report, FileStorageService.StoredObject object) {
+        report.setObjectsListed(report.getObjectsListed() + 1);
+        report.setBytesListed(report.getBytesListed() + object.size());
+    }
+
+    private void handleUnreferenced(FileStorageService.StoredObject object, Instant cutoff, boolean deleteOrphans,
+                                    StorageReconciliationReportDto report, List<String> pendingDeletions) {
+        // Sin fecha o dentro del período de gracia puede ser una subida que todavía no se confirmó
+        if (object.lastModified() == null || object.lastModified().isAfter(cutoff)) {
+            report.setRecentUnreferenced(report.getRecentUnreferenced() + 1);
+            return;
+        }
+        if (object.name().startsWith(FileStorageService.UPLOAD_PART_PREFIX)) {
+            report.setStaleUploadParts(report.getStaleUploadParts() + 1);
+            pendingDeletions.add(fileStorageService.urlForObject(object.name()));
+            return;
+        }
+        report.setOrphanObjects(report.getOrphanObjects() + 1);
+        report.setOrphanBytes(report.getOrphanBytes() + object.size());
+        if (report.getOrphanSample().size() < maxReported) {
+            report.getOrphanSample().add(object.name());
+        }
+        if (!deleteOrphans) {
+            return;
+        }
+        ContentAddressedFileStorageService contentAddressed = contentAddressedStorage.getIfAvailable();
+        if (contentAddressed != null && object.name().startsWith(ContentAddressedFileStorageService.KEY_PREFIX)) {
+            // Un blob puede volver a referenciarse por deduplicación aunque sea viejo: se borra bajo el lock de su clave
+            try {
+                if (contentAddressed.purgeIfUnreferenced(object.name(), object.size())) {
+                    mediaCacheService.ifAvailable(cache -> cache.evict(object.name()));
+                    report.setOrphansDeleted(report.getOrphansDeleted() + 1);
+                }
+            } catch (RuntimeException e) {
+                log.error("\n\n❌ No se pudo borrar el blob huérfano {}: {}", object.name(), e.getMessage());
+            }
+            return;
+        }
+        pendingDeletions.add(fileStorageService.urlForObject(object.name()));
+        report.setOrphansDeleted(report.getOrphansDeleted() + 1);
+    }
+
+    /**
+     * El listado ya pasó por ese nombre, así que se vuelve a consultar el objeto por si se subió después.
+     */
+    private void handleDangling(String objectName, StorageReconciliationReportDto report) {
+        try {
+            if (fileStorageService.exists(objectName)) {
+                return;
+            }
+        } catch (RuntimeException e) {
+            log.warn("\n\n⚠️ No se pudo verificar si existe {}: {}", objectName, e.getMessage());
+            return;
+        }
+        report.setDanglingReferences(report.getDanglingReferences() + 1);
+        if (report.getDanglingSample().size() < maxReported) {
+            report.getDanglingSample().add(objectName);
+            log.warn("\n\n⚠️ Referencia colgante: {} está en una nota pero no existe en el almacenamiento.", objectName);
+        }
+    }
+
+    private void flushDeletions(List<String> pendingDeletions) {
+        if (pendingDeletions.isEmpty()) {
+            return;
+        }
+        mediaDeletionQueue.enqueue(pendingDeletions);
+        pendingDeletions.clear();
+    }
+
+    /**
+     * Orden por code point, equivalente al orden de bytes UTF-8 de S3/GCS y COLLATE "C" de Postgres.
+     * String.compareTo compara unidades UTF-16 y difiere fuera del plano básico.
+     */
+    static int compareBinary(String a, String b) {
+        int i = 0;
+        int j = 0;
+        while (i < a.length() && j < b.length()) {
+            int codePointA = a.codePointAt(i);
+            int codePointB = b.codePointAt(j);
+            if (codePointA != codePointB) {
+                return Integer.compare(codePointA, codePointB);
+            }
+            i += Character.charCount(codePointA);
+            j += Character.charCount(codePointB);
+        }
+        return Boolean.compare(i < a.length(), j < b.length());
+    }
+
+    record Reference(String name, boolean fromNote) {
+    }
+
+    /**
+     * Recorre por páginas (keyset sobre el último nombre) una fuente ordenada.
+     */
+    static final class SortedCursor<T> {
+        private final BiFunction<String, Integer, List<T>> loader;
+        private final Function<T, String> nameOf;
+        private final int pageSize;
+        private List<T> page = List.of();
+        private int index;
+        private String after = "";
+        private boolean exhausted;
+
+        SortedCursor(BiFunction<String, Integer, List<T>> loader, Function<T, String> nameOf, int pageSize) {
+            this.loader = loader;
+            this.nameOf = nameOf;
+            this.pageSize = pageSize;
+        }
+
+        T peek() {
+            if (index >= page.size()) {
+                if (exhausted) {
+                    return null;
+                }
+                page = loader.apply(after, pageSize);
+                index = 0;
+                exhausted = page.size() < pageSize;
+                if (page.isEmpty()) {
+                    return null;
+                }
+                after = nameOf.apply(page.get(page.size() - 1));
+            }
+            return page.get(index);
+        }
+
+        void advance() {
+            index++;
+        }
+    }
+
+    /**
+     * Une las fuentes de referencias en una sola secuencia ordenada y sin repetidos.
+     * Las dos primeras son de notas (mediaUrls y variantes); el resto solo protegen objetos de ser borrados.
+     */
+    static final class ReferenceCursor {
+        private final SortedCursor<String> noteMedia;
+        private final SortedCursor<String> noteVariants;
+        private final SortedCursor<String> blobs;
+        private final SortedCursor<String> pendingDeletions;
+        private Reference current;
+
+        ReferenceCursor(SortedCursor<String> noteMedia, SortedCursor<String> noteVariants,
+                        SortedCursor<String> blobs, SortedCursor<String> pendingDeletions) {
+            this.noteMedia = noteMedia;
+            this.noteVariants = noteVariants;
+            this.blobs = blobs;
+            this.pendingDeletions = pendingDeletions;
+        }
+
+        Reference peek() {
+            if (current != null) {
+                return current;
+            }
+            String smallest = null;
+            for (SortedCursor<String> cursor : List.of(noteMedia, noteVariants, blobs, pendingDeletions)) {
+                String name = cursor.peek();
+                if (name != null && (smallest == null || compareBinary(name, smallest) < 0)) {
+                    smallest = name;
+                }
+            }
+            if (smallest == null) {
+                return null;
+            }
+            boolean fromNote = skip(noteMedia, smallest) | skip(noteVariants, smallest);
+            skip(blobs, smallest);
+            skip(pendingDeletions, smallest);
+            current = new Reference(smallest, fromNote);
+            return current;
+        }
+
+        void advance() {
+            current = null;
+        }
+
+        /**
+         * Consume todas las apariciones del nombre (un mismo objeto puede estar en varias notas).
+         */
+        private static boolean skip(SortedCursor<String> cursor, String name) {
+            boolean found = false;
+            String next = cursor.peek();
+            while (next != null && next.equals(name)) {
+                found = true;
+                cursor.advance();
+                next = cursor.peek();
+            }
+            return found;
+        }
+    }
+}
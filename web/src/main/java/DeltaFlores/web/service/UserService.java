@@ -1,6 +1,7 @@
 package DeltaFlores.web.service;
 
 
+import DeltaFlores.web.dto.SliceDto;
 import DeltaFlores.web.dto.UserDto;
 import DeltaFlores.web.dto.UserToRegisterDto;
 import DeltaFlores.web.entities.AppRole;
@@ -11,6 +12,7 @@ import DeltaFlores.web.utils.DtoMapper;
 import jakarta.validation.constraints.NotNull;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.log4j.Log4j2;
+import org.springframework.data.domain.Pageable;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
@@ -40,6 +42,13 @@ public class UserService implements UserDetailsService {
                 .collect(Collectors.toList());
     }
 
+    @Transactional(readOnly = true)
+    public SliceDto<UserDto> obtenerUsuariosPaginados(Pageable pageable) {
+        log.info("\n\n\uD83D\uDD0D Listando la página {} de usuarios (tamaño {})...", pageable.getPageNumber(), pageable.getPageSize());
+        return DtoMapper.sliceToSliceDto(userRepository.findAllBy(pageable), DtoMapper::userToUserDto,
+                userRepository.estimateCount());
+    }
+
     @Transactional(readOnly = true)
     public UserDto getUserById(Long id) {
         log.info("\n\n\uD83D\uDD0D Buscando usuario con ID: {}", id);
@@ -55,7 +64,7 @@ public class UserService implements UserDetailsService {
     @Transactional(readOnly = true)
     public List<UserDto> getUsersByNombre(String nombre) {
         log.info("\n\n\uD83D\uDD0D Buscando usuarios por nombre: {}", nombre);
-        List<User> users = userRepository.findByNombreContainingIgnoreCase(nombre);
+        List<User> users = userRepository.findByNombreLike(SearchService.containsPattern(nombre));
         log.info("\n\n\u2728 {} usuarios encontrados con nombre '{}'.", users.size(), nombre);
         return users.stream()
                 .map(DtoMapper::userToUserDto)
@@ -1,26 +1,24 @@
 package DeltaFlores.web.service.events;
 
 import DeltaFlores.web.dto.DefoliationEventDto;
+import DeltaFlores.web.dto.SliceDto;
 import DeltaFlores.web.entities.DefoliationEvent;
 import DeltaFlores.web.entities.Planta;
 import DeltaFlores.web.exception.ResourceNotFoundException;
 import DeltaFlores.web.repository.DefoliationEventRepository;
 import DeltaFlores.web.repository.PlantaRepository;
-import DeltaFlores.web.repository.UserRepository;
+import DeltaFlores.web.security.CurrentUserContext;
+import DeltaFlores.web.security.PlantaOwnershipAuthorizer;
+import DeltaFlores.web.service.PlantEventDtoAssembler;
 import DeltaFlores.web.utils.DtoMapper;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.log4j.Log4j2;
-import org.springframework.security.access.AccessDeniedException;
-import org.springframework.security.core.Authentication;
-import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
-import DeltaFlores.web.entities.User;
-import DeltaFlores.web.entities.AppRole;
 
 import java.time.LocalDate;
 import java.util.List;
-import java.util.stream.Collectors;
 
 @Service
 @Log4j2
@@ -29,14 +27,9 @@ public class DefoliationEventService {
 
     private final DefoliationEventRepository defoliationEventRepository;
     private final PlantaRepository plantaRepository;
-    private final UserRepository userRepository;
-
-    private User getCurrentUser() {
-        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
-        String currentUsername = authentication.getName();
-        return userRepository.findByUsername(currentUsername)
-                .orElseThrow(() -> new ResourceNotFoundException("Usuario no encontrado"));
-    }
+    private final PlantaOwnershipAuthorizer plantaOwnershipAuthorizer;
+    private final CurrentUserContext currentUserContext;
+    private final PlantEventDtoAssembler plantEventDtoAssembler;
 
     @Transactional
     public DefoliationEventDto createDefoliationEvent(DefoliationEventDto dto) {
@@ -46,6 +39,10 @@ public class DefoliationEventService {
         event.setGradoDefoliacion(dto.getGradoDefoliacion());
 
         if (dto.getPlantaIds() != null && !dto.getPlantaIds().isEmpty()) {
+            if (currentUserContext.isGrower()) {
+                plantaOwnershipAuthorizer.checkAllOwnedBy(dto.getPlantaIds(), currentUserContext.getId(),
+                        "No tienes permiso para crear un evento en una o más de las plantas seleccionadas.");
+            }
             List<Planta> plantas = plantaRepository.findAllById(dto.getPlantaIds());
             if (plantas.size() != dto.getPlantaIds().size()) {
                 log.warn("\u26A0\uFE0F Algunos IDs de plantas no fueron encontrados al crear el evento.");
@@ -69,48 +66,41 @@ public class DefoliationEventService {
     @Transactional(readOnly = true)
     public List<DefoliationEventDto> getAllDefoliationEvents() {
         log.info("\n\n\uD83D\uDD0E Obteniendo todos los eventos de defoliación.");
-        return defoliationEventRepository.findAll().stream()
-                .map(event -> (DefoliationEventDto) DtoMapper.plantEventToPlantEventDto(event))
-                .collect(Collectors.toList());
+        return plantEventDtoAssembler.toDtos(defoliationEventRepository.findAll(), DefoliationEventDto.class);
+    }
+
+    @Transactional(readOnly = true)
+    public SliceDto<DefoliationEventDto> getDefoliationEventsPage(Pageable pageable) {
+        log.info("\n\n\uD83D\uDD0E Obteniendo página {} de eventos de defoliación (tamaño {}).", pageable.getPageNumber(), pageable.getPageSize());
+        return plantEventDtoAssembler.toSliceDto(defoliationEventRepository.findAllBy(pageable), DefoliationEventDto.class);
     }
 
     @Transactional(readOnly = true)
     public List<DefoliationEventDto> getDefoliationEventsByPlantaId(Long plantaId) {
         log.info("\n\n\uD83D\uDD0E Obteniendo eventos de defoliación para la planta ID: {}", plantaId);
-        return defoliationEventRepository.findByPlantaId(plantaId).stream()
-                .map(event -> (DefoliationEventDto) DtoMapper.plantEventToPlantEventDto(event))
-                .collect(Collectors.toList());
+        return plantEventDtoAssembler.toDtos(defoliationEventRepository.findByPlantaId(plantaId), DefoliationEventDto.class);
     }
 
     @Transactional(readOnly = true)
     public List<DefoliationEventDto> getDefoliationEventsByFecha(LocalDate fecha) {
         log.info("\n\n\uD83D\uDD0E Obteniendo eventos de defoliación para la fecha: {}", fecha);
-        return defoliationEventRepository.findByFecha(fecha).stream()
-                .map(event -> (DefoliationEventDto) DtoMapper.plantEventToPlantEventDto(event))
-                .collect(Collectors.toList());
+        return plantEventDtoAssembler.toDtos(defoliationEventRepository.findByFecha(fecha), DefoliationEventDto.class);
     }
 
     @Transactional(readOnly = true)
     public List<DefoliationEventDto> getDefoliationEventsByFechaAfter(LocalDate fecha) {
         log.info("\n\n\uD83D\uDD0E Obteniendo eventos de defoliación posteriores a la fecha: {}", fecha);
-        return defoliationEventRepository.findByFechaAfter(fecha).stream()
-                .map(event -> (DefoliationEventDto) DtoMapper.plantEventToPlantEventDto(event))
-                .collect(Collectors.toList());
+        return plantEventDtoAssembler.toDtos(defoliationEventRepository.findByFechaAfter(fecha), DefoliationEventDto.class);
     }
 
     @Transactional
     public DefoliationEventDto updateDefoliationEvent(Long id, DefoliationEventDto dto) {
         log.info("\n\n\u2B06\uFE0F Actualizando evento de defoliación con ID: {}", id);
-        User currentUser = getCurrentUser();
         DefoliationEvent existingEvent = defoliationEventRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Evento de defoliación no encontrado con id: " + id));
 
-        if (currentUser.getRol() == AppRole.ROLE_GROWER) {
-            for (Planta planta : existingEvent.getPlantas()) {
-                if (!planta.getUser().equals(currentUser)) {
-                    throw new AccessDeniedException("No tienes permiso para actualizar este evento");
-                }
-            }
+        if (currentUserContext.isGrower()) {
+            plantaOwnershipAuthorizer.checkEventOwnedBy(id, currentUserContext.getId(), "No tienes permiso para actualizar este evento");
         }
 
         existingEvent.setFecha(dto.getFecha());
@@ -118,6 +108,10 @@ public class DefoliationEventService {
 
         // Update associated plants if provided
         if (dto.getPlantaIds() != null) {
+            if (currentUserContext.isGrower()) {
+                plantaOwnershipAuthorizer.checkAllOwnedBy(dto.getPlantaIds(), currentUserContext.getId(),
+                        "No tienes permiso para asociar el evento a una o más de las plantas seleccionadas.");
+            }
             List<Planta> plantas = plantaRepository.findAllById(dto.getPlantaIds());
              if (plantas.size() != dto.getPlantaIds().size()) {
                 log.warn("\u26A0\uFE0F Algunos IDs de plantas no fueron encontrados al actualizar el evento.");
@@ -133,16 +127,11 @@ public class DefoliationEventService {
     @Transactional
     public void deleteDefoliationEvent(Long id) {
         log.info("\n\n\uD83D\uDDD1\uFE0F Eliminando evento de defoliación con ID: {}", id);
-        User currentUser = getCurrentUser();
         DefoliationEvent event = defoliationEventRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Evento de defoliación no encontrado con id: " + id));
 
-        if (currentUser.getRol() == AppRole.ROLE_GROWER) {
-            for (Planta planta : event.getPlantas()) {
-                if (!planta.getUser().equals(currentUser)) {
-                    throw new AccessDeniedException("No tienes permiso para eliminar este evento");
-                }
-            }
+        if (currentUserContext.isGrower()) {
+            plantaOwnershipAuthorizer.checkEventOwnedBy(id, currentUserContext.getId(), "No tienes permiso para eliminar este evento");
         }
 
         defoliationEventRepository.deleteById(id);
@@ -1,6 +1,7 @@
 package DeltaFlores.web.service.events;
 
 import DeltaFlores.web.dto.MeasurementEventDto;
+import DeltaFlores.web.dto.SliceDto;
 import DeltaFlores.web.entities.MeasurementEvent;
 import DeltaFlores.web.entities.Planta;
 import DeltaFlores.web.entities.Sala;
@@ -8,21 +9,18 @@ import DeltaFlores.web.exception.ResourceNotFoundException;
 import DeltaFlores.web.repository.MeasurementEventRepository;
 import DeltaFlores.web.repository.PlantaRepository;
 import DeltaFlores.web.repository.SalaRepository;
-import DeltaFlores.web.repository.UserRepository;
+import DeltaFlores.web.security.CurrentUserContext;
+import DeltaFlores.web.security.PlantaOwnershipAuthorizer;
+import DeltaFlores.web.service.PlantEventDtoAssembler;
 import DeltaFlores.web.utils.DtoMapper;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.log4j.Log4j2;
-import org.springframework.security.access.AccessDeniedException;
-import org.springframework.security.core.Authentication;
-import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
-import DeltaFlores.web.entities.User;
-import DeltaFlores.web.entities.AppRole;
 
 import java.time.LocalDate;
 import java.util.List;
-import java.util.stream.Collectors;
 
 @Service
 @Log4j2
@@ -31,15 +29,10 @@ public class MeasurementEventService {
 
     private final MeasurementEventRepository measurementEventRepository;
     private final PlantaRepository plantaRepository;
+    private final PlantaOwnershipAuthorizer plantaOwnershipAuthorizer;
+    private final CurrentUserContext currentUserContext;
+    private final PlantEventDtoAssembler plantEventDtoAssembler;
     private final SalaRepository salaRepository; // Inyectar SalaRepository
-    private final UserRepository userRepository;
-
-    private User getCurrentUser() {
-        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
-        String currentUsername = authentication.getName();
-        return userRepository.findByUsername(currentUsername)
-                .orElseThrow(() -> new ResourceNotFoundException("Usuario no encontrado"));
-    }
 
     @Transactional
     public MeasurementEventDto createMeasurementEvent(MeasurementEventDto dto) {
@@ -53,6 +46,10 @@ public class MeasurementEventService {
         event.setDistanciaLuz(dto.getDistanciaLuz()); // int
 
         if (dto.getPlantaIds() != null && !dto.getPlantaIds().isEmpty()) {
+            if (currentUserContext.isGrower()) {
+                plantaOwnershipAuthorizer.checkAllOwnedBy(dto.getPlantaIds(), currentUserContext.getId(),
+                        "No tienes permiso para crear un evento en una o más de las plantas seleccionadas.");
+            }
             List<Planta> plantas = plantaRepository.findAllById(dto.getPlantaIds());
             if (plantas.isEmpty()) {
                 throw new ResourceNotFoundException("No se encontraron plantas con los IDs proporcionados.");
@@ -94,48 +91,41 @@ public class MeasurementEventService {
     @Transactional(readOnly = true)
     public List<MeasurementEventDto> getAllMeasurementEvents() {
         log.info("\n\n\ud83d\udd0e Obteniendo todos los eventos de medición.");
-        return measurementEventRepository.findAll().stream()
-                .map(event -> (MeasurementEventDto) DtoMapper.plantEventToPlantEventDto(event))
-                .collect(Collectors.toList());
+        return plantEventDtoAssembler.toDtos(measurementEventRepository.findAll(), MeasurementEventDto.class);
+    }
+
+    @Transactional(readOnly = true)
+    public SliceDto<MeasurementEventDto> getMeasurementEventsPage(Pageable pageable) {
+        log.info("\n\n\ud83d\udd0e Obteniendo página {} de eventos de medición (tamaño {}).", pageable.getPageNumber(), pageable.getPageSize());
+        return plantEventDtoAssembler.toSliceDto(measurementEventRepository.findAllBy(pageable), MeasurementEventDto.class);
     }
 
     @Transactional(readOnly = true)
     public List<MeasurementEventDto> getMeasurementEventsByPlantaId(Long plantaId) {
         log.info("\n\n\ud83d\udd0e Obteniendo eventos de medición para la planta ID: {}", plantaId);
-        return measurementEventRepository.findByPlantaId(plantaId).stream()
-                .map(event -> (MeasurementEventDto) DtoMapper.plantEventToPlantEventDto(event))
-                .collect(Collectors.toList());
+        return plantEventDtoAssembler.toDtos(measurementEventRepository.findByPlantaId(plantaId), MeasurementEventDto.class);
     }
 
     @Transactional(readOnly = true)
     public List<MeasurementEventDto> getMeasurementEventsByFecha(LocalDate fecha) {
         log.info("\n\n\ud83d\udd0e Obteniendo eventos de medición para la fecha: {}", fecha);
-        return measurementEventRepository.findByFecha(fecha).stream()
-                .map(event -> (MeasurementEventDto) DtoMapper.plantEventToPlantEventDto(event))
-                .collect(Collectors.toList());
+        return plantEventDtoAssembler.toDtos(measurementEventRepository.findByFecha(fecha), MeasurementEventDto.class);
     }
 
     @Transactional(readOnly = true)
     public List<MeasurementEventDto> getMeasurementEventsByFechaAfter(LocalDate fecha) {
         log.info("\n\n\ud83d\udd0e Obteniendo eventos de medición posteriores a la fecha: {}", fecha);
-        return measurementEventRepository.findByFechaAfter(fecha).stream()
-                .map(event -> (MeasurementEventDto) DtoMapper.plantEventToPlantEventDto(event))
-                .collect(Collectors.toList());
+        return plantEventDtoAssembler.toDtos(measurementEventRepository.findByFechaAfter(fecha), MeasurementEventDto.class);
     }
 
     @Transactional
     public MeasurementEventDto updateMeasurementEvent(Long id, MeasurementEventDto dto) {
         log.info("\n\n\u2b06\ufe0f Actualizando evento de medición con ID: {}", id);
-        User currentUser = getCurrentUser();
         MeasurementEvent existingEvent = measurementEventRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Evento de medición no encontrado con id: " + id));
 
-        if (currentUser.getRol() == AppRole.ROLE_GROWER) {
-            for (Planta planta : existingEvent.getPlantas()) {
-                if (!planta.getUser().equals(currentUser)) {
-                    throw new AccessDeniedException("No tienes permiso para actualizar este evento");
-                }
-            }
+        if (currentUserContext.isGrower()) {
+            plantaOwnershipAuthorizer.checkEventOwnedBy(id, currentUserContext.getId(), "No tienes permiso para actualizar este evento");
         }
 
         existingEvent.setFecha(dto.getFecha());
@@ -147,6 +137,10 @@ public class MeasurementEventService {
 
         // Update associated plants if provided
         if (dto.getPlantaIds() != null) {
+            if (currentUserContext.isGrower()) {
+                plantaOwnershipAuthorizer.checkAllOwnedBy(dto.getPlantaIds(), currentUserContext.getId(),
+                        "No tienes permiso para asociar el evento a una o más de las plantas seleccionadas.");
+            }
             List<Planta> plantas = plantaRepository.findAllById(dto.getPlantaIds());
              if (plantas.size() != dto.getPlantaIds().size()) {
                 log.warn("\u26A0\uFE0F Algunos IDs de plantas no fueron encontrados al actualizar el evento.");
@@ -162,16 +156,11 @@ public class MeasurementEventService {
     @Transactional
     public void deleteMeasurementEvent(Long id) {
         log.info("\n\n\ud83d\udd31\ufe0f Eliminando evento de medición con ID: {}", id);
-        User currentUser = getCurrentUser();
         MeasurementEvent event = measurementEventRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Evento de medición no encontrado con id: " + id));
 
-        if (currentUser.getRol() == AppRole.ROLE_GROWER) {
-            for (Planta planta : event.getPlantas()) {
-                if (!planta.getUser().equals(currentUser)) {
-                    throw new AccessDeniedException("No tienes permiso para eliminar este evento");
-                }
-            }
+        if (currentUserContext.isGrower()) {
+            plantaOwnershipAuthorizer.checkEventOwnedBy(id, currentUserContext.getId(), "No tienes permiso para eliminar este evento");
         }
         
         measurementEventRepository.deleteById(id);
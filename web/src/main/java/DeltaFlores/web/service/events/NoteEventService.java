@@ -1,65 +1,94 @@
 package DeltaFlores.web.service.events;
 
+import DeltaFlores.web.dto.MediaUploadRequestDto;
 import DeltaFlores.web.dto.NoteEventDto;
+import DeltaFlores.web.dto.PresignedUploadDto;
+import DeltaFlores.web.dto.SliceDto;
+import DeltaFlores.web.entities.MediaVariant;
 import DeltaFlores.web.entities.NoteEvent;
 import DeltaFlores.web.entities.Planta;
 import DeltaFlores.web.exception.ResourceNotFoundException;
 import DeltaFlores.web.repository.NoteEventRepository;
 import DeltaFlores.web.repository.PlantaRepository;
-import DeltaFlores.web.repository.UserRepository;
-import DeltaFlores.web.service.MinioFileStorageService;
+import DeltaFlores.web.security.CurrentUserContext;
+import DeltaFlores.web.security.PlantaOwnershipAuthorizer;
+import DeltaFlores.web.service.MediaCacheService;
+import DeltaFlores.web.service.MediaDeletionQueue;
+import DeltaFlores.web.service.MediaDerivativeService;
+import DeltaFlores.web.service.MediaUploadService;
+import DeltaFlores.web.service.MediaUrlSigner;
+import DeltaFlores.web.service.PlantEventDtoAssembler;
 import DeltaFlores.web.utils.DtoMapper;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.log4j.Log4j2;
-import org.springframework.security.access.AccessDeniedException;
-import org.springframework.security.core.Authentication;
-import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.multipart.MultipartFile;
-import DeltaFlores.web.entities.User;
-import DeltaFlores.web.entities.AppRole;
 
 import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Map;
 
 @Service
 @Log4j2
 @RequiredArgsConstructor
 public class NoteEventService {
 
+    /**
+     * Resultado de comparar las mediaUrls del evento con las que conserva una actualización.
+     * foreign: entradas que el evento no tiene (o repetidas más veces de las que las tiene); dropped: entradas quitadas.
+     */
+    record MediaUrlChange(List<String> foreign, List<String> dropped) {
+    }
+
     private final NoteEventRepository noteEventRepository;
     private final PlantaRepository plantaRepository;
-    private final MinioFileStorageService fileStorageService;
-    private final UserRepository userRepository;
-
-    private User getCurrentUser() {
-        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
-        String currentUsername = authentication.getName();
-        return userRepository.findByUsername(currentUsername)
-                .orElseThrow(() -> new ResourceNotFoundException("Usuario no encontrado"));
-    }
+    private final PlantaOwnershipAuthorizer plantaOwnershipAuthorizer;
+    private final CurrentUserContext currentUserContext;
+    private final MediaDeletionQueue mediaDeletionQueue;
+    private final MediaUploadService mediaUploadService;
+    private final MediaUrlSigner mediaUrlSigner;
+    // Solo existe con almacenamiento en bucket (perfil distinto de local)
+    private final ObjectProvider<MediaCacheService> mediaCacheService;
+    private final MediaDerivativeService mediaDerivativeService;
+    private final TransactionTemplate transactionTemplate;
+    private final PlantEventDtoAssembler plantEventDtoAssembler;
 
-    @Transactional
+    // Sin @Transactional: los archivos se suben antes de abrir la transacción
     public NoteEventDto createNoteEvent(NoteEventDto dto, List<MultipartFile> files) {
         log.info("\n\n📝 Creando nuevo evento de nota...");
+        // Los permisos se verifican antes de subir nada, y otra vez dentro de la transacción
+        checkCanAttachPlantas(dto.getPlantaIds(), "No tienes permiso para crear un evento en una o más de las plantas seleccionadas.");
+        // Los archivos subidos directo al bucket no se descartan si falla la escritura: el cliente puede reintentar con las mismas claves
+        List<String> confirmedUrls = mediaUploadService.confirmUploadedKeys(dto.getMediaKeys(), currentUserContext.getId());
+        List<String> uploadedUrls = mediaUploadService.uploadAll(files);
+        List<String> mediaUrls = new ArrayList<>(confirmedUrls);
+        mediaUrls.addAll(uploadedUrls);
+        NoteEventDto created;
+        try {
+            created = transactionTemplate.execute(status -> saveNewNoteEvent(dto, mediaUrls));
+        } catch (RuntimeException e) {
+            mediaUploadService.discardAll(uploadedUrls);
+            throw e;
+        }
+        mediaDerivativeService.enqueue(created.getId(), mediaUrls);
+        return created;
+    }
+
+    private NoteEventDto saveNewNoteEvent(NoteEventDto dto, List<String> mediaUrls) {
+        mediaUploadService.claimUploadedKeys(dto.getMediaKeys(), currentUserContext.getId());
         NoteEvent event = new NoteEvent();
         event.setFecha(dto.getFecha());
         event.setText(dto.getText());
-
-        // Handle file uploads
-        List<String> mediaUrls = new ArrayList<>();
-        if (files != null && !files.isEmpty()) {
-            for (MultipartFile file : files) {
-                String fileUrl = fileStorageService.uploadFile(file);
-                mediaUrls.add(fileUrl);
-            }
-        }
-        event.setMediaUrls(mediaUrls);
+        event.setMediaUrls(new ArrayList<>(mediaUrls));
 
         if (dto.getPlantaIds() != null && !dto.getPlantaIds().isEmpty()) {
+            checkCanAttachPlantas(dto.getPlantaIds(), "No tienes permiso para crear un evento en una o más de las plantas seleccionadas.");
             List<Planta> plantas = plantaRepository.findAllById(dto.getPlantaIds());
             if (plantas.isEmpty()) {
                 throw new ResourceNotFoundException("No se encontraron plantas con los IDs proporcionados.");
@@ -74,7 +103,18 @@ public class NoteEventService {
 
         NoteEvent savedEvent = noteEventRepository.save(event);
         log.info("\n\n✨ Evento de nota creado con ID: {}", savedEvent.getId());
-        return (NoteEventDto) DtoMapper.plantEventToPlantEventDto(savedEvent);
+        return toDto(savedEvent);
+    }
+
+    /**
+     * URLs para que el cliente suba los archivos directo al bucket; las claves devueltas se envían luego en mediaKeys.
+     */
+    public boolean supportsPresignedUploads() {
+        return mediaUploadService.supportsPresignedUploads();
+    }
+
+    public List<PresignedUploadDto> presignMediaUploads(List<MediaUploadRequestDto> requests) {
+        return mediaUploadService.presignUploads(requests, currentUserContext.getId());
     }
 
     @Transactional(readOnly = true)
@@ -82,73 +122,101 @@ public class NoteEventService {
         log.info("\n\n🔎 Buscando evento de nota con ID: {}", id);
         NoteEvent event = noteEventRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Evento de nota no encontrado con id: " + id));
-        return (NoteEventDto) DtoMapper.plantEventToPlantEventDto(event);
+        return toDto(event);
     }
 
     @Transactional(readOnly = true)
     public List<NoteEventDto> getAllNoteEvents() {
         log.info("\n\n🔎 Obteniendo todos los eventos de nota.");
-        return noteEventRepository.findAll().stream()
-                .map(event -> (NoteEventDto) DtoMapper.plantEventToPlantEventDto(event))
-                .collect(Collectors.toList());
+        return signAll(plantEventDtoAssembler.toDtos(noteEventRepository.findAll(), NoteEventDto.class));
+    }
+
+    @Transactional(readOnly = true)
+    public SliceDto<NoteEventDto> getNoteEventsPage(Pageable pageable) {
+        log.info("\n\n🔎 Obteniendo página {} de eventos de nota (tamaño {}).", pageable.getPageNumber(), pageable.getPageSize());
+        SliceDto<NoteEventDto> page = plantEventDtoAssembler.toSliceDto(noteEventRepository.findAllBy(pageable), NoteEventDto.class);
+        signAll(page.getContent());
+        return page;
     }
 
     @Transactional(readOnly = true)
     public List<NoteEventDto> getNoteEventsByPlantaId(Long plantaId) {
         log.info("\n\n🔎 Obteniendo eventos de nota para la planta ID: {}", plantaId);
-        return noteEventRepository.findByPlantaId(plantaId).stream()
-                .map(event -> (NoteEventDto) DtoMapper.plantEventToPlantEventDto(event))
-                .collect(Collectors.toList());
+        return signAll(plantEventDtoAssembler.toDtos(noteEventRepository.findByPlantaId(plantaId), NoteEventDto.class));
     }
 
     @Transactional(readOnly = true)
     public List<NoteEventDto> getNoteEventsByFecha(LocalDate fecha) {
         log.info("\n\n🔎 Obteniendo eventos de nota para la fecha: {}", fecha);
-        return noteEventRepository.findByFecha(fecha).stream()
-                .map(event -> (NoteEventDto) DtoMapper.plantEventToPlantEventDto(event))
-                .collect(Collectors.toList());
+        return signAll(plantEventDtoAssembler.toDtos(noteEventRepository.findByFecha(fecha), NoteEventDto.class));
     }
 
     @Transactional(readOnly = true)
     public List<NoteEventDto> getNoteEventsByFechaAfter(LocalDate fecha) {
         log.info("\n\n🔎 Obteniendo eventos de nota posteriores a la fecha: {}", fecha);
-        return noteEventRepository.findByFechaAfter(fecha).stream()
-                .map(event -> (NoteEventDto) DtoMapper.plantEventToPlantEventDto(event))
-                .collect(Collectors.toList());
+        return signAll(plantEventDtoAssembler.toDtos(noteEventRepository.findByFechaAfter(fecha), NoteEventDto.class));
     }
 
-    @Transactional
+    // Sin @Transactional: los archivos nuevos se suben antes de abrir la transacción
     public NoteEventDto updateNoteEvent(Long id, NoteEventDto dto, List<MultipartFile> newFiles) {
         log.info("\n\n⬆️ Actualizando evento de nota con ID: {}", id);
-        User currentUser = getCurrentUser();
+        // Existencia y permisos se verifican antes de subir nada, y otra vez dentro de la transacción
+        if (!noteEventRepository.existsById(id)) {
+            throw new ResourceNotFoundException("Evento de nota no encontrado con id: " + id);
+        }
+        checkCanUpdate(id, dto);
+        List<String> confirmedUrls = mediaUploadService.confirmUploadedKeys(dto.getMediaKeys(), currentUserContext.getId());
+        List<String> uploadedUrls = mediaUploadService.uploadAll(newFiles);
+        List<String> newMediaUrls = new ArrayList<>(confirmedUrls);
+        newMediaUrls.addAll(uploadedUrls);
+        NoteEventDto updated;
+        try {
+            updated = transactionTemplate.execute(status -> applyNoteEventUpdate(id, dto, newMediaUrls));
+        } catch (RuntimeException e) {
+            mediaUploadService.discardAll(uploadedUrls);
+            throw e;
+        }
+        mediaDerivativeService.enqueue(id, newMediaUrls);
+        return updated;
+    }
+
+    private NoteEventDto applyNoteEventUpdate(Long id, NoteEventDto dto, List<String> newMediaUrls) {
         NoteEvent existingEvent = noteEventRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Evento de nota no encontrado con id: " + id));
-
-        if (currentUser.getRol() == AppRole.ROLE_GROWER) {
-            for (Planta planta : existingEvent.getPlantas()) {
-                if (!planta.getUser().equals(currentUser)) {
-                    throw new AccessDeniedException("No tienes permiso para actualizar este evento");
-                }
-            }
-        }
+        checkCanUpdate(id, dto);
+        mediaUploadService.claimUploadedKeys(dto.getMediaKeys(), currentUserContext.getId());
 
         existingEvent.setFecha(dto.getFecha());
         existingEvent.setText(dto.getText());
 
-        // Handle new file uploads (append to existing mediaUrls or replace)
-        if (newFiles != null && !newFiles.isEmpty()) {
-            List<String> currentMediaUrls = existingEvent.getMediaUrls() != null ? new ArrayList<>(existingEvent.getMediaUrls()) : new ArrayList<>();
-            for (MultipartFile file : newFiles) {
-                String fileUrl = fileStorageService.uploadFile(file);
-                currentMediaUrls.add(fileUrl);
+        // Si el DTO trae mediaUrls, son las que el cliente conserva (para quitar algunas o reemplazarlas todas)
+        List<String> heldUrls = existingEvent.getMediaUrls() != null ? existingEvent.getMediaUrls() : List.of();
+        List<String> currentMediaUrls;
+        List<String> releasedUrls = new ArrayList<>();
+        if (dto.getMediaUrls() != null) {
+            // Cada entrada es una referencia (en modo cas- una fila de media_blobs) que se libera al borrar el evento:
+            // una URL ajena o repetida liberaría referencias que este evento nunca tomó
+            MediaUrlChange change = diffMediaUrls(heldUrls, dto.getMediaUrls());
+            if (!change.foreign().isEmpty()) {
+                log.warn("\u26A0\uFE0F El usuario '{}' intentó agregar al evento {} archivos que no tiene: {}",
+                        currentUserContext.getUsername(), id, change.foreign());
+                throw new IllegalArgumentException("mediaUrls solo puede contener archivos que el evento ya tiene, sin repetirlos; los nuevos se envían en newFiles o mediaKeys.");
             }
-            existingEvent.setMediaUrls(currentMediaUrls);
+            currentMediaUrls = new ArrayList<>(dto.getMediaUrls());
+            releasedUrls.addAll(change.dropped());
+        } else {
+            currentMediaUrls = new ArrayList<>(heldUrls);
         }
-        // If dto contains mediaUrls, it means they are part of the update request
-        // e.g. for removing some old ones or replacing them entirely
-        if (dto.getMediaUrls() != null) {
-            existingEvent.setMediaUrls(dto.getMediaUrls());
+        // Los archivos recién subidos siempre se agregan, para que nunca queden sin referencia
+        currentMediaUrls.addAll(newMediaUrls);
+        existingEvent.setMediaUrls(currentMediaUrls);
+        for (MediaVariant orphan : MediaDerivativeService.removeOrphanVariants(existingEvent)) {
+            releasedUrls.add(orphan.getUrl());
         }
+        // Los archivos quitados y sus variantes se encolan en la misma transacción y se borran en segundo plano
+        releasedUrls.forEach(mediaUrlSigner::evict);
+        mediaCacheService.ifAvailable(cache -> releasedUrls.forEach(cache::evictUrl));
+        mediaDeletionQueue.enqueue(releasedUrls);
 
         if (dto.getPlantaIds() != null) {
             List<Planta> plantas = plantaRepository.findAllById(dto.getPlantaIds());
@@ -160,31 +228,91 @@ public class NoteEventService {
 
         NoteEvent updatedEvent = noteEventRepository.save(existingEvent);
         log.info("\n\n✨ Evento de nota con ID: {} actualizado.", updatedEvent.getId());
-        return (NoteEventDto) DtoMapper.plantEventToPlantEventDto(updatedEvent);
+        return toDto(updatedEvent);
     }
 
     @Transactional
     public void deleteNoteEvent(Long id) {
         log.info("\n\n🗑️ Eliminando evento de nota con ID: {}", id);
-        User currentUser = getCurrentUser();
         NoteEvent eventToDelete = noteEventRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Evento de nota no encontrado con id: " + id));
 
-        if (currentUser.getRol() == AppRole.ROLE_GROWER) {
-            for (Planta planta : eventToDelete.getPlantas()) {
-                if (!planta.getUser().equals(currentUser)) {
-                    throw new AccessDeniedException("No tienes permiso para eliminar este evento");
-                }
-            }
+        if (currentUserContext.isGrower()) {
+            plantaOwnershipAuthorizer.checkEventOwnedBy(id, currentUserContext.getId(), "No tienes permiso para eliminar este evento");
         }
 
-        // Optional: Delete associated files from storage
+        // Los archivos se encolan en la misma transacción y se borran en segundo plano
+        List<String> fileUrls = new ArrayList<>();
         if (eventToDelete.getMediaUrls() != null) {
-            for (String url : eventToDelete.getMediaUrls()) {
-                fileStorageService.deleteFile(url);
-            }
+            fileUrls.addAll(eventToDelete.getMediaUrls());
+        }
+        for (MediaVariant variant : eventToDelete.getMediaVariants()) {
+            fileUrls.add(variant.getUrl());
         }
+        fileUrls.forEach(mediaUrlSigner::evict);
+        mediaCacheService.ifAvailable(cache -> fileUrls.forEach(cache::evictUrl));
+        mediaDeletionQueue.enqueue(fileUrls);
         noteEventRepository.deleteById(id);
         log.info("\n\n✨ Evento de nota con ID: {} eliminado.", id);
     }
+
+    /**
+     * Un grower solo puede modificar eventos de sus plantas y asociarlos a plantas propias.
+     */
+    private void checkCanUpdate(Long id, NoteEventDto dto) {
+        if (currentUserContext.isGrower()) {
+            plantaOwnershipAuthorizer.checkEventOwnedBy(id, currentUserContext.getId(), "No tienes permiso para actualizar este evento");
+        }
+        checkCanAttachPlantas(dto.getPlantaIds(), "No tienes permiso para asociar el evento a una o más de las plantas seleccionadas.");
+    }
+
+    private void checkCanAttachPlantas(List<Long> plantaIds, String deniedMessage) {
+        if (currentUserContext.isGrower() && plantaIds != null && !plantaIds.isEmpty()) {
+            plantaOwnershipAuthorizer.checkAllOwnedBy(plantaIds, currentUserContext.getId(), deniedMessage);
+        }
+    }
+
+    /**
+     * Compara como multiconjuntos las URLs que el evento tiene con las que conserva la actualización.
+     */
+    static MediaUrlChange diffMediaUrls(List<String> heldUrls, List<String> keptUrls) {
+        Map<String, Integer> available = new HashMap<>();
+        for (String url : heldUrls) {
+            available.merge(url, 1, Integer::sum);
+        }
+        List<String> foreign = new ArrayList<>();
+        for (String url : keptUrls) {
+            int count = available.getOrDefault(url, 0);
+            if (count == 0) {
+                foreign.add(url);
+            } else {
+                available.put(url, count - 1);
+            }
+        }
+        List<String> dropped = new ArrayList<>();
+        for (String url : heldUrls) {
+            int count = available.getOrDefault(url, 0);
+            if (count > 0) {
+                dropped.add(url);
+                available.put(url, count - 1);
+            }
+        }
+        return new MediaUrlChange(foreign, dropped);
+    }
+
+    private NoteEventDto toDto(NoteEvent event) {
+        return sign((NoteEventDto) DtoMapper.plantEventToPlantEventDto(event));
+    }
+
+    private List<NoteEventDto> signAll(List<NoteEventDto> dtos) {
+        dtos.forEach(this::sign);
+        return dtos;
+    }
+
+    private NoteEventDto sign(NoteEventDto dto) {
+        dto.setSignedMediaUrls(mediaUrlSigner.signAll(dto.getMediaUrls()));
+        dto.setThumbnailUrls(mediaUrlSigner.signAll(dto.getThumbnailUrls()));
+        dto.setWebUrls(mediaUrlSigner.signAll(dto.getWebUrls()));
+        return dto;
+    }
 }
@@ -1,6 +1,7 @@
 package DeltaFlores.web.service.events;
 
 import DeltaFlores.web.dto.NutrientEventDto;
+import DeltaFlores.web.dto.SliceDto;
 import DeltaFlores.web.entities.NutrientEvent;
 import DeltaFlores.web.entities.Planta;
 import DeltaFlores.web.entities.Nutriente;
@@ -8,24 +9,21 @@ import DeltaFlores.web.exception.ResourceNotFoundException;
 import DeltaFlores.web.repository.NutrientEventRepository;
 import DeltaFlores.web.repository.PlantaRepository;
 import DeltaFlores.web.repository.NutrienteRepository;
-import DeltaFlores.web.repository.UserRepository;
+import DeltaFlores.web.security.CurrentUserContext;
+import DeltaFlores.web.security.PlantaOwnershipAuthorizer;
+import DeltaFlores.web.service.PlantEventDtoAssembler;
 import DeltaFlores.web.service.NutrienteService; // Inyectar NutrienteService
 import DeltaFlores.web.utils.DtoMapper;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.log4j.Log4j2;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.security.access.AccessDeniedException;
-import org.springframework.security.core.Authentication;
-import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
-import DeltaFlores.web.entities.User;
-import DeltaFlores.web.entities.AppRole;
 
 import java.time.LocalDate;
 import java.util.List;
 import java.util.Optional;
-import java.util.stream.Collectors;
 
 @Service
 @Log4j2
@@ -34,19 +32,14 @@ public class NutrientEventService {
 
     private final NutrientEventRepository nutrientEventRepository;
     private final PlantaRepository plantaRepository;
-    private final UserRepository userRepository;
+    private final PlantaOwnershipAuthorizer plantaOwnershipAuthorizer;
+    private final CurrentUserContext currentUserContext;
+    private final PlantEventDtoAssembler plantEventDtoAssembler;
     //private final NutrienteService nutrienteService; // Inyectar NutrienteService
 
     @Autowired
     private final NutrienteRepository nutrienteRepository;
 
-    private User getCurrentUser() {
-        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
-        String currentUsername = authentication.getName();
-        return userRepository.findByUsername(currentUsername)
-                .orElseThrow(() -> new ResourceNotFoundException("Usuario no encontrado"));
-    }
-
     @Transactional
     public NutrientEventDto createNutrientEvent(NutrientEventDto dto) {
         log.info("\n\n🌱 Creando nuevo evento de nutriente...");
@@ -64,6 +57,10 @@ public class NutrientEventService {
         }
 
         if (dto.getPlantaIds() != null && !dto.getPlantaIds().isEmpty()) {
+            if (currentUserContext.isGrower()) {
+                plantaOwnershipAuthorizer.checkAllOwnedBy(dto.getPlantaIds(), currentUserContext.getId(),
+                        "No tienes permiso para crear un evento en una o más de las plantas seleccionadas.");
+            }
             List<Planta> plantas = plantaRepository.findAllById(dto.getPlantaIds());
             if (plantas.isEmpty()) {
                 throw new ResourceNotFoundException("No se encontraron plantas con los IDs proporcionados.");
@@ -92,48 +89,41 @@ public class NutrientEventService {
     @Transactional(readOnly = true)
     public List<NutrientEventDto> getAllNutrientEvents() {
         log.info("\n\n🔎 Obteniendo todos los eventos de nutriente.");
-        return nutrientEventRepository.findAll().stream()
-                .map(event -> (NutrientEventDto) DtoMapper.plantEventToPlantEventDto(event))
-                .collect(Collectors.toList());
+        return plantEventDtoAssembler.toDtos(nutrientEventRepository.findAll(), NutrientEventDto.class);
+    }
+
+    @Transactional(readOnly = true)
+    public SliceDto<NutrientEventDto> getNutrientEventsPage(Pageable pageable) {
+        log.info("\n\n🔎 Obteniendo página {} de eventos de nutriente (tamaño {}).", pageable.getPageNumber(), pageable.getPageSize());
+        return plantEventDtoAssembler.toSliceDto(nutrientEventRepository.findAllBy(pageable), NutrientEventDto.class);
     }
 
     @Transactional(readOnly = true)
     public List<NutrientEventDto> getNutrientEventsByPlantaId(Long plantaId) {
         log.info("\n\n🔎 Obteniendo eventos de nutriente para la planta ID: {}", plantaId);
-        return nutrientEventRepository.findByPlantaId(plantaId).stream()
-                .map(event -> (NutrientEventDto) DtoMapper.plantEventToPlantEventDto(event))
-                .collect(Collectors.toList());
+        return plantEventDtoAssembler.toDtos(nutrientEventRepository.findByPlantaId(plantaId), NutrientEventDto.class);
     }
 
     @Transactional(readOnly = true)
     public List<NutrientEventDto> getNutrientEventsByFecha(LocalDate fecha) {
         log.info("\n\n🔎 Obteniendo eventos de nutriente para la fecha: {}", fecha);
-        return nutrientEventRepository.findByFecha(fecha).stream()
-                .map(event -> (NutrientEventDto) DtoMapper.plantEventToPlantEventDto(event))
-                .collect(Collectors.toList());
+        return plantEventDtoAssembler.toDtos(nutrientEventRepository.findByFecha(fecha), NutrientEventDto.class);
     }
 
     @Transactional(readOnly = true)
     public List<NutrientEventDto> getNutrientEventsByFechaAfter(LocalDate fecha) {
         log.info("\n\n🔎 Obteniendo eventos de nutriente posteriores a la fecha: {}", fecha);
-        return nutrientEventRepository.findByFechaAfter(fecha).stream()
-                .map(event -> (NutrientEventDto) DtoMapper.plantEventToPlantEventDto(event))
-                .collect(Collectors.toList());
+        return plantEventDtoAssembler.toDtos(nutrientEventRepository.findByFechaAfter(fecha), NutrientEventDto.class);
     }
 
     @Transactional
     public NutrientEventDto updateNutrientEvent(Long id, NutrientEventDto dto) {
         log.info("\n\n⬆️ Actualizando evento de nutriente con ID: {}", id);
-        User currentUser = getCurrentUser();
         NutrientEvent existingEvent = nutrientEventRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Evento de nutriente no encontrado con id: " + id));
 
-        if (currentUser.getRol() == AppRole.ROLE_GROWER) {
-            for (Planta planta : existingEvent.getPlantas()) {
-                if (!planta.getUser().equals(currentUser)) {
-                    throw new AccessDeniedException("No tienes permiso para actualizar este evento");
-                }
-            }
+        if (currentUserContext.isGrower()) {
+            plantaOwnershipAuthorizer.checkEventOwnedBy(id, currentUserContext.getId(), "No tienes permiso para actualizar este evento");
         }
 
         existingEvent.setFecha(dto.getFecha());
@@ -151,6 +141,10 @@ public class NutrientEventService {
 
 
         if (dto.getPlantaIds() != null) {
+            if (currentUserContext.isGrower()) {
+                plantaOwnershipAuthorizer.checkAllOwnedBy(dto.getPlantaIds(), currentUserContext.getId(),
+                        "No tienes permiso para asociar el evento a una o más de las plantas seleccionadas.");
+            }
             List<Planta> plantas = plantaRepository.findAllById(dto.getPlantaIds());
              if (plantas.size() != dto.getPlantaIds().size()) {
                 log.warn("\u26A0️ Algunos IDs de plantas no fueron encontrados al actualizar el evento.");
@@ -166,16 +160,11 @@ public class NutrientEventService {
     @Transactional
     public void deleteNutrientEvent(Long id) {
         log.info("\n\n🗑️ Eliminando evento de nutriente con ID: {}", id);
-        User currentUser = getCurrentUser();
         NutrientEvent event = nutrientEventRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Evento de nutriente no encontrado con id: " + id));
 
-        if (currentUser.getRol() == AppRole.ROLE_GROWER) {
-            for (Planta planta : event.getPlantas()) {
-                if (!planta.getUser().equals(currentUser)) {
-                    throw new AccessDeniedException("No tienes permiso para eliminar este evento");
-                }
-            }
+        if (currentUserContext.isGrower()) {
+            plantaOwnershipAuthorizer.checkEventOwnedBy(id, currentUserContext.getId(), "No tienes permiso para eliminar este evento");
         }
 
         nutrientEventRepository.deleteById(id);
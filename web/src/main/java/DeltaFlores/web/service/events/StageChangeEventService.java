@@ -1,26 +1,24 @@
 package DeltaFlores.web.service.events;
 
+import DeltaFlores.web.dto.SliceDto;
 import DeltaFlores.web.dto.StageChangeEventDto;
 import DeltaFlores.web.entities.Planta;
 import DeltaFlores.web.entities.StageChangeEvent;
 import DeltaFlores.web.exception.ResourceNotFoundException;
 import DeltaFlores.web.repository.PlantaRepository;
 import DeltaFlores.web.repository.StageChangeEventRepository;
-import DeltaFlores.web.repository.UserRepository;
+import DeltaFlores.web.security.CurrentUserContext;
+import DeltaFlores.web.security.PlantaOwnershipAuthorizer;
+import DeltaFlores.web.service.PlantEventDtoAssembler;
 import DeltaFlores.web.utils.DtoMapper;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.log4j.Log4j2;
-import org.springframework.security.access.AccessDeniedException;
-import org.springframework.security.core.Authentication;
-import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
-import DeltaFlores.web.entities.User;
-import DeltaFlores.web.entities.AppRole;
 
 import java.time.LocalDate;
 import java.util.List;
-import java.util.stream.Collectors;
 
 @Service
 @Log4j2
@@ -29,14 +27,9 @@ public class StageChangeEventService {
 
     private final StageChangeEventRepository stageChangeEventRepository;
     private final PlantaRepository plantaRepository;
-    private final UserRepository userRepository;
-
-    private User getCurrentUser() {
-        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
-        String currentUsername = authentication.getName();
-        return userRepository.findByUsername(currentUsername)
-                .orElseThrow(() -> new ResourceNotFoundException("Usuario no encontrado"));
-    }
+    private final PlantaOwnershipAuthorizer plantaOwnershipAuthorizer;
+    private final CurrentUserContext currentUserContext;
+    private final PlantEventDtoAssembler plantEventDtoAssembler;
 
     @Transactional
     public StageChangeEventDto createStageChangeEvent(StageChangeEventDto dto) {
@@ -46,6 +39,10 @@ public class StageChangeEventService {
         event.setNuevaEtapa(dto.getNuevaEtapa());
 
         if (dto.getPlantaIds() != null && !dto.getPlantaIds().isEmpty()) {
+            if (currentUserContext.isGrower()) {
+                plantaOwnershipAuthorizer.checkAllOwnedBy(dto.getPlantaIds(), currentUserContext.getId(),
+                        "No tienes permiso para crear un evento en una o más de las plantas seleccionadas.");
+            }
             List<Planta> plantas = plantaRepository.findAllById(dto.getPlantaIds());
             if (plantas.isEmpty()) {
                 throw new ResourceNotFoundException("No se encontraron plantas con los IDs proporcionados.");
@@ -80,54 +77,51 @@ public class StageChangeEventService {
     @Transactional(readOnly = true)
     public List<StageChangeEventDto> getAllStageChangeEvents() {
         log.info("\n\n🔎 Obteniendo todos los eventos de cambio de etapa.");
-        return stageChangeEventRepository.findAll().stream()
-                .map(event -> (StageChangeEventDto) DtoMapper.plantEventToPlantEventDto(event))
-                .collect(Collectors.toList());
+        return plantEventDtoAssembler.toDtos(stageChangeEventRepository.findAll(), StageChangeEventDto.class);
+    }
+
+    @Transactional(readOnly = true)
+    public SliceDto<StageChangeEventDto> getStageChangeEventsPage(Pageable pageable) {
+        log.info("\n\n🔎 Obteniendo página {} de eventos de cambio de etapa (tamaño {}).", pageable.getPageNumber(), pageable.getPageSize());
+        return plantEventDtoAssembler.toSliceDto(stageChangeEventRepository.findAllBy(pageable), StageChangeEventDto.class);
     }
 
     @Transactional(readOnly = true)
     public List<StageChangeEventDto> getStageChangeEventsByPlantaId(Long plantaId) {
         log.info("\n\n🔎 Obteniendo eventos de cambio de etapa para la planta ID: {}", plantaId);
-        return stageChangeEventRepository.findByPlantaId(plantaId).stream()
-                .map(event -> (StageChangeEventDto) DtoMapper.plantEventToPlantEventDto(event))
-                .collect(Collectors.toList());
+        return plantEventDtoAssembler.toDtos(stageChangeEventRepository.findByPlantaId(plantaId), StageChangeEventDto.class);
     }
 
     @Transactional(readOnly = true)
     public List<StageChangeEventDto> getStageChangeEventsByFecha(LocalDate fecha) {
         log.info("\n\n🔎 Obteniendo eventos de cambio de etapa para la fecha: {}", fecha);
-        return stageChangeEventRepository.findByFecha(fecha).stream()
-                .map(event -> (StageChangeEventDto) DtoMapper.plantEventToPlantEventDto(event))
-                .collect(Collectors.toList());
+        return plantEventDtoAssembler.toDtos(stageChangeEventRepository.findByFecha(fecha), StageChangeEventDto.class);
     }
 
     @Transactional(readOnly = true)
     public List<StageChangeEventDto> getStageChangeEventsByFechaAfter(LocalDate fecha) {
         log.info("\n\n🔎 Obteniendo eventos de cambio de etapa posteriores a la fecha: {}", fecha);
-        return stageChangeEventRepository.findByFechaAfter(fecha).stream()
-                .map(event -> (StageChangeEventDto) DtoMapper.plantEventToPlantEventDto(event))
-                .collect(Collectors.toList());
+        return plantEventDtoAssembler.toDtos(stageChangeEventRepository.findByFechaAfter(fecha), StageChangeEventDto.class);
     }
 
     @Transactional
     public StageChangeEventDto updateStageChangeEvent(Long id, StageChangeEventDto dto) {
         log.info("\n\n⬆️ Actualizando evento de cambio de etapa con ID: {}", id);
-        User currentUser = getCurrentUser();
         StageChangeEvent existingEvent = stageChangeEventRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Evento de cambio de etapa no encontrado con id: " + id));
 
-        if (currentUser.getRol() == AppRole.ROLE_GROWER) {
-            for (Planta planta : existingEvent.getPlantas()) {
-                if (!planta.getUser().equals(currentUser)) {
-                    throw new AccessDeniedException("No tienes permiso para actualizar este evento");
-                }
-            }
+        if (currentUserContext.isGrower()) {
+            plantaOwnershipAuthorizer.checkEventOwnedBy(id, currentUserContext.getId(), "No tienes permiso para actualizar este evento");
         }
 
         existingEvent.setFecha(dto.getFecha());
         existingEvent.setNuevaEtapa(dto.getNuevaEtapa());
 
         if (dto.getPlantaIds() != null) {
+            if (currentUserContext.isGrower()) {
+                plantaOwnershipAuthorizer.checkAllOwnedBy(dto.getPlantaIds(), currentUserContext.getId(),
+                        "No tienes permiso para asociar el evento a una o más de las plantas seleccionadas.");
+            }
             List<Planta> plantas = plantaRepository.findAllById(dto.getPlantaIds());
              if (plantas.size() != dto.getPlantaIds().size()) {
                 log.warn("\u26A0️ Algunos IDs de plantas no fueron encontrados al actualizar el evento.");
@@ -149,16 +143,11 @@ public class StageChangeEventService {
     @Transactional
     public void deleteStageChangeEvent(Long id) {
         log.info("\n\n🗑️ Eliminando evento de cambio de etapa con ID: {}", id);
-        User currentUser = getCurrentUser();
         StageChangeEvent event = stageChangeEventRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Evento de cambio de etapa no encontrado con id: " + id));
         
-        if (currentUser.getRol() == AppRole.ROLE_GROWER) {
-            for (Planta planta : event.getPlantas()) {
-                if (!planta.getUser().equals(currentUser)) {
-                    throw new AccessDeniedException("No tienes permiso para eliminar este evento");
-                }
-            }
+        if (currentUserContext.isGrower()) {
+            plantaOwnershipAuthorizer.checkEventOwnedBy(id, currentUserContext.getId(), "No tienes permiso para eliminar este evento");
         }
 
         stageChangeEventRepository.deleteById(id);
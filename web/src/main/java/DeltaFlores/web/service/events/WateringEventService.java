@@ -1,26 +1,24 @@
 package DeltaFlores.web.service.events;
 
+import DeltaFlores.web.dto.SliceDto;
 import DeltaFlores.web.dto.WateringEventDto;
 import DeltaFlores.web.entities.Planta;
-import DeltaFlores.web.entities.User;
 import DeltaFlores.web.entities.WateringEvent;
 import DeltaFlores.web.exception.ResourceNotFoundException;
 import DeltaFlores.web.repository.PlantaRepository;
-import DeltaFlores.web.repository.UserRepository;
 import DeltaFlores.web.repository.WateringEventRepository;
+import DeltaFlores.web.security.CurrentUserContext;
+import DeltaFlores.web.security.PlantaOwnershipAuthorizer;
+import DeltaFlores.web.service.PlantEventDtoAssembler;
 import DeltaFlores.web.utils.DtoMapper;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.log4j.Log4j2;
-import org.springframework.security.access.AccessDeniedException;
-import org.springframework.security.core.Authentication;
-import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
-import DeltaFlores.web.entities.AppRole;
 
 import java.time.LocalDate;
 import java.util.List;
-import java.util.stream.Collectors;
 
 @Service
 @Log4j2
@@ -29,20 +27,14 @@ public class WateringEventService {
 
     private final WateringEventRepository wateringEventRepository;
     private final PlantaRepository plantaRepository;
-    private final UserRepository userRepository;
+    private final PlantaOwnershipAuthorizer plantaOwnershipAuthorizer;
+    private final CurrentUserContext currentUserContext;
+    private final PlantEventDtoAssembler plantEventDtoAssembler;
 
 
-    private User getCurrentUser() {
-        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
-        String currentUsername = authentication.getName();
-        return userRepository.findByUsername(currentUsername)
-                .orElseThrow(() -> new ResourceNotFoundException("Usuario no encontrado"));
-    }
-
     @Transactional
     public WateringEventDto createWateringEvent(WateringEventDto dto) {
         log.info("\n\n💧 Creando nuevo evento de riego...");
-        User currentUser = getCurrentUser();
 
         WateringEvent event = new WateringEvent();
 
@@ -63,11 +55,9 @@ public class WateringEventService {
         }
 
         // Security Check: Verify ownership of all plants
-        for (Planta planta : plantas) {
-            if (currentUser.getRol() == AppRole.ROLE_GROWER && !planta.getUser().equals(currentUser)) {
-                log.warn("ACCESO DENEGADO: Usuario '{}' intentó crear un evento para la planta ID: {}, que no le pertenece.", currentUser.getUsername(), planta.getId());
-                throw new AccessDeniedException("No tienes permiso para crear un evento en una o más de las plantas seleccionadas.");
-            }
+        if (currentUserContext.isGrower()) {
+            plantaOwnershipAuthorizer.checkAllOwnedBy(dto.getPlantaIds(), currentUserContext.getId(),
+                    "No tienes permiso para crear un evento en una o más de las plantas seleccionadas.");
         }
 
         event.setPlantas(plantas);
@@ -87,48 +77,41 @@ public class WateringEventService {
     @Transactional(readOnly = true)
     public List<WateringEventDto> getAllWateringEvents() {
         log.info("\n\n🔍 Obteniendo todos los eventos de riego.");
-        return wateringEventRepository.findAll().stream()
-                .map(event -> (WateringEventDto) DtoMapper.plantEventToPlantEventDto(event))
-                .collect(Collectors.toList());
+        return plantEventDtoAssembler.toDtos(wateringEventRepository.findAll(), WateringEventDto.class);
+    }
+
+    @Transactional(readOnly = true)
+    public SliceDto<WateringEventDto> getWateringEventsPage(Pageable pageable) {
+        log.info("\n\n🔍 Obteniendo página {} de eventos de riego (tamaño {}).", pageable.getPageNumber(), pageable.getPageSize());
+        return plantEventDtoAssembler.toSliceDto(wateringEventRepository.findAllBy(pageable), WateringEventDto.class);
     }
 
     @Transactional(readOnly = true)
     public List<WateringEventDto> getWateringEventsByPlantaId(Long plantaId) {
         log.info("\n\n🔍 Obteniendo eventos de riego para la planta ID: {}", plantaId);
-        return wateringEventRepository.findByPlantaId(plantaId).stream()
-                .map(event -> (WateringEventDto) DtoMapper.plantEventToPlantEventDto(event))
-                .collect(Collectors.toList());
+        return plantEventDtoAssembler.toDtos(wateringEventRepository.findByPlantaId(plantaId), WateringEventDto.class);
     }
 
     @Transactional(readOnly = true)
     public List<WateringEventDto> getWateringEventsByFecha(LocalDate fecha) {
         log.info("\n\n🔍 Obteniendo eventos de riego para la fecha: {}", fecha);
-        return wateringEventRepository.findByFecha(fecha).stream()
-                .map(event -> (WateringEventDto) DtoMapper.plantEventToPlantEventDto(event))
-                .collect(Collectors.toList());
+        return plantEventDtoAssembler.toDtos(wateringEventRepository.findByFecha(fecha), WateringEventDto.class);
     }
 
     @Transactional(readOnly = true)
     public List<WateringEventDto> getWateringEventsByFechaAfter(LocalDate fecha) {
         log.info("\n\n🔍 Obteniendo eventos de riego posteriores a la fecha: {}", fecha);
-        return wateringEventRepository.findByFechaAfter(fecha).stream()
-                .map(event -> (WateringEventDto) DtoMapper.plantEventToPlantEventDto(event))
-                .collect(Collectors.toList());
+        return plantEventDtoAssembler.toDtos(wateringEventRepository.findByFechaAfter(fecha), WateringEventDto.class);
     }
 
     @Transactional
     public WateringEventDto updateWateringEvent(Long id, WateringEventDto dto) {
         log.info("\n\n⬆️ Actualizando evento de riego con ID: {}", id);
-        User currentUser = getCurrentUser();
         WateringEvent existingEvent = wateringEventRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Evento de riego no encontrado con id: " + id));
         
-        if (currentUser.getRol() == AppRole.ROLE_GROWER) {
-            for (Planta planta : existingEvent.getPlantas()) {
-                if (!planta.getUser().equals(currentUser)) {
-                    throw new AccessDeniedException("No tienes permiso para actualizar este evento");
-                }
-            }
+        if (currentUserContext.isGrower()) {
+            plantaOwnershipAuthorizer.checkEventOwnedBy(id, currentUserContext.getId(), "No tienes permiso para actualizar este evento");
         }
 
         existingEvent.setFecha(dto.getFecha());
@@ -137,6 +120,10 @@ public class WateringEventService {
         existingEvent.setTempAgua(dto.getTempAgua());
 
         if (dto.getPlantaIds() != null) {
+            if (currentUserContext.isGrower()) {
+                plantaOwnershipAuthorizer.checkAllOwnedBy(dto.getPlantaIds(), currentUserContext.getId(),
+                        "No tienes permiso para asociar el evento a una o más de las plantas seleccionadas.");
+            }
             List<Planta> plantas = plantaRepository.findAllById(dto.getPlantaIds());
              if (plantas.size() != dto.getPlantaIds().size()) {
                 log.warn("⚠️ Algunos IDs de plantas no fueron encontrados al actualizar el evento.");
@@ -152,16 +139,11 @@ public class WateringEventService {
     @Transactional
     public void deleteWateringEvent(Long id) {
         log.info("\n\n🗑️ Eliminando evento de riego con ID: {}", id);
-        User currentUser = getCurrentUser();
         WateringEvent event = wateringEventRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Evento de riego no encontrado con id: " + id));
 
-        if (currentUser.getRol() == AppRole.ROLE_GROWER) {
-            for (Planta planta : event.getPlantas()) {
-                if (!planta.getUser().equals(currentUser)) {
-                    throw new AccessDeniedException("No tienes permiso para eliminar este evento");
-                }
-            }
+        if (currentUserContext.isGrower()) {
+            plantaOwnershipAuthorizer.checkEventOwnedBy(id, currentUserContext.getId(), "No tienes permiso para eliminar este evento");
         }
         
         wateringEventRepository.deleteById(id);
@@ -3,9 +3,18 @@ package DeltaFlores.web.utils;
 import DeltaFlores.web.dto.*;
 import DeltaFlores.web.entities.*;
 import org.apache.coyote.BadRequestException;
+import org.springframework.data.domain.Slice;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 public final class DtoMapper {
@@ -59,6 +68,19 @@ public final class DtoMapper {
     }
 
     public static SalaDto salaToSalaDto(Sala sala) {
+        if (sala == null) {
+            return null;
+        }
+        Set<Long> plantaIds = sala.getPlantas() != null
+                ? sala.getPlantas().stream().map(Planta::getId).collect(Collectors.toSet())
+                : null;
+        return salaToSalaDto(sala, plantaIds);
+    }
+
+    /**
+     * Igual que salaToSalaDto(sala), con los IDs de plantas ya cargados en bloque: no toca Sala.plantas.
+     */
+    public static SalaDto salaToSalaDto(Sala sala, Set<Long> plantaIds) {
         if (sala == null) {
             return null;
         }
@@ -72,11 +94,7 @@ public final class DtoMapper {
         if (sala.getUser() != null) {
             salaDto.setUserId(sala.getUser().getId());
         }
-        if (sala.getPlantas() != null) {
-            salaDto.setPlantaIds(sala.getPlantas().stream()
-                    .map(Planta::getId)
-                    .collect(Collectors.toSet()));
-        }
+        salaDto.setPlantaIds(plantaIds);
         return salaDto;
     }
 
@@ -100,6 +118,16 @@ public final class DtoMapper {
 
 
     public static PlantaDto plantaToPlantaDto(Planta planta) {
+        List<Long> eventIds = planta.getEvents() != null
+                ? planta.getEvents().stream().map(PlantEvent::getId).collect(Collectors.toList())
+                : null;
+        return plantaToPlantaDto(planta, eventIds);
+    }
+
+    /**
+     * Igual que plantaToPlantaDto(planta), con los IDs de eventos ya cargados en bloque: no toca Planta.events.
+     */
+    public static PlantaDto plantaToPlantaDto(Planta planta, List<Long> eventIds) {
         PlantaDto plantaDto = new PlantaDto();
         plantaDto.setId(planta.getId());
         if (planta.getUser() != null) {
@@ -118,15 +146,48 @@ public final class DtoMapper {
             plantaDto.setCepaId(planta.getCepa().getId());
         }
 
-        if (planta.getEvents() != null && !planta.getEvents().isEmpty()) {
-            plantaDto.setEventIds(planta.getEvents().stream()
-                    .map(PlantEvent::getId)
+        // Siempre una lista ([] si la planta no tiene eventos), sin importar qué camino armó el DTO
+        plantaDto.setEventIds(eventIds != null ? eventIds : new ArrayList<>());
+
+        return plantaDto;
+    }
+
+    /**
+     * Los mismos campos que plantaToPlantaDto, leídos de una fila de PlantaRepository.SUMMARY_SELECT.
+     */
+    public static PlantaDto plantaSummaryRowToPlantaDto(Object[] row) {
+        PlantaDto plantaDto = new PlantaDto();
+        plantaDto.setId(toLong(row[0]));
+        plantaDto.setUserId(toLong(row[1]));
+        plantaDto.setNombre((String) row[2]);
+        plantaDto.setPublic(Boolean.TRUE.equals(row[3]));
+        plantaDto.setEtapa(row[4] != null ? NuevaEtapa.valueOf((String) row[4]) : null);
+        plantaDto.setSalaId(toLong(row[5]));
+        plantaDto.setCepaId(toLong(row[6]));
+        plantaDto.setProduccion(row[7] != null ? ((Number) row[7]).intValue() : 0);
+        plantaDto.setFechaCreacion(toLocalDate(row[8]));
+        plantaDto.setUbicacion((String) row[9]);
+        if (row[10] != null) {
+            plantaDto.setEventIds(Arrays.stream(((String) row[10]).split(","))
+                    .map(Long::valueOf)
                     .collect(Collectors.toList()));
+        } else {
+            plantaDto.setEventIds(new ArrayList<>());
         }
-
         return plantaDto;
     }
 
+    private static Long toLong(Object value) {
+        return value != null ? ((Number) value).longValue() : null;
+    }
+
+    private static LocalDate toLocalDate(Object value) {
+        if (value instanceof java.sql.Date date) {
+            return date.toLocalDate();
+        }
+        return (LocalDate) value;
+    }
+
     public static Planta plantaDtoToPlanta(Planta planta, PlantaDto plantaDto, Cepa cepa, Sala sala) {
         if (plantaDto.getId() != null && plantaDto.getId() > 0) {
             planta.setId(plantaDto.getId());
@@ -216,8 +277,35 @@ public final class DtoMapper {
     // =====================================================================================
 
     public static PlantEventDto plantEventToPlantEventDto(PlantEvent event) {
+        List<Long> plantaIds = event.getPlantas() != null
+                ? event.getPlantas().stream().map(Planta::getId).collect(Collectors.toList())
+                : null;
+        return plantEventToPlantEventDto(event, plantaIds);
+    }
+
+    /**
+     * Igual que plantEventToPlantEventDto(event), con los IDs de plantas ya cargados (ver PlantEventDtoAssembler):
+     * no toca la colección lazy plantas.
+     */
+    public static PlantEventDto plantEventToPlantEventDto(PlantEvent event, List<Long> plantaIds) {
+        return plantEventToPlantEventDto(event, plantaIds, null);
+    }
+
+    /**
+     * Igual que plantEventToPlantEventDto(event, plantaIds), con las variantes de media de la nota también cargadas
+     * (ver PlantEventDtoAssembler). Con mediaVariants null se usa la colección lazy.
+     */
+    public static PlantEventDto plantEventToPlantEventDto(PlantEvent event, List<Long> plantaIds, List<MediaVariant> mediaVariants) {
+        PlantEventDto dto = plantEventToTypedDto(event, mediaVariants);
+        if (plantaIds != null && !plantaIds.isEmpty()) {
+            dto.setPlantaIds(plantaIds);
+        }
+        return dto;
+    }
+
+    private static PlantEventDto plantEventToTypedDto(PlantEvent event, List<MediaVariant> mediaVariants) {
         if (event instanceof NoteEvent) {
-            return noteEventToNoteEventDto((NoteEvent) event);
+            return noteEventToNoteEventDto((NoteEvent) event, mediaVariants);
         } else if (event instanceof WateringEvent) {
             return wateringEventToWateringEventDto((WateringEvent) event);
         } else if (event instanceof PruningEvent) {
@@ -234,12 +322,21 @@ public final class DtoMapper {
         throw new IllegalArgumentException("Unknown event type: " + event.getClass().getName());
     }
 
-    private static NoteEventDto noteEventToNoteEventDto(NoteEvent event) {
+    private static NoteEventDto noteEventToNoteEventDto(NoteEvent event, List<MediaVariant> mediaVariants) {
         NoteEventDto dto = new NoteEventDto();
         copyCommonEventPropertiesToDto(event, dto);
         dto.setEventType("NOTE");
         dto.setText(event.getText());
         dto.setMediaUrls(event.getMediaUrls());
+        if (event.getMediaUrls() != null) {
+            Map<String, String> thumbnails = new HashMap<>();
+            Map<String, String> webVersions = new HashMap<>();
+            for (MediaVariant variant : mediaVariants != null ? mediaVariants : event.getMediaVariants()) {
+                (variant.getType() == MediaVariantType.THUMBNAIL ? thumbnails : webVersions).put(variant.getOriginalUrl(), variant.getUrl());
+            }
+            dto.setThumbnailUrls(event.getMediaUrls().stream().map(thumbnails::get).collect(Collectors.toList()));
+            dto.setWebUrls(event.getMediaUrls().stream().map(webVersions::get).collect(Collectors.toList()));
+        }
         return dto;
     }
 
@@ -300,11 +397,6 @@ public final class DtoMapper {
     private static void copyCommonEventPropertiesToDto(PlantEvent event, PlantEventDto dto) {
         dto.setId(event.getId());
         dto.setFecha(event.getFecha());
-        if (event.getPlantas() != null && !event.getPlantas().isEmpty()) {
-            dto.setPlantaIds(event.getPlantas().stream()
-                                  .map(Planta::getId)
-                                  .collect(Collectors.toList()));
-        }
     }
 
     // =====================================================================================
@@ -386,4 +478,22 @@ public final class DtoMapper {
         event.setFecha(dto.getFecha());
 
     }
+
+    // =====================================================================================
+    // Slice Mapping
+    // =====================================================================================
+
+    public static <E, D> SliceDto<D> sliceToSliceDto(Slice<E> slice, Function<E, D> mapper) {
+        return sliceToSliceDto(slice, mapper, null);
+    }
+
+    public static <E, D> SliceDto<D> sliceToSliceDto(Slice<E> slice, Function<E, D> mapper, Long totalEstimate) {
+        SliceDto<D> sliceDto = new SliceDto<>();
+        sliceDto.setContent(slice.getContent().stream().map(mapper).collect(Collectors.toList()));
+        sliceDto.setPage(slice.getNumber());
+        sliceDto.setSize(slice.getSize());
+        sliceDto.setHasNext(slice.hasNext());
+        sliceDto.setTotalEstimate(totalEstimate);
+        return sliceDto;
+    }
 }
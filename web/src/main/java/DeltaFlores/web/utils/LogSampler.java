@@ -0,0 +1,47 @@
+package DeltaFlores.web.utils;
+
+import java.time.Duration;
+
+/**
+ * Muestreo de logs repetitivos por clave (p. ej. un log por request y por usuario): deja pasar el primero
+ * de cada clave y vuelve a dejar pasar uno por intervalo, contando los que se omitieron en el medio.
+ * Las claves se guardan en un LruCache acotado, así que una clave desalojada vuelve a loguearse enseguida.
+ */
+public class LogSampler {
+
+    private static final class Window {
+        private long startedAt;
+        private long suppressed;
+
+        private Window(long startedAt) {
+            this.startedAt = startedAt;
+        }
+    }
+
+    private final long intervalNanos;
+    private final LruCache<String, Window> windows;
+
+    public LogSampler(Duration interval, int maxKeys) {
+        this.intervalNanos = interval.toNanos();
+        this.windows = new LruCache<>(maxKeys);
+    }
+
+    /**
+     * @return -1 si este evento no se loguea; si no, la cantidad de eventos de la clave omitidos desde el último logueado.
+     */
+    public long sample(String key) {
+        long now = System.nanoTime();
+        // Una clave nueva arranca con la ventana ya vencida: su primer evento se loguea
+        Window window = windows.computeIfAbsent(key, k -> new Window(now - intervalNanos));
+        synchronized (window) {
+            if (now - window.startedAt < intervalNanos) {
+                window.suppressed++;
+                return -1;
+            }
+            long suppressed = window.suppressed;
+            window.startedAt = now;
+            window.suppressed = 0;
+            return suppressed;
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package DeltaFlores.web.utils;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
+import org.springframework.http.MediaType;
+import org.springframework.http.MediaTypeFactory;
+import org.springframework.web.context.request.ServletWebRequest;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Cabeceras comunes al servir archivos multimedia: peticiones condicionales (ETag / Last-Modified → 304)
+ * y un único rango de bytes (206 / 416). Con varios rangos se responde el archivo completo, lo que el RFC 9110 permite.
+ */
+public final class MediaResponses {
+
+    /**
+     * Porción del archivo que hay que escribir en el cuerpo de la respuesta.
+     */
+    public record ByteSpan(long start, long count) {
+    }
+
+    private MediaResponses() {
+    }
+
+    /**
+     * Escribe estado y cabeceras. Devuelve la porción a enviar, o null si la respuesta ya quedó completa
+     * (304, 416 o HEAD) y no hay que escribir cuerpo.
+     */
+    public static ByteSpan prepare(HttpServletRequest request, HttpServletResponse response,
+                                   String objectName, long length, String etag, long lastModified) throws IOException {
+        if (new ServletWebRequest(request, response).checkNotModified(etag, lastModified)) {
+            return null;
+        }
+
+        MediaType mediaType = MediaTypeFactory.getMediaType(objectName).orElse(MediaType.APPLICATION_OCTET_STREAM);
+        response.setContentType(mediaType.toString());
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+        response.setHeader(HttpHeaders.CACHE_CONTROL, "private, max-age=86400");
+
+        long start = 0;
+        long end = length - 1;
+        List<HttpRange> ranges = parseRanges(request, etag);
+        if (ranges == null) {
+            rejectRange(response, length);
+            return null;
+        }
+        if (ranges.size() == 1) {
+            HttpRange range = ranges.get(0);
+            try {
+                start = range.getRangeStart(length);
+                end = range.getRangeEnd(length);
+            } catch (IllegalArgumentException e) {
+                start = length;
+            }
+            if (start >= length || start > end) {
+                rejectRange(response, length);
+                return null;
+            }
+            response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+            response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + end + "/" + length);
+        }
+        long count = end - start + 1;
+        response.setContentLengthLong(count);
+
+        if ("HEAD".equals(request.getMethod()) || count <= 0) {
+            return null;
+        }
+        return new ByteSpan(start, count);
+    }
+
+    /**
+     * Rangos pedidos, lista vacía si hay que enviar el archivo completo, o null si la cabecera Range es inválida.
+     * Si If-Range no coincide con el ETag actual se ignora el rango.
+     */
+    private static List<HttpRange> parseRanges(HttpServletRequest request, String etag) {
+        String rangeHeader = request.getHeader(HttpHeaders.RANGE);
+        if (rangeHeader == null) {
+            return List.of();
+        }
+        String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+        if (ifRange != null && !ifRange.equals(etag)) {
+            return List.of();
+        }
+        try {
+            return HttpRange.parseRanges(rangeHeader);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private static void rejectRange(HttpServletResponse response, long length) throws IOException {
+        response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + length);
+        response.sendError(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+    }
+}
@@ -0,0 +1,42 @@
+package DeltaFlores.web.utils;
+
+import lombok.extern.log4j.Log4j2;
+
+/**
+ * Reintentos con espera exponencial para operaciones idempotentes (p. ej. subir una parte de un archivo).
+ */
+@Log4j2
+public final class Retry {
+
+    private static final long INITIAL_BACKOFF_MS = 200;
+    private static final long MAX_BACKOFF_MS = 5_000;
+
+    @FunctionalInterface
+    public interface Attempt<T> {
+        T run() throws Exception;
+    }
+
+    private Retry() {
+    }
+
+    /**
+     * Ejecuta la operación hasta {@code maxAttempts} veces. Si todos los intentos fallan
+     * se relanza la última excepción.
+     */
+    public static <T> T withBackoff(String description, int maxAttempts, Attempt<T> attempt) throws Exception {
+        int attempts = Math.max(1, maxAttempts);
+        long backoff = INITIAL_BACKOFF_MS;
+        for (int i = 1; ; i++) {
+            try {
+                return attempt.run();
+            } catch (Exception e) {
+                if (i >= attempts) {
+                    throw e;
+                }
+                log.warn("\n\n⚠️ Falló {} (intento {}/{}): {}. Reintentando en {} ms...", description, i, attempts, e.getMessage(), backoff);
+                Thread.sleep(backoff);
+                backoff = Math.min(backoff * 2, MAX_BACKOFF_MS);
+            }
+        }
+    }
+}
@@ -0,0 +1,168 @@
+package DeltaFlores.web.repository;
+
+import DeltaFlores.web.entities.AppRole;
+import DeltaFlores.web.entities.Cepa;
+import DeltaFlores.web.entities.NoteEvent;
+import DeltaFlores.web.entities.NuevaEtapa;
+import DeltaFlores.web.entities.PlantEvent;
+import DeltaFlores.web.entities.Planta;
+import DeltaFlores.web.entities.Sala;
+import DeltaFlores.web.entities.User;
+import DeltaFlores.web.entities.WateringEvent;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.domain.PageRequest;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Keyset de la línea de tiempo: recorriendo página por página con cualquier tamaño se obtienen todos los
+ * eventos de la planta exactamente una vez, en orden (fecha, id), con empates de fecha en el borde de página
+ * y los eventos sin fecha al final.
+ */
+@DataJpaTest
+class PlantEventRepositoryTest {
+
+    private static final LocalDate MARCH = LocalDate.of(2026, 3, 1);
+    private static final LocalDate APRIL = LocalDate.of(2026, 4, 1);
+    private static final List<Class<? extends PlantEvent>> WATERING = List.of(WateringEvent.class);
+    private static final List<Class<? extends PlantEvent>> ALL_TYPES = List.of(WateringEvent.class, NoteEvent.class);
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private PlantEventRepository plantEventRepository;
+
+    private Planta planta;
+    private List<Long> wateringTimeline;
+    private List<Long> fullTimeline;
+
+    @BeforeEach
+    void setUp() {
+        User user = new User();
+        user.setUsername("grower");
+        user.setPassword("secret");
+        user.setRol(AppRole.ROLE_GROWER);
+        entityManager.persist(user);
+        Cepa cepa = new Cepa();
+        cepa.setUser(user);
+        entityManager.persist(cepa);
+        Sala sala = new Sala();
+        sala.setUser(user);
+        entityManager.persist(sala);
+        planta = planta(user, cepa, sala, "A");
+        Planta other = planta(user, cepa, sala, "B");
+
+        // Los IDs crecen en orden de inserción; las fechas se mezclan para que el orden no coincida con el de los IDs
+        Long m1 = event(new WateringEvent(), MARCH, planta);
+        Long a1 = event(new WateringEvent(), APRIL, planta);
+        Long m2 = event(new WateringEvent(), MARCH, planta);
+        Long n1 = event(new WateringEvent(), null, planta);
+        Long a2 = event(new WateringEvent(), APRIL, planta, other);
+        Long note = event(new NoteEvent(), MARCH, planta);
+        Long n2 = event(new WateringEvent(), null, planta);
+        Long m3 = event(new WateringEvent(), MARCH, planta);
+        event(new WateringEvent(), MARCH, other);
+        event(new WateringEvent(), null, other);
+        entityManager.clear();
+
+        wateringTimeline = List.of(m1, m2, m3, a1, a2, n1, n2);
+        fullTimeline = List.of(m1, m2, note, m3, a1, a2, n1, n2);
+    }
+
+    @Test
+    void everyPageSizeWalksTheWholeTimelineOnce() {
+        for (int size = 1; size <= wateringTimeline.size() + 1; size++) {
+            assertEquals(wateringTimeline, walk(WATERING, size), "tamaño de página " + size);
+        }
+    }
+
+    @Test
+    void typeFilterDoesNotShiftTheBoundaries() {
+        for (int size = 1; size <= fullTimeline.size() + 1; size++) {
+            assertEquals(fullTimeline, walk(ALL_TYPES, size), "tamaño de página " + size);
+        }
+    }
+
+    @Test
+    void pageAfterTheLastDatedEventContinuesWithTheUndatedOnes() {
+        Long lastDated = wateringTimeline.get(4);
+
+        List<PlantEvent> page = plantEventRepository.findTimelinePageAfter(planta.getId(), WATERING, APRIL, lastDated,
+                PageRequest.of(0, 10));
+
+        assertEquals(wateringTimeline.subList(5, 7), ids(page));
+    }
+
+    @Test
+    void pageAfterAnUndatedEventSkipsAllDatedOnes() {
+        Long firstUndated = wateringTimeline.get(5);
+
+        List<PlantEvent> page = plantEventRepository.findUndatedTimelinePageAfter(planta.getId(), WATERING, firstUndated,
+                PageRequest.of(0, 10));
+
+        assertEquals(wateringTimeline.subList(6, 7), ids(page));
+    }
+
+    /**
+     * Recorre la línea de tiempo igual que PlantEventService: size + 1 filas por página y el último evento
+     * como posición, con fecha vacía para los eventos sin fecha.
+     */
+    private List<Long> walk(Collection<Class<? extends PlantEvent>> types, int size) {
+        List<Long> visited = new ArrayList<>();
+        PageRequest limit = PageRequest.of(0, size + 1);
+        List<PlantEvent> page = plantEventRepository.findTimelineFirstPage(planta.getId(), types, limit);
+        while (true) {
+            boolean hasMore = page.size() > size;
+            List<PlantEvent> events = hasMore ? page.subList(0, size) : page;
+            visited.addAll(ids(events));
+            if (!hasMore) {
+                return visited;
+            }
+            PlantEvent last = events.get(events.size() - 1);
+            page = last.getFecha() != null
+                    ? plantEventRepository.findTimelinePageAfter(planta.getId(), types, last.getFecha(), last.getId(), limit)
+                    : plantEventRepository.findUndatedTimelinePageAfter(planta.getId(), types, last.getId(), limit);
+        }
+    }
+
+    private Planta planta(User user, Cepa cepa, Sala sala, String nombre) {
+        Planta planta = new Planta();
+        planta.setUser(user);
+        planta.setCepa(cepa);
+        planta.setSala(sala);
+        planta.setNombre(nombre);
+        planta.setEtapa(NuevaEtapa.VEGETACION);
+        return entityManager.persist(planta);
+    }
+
+    /**
+     * @CreationTimestamp pisa la fecha al insertar, así que se fija (o se borra) después con un UPDATE.
+     */
+    private Long event(PlantEvent event, LocalDate fecha, Planta... plantas) {
+        entityManager.persist(event);
+        for (Planta owner : plantas) {
+            owner.getEvents().add(event);
+        }
+        entityManager.flush();
+        entityManager.getEntityManager()
+                .createQuery("UPDATE PlantEvent e SET e.fecha = :fecha WHERE e.id = :id")
+                .setParameter("fecha", fecha)
+                .setParameter("id", event.getId())
+                .executeUpdate();
+        return event.getId();
+    }
+
+    private static List<Long> ids(List<PlantEvent> events) {
+        return events.stream().map(PlantEvent::getId).toList();
+    }
+}
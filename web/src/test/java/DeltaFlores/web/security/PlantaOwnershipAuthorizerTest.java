@@ -0,0 +1,171 @@
+package DeltaFlores.web.security;
+
+import DeltaFlores.web.repository.PlantEventRepository;
+import DeltaFlores.web.repository.PlantaRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.access.AccessDeniedException;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Caché planta -> dueño: cuándo se consulta la base, qué expulsa la LRU y que una planta eliminada
+ * o transferida deje de autorizar al dueño anterior.
+ */
+class PlantaOwnershipAuthorizerTest {
+
+    private static final Long OWNER = 1L;
+    private static final Long OTHER = 2L;
+    private static final String DENIED = "No tienes permiso";
+
+    @Test
+    void onlyPlantasMissingFromTheCacheAreQueried() {
+        FakePlantas plantas = new FakePlantas(Map.of(10L, OWNER, 11L, OWNER, 12L, OTHER));
+        PlantaOwnershipAuthorizer authorizer = authorizer(plantas, 100);
+
+        assertEquals(Map.of(10L, OWNER, 11L, OWNER), authorizer.findOwnerIds(List.of(10L, 11L)));
+        assertEquals(Map.of(10L, OWNER, 11L, OWNER, 12L, OTHER), authorizer.findOwnerIds(List.of(10L, 11L, 12L, 99L)));
+        authorizer.checkAllOwnedBy(List.of(10L, 11L, 10L), OWNER, DENIED);
+
+        assertEquals(List.of(Set.of(10L, 11L), Set.of(12L, 99L)), plantas.queries);
+    }
+
+    @Test
+    void leastRecentlyUsedOwnerIsEvictedWhenTheCacheIsFull() {
+        FakePlantas plantas = new FakePlantas(Map.of(10L, OWNER, 11L, OWNER, 12L, OWNER));
+        PlantaOwnershipAuthorizer authorizer = authorizer(plantas, 2);
+
+        authorizer.findOwnerIds(List.of(10L));
+        authorizer.findOwnerIds(List.of(11L));
+        // 10 pasa a ser la más reciente; al entrar 12 sale 11
+        authorizer.findOwnerIds(List.of(10L));
+        authorizer.findOwnerIds(List.of(12L));
+        plantas.queries.clear();
+
+        authorizer.findOwnerIds(List.of(10L, 12L));
+        assertEquals(List.of(), plantas.queries);
+        authorizer.findOwnerIds(List.of(11L));
+        assertEquals(List.of(Set.of(11L)), plantas.queries);
+    }
+
+    @Test
+    void transferredPlantaIsReloadedAfterEvict() {
+        FakePlantas plantas = new FakePlantas(Map.of(10L, OWNER));
+        PlantaOwnershipAuthorizer authorizer = authorizer(plantas, 100);
+        authorizer.checkAllOwnedBy(List.of(10L), OWNER, DENIED);
+
+        plantas.owners.put(10L, OTHER);
+        authorizer.evict(10L);
+
+        assertThrows(AccessDeniedException.class, () -> authorizer.checkAllOwnedBy(List.of(10L), OWNER, DENIED));
+        authorizer.checkAllOwnedBy(List.of(10L), OTHER, DENIED);
+    }
+
+    @Test
+    void deletedPlantaIsDeniedAfterEvict() {
+        FakePlantas plantas = new FakePlantas(Map.of(10L, OWNER, 11L, OWNER));
+        PlantaOwnershipAuthorizer authorizer = authorizer(plantas, 100);
+        authorizer.checkAllOwnedBy(List.of(10L, 11L), OWNER, DENIED);
+
+        plantas.owners.remove(10L);
+        authorizer.evict(10L);
+
+        AccessDeniedException denied = assertThrows(AccessDeniedException.class,
+                () -> authorizer.checkAllOwnedBy(List.of(10L, 11L), OWNER, DENIED));
+        assertEquals(DENIED, denied.getMessage());
+        authorizer.checkAllOwnedBy(List.of(11L), OWNER, DENIED);
+    }
+
+    @Test
+    void evictInsideATransactionDropsTheOwnerCachedBeforeTheCommit() {
+        FakePlantas plantas = new FakePlantas(Map.of(10L, OWNER));
+        PlantaOwnershipAuthorizer authorizer = authorizer(plantas, 100);
+
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            authorizer.evict(10L);
+            List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+            assertEquals(1, synchronizations.size());
+
+            // Una lectura concurrente antes del commit vuelve a cachear el dueño anterior
+            authorizer.checkAllOwnedBy(List.of(10L), OWNER, DENIED);
+            plantas.owners.put(10L, OTHER);
+            synchronizations.forEach(synchronization -> synchronization.afterCompletion(TransactionSynchronization.STATUS_COMMITTED));
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        assertThrows(AccessDeniedException.class, () -> authorizer.checkAllOwnedBy(List.of(10L), OWNER, DENIED));
+    }
+
+    @Test
+    void eventIsOwnedOnlyIfEveryPlantaIs() {
+        FakePlantas plantas = new FakePlantas(Map.of(10L, OWNER, 11L, OTHER));
+        PlantaOwnershipAuthorizer authorizer = new PlantaOwnershipAuthorizer(plantas.repository(),
+                events(Map.of(100L, List.of(10L), 101L, List.of(10L, 11L))), 100);
+
+        authorizer.checkEventOwnedBy(100L, OWNER, DENIED);
+        assertThrows(AccessDeniedException.class, () -> authorizer.checkEventOwnedBy(101L, OWNER, DENIED));
+    }
+
+    private static PlantaOwnershipAuthorizer authorizer(FakePlantas plantas, int maxEntries) {
+        return new PlantaOwnershipAuthorizer(plantas.repository(), events(Map.of()), maxEntries);
+    }
+
+    private static PlantEventRepository events(Map<Long, List<Long>> plantaIdsByEvent) {
+        return (PlantEventRepository) Proxy.newProxyInstance(PlantEventRepository.class.getClassLoader(),
+                new Class<?>[]{PlantEventRepository.class}, (proxy, method, args) -> {
+                    if (!method.getName().equals("findPlantaIdsByEventId")) {
+                        throw new UnsupportedOperationException(method.getName());
+                    }
+                    return plantaIdsByEvent.getOrDefault((Long) args[0], List.of());
+                });
+    }
+
+    /**
+     * Tabla de plantas en memoria que registra los IDs de cada consulta de dueños.
+     */
+    private static final class FakePlantas {
+        private final Map<Long, Long> owners;
+        private final List<Set<Long>> queries = new ArrayList<>();
+
+        FakePlantas(Map<Long, Long> owners) {
+            this.owners = new HashMap<>(owners);
+        }
+
+        PlantaRepository repository() {
+            return (PlantaRepository) Proxy.newProxyInstance(PlantaRepository.class.getClassLoader(),
+                    new Class<?>[]{PlantaRepository.class}, (proxy, method, args) -> {
+                        if (!method.getName().equals("findOwnerIdsByIds")) {
+                            throw new UnsupportedOperationException(method.getName());
+                        }
+                        return findOwnerIdsByIds((Collection<?>) args[0]);
+                    });
+        }
+
+        private List<Object[]> findOwnerIdsByIds(Collection<?> ids) {
+            Set<Long> queried = new TreeSet<>();
+            List<Object[]> rows = new ArrayList<>();
+            for (Object id : ids) {
+                queried.add((Long) id);
+                Long owner = owners.get((Long) id);
+                if (owner != null) {
+                    rows.add(new Object[]{id, owner});
+                }
+            }
+            queries.add(queried);
+            return rows;
+        }
+    }
+}
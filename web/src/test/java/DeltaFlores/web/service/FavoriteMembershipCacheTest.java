@@ -0,0 +1,156 @@
+package DeltaFlores.web.service;
+
+import DeltaFlores.web.repository.FavoriteRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * La guarda de generaciones: un evict que llega mientras otra consulta está cargando de la base
+ * tiene que impedir que ese resultado (anterior al cambio) quede cacheado.
+ */
+class FavoriteMembershipCacheTest {
+
+    private static final Long USER_ID = 7L;
+    private static final String PLANTA = "PLANTA";
+
+    @Test
+    void secondLookupIsServedFromTheCache() {
+        FakeFavorites favorites = new FakeFavorites();
+        favorites.set(1L, 3L);
+        FavoriteMembershipCache cache = new FavoriteMembershipCache(favorites.repository(), 100);
+
+        assertEquals(bits(0, 2), cache.contains(USER_ID, PLANTA, List.of(1L, 2L, 3L)));
+        assertEquals(bits(1), cache.contains(USER_ID, PLANTA, List.of(2L, 3L)));
+        assertEquals(new BitSet(), cache.contains(USER_ID, "SALA", List.of(1L)));
+        assertEquals(1, favorites.loads.get());
+    }
+
+    @Test
+    void evictDuringALoadKeepsTheStaleResultOutOfTheCache() throws Exception {
+        FakeFavorites favorites = new FakeFavorites();
+        favorites.set(1L);
+        FavoriteMembershipCache cache = new FavoriteMembershipCache(favorites.repository(), 100);
+        favorites.blockNextLoad();
+
+        CompletableFuture<BitSet> blocked = CompletableFuture.supplyAsync(() -> cache.contains(USER_ID, PLANTA, List.of(1L, 2L)));
+        assertTrue(favorites.loading.await(5, TimeUnit.SECONDS), "la carga no empezó");
+        // El favorito cambia y se invalida mientras la carga anterior sigue en curso
+        favorites.set(2L);
+        cache.evict(USER_ID);
+        favorites.release.countDown();
+
+        // La consulta en vuelo responde con lo que leyó, pero no lo guarda
+        assertEquals(bits(0), blocked.get(5, TimeUnit.SECONDS));
+        assertEquals(bits(1), cache.contains(USER_ID, PLANTA, List.of(1L, 2L)));
+        assertEquals(2, favorites.loads.get());
+        // Esa segunda carga sí quedó cacheada
+        cache.contains(USER_ID, PLANTA, List.of(1L, 2L));
+        assertEquals(2, favorites.loads.get());
+    }
+
+    @Test
+    void evictInsideATransactionInvalidatesAgainAfterCompletion() {
+        FakeFavorites favorites = new FakeFavorites();
+        favorites.set(1L);
+        FavoriteMembershipCache cache = new FavoriteMembershipCache(favorites.repository(), 100);
+
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            cache.evict(USER_ID);
+            List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+            assertEquals(1, synchronizations.size());
+
+            // Antes del commit otra consulta todavía ve y cachea el estado anterior
+            assertEquals(bits(0), cache.contains(USER_ID, PLANTA, List.of(1L, 2L)));
+            favorites.set(2L);
+            synchronizations.forEach(synchronization -> synchronization.afterCompletion(TransactionSynchronization.STATUS_COMMITTED));
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        assertEquals(bits(1), cache.contains(USER_ID, PLANTA, List.of(1L, 2L)));
+        assertEquals(2, favorites.loads.get());
+    }
+
+    @Test
+    void evictOutsideATransactionOnlyInvalidatesThatUser() {
+        FakeFavorites favorites = new FakeFavorites();
+        favorites.set(1L);
+        FavoriteMembershipCache cache = new FavoriteMembershipCache(favorites.repository(), 100);
+        cache.contains(USER_ID, PLANTA, List.of(1L));
+        cache.contains(8L, PLANTA, List.of(1L));
+
+        cache.evict(USER_ID);
+        cache.contains(8L, PLANTA, List.of(1L));
+        assertEquals(2, favorites.loads.get());
+        cache.contains(USER_ID, PLANTA, List.of(1L));
+        assertEquals(3, favorites.loads.get());
+    }
+
+    private static BitSet bits(int... indexes) {
+        BitSet bits = new BitSet();
+        for (int index : indexes) {
+            bits.set(index);
+        }
+        return bits;
+    }
+
+    /**
+     * Repositorio en memoria: todos los usuarios tienen los mismos favoritos de tipo PLANTA.
+     * Con blockNextLoad la próxima carga lee las filas y espera a release antes de devolverlas.
+     */
+    private static final class FakeFavorites {
+        private final AtomicInteger loads = new AtomicInteger();
+        private final CountDownLatch loading = new CountDownLatch(1);
+        private final CountDownLatch release = new CountDownLatch(1);
+        private volatile List<Long> ids = List.of();
+        private volatile boolean blockNext;
+
+        void set(Long... ids) {
+            this.ids = List.of(ids);
+        }
+
+        void blockNextLoad() {
+            blockNext = true;
+        }
+
+        FavoriteRepository repository() {
+            return (FavoriteRepository) Proxy.newProxyInstance(FavoriteRepository.class.getClassLoader(),
+                    new Class<?>[]{FavoriteRepository.class}, (proxy, method, args) -> {
+                        if (!method.getName().equals("findTypesAndIdsByUserId")) {
+                            throw new UnsupportedOperationException(method.getName());
+                        }
+                        return rows();
+                    });
+        }
+
+        private List<Object[]> rows() throws InterruptedException {
+            loads.incrementAndGet();
+            List<Object[]> rows = new ArrayList<>();
+            for (Long id : ids) {
+                rows.add(new Object[]{PLANTA, id});
+            }
+            if (blockNext) {
+                blockNext = false;
+                loading.countDown();
+                if (!release.await(5, TimeUnit.SECONDS)) {
+                    throw new IllegalStateException("release no llegó");
+                }
+            }
+            return rows;
+        }
+    }
+}
@@ -0,0 +1,241 @@
+package DeltaFlores.web.service;
+
+import DeltaFlores.web.dto.LogEntryDto;
+import DeltaFlores.web.dto.LogQueryResultDto;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Ida y vuelta sobre archivos reales: se escribe un log rotado, se indexa (copia .blocks con gzip por bloques + .idx,
+ * sin tocar el .gz de log4j2) y se consulta un rango; y la búsqueda binaria sobre app.log.
+ */
+class LogQueryServiceTest {
+
+    private static final DateTimeFormatter TIMESTAMP = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss.SSS");
+    private static final LocalDateTime START = LocalDateTime.of(2026, 3, 1, 0, 0);
+    private static final int BLOCK_SIZE_BYTES = 4096;
+
+    @TempDir
+    Path logsDir;
+
+    @Test
+    void indexingWritesIndependentBlocksNextToTheUntouchedArchive() throws IOException {
+        String content = logLines(START, 2000);
+        Path archive = writeArchive("app-2026-03-01.log.gz", content);
+        byte[] original = Files.readAllBytes(archive);
+        FileTime modified = Files.getLastModifiedTime(archive);
+
+        LogArchiveIndexer indexer = new LogArchiveIndexer(logsDir.toString(), BLOCK_SIZE_BYTES);
+        LogArchiveIndexer.ArchiveIndex index = indexer.indexFor(archive);
+
+        assertTrue(index.blocks().size() > 10, "se esperaban varios bloques, hubo " + index.blocks().size());
+        assertTrue(Files.exists(logsDir.resolve("app-2026-03-01.log.gz.idx")));
+        assertArrayEquals(original, Files.readAllBytes(archive));
+        assertEquals(modified, Files.getLastModifiedTime(archive));
+        assertEquals(original.length, index.archiveSize());
+        // La copia es un .gz válido: los miembros concatenados se leen como el archivo original
+        Path blocks = logsDir.resolve("app-2026-03-01.log.gz.blocks");
+        assertEquals(content, gunzip(blocks));
+
+        long expectedOffset = 0;
+        int entries = 0;
+        for (LogArchiveIndexer.Block block : index.blocks()) {
+            assertEquals(expectedOffset, block.offset());
+            expectedOffset += block.length();
+            // Cada bloque se descomprime solo, empieza en una entrada y cae dentro de su rango de tiempo
+            List<String> lines;
+            try (InputStream in = indexer.openBlock(archive, block)) {
+                lines = new String(in.readAllBytes(), StandardCharsets.UTF_8).lines().toList();
+            }
+            assertTrue(LogEntryReader.isHeader(lines.get(0)));
+            for (String line : lines) {
+                LogEntryDto header = LogEntryReader.parseHeader(line);
+                if (header != null) {
+                    long millis = LogEntryReader.toMillis(header.getTimestamp());
+                    assertTrue(millis >= block.firstMillis() && millis <= block.lastMillis());
+                    entries++;
+                }
+            }
+        }
+        assertEquals(Files.size(blocks), expectedOffset);
+        assertEquals(2000, entries);
+    }
+
+    @Test
+    void storedIndexIsReusedWithoutRebuildingTheBlocks() throws IOException {
+        Path archive = writeArchive("app-2026-03-01.log.gz", logLines(START, 500));
+        LogArchiveIndexer.ArchiveIndex first = new LogArchiveIndexer(logsDir.toString(), BLOCK_SIZE_BYTES).indexFor(archive);
+        Path blocks = logsDir.resolve("app-2026-03-01.log.gz.blocks");
+        byte[] indexed = Files.readAllBytes(blocks);
+        Path indexFile = logsDir.resolve("app-2026-03-01.log.gz.idx");
+        FileTime indexWritten = FileTime.fromMillis(System.currentTimeMillis() - 3_600_000);
+        Files.setLastModifiedTime(indexFile, indexWritten);
+
+        // Otra instancia (reinicio de la aplicación) lee el .idx en lugar de reconstruirlo
+        LogArchiveIndexer.ArchiveIndex reloaded = new LogArchiveIndexer(logsDir.toString(), BLOCK_SIZE_BYTES).indexFor(archive);
+
+        assertEquals(indexWritten, Files.getLastModifiedTime(indexFile));
+        assertArrayEquals(indexed, Files.readAllBytes(blocks));
+        assertEquals(first.archiveSize(), reloaded.archiveSize());
+        assertEquals(first.blocks().size(), reloaded.blocks().size());
+        for (int i = 0; i < first.blocks().size(); i++) {
+            LogArchiveIndexer.Block expected = first.blocks().get(i);
+            LogArchiveIndexer.Block actual = reloaded.blocks().get(i);
+            assertEquals(expected.offset(), actual.offset());
+            assertEquals(expected.length(), actual.length());
+            assertEquals(expected.firstMillis(), actual.firstMillis());
+            assertEquals(expected.lastMillis(), actual.lastMillis());
+            assertArrayEquals(expected.levelCounts(), actual.levelCounts());
+            assertEquals(expected.loggers(), actual.loggers());
+        }
+    }
+
+    @Test
+    void missingBlocksFileIsRebuiltAndOrphanSidecarsAreRemoved() throws IOException {
+        String content = logLines(START, 500);
+        Path archive = writeArchive("app-2026-03-01.log.gz", content);
+        Path blocks = logsDir.resolve("app-2026-03-01.log.gz.blocks");
+        Path indexFile = logsDir.resolve("app-2026-03-01.log.gz.idx");
+        new LogArchiveIndexer(logsDir.toString(), BLOCK_SIZE_BYTES).indexFor(archive);
+
+        // Con el .idx presente pero sin la copia, el índice no sirve y se reconstruye
+        Files.delete(blocks);
+        LogArchiveIndexer indexer = new LogArchiveIndexer(logsDir.toString(), BLOCK_SIZE_BYTES);
+        indexer.indexFor(archive);
+        assertEquals(content, gunzip(blocks));
+
+        // Cuando log4j2 borra el archivo por antigüedad, el índice y la copia se van con él
+        Files.delete(archive);
+        indexer.indexPendingArchives();
+        assertFalse(Files.exists(blocks));
+        assertFalse(Files.exists(indexFile));
+    }
+
+    @Test
+    void rangeQueryOnArchiveReturnsExactlyTheEntriesInRangeAndSkipsOtherBlocks() throws IOException {
+        writeArchive("app-2026-03-01.log.gz", logLines(START, 2000));
+        LogQueryService service = newService();
+
+        LocalDateTime from = START.plusMinutes(700);
+        LocalDateTime to = START.plusMinutes(799);
+        LogQueryResultDto result = service.search(new LogQueryService.LogQuery(from, to, null, null, null, 1000));
+
+        assertTimestamps(from, 100, result.getEntries());
+        assertTrue(result.getBlocksSkipped() > 0);
+        assertTrue(result.getBlocksScanned() < result.getBlocksSkipped());
+        assertFalse(result.isTruncated());
+        // Las líneas de continuación vuelven pegadas a su entrada
+        assertTrue(result.getEntries().get(0).getMessage().contains("\n\tat DeltaFlores.web.service.PlantaService"));
+    }
+
+    @Test
+    void levelAndLoggerFiltersUseTheBlockStatistics() throws IOException {
+        writeArchive("app-2026-03-01.log.gz", logLines(START, 2000));
+        LogQueryService service = newService();
+
+        LogQueryResultDto result = service.search(new LogQueryService.LogQuery(null, null, "ERROR", "planta", null, 1000));
+
+        assertEquals(20, result.getEntries().size());
+        for (LogEntryDto entry : result.getEntries()) {
+            assertEquals("ERROR", entry.getLevel());
+            assertEquals("PlantaService", entry.getLogger());
+        }
+    }
+
+    @Test
+    void rangeQueryOnCurrentLogSeeksToTheStartOfTheRange() throws IOException {
+        // Bastante más grande que la ventana de la búsqueda binaria
+        Files.writeString(logsDir.resolve("app.log"), logLines(START, 6000), StandardCharsets.UTF_8);
+        LogQueryService service = newService();
+
+        LocalDateTime from = START.plusMinutes(4321);
+        LogQueryResultDto result = service.search(new LogQueryService.LogQuery(from, from.plusMinutes(49), null, null, null, 1000));
+
+        assertTimestamps(from, 50, result.getEntries());
+        assertEquals(1, result.getFilesScanned());
+    }
+
+    @Test
+    void searchSpansArchiveAndCurrentLogAndStopsAtTheLimit() throws IOException {
+        writeArchive("app-2026-03-01.log.gz", logLines(START, 1440));
+        Files.writeString(logsDir.resolve("app.log"), logLines(START.plusDays(1), 1440), StandardCharsets.UTF_8);
+        LogQueryService service = newService();
+
+        LocalDateTime from = START.plusMinutes(1430);
+        LogQueryResultDto spanning = service.search(new LogQueryService.LogQuery(from, from.plusMinutes(19), null, null, null, 1000));
+        assertTimestamps(from, 20, spanning.getEntries());
+        assertEquals(2, spanning.getFilesScanned());
+
+        LogQueryResultDto limited = service.search(new LogQueryService.LogQuery(from, null, null, null, null, 5));
+        assertTimestamps(from, 5, limited.getEntries());
+        assertTrue(limited.isTruncated());
+    }
+
+    private LogQueryService newService() {
+        return new LogQueryService(new LogArchiveIndexer(logsDir.toString(), BLOCK_SIZE_BYTES), logsDir.toString());
+    }
+
+    /**
+     * Una entrada por minuto. Cada 100 hay un ERROR de PlantaService con stack trace; el resto alterna loggers en INFO.
+     */
+    private static String logLines(LocalDateTime start, int count) {
+        StringBuilder lines = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            String timestamp = start.plusMinutes(i).format(TIMESTAMP);
+            if (i % 100 == 0) {
+                lines.append(timestamp).append(" ERROR [http-nio-8080-exec-1] PlantaService - Error al guardar la planta ")
+                        .append(i).append('\n')
+                        .append("java.lang.IllegalStateException: planta ").append(i).append('\n')
+                        .append("\tat DeltaFlores.web.service.PlantaService.savePlanta(PlantaService.java:42)\n");
+            } else {
+                String logger = i % 2 == 0 ? "MediaDeletionQueue" : "LogQueryService";
+                lines.append(timestamp).append(" INFO  [scheduling-1] ").append(logger).append(" - \n\n")
+                        .append("🗑️ Entrada de prueba número ").append(i).append('\n');
+            }
+        }
+        return lines.toString();
+    }
+
+    private Path writeArchive(String name, String content) throws IOException {
+        Path archive = logsDir.resolve(name);
+        try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(archive))) {
+            out.write(content.getBytes(StandardCharsets.UTF_8));
+        }
+        // Los .gz modificados hace menos de un minuto se consideran todavía en escritura
+        Files.setLastModifiedTime(archive, FileTime.fromMillis(System.currentTimeMillis() - 120_000));
+        return archive;
+    }
+
+    private static String gunzip(Path file) throws IOException {
+        try (InputStream in = new GZIPInputStream(Files.newInputStream(file))) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+    private static void assertTimestamps(LocalDateTime first, int count, List<LogEntryDto> entries) {
+        List<LocalDateTime> expected = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            expected.add(first.plusMinutes(i));
+        }
+        assertEquals(expected, entries.stream().map(LogEntryDto::getTimestamp).toList());
+    }
+}
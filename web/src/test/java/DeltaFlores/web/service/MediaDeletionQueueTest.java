@@ -0,0 +1,311 @@
+package DeltaFlores.web.service;
+
+import DeltaFlores.web.entities.MediaDeletion;
+import DeltaFlores.web.repository.MediaDeletionRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Proxy;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * La cola sobre una tabla en memoria con reloj propio: lo que falla en el almacenamiento queda en la tabla
+ * con espera exponencial y se reintenta al vencer; un lote tomado por un proceso que murió se retoma al vencer el lease.
+ */
+class MediaDeletionQueueTest {
+
+    private static final String PHOTO = "https://storage/bucket/cas-photo.jpg";
+    private static final String VIDEO = "https://storage/bucket/cas-video.mp4";
+    private static final long BASE_BACKOFF_SECONDS = 30;
+    private static final long LEASE_SECONDS = 300;
+
+    @Test
+    void failedDeletionKeepsTheRowAndIsRetriedWhenTheBackoffExpires() {
+        FakeQueueTable table = new FakeQueueTable();
+        FakeStorage storage = new FakeStorage();
+        MediaDeletionQueue queue = queue(table, storage);
+        queue.enqueue(List.of(PHOTO));
+
+        storage.unavailable = true;
+        queue.drain();
+
+        MediaDeletion row = table.single();
+        assertEquals(1, row.getAttempts());
+        assertEquals("almacenamiento caído", row.getLastError());
+        assertSecondsFromNow(BASE_BACKOFF_SECONDS, row.getNextAttemptAt());
+
+        // Antes de que venza la espera no se vuelve a intentar
+        storage.unavailable = false;
+        queue.drain();
+        assertEquals(List.of(List.of(PHOTO)), storage.calls);
+
+        table.advance(Duration.ofSeconds(BASE_BACKOFF_SECONDS));
+        queue.drain();
+        assertEquals(List.of(PHOTO), storage.deleted);
+        assertEquals(0, table.rows.size());
+    }
+
+    @Test
+    void backoffDoublesOnEachFailedAttempt() {
+        FakeQueueTable table = new FakeQueueTable();
+        FakeStorage storage = new FakeStorage();
+        MediaDeletionQueue queue = queue(table, storage);
+        queue.enqueue(List.of(PHOTO));
+        storage.unavailable = true;
+
+        queue.drain();
+        table.advance(Duration.ofSeconds(BASE_BACKOFF_SECONDS));
+        queue.drain();
+        assertEquals(2, table.single().getAttempts());
+        assertSecondsFromNow(2 * BASE_BACKOFF_SECONDS, table.single().getNextAttemptAt());
+
+        table.advance(Duration.ofSeconds(2 * BASE_BACKOFF_SECONDS));
+        queue.drain();
+        assertEquals(3, table.single().getAttempts());
+        assertSecondsFromNow(4 * BASE_BACKOFF_SECONDS, table.single().getNextAttemptAt());
+    }
+
+    @Test
+    void onlyTheRejectedUrlStaysQueued() {
+        FakeQueueTable table = new FakeQueueTable();
+        FakeStorage storage = new FakeStorage();
+        MediaDeletionQueue queue = queue(table, storage);
+        queue.enqueue(List.of(PHOTO, VIDEO));
+
+        storage.rejected.add(VIDEO);
+        queue.drain();
+
+        assertEquals(List.of(PHOTO), storage.deleted);
+        MediaDeletion row = table.single();
+        assertEquals(VIDEO, row.getFileUrl());
+        assertEquals(1, row.getAttempts());
+        assertEquals("Borrado rechazado por el almacenamiento", row.getLastError());
+    }
+
+    @Test
+    void repeatedUrlIsReleasedOncePerRowAndAFailureStopsItsRemainingRows() {
+        FakeQueueTable table = new FakeQueueTable();
+        FakeStorage storage = new FakeStorage();
+        MediaDeletionQueue queue = queue(table, storage);
+        queue.enqueue(List.of(PHOTO, PHOTO, PHOTO));
+
+        // La primera ronda borra una referencia; la segunda falla y la tercera fila ni se intenta
+        storage.failAfter = 1;
+        queue.drain();
+
+        assertEquals(List.of(PHOTO), storage.deleted);
+        assertEquals(2, table.rows.size());
+        for (MediaDeletion row : table.rows) {
+            assertEquals(1, row.getAttempts());
+        }
+
+        storage.failAfter = Integer.MAX_VALUE;
+        table.advance(Duration.ofSeconds(BASE_BACKOFF_SECONDS));
+        queue.drain();
+        assertEquals(List.of(PHOTO, PHOTO, PHOTO), storage.deleted);
+        assertEquals(0, table.rows.size());
+    }
+
+    @Test
+    void batchLeasedByAWorkerThatDiedIsPickedUpAfterTheLease() {
+        FakeQueueTable table = new FakeQueueTable();
+        FakeStorage storage = new FakeStorage();
+        queue(table, storage).enqueue(List.of(PHOTO));
+
+        // El proceso muere mientras habla con el almacenamiento: la fila queda tomada, sin intento registrado
+        storage.crash = true;
+        MediaDeletionQueue dying = queue(table, storage);
+        assertThrows(Error.class, dying::drain);
+        assertEquals(0, table.single().getAttempts());
+
+        // Tras el reinicio la fila sigue en la tabla, pero nadie la toma hasta que vence el lease
+        storage.crash = false;
+        MediaDeletionQueue restarted = queue(table, storage);
+        restarted.drain();
+        assertEquals(List.of(), storage.deleted);
+
+        table.advance(Duration.ofSeconds(LEASE_SECONDS));
+        restarted.drain();
+        assertEquals(List.of(PHOTO), storage.deleted);
+        assertEquals(0, table.rows.size());
+    }
+
+    private static MediaDeletionQueue queue(FakeQueueTable table, FakeStorage storage) {
+        MediaDeletionQueue queue = new MediaDeletionQueue(table.repository(), storage.service(),
+                new TransactionTemplate(new NoOpTransactionManager()), new NoMediaCache());
+        set(queue, "batchSize", 100);
+        set(queue, "baseBackoffSeconds", BASE_BACKOFF_SECONDS);
+        set(queue, "maxBackoffSeconds", 3600L);
+        set(queue, "leaseSeconds", LEASE_SECONDS);
+        set(queue, "alertAfterAttempts", 10);
+        return queue;
+    }
+
+    private static void set(Object target, String field, Object value) {
+        try {
+            Field declared = target.getClass().getDeclaredField(field);
+            declared.setAccessible(true);
+            declared.set(target, value);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * La cola calcula los vencimientos con el reloj real (no con el de la tabla), así que se comparan con un margen.
+     */
+    private static void assertSecondsFromNow(long expectedSeconds, LocalDateTime nextAttemptAt) {
+        long seconds = Duration.between(LocalDateTime.now(), nextAttemptAt).toSeconds();
+        assertTrue(Math.abs(seconds - expectedSeconds) <= 5, "espera de " + seconds + "s, se esperaban " + expectedSeconds);
+    }
+
+    /**
+     * media_deletion_queue en memoria. Las filas devueltas se modifican en el lugar, como entidades administradas.
+     * El reloj avanza con advance para simular el paso del tiempo sin esperar.
+     */
+    private static final class FakeQueueTable {
+        private final List<MediaDeletion> rows = new ArrayList<>();
+        private Duration elapsed = Duration.ZERO;
+        private long nextId = 1;
+
+        void advance(Duration duration) {
+            elapsed = elapsed.plus(duration);
+        }
+
+        LocalDateTime now() {
+            return LocalDateTime.now().plus(elapsed);
+        }
+
+        MediaDeletion single() {
+            assertEquals(1, rows.size());
+            return rows.get(0);
+        }
+
+        MediaDeletionRepository repository() {
+            return (MediaDeletionRepository) Proxy.newProxyInstance(MediaDeletionRepository.class.getClassLoader(),
+                    new Class<?>[]{MediaDeletionRepository.class}, (proxy, method, args) -> switch (method.getName()) {
+                        case "lockDueBatch" -> lockDueBatch((Integer) args[0]);
+                        case "saveAll" -> saveAll((Iterable<?>) args[0]);
+                        case "deleteAllByIdInBatch" -> {
+                            Collection<?> ids = (Collection<?>) args[0];
+                            rows.removeIf(row -> ids.contains(row.getId()));
+                            yield null;
+                        }
+                        default -> throw new UnsupportedOperationException(method.getName());
+                    });
+        }
+
+        private List<MediaDeletion> lockDueBatch(int limit) {
+            LocalDateTime now = now();
+            return rows.stream().filter(row -> !row.getNextAttemptAt().isAfter(now)).limit(limit).toList();
+        }
+
+        private List<MediaDeletion> saveAll(Iterable<?> deletions) {
+            List<MediaDeletion> saved = new ArrayList<>();
+            for (Object item : deletions) {
+                MediaDeletion deletion = (MediaDeletion) item;
+                if (deletion.getId() == null) {
+                    deletion.setId(nextId++);
+                    rows.add(deletion);
+                }
+                saved.add(deletion);
+            }
+            return saved;
+        }
+    }
+
+    /**
+     * Almacenamiento que registra cada llamada a deleteFiles y puede caerse, rechazar URLs o matar el proceso.
+     */
+    private static final class FakeStorage {
+        private final List<List<String>> calls = new ArrayList<>();
+        private final List<String> deleted = new ArrayList<>();
+        private final Set<String> rejected = new HashSet<>();
+        private boolean unavailable;
+        private boolean crash;
+        private int failAfter = Integer.MAX_VALUE;
+
+        FileStorageService service() {
+            return (FileStorageService) Proxy.newProxyInstance(FileStorageService.class.getClassLoader(),
+                    new Class<?>[]{FileStorageService.class}, (proxy, method, args) -> {
+                        if (!method.getName().equals("deleteFiles")) {
+                            throw new UnsupportedOperationException(method.getName());
+                        }
+                        return deleteFiles((Collection<?>) args[0]);
+                    });
+        }
+
+        private Set<String> deleteFiles(Collection<?> fileUrls) {
+            List<String> urls = fileUrls.stream().map(String.class::cast).toList();
+            calls.add(urls);
+            if (crash) {
+                throw new Error("proceso terminado");
+            }
+            if (unavailable || calls.size() > failAfter) {
+                throw new IllegalStateException("almacenamiento caído");
+            }
+            Set<String> failed = new HashSet<>();
+            for (String url : urls) {
+                if (rejected.contains(url)) {
+                    failed.add(url);
+                } else {
+                    deleted.add(url);
+                }
+            }
+            return failed;
+        }
+    }
+
+    private static final class NoOpTransactionManager implements PlatformTransactionManager {
+        @Override
+        public TransactionStatus getTransaction(TransactionDefinition definition) {
+            return new SimpleTransactionStatus();
+        }
+
+        @Override
+        public void commit(TransactionStatus status) {
+        }
+
+        @Override
+        public void rollback(TransactionStatus status) {
+        }
+    }
+
+    private static final class NoMediaCache implements ObjectProvider<MediaCacheService> {
+        @Override
+        public MediaCacheService getObject(Object... args) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public MediaCacheService getIfAvailable() {
+            return null;
+        }
+
+        @Override
+        public MediaCacheService getIfUnique() {
+            return null;
+        }
+
+        @Override
+        public MediaCacheService getObject() {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
@@ -0,0 +1,161 @@
+package DeltaFlores.web.service;
+
+import DeltaFlores.web.entities.MediaVariant;
+import DeltaFlores.web.entities.MediaVariantType;
+import DeltaFlores.web.entities.NoteEvent;
+import DeltaFlores.web.repository.NoteEventRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class MediaDerivativeServiceTest {
+
+    private static final String ORIGINAL_URL = "http://storage/bucket/original.png";
+
+    private final FileStorageService fileStorageService = mock(FileStorageService.class);
+    private final MediaDeletionQueue mediaDeletionQueue = mock(MediaDeletionQueue.class);
+    private final NoteEventRepository noteEventRepository = mock(NoteEventRepository.class);
+    private final TransactionTemplate transactionTemplate = mock(TransactionTemplate.class);
+    private final CountDownLatch recorded = new CountDownLatch(1);
+    private MediaDerivativeService service;
+
+    @BeforeEach
+    void setUp() {
+        service = new MediaDerivativeService(fileStorageService, mediaDeletionQueue, noteEventRepository, transactionTemplate, 1, 10);
+        ReflectionTestUtils.setField(service, "enabled", true);
+        ReflectionTestUtils.setField(service, "thumbnailMaxSize", 32);
+        ReflectionTestUtils.setField(service, "webMaxSize", 128);
+        ReflectionTestUtils.setField(service, "jpegQuality", 0.8f);
+        when(transactionTemplate.execute(any())).thenAnswer(invocation -> {
+            try {
+                TransactionCallback<?> callback = invocation.getArgument(0);
+                return callback.doInTransaction(null);
+            } finally {
+                recorded.countDown();
+            }
+        });
+        when(fileStorageService.uploadStream(any(), anyLong(), eq("image/jpeg"), anyString()))
+                .thenAnswer(invocation -> "http://storage/bucket/" + invocation.getArgument(3, String.class));
+    }
+
+    @AfterEach
+    void tearDown() {
+        service.shutdown();
+    }
+
+    @Test
+    void generatesThumbnailAndWebVariantsScaledToTheirMaxSize() throws Exception {
+        NoteEvent event = noteEvent(ORIGINAL_URL);
+        when(noteEventRepository.findById(1L)).thenReturn(Optional.of(event));
+        when(fileStorageService.openStream(ORIGINAL_URL)).thenReturn(new ByteArrayInputStream(png(400, 200)));
+
+        service.enqueue(1L, List.of(ORIGINAL_URL));
+
+        assertThat(recorded.await(10, TimeUnit.SECONDS)).isTrue();
+        assertThat(event.getMediaVariants()).hasSize(2);
+        MediaVariant thumbnail = variant(event, MediaVariantType.THUMBNAIL);
+        assertThat(thumbnail.getOriginalUrl()).isEqualTo(ORIGINAL_URL);
+        assertThat(thumbnail.getWidth()).isEqualTo(32);
+        assertThat(thumbnail.getHeight()).isEqualTo(16);
+        MediaVariant web = variant(event, MediaVariantType.WEB);
+        assertThat(web.getWidth()).isEqualTo(128);
+        assertThat(web.getHeight()).isEqualTo(64);
+        verify(mediaDeletionQueue, never()).enqueueIndependently(any());
+    }
+
+    @Test
+    void replacesPreviousVariantsOfTheSameOriginal() throws Exception {
+        NoteEvent event = noteEvent(ORIGINAL_URL);
+        event.getMediaVariants().add(new MediaVariant(ORIGINAL_URL, MediaVariantType.THUMBNAIL, "http://storage/bucket/old.jpg", 1, 1));
+        when(noteEventRepository.findById(1L)).thenReturn(Optional.of(event));
+        when(fileStorageService.openStream(ORIGINAL_URL)).thenReturn(new ByteArrayInputStream(png(64, 64)));
+
+        service.enqueue(1L, List.of(ORIGINAL_URL));
+
+        assertThat(recorded.await(10, TimeUnit.SECONDS)).isTrue();
+        assertThat(event.getMediaVariants()).hasSize(2)
+                .extracting(MediaVariant::getUrl)
+                .doesNotContain("http://storage/bucket/old.jpg");
+    }
+
+    @Test
+    void discardsVariantsWhenTheOriginalWasRemovedWhileQueued() throws Exception {
+        NoteEvent event = noteEvent("http://storage/bucket/other.png");
+        when(noteEventRepository.findById(1L)).thenReturn(Optional.of(event));
+        when(fileStorageService.openStream(ORIGINAL_URL)).thenReturn(new ByteArrayInputStream(png(64, 64)));
+
+        service.enqueue(1L, List.of(ORIGINAL_URL));
+
+        assertThat(recorded.await(10, TimeUnit.SECONDS)).isTrue();
+        assertThat(event.getMediaVariants()).isEmpty();
+        verify(mediaDeletionQueue, timeout(5000)).enqueueIndependently(
+                List.of("http://storage/bucket/thumbnail.jpg", "http://storage/bucket/web.jpg"));
+    }
+
+    @Test
+    void skipsFilesThatAreNotImages() throws Exception {
+        String videoUrl = "http://storage/bucket/timelapse.mp4";
+        when(fileStorageService.openStream(videoUrl)).thenReturn(new ByteArrayInputStream(new byte[]{0, 0, 0, 24, 'f', 't', 'y', 'p'}));
+
+        service.enqueue(1L, List.of(videoUrl));
+
+        verify(fileStorageService, timeout(5000)).openStream(videoUrl);
+        assertThat(recorded.await(500, TimeUnit.MILLISECONDS)).isFalse();
+        verify(fileStorageService, never()).uploadStream(any(), anyLong(), any(), any());
+    }
+
+    @Test
+    void removeOrphanVariantsReturnsVariantsWhoseOriginalIsGone() {
+        NoteEvent event = noteEvent(ORIGINAL_URL);
+        MediaVariant kept = new MediaVariant(ORIGINAL_URL, MediaVariantType.WEB, "http://storage/bucket/kept.jpg", 10, 10);
+        MediaVariant orphan = new MediaVariant("http://storage/bucket/gone.png", MediaVariantType.THUMBNAIL, "http://storage/bucket/orphan.jpg", 10, 10);
+        event.getMediaVariants().addAll(List.of(kept, orphan));
+
+        List<MediaVariant> removed = MediaDerivativeService.removeOrphanVariants(event);
+
+        assertThat(removed).containsExactly(orphan);
+        assertThat(event.getMediaVariants()).containsExactly(kept);
+    }
+
+    private static NoteEvent noteEvent(String... mediaUrls) {
+        NoteEvent event = new NoteEvent();
+        event.setId(1L);
+        event.setMediaUrls(new ArrayList<>(List.of(mediaUrls)));
+        return event;
+    }
+
+    private static MediaVariant variant(NoteEvent event, MediaVariantType type) {
+        return event.getMediaVariants().stream().filter(variant -> variant.getType() == type).findFirst().orElseThrow();
+    }
+
+    private static byte[] png(int width, int height) throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        ImageIO.write(new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB), "png", output);
+        return output.toByteArray();
+    }
+}
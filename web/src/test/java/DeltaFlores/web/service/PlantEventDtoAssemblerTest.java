@@ -0,0 +1,59 @@
+package DeltaFlores.web.service;
+
+import DeltaFlores.web.dto.NoteEventDto;
+import DeltaFlores.web.dto.PlantEventDto;
+import DeltaFlores.web.entities.NoteEvent;
+import DeltaFlores.web.entities.PlantEvent;
+import DeltaFlores.web.entities.WateringEvent;
+import DeltaFlores.web.repository.NoteEventRepository;
+import DeltaFlores.web.repository.PlantEventRepository;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class PlantEventDtoAssemblerTest {
+
+    private final PlantEventRepository plantEventRepository = mock(PlantEventRepository.class);
+    private final NoteEventRepository noteEventRepository = mock(NoteEventRepository.class);
+    private final PlantEventDtoAssembler assembler = new PlantEventDtoAssembler(plantEventRepository, noteEventRepository);
+
+    @Test
+    void loadsMediaVariantsOfAllNoteEventsInOneQuery() {
+        NoteEvent withVariants = noteEvent(1L, "http://storage/bucket/a.png", "http://storage/bucket/b.png");
+        NoteEvent withoutVariants = noteEvent(2L, "http://storage/bucket/c.png");
+        WateringEvent watering = new WateringEvent();
+        watering.setId(3L);
+        List<Object[]> variantRows = new ArrayList<>();
+        variantRows.add(new Object[]{1L, "http://storage/bucket/a.png", "THUMBNAIL", "http://storage/bucket/a-thumb.jpg", 32, 16});
+        variantRows.add(new Object[]{1L, "http://storage/bucket/a.png", "WEB", "http://storage/bucket/a-web.jpg", null, null});
+        when(noteEventRepository.findMediaVariantsByEventIds(List.of(1L, 2L))).thenReturn(variantRows);
+        when(plantEventRepository.findPlantaIdsByEventIds(List.of(1L, 2L, 3L))).thenReturn(List.<Object[]>of(new Object[]{3L, 7L}));
+
+        List<PlantEventDto> dtos = assembler.toDtos(List.<PlantEvent>of(withVariants, withoutVariants, watering), PlantEventDto.class);
+
+        verify(noteEventRepository, times(1)).findMediaVariantsByEventIds(any());
+        NoteEventDto first = (NoteEventDto) dtos.get(0);
+        assertThat(first.getThumbnailUrls()).containsExactly("http://storage/bucket/a-thumb.jpg", null);
+        assertThat(first.getWebUrls()).containsExactly("http://storage/bucket/a-web.jpg", null);
+        NoteEventDto second = (NoteEventDto) dtos.get(1);
+        assertThat(second.getThumbnailUrls()).containsExactly((String) null);
+        assertThat(dtos.get(2).getPlantaIds()).containsExactly(7L);
+    }
+
+    private static NoteEvent noteEvent(Long id, String... mediaUrls) {
+        NoteEvent event = new NoteEvent();
+        event.setId(id);
+        event.setMediaUrls(List.of(mediaUrls));
+        // Si el assembler tocara la colección lazy fallaría con NullPointerException
+        event.setMediaVariants(null);
+        return event;
+    }
+}
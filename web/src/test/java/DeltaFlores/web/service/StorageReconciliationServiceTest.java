@@ -0,0 +1,170 @@
+package DeltaFlores.web.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * El merge-join decide qué objetos del bucket se borran: el orden tiene que coincidir con el de S3/GCS
+ * (bytes UTF-8) y con COLLATE "C" de Postgres, y ningún objeto ni referencia puede saltearse.
+ */
+class StorageReconciliationServiceTest {
+
+    // Páginas chicas para cruzar límites de página en todas las fuentes
+    private static final int PAGE_SIZE = 2;
+
+    @Test
+    void compareBinaryOrdersAsciiByByteValue() {
+        assertTrue(StorageReconciliationService.compareBinary("A", "a") < 0);
+        assertTrue(StorageReconciliationService.compareBinary("Z", "a") < 0);
+        assertTrue(StorageReconciliationService.compareBinary("a-1", "a.1") < 0);
+        assertTrue(StorageReconciliationService.compareBinary("a", "ab") < 0);
+        assertTrue(StorageReconciliationService.compareBinary("ab", "a") > 0);
+        assertEquals(0, StorageReconciliationService.compareBinary("cas-abc", "cas-abc"));
+        assertEquals(0, StorageReconciliationService.compareBinary("", ""));
+    }
+
+    @Test
+    void compareBinaryPutsSupplementaryCharactersAfterTheBasicPlane() {
+        String emoji = "foto-🌱.jpg";
+        String lastBmp = "foto-\uFFFD.jpg";
+        // Las unidades UTF-16 ordenan al revés que los code points (y que los bytes UTF-8)
+        assertTrue(emoji.compareTo(lastBmp) < 0);
+        assertTrue(StorageReconciliationService.compareBinary(emoji, lastBmp) > 0);
+    }
+
+    @Test
+    void compareBinaryMatchesUtf8ByteOrder() {
+        List<String> names = List.of("", "a", "A", "z", "é", "ñandú.png", "日本.jpg", "🌱", "\uFFFD", "\u007F",
+                "\u0080", "cas-0f", "cas-0F", "upload-part-x-1", "upload-part-x-10", "upload-part-x-2");
+        for (String a : names) {
+            for (String b : names) {
+                int expected = Integer.signum(Arrays.compareUnsigned(
+                        a.getBytes(StandardCharsets.UTF_8), b.getBytes(StandardCharsets.UTF_8)));
+                assertEquals(expected, Integer.signum(StorageReconciliationService.compareBinary(a, b)), a + " vs " + b);
+            }
+        }
+    }
+
+    @Test
+    void bothSidesEmptyVisitsNothing() {
+        Recorder recorder = merge(List.of(), List.of(), List.of(), List.of(), List.of());
+
+        assertEquals(List.of(), recorder.events);
+    }
+
+    @Test
+    void withoutReferencesEveryObjectIsUnreferenced() {
+        Recorder recorder = merge(List.of("a", "b", "c", "d", "e"), List.of(), List.of(), List.of(), List.of());
+
+        assertEquals(List.of("unreferenced a", "unreferenced b", "unreferenced c", "unreferenced d", "unreferenced e"),
+                recorder.events);
+    }
+
+    @Test
+    void withAnEmptyBucketOnlyNoteReferencesAreDangling() {
+        Recorder recorder = merge(List.of(), List.of("a", "c"), List.of("b"), List.of("d"), List.of("e"));
+
+        // Los blobs y la cola de borrado solo protegen objetos; que falten no es una referencia colgante
+        assertEquals(List.of("dangling a", "dangling b", "dangling c"), recorder.events);
+    }
+
+    @Test
+    void anObjectReferencedSeveralTimesAndFromSeveralSourcesIsVisitedOnce() {
+        Recorder recorder = merge(
+                List.of("cas-1", "cas-2", "x"),
+                List.of("cas-1", "cas-1", "cas-1", "cas-2"),
+                List.of("cas-1"),
+                List.of("cas-1", "cas-2"),
+                List.of("cas-1"));
+
+        assertEquals(List.of("referenced cas-1", "referenced cas-2", "unreferenced x"), recorder.events);
+    }
+
+    @Test
+    void interleavedSidesAreJoinedInOrderAcrossPages() {
+        Recorder recorder = merge(
+                List.of("a", "b", "d", "f", "g", "🌱"),
+                List.of("b", "c", "\uFFFD"),
+                List.of("e"),
+                List.of("f"),
+                List.of("g"));
+
+        assertEquals(List.of("unreferenced a", "referenced b", "dangling c", "unreferenced d", "dangling e",
+                "referenced f", "referenced g", "dangling \uFFFD", "unreferenced 🌱"), recorder.events);
+    }
+
+    @Test
+    void objectsAfterTheLastReferenceAreStillVisited() {
+        Recorder recorder = merge(List.of("a", "m", "n", "o", "p"), List.of("a"), List.of(), List.of(), List.of());
+
+        assertEquals(List.of("referenced a", "unreferenced m", "unreferenced n", "unreferenced o", "unreferenced p"),
+                recorder.events);
+    }
+
+    @Test
+    void referencesAfterTheLastObjectAreStillVisited() {
+        Recorder recorder = merge(List.of("a"), List.of("a", "b", "c", "d"), List.of(), List.of(), List.of());
+
+        assertEquals(List.of("referenced a", "dangling b", "dangling c", "dangling d"), recorder.events);
+    }
+
+    private static Recorder merge(List<String> objects, List<String> noteMedia, List<String> noteVariants,
+                                  List<String> blobs, List<String> pendingDeletions) {
+        List<FileStorageService.StoredObject> stored = objects.stream()
+                .map(name -> new FileStorageService.StoredObject(name, 1, Instant.EPOCH)).toList();
+        StorageReconciliationService.SortedCursor<FileStorageService.StoredObject> bucket =
+                new StorageReconciliationService.SortedCursor<>(pages(stored, FileStorageService.StoredObject::name),
+                        FileStorageService.StoredObject::name, PAGE_SIZE);
+        StorageReconciliationService.ReferenceCursor references = new StorageReconciliationService.ReferenceCursor(
+                names(noteMedia), names(noteVariants), names(blobs), names(pendingDeletions));
+        Recorder recorder = new Recorder();
+        StorageReconciliationService.mergeJoin(bucket, references, recorder);
+        return recorder;
+    }
+
+    private static StorageReconciliationService.SortedCursor<String> names(List<String> names) {
+        return new StorageReconciliationService.SortedCursor<>(pages(names, Function.identity()), Function.identity(), PAGE_SIZE);
+    }
+
+    /**
+     * Paginación por keyset como la de las consultas: nombres estrictamente mayores que el último, en orden binario.
+     * Los repetidos (la misma URL en varias notas) se devuelven todos.
+     */
+    private static <T> BiFunction<String, Integer, List<T>> pages(List<T> items, Function<T, String> nameOf) {
+        List<T> sorted = new ArrayList<>(items);
+        sorted.sort((a, b) -> StorageReconciliationService.compareBinary(nameOf.apply(a), nameOf.apply(b)));
+        return (after, limit) -> sorted.stream()
+                .filter(item -> StorageReconciliationService.compareBinary(nameOf.apply(item), after) > 0)
+                .limit(limit)
+                .toList();
+    }
+
+    private static final class Recorder implements StorageReconciliationService.MergeVisitor {
+        private final List<String> events = new ArrayList<>();
+
+        @Override
+        public void referenced(FileStorageService.StoredObject object) {
+            events.add("referenced " + object.name());
+        }
+
+        @Override
+        public void unreferenced(FileStorageService.StoredObject object) {
+            events.add("unreferenced " + object.name());
+        }
+
+        @Override
+        public void dangling(String objectName) {
+            events.add("dangling " + objectName);
+        }
+    }
+}
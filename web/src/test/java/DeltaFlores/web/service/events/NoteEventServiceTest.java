@@ -0,0 +1,55 @@
+package DeltaFlores.web.service.events;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Cada entrada de mediaUrls es una referencia que se libera al borrar el evento (en modo cas- una fila de media_blobs),
+ * así que la comparación de una actualización tiene que contar repeticiones, no solo pertenencia.
+ */
+class NoteEventServiceTest {
+
+    private static final String BLOB = "http://storage/bucket/cas-aaaa";
+    private static final String OTHER = "http://storage/bucket/cas-bbbb";
+
+    @Test
+    void repeatingAHeldUrlMoreTimesThanTheEventHoldsItIsForeign() {
+        NoteEventService.MediaUrlChange change = NoteEventService.diffMediaUrls(List.of(BLOB), List.of(BLOB, BLOB, BLOB));
+
+        assertEquals(List.of(BLOB, BLOB), change.foreign());
+        assertEquals(List.of(), change.dropped());
+    }
+
+    @Test
+    void urlsTheEventDoesNotHoldAreForeign() {
+        NoteEventService.MediaUrlChange change = NoteEventService.diffMediaUrls(List.of(BLOB), List.of(BLOB, OTHER));
+
+        assertEquals(List.of(OTHER), change.foreign());
+    }
+
+    @Test
+    void keepingEveryEntryInAnyOrderDropsNothing() {
+        NoteEventService.MediaUrlChange change = NoteEventService.diffMediaUrls(List.of(BLOB, OTHER, BLOB), List.of(OTHER, BLOB, BLOB));
+
+        assertEquals(List.of(), change.foreign());
+        assertEquals(List.of(), change.dropped());
+    }
+
+    @Test
+    void leftOutEntriesAreDroppedOncePerMissingCopy() {
+        NoteEventService.MediaUrlChange change = NoteEventService.diffMediaUrls(List.of(BLOB, OTHER, BLOB), List.of(BLOB));
+
+        assertEquals(List.of(), change.foreign());
+        assertEquals(List.of(BLOB, OTHER), change.dropped());
+    }
+
+    @Test
+    void anEmptyListDropsEverything() {
+        NoteEventService.MediaUrlChange change = NoteEventService.diffMediaUrls(List.of(BLOB, OTHER), List.of());
+
+        assertEquals(List.of(BLOB, OTHER), change.dropped());
+    }
+}